@@ -48,6 +48,19 @@ CREATE TABLE `users` (
   KEY `idx_users_create_time` (`create_time`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='用户基础信息表';
 
+-- ===================================================================
+-- 1.0.1 用户层级闭包表
+-- 说明：维护 parent_user_id 子账号树的祖先-后代关系（不含自身），数据域以子查询方式引用
+-- ===================================================================
+DROP TABLE IF EXISTS `user_hierarchy_closure`;
+CREATE TABLE `user_hierarchy_closure` (
+  `ancestor_id` bigint NOT NULL COMMENT '祖先用户ID',
+  `descendant_id` bigint NOT NULL COMMENT '后代用户ID',
+  `depth` int NOT NULL COMMENT '层级距离(直接子账号为1)',
+  PRIMARY KEY (`ancestor_id`, `descendant_id`),
+  KEY `idx_uhc_descendant` (`descendant_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='用户层级闭包表';
+
 -- ===================================================================
 -- 1.1 团队与成员表（新增）
 -- 说明：引入团队域模型；用户在任一时刻仅允许加入一个未删除的团队
@@ -310,6 +323,51 @@ CREATE TABLE `credit_redeem_codes` (
   KEY `idx_credit_redeem_codes_expire_time` (`expire_time`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='积分兑换码表';
 
+-- ===================================================================
+-- 5.2 积分交易汇总表（新增）
+-- 说明：按小时/自然日预聚合积分交易，由后台任务按创建时间窗口增量维护（交易ID去重），统计查询优先读取
+-- ===================================================================
+DROP TABLE IF EXISTS `credit_transaction_rollups`;
+CREATE TABLE `credit_transaction_rollups` (
+  `id` bigint NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+  `bucket_type` varchar(10) COLLATE utf8mb4_unicode_ci NOT NULL COMMENT '汇总粒度(HOUR:小时 DAY:自然日)',
+  `bucket_start` datetime NOT NULL COMMENT '汇总区间起始时间',
+  `credit_type_code` varchar(50) COLLATE utf8mb4_unicode_ci NOT NULL COMMENT '积分类型编码',
+  `scenario_code` varchar(50) COLLATE utf8mb4_unicode_ci NOT NULL DEFAULT '' COMMENT '使用场景编码(无场景为空串)',
+  `transaction_type` varchar(30) COLLATE utf8mb4_unicode_ci NOT NULL COMMENT '交易类型',
+  `user_id` bigint NOT NULL COMMENT '用户ID',
+  `tx_count` bigint NOT NULL DEFAULT '0' COMMENT '交易笔数',
+  `income_amount` decimal(16,2) NOT NULL DEFAULT '0.00' COMMENT '收入合计',
+  `expense_amount` decimal(16,2) NOT NULL DEFAULT '0.00' COMMENT '支出合计(正数)',
+  `create_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  `update_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_credit_rollup_bucket` (`bucket_type`, `bucket_start`, `credit_type_code`, `scenario_code`, `transaction_type`, `user_id`),
+  KEY `idx_credit_rollup_user_bucket` (`user_id`, `bucket_type`, `bucket_start`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='积分交易汇总表';
+
+-- ===================================================================
+-- 5.3 积分汇总进度表（新增）
+-- 说明：记录汇总任务已完整覆盖的时间点，以及重扫窗口内已汇总交易的去重记录
+-- ===================================================================
+DROP TABLE IF EXISTS `credit_rollup_applied`;
+CREATE TABLE `credit_rollup_applied` (
+  `transaction_id` bigint NOT NULL COMMENT '已汇总的交易ID',
+  `create_time` datetime NOT NULL COMMENT '交易创建时间',
+  `batch_id` bigint NOT NULL COMMENT '汇总批次ID',
+  PRIMARY KEY (`transaction_id`),
+  KEY `idx_credit_rollup_applied_batch` (`batch_id`),
+  KEY `idx_credit_rollup_applied_time` (`create_time`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='积分汇总去重表(仅保留重扫窗口内的交易)';
+
+DROP TABLE IF EXISTS `credit_rollup_state`;
+CREATE TABLE `credit_rollup_state` (
+  `rollup_name` varchar(50) COLLATE utf8mb4_unicode_ci NOT NULL COMMENT '汇总名称',
+  `covered_until` datetime DEFAULT NULL COMMENT '早于该时间的交易均已汇总',
+  `update_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+  PRIMARY KEY (`rollup_name`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='积分汇总进度表';
+
 -- ===================================================================
 -- 6. 权限配置表
 -- ===================================================================
@@ -467,6 +525,7 @@ CREATE TABLE `announcements` (
   `schedule_time` datetime DEFAULT NULL COMMENT '定时发布时间（可空）',
   `notified` tinyint NOT NULL DEFAULT '0' COMMENT '是否已进行到点首次推送(0:否 1:是)',
   `first_push_time` datetime DEFAULT NULL COMMENT '首次到点推送时间',
+  `publish_seq` bigint DEFAULT NULL COMMENT '可见序号（进入生效窗口时按提交顺序分配，用于已读水位线比较）',
   `status` tinyint NOT NULL DEFAULT '0' COMMENT '状态(0:草稿 1:已发布 2:已下线)',
   `is_deleted` tinyint NOT NULL DEFAULT '0' COMMENT '删除标记(0:正常 1:删除)',
   `create_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
@@ -481,7 +540,7 @@ CREATE TABLE `announcements` (
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='公告表';
 
 -- -------------------------------------------------------------------
--- 9.1.1 公告阅读明细表（announcement_reads）
+-- 9.1.1 公告已读例外表（announcement_reads）：仅记录可见序号高于用户水位线的已读
 -- -------------------------------------------------------------------
 DROP TABLE IF EXISTS `announcement_reads`;
 CREATE TABLE `announcement_reads` (
@@ -495,7 +554,29 @@ CREATE TABLE `announcement_reads` (
   PRIMARY KEY (`id`),
   UNIQUE KEY `uk_announcement_read_user` (`announcement_id`, `user_id`),
   KEY `idx_announcement_read_user_time` (`user_id`, `read_at`)
-) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='公告阅读明细表';
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='公告已读例外表';
+
+-- -------------------------------------------------------------------
+-- 9.1.2 公告已读水位线表（announcement_read_cursors）：可见序号不大于水位线的公告视为已读
+-- -------------------------------------------------------------------
+DROP TABLE IF EXISTS `announcement_read_cursors`;
+CREATE TABLE `announcement_read_cursors` (
+  `user_id` bigint NOT NULL COMMENT '用户ID',
+  `watermark_seq` bigint NOT NULL DEFAULT '0' COMMENT '已读水位线（公告可见序号）',
+  `update_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+  PRIMARY KEY (`user_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='公告已读水位线表';
+
+-- -------------------------------------------------------------------
+-- 9.1.3 公告可见序号计数表（announcement_publish_seq）：分配序号时持有行锁至提交，序号按提交顺序可见
+-- -------------------------------------------------------------------
+DROP TABLE IF EXISTS `announcement_publish_seq`;
+CREATE TABLE `announcement_publish_seq` (
+  `id` int NOT NULL COMMENT '计数行ID（固定为1）',
+  `last_seq` bigint NOT NULL DEFAULT '0' COMMENT '最近分配的可见序号',
+  PRIMARY KEY (`id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='公告可见序号计数表';
+INSERT INTO `announcement_publish_seq` (`id`, `last_seq`) VALUES (1, 0);
 
 -- （移除）旧版 messages 表已废弃，使用 notify_messages 取代
 
@@ -555,6 +636,8 @@ CREATE TABLE `notify_messages` (
   `content` longtext COLLATE utf8mb4_unicode_ci NOT NULL COMMENT '消息正文内容（直接存储）',
   `schedule_time` datetime DEFAULT NULL COMMENT '计划推送时间（可空，null表示立即）',
   `status` tinyint NOT NULL DEFAULT '0' COMMENT '状态: 0待调度 1已入队 2已完成 3已取消 4失败',
+  `lease_owner` varchar(64) COLLATE utf8mb4_unicode_ci DEFAULT NULL COMMENT '调度租约持有者(节点ID:批次号)',
+  `lease_until` datetime DEFAULT NULL COMMENT '调度租约到期时间(到期未完成可被重新领取)',
   `is_deleted` tinyint NOT NULL DEFAULT '0' COMMENT '逻辑删除(0:正常 1:删除)',
   `create_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
   `update_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
@@ -563,7 +646,9 @@ CREATE TABLE `notify_messages` (
   PRIMARY KEY (`id`),
   KEY `idx_notify_messages_user` (`user_id`),
   KEY `idx_notify_messages_type` (`message_type`),
-  KEY `idx_notify_messages_time` (`create_time`)
+  KEY `idx_notify_messages_time` (`create_time`),
+  KEY `idx_notify_messages_due` (`status`, `schedule_time`),
+  KEY `idx_notify_messages_lease` (`lease_owner`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='用户定向通知消息（直接内容）';
 
 -- ===================================================================
@@ -2,9 +2,11 @@ package com.okbug.platform;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
 
 @SpringBootApplication
+@EnableScheduling
 public class MedicalModelPlatformApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,66 @@
+/**
+ * 接口限流注解：声明控制器方法的访问频率上限
+ * 
+ * 功能描述：
+ * 1. 按用户、IP或全局维度限流，未登录时用户维度退化为IP维度
+ * 2. 阈值可由系统配置覆盖，配置缺失时使用注解默认值
+ * 3. 支持滑动窗口与令牌桶算法、集群精确与本地低延迟两种模式
+ * 4. 超限抛出 429 请求过于频繁
+ * 
+ * @author hanjor
+ * @version 1.0
+ * @date 2026-10-17 23:00:00
+ */
+package com.okbug.platform.common.annotation;
+
+import com.okbug.platform.common.limiter.RateLimitService;
+
+import java.lang.annotation.*;
+
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface RateLimit {
+    
+    /**
+     * 限流名称，作为限流键与指标前缀：rl:{name}
+     */
+    String name();
+    
+    /**
+     * 窗口内最大次数（令牌桶为桶容量）
+     */
+    int limit() default 60;
+    
+    /**
+     * 覆盖阈值的系统配置键，为空时仅使用 limit
+     */
+    String limitConfigKey() default "";
+    
+    /**
+     * 窗口长度（秒）
+     */
+    int windowSeconds() default 60;
+    
+    /**
+     * 限流算法
+     */
+    RateLimitService.Algorithm algorithm() default RateLimitService.Algorithm.SLIDING_WINDOW;
+    
+    /**
+     * 限流模式
+     */
+    RateLimitService.Mode mode() default RateLimitService.Mode.CLUSTER;
+    
+    /**
+     * 限流维度
+     */
+    Dimension dimension() default Dimension.USER;
+    
+    /**
+     * 限流维度枚举
+     */
+    enum Dimension {
+        USER, IP, GLOBAL
+    }
+}
@@ -16,8 +16,8 @@ import com.okbug.platform.common.utils.IpUtils;
 import com.okbug.platform.common.enums.OperationModule;
 import com.okbug.platform.common.enums.OperationType;
 import com.okbug.platform.service.log.UserLogService;
-import com.okbug.platform.mapper.auth.UserMapper;
-import com.okbug.platform.entity.auth.User;
+import com.okbug.platform.common.cache.UserSnapshot;
+import com.okbug.platform.common.cache.UserSnapshotCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.ProceedingJoinPoint;
@@ -46,7 +46,7 @@ public class OperationLogAspect {
     
     private final UserLogService userLogService;
     private final ObjectMapper objectMapper;
-    private final UserMapper userMapper;
+    private final UserSnapshotCache userSnapshotCache;
     
     @Around("@annotation(com.okbug.platform.common.annotation.OperationLog)")
     public Object around(ProceedingJoinPoint joinPoint) throws Throwable {
@@ -256,7 +256,7 @@ public class OperationLogAspect {
     private String tryResolveUsername(Long userId) {
         if (userId == null) return null;
         try {
-            User user = userMapper.selectById(userId);
+            UserSnapshot user = userSnapshotCache.get(userId);
             return user != null ? user.getUsername() : null;
         } catch (Exception ignore) {
             return null;
@@ -0,0 +1,122 @@
+/**
+ * 接口限流切面：处理 {@link RateLimit} 注解
+ * 
+ * 限流键为 rl:{name}:{u:用户ID | ip:客户端IP | all}，指标按 rl:{name} 聚合
+ * 先于操作日志切面执行，被拒绝的请求不进入业务方法也不产生操作日志
+ * 配置化阈值首次使用时解析并缓存，收到系统配置变更通知后失效重载，热路径不读配置
+ * 
+ * @author hanjor
+ * @version 1.0
+ * @date 2026-10-17 23:00:00
+ */
+package com.okbug.platform.common.aspect;
+
+import cn.dev33.satoken.stp.StpUtil;
+import com.okbug.platform.common.annotation.RateLimit;
+import com.okbug.platform.common.base.ErrorCode;
+import com.okbug.platform.common.base.ServiceException;
+import com.okbug.platform.common.limiter.RateLimitService;
+import com.okbug.platform.common.utils.IpUtils;
+import com.okbug.platform.service.system.SystemConfigService;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Before;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Slf4j
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@RequiredArgsConstructor
+public class RateLimitAspect {
+
+    private static final String KEY_PREFIX = "rl:";
+
+    private final RateLimitService rateLimitService;
+    private final SystemConfigService systemConfigService;
+    private final RedisMessageListenerContainer redisMessageListenerContainer;
+
+    /**
+     * 配置键 -> 已解析的限流阈值
+     */
+    private final Map<String, Integer> configuredLimits = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        try {
+            redisMessageListenerContainer.addMessageListener(this::onConfigChanged,
+                    new ChannelTopic(SystemConfigService.CONFIG_CHANGED_CHANNEL));
+        } catch (Exception e) {
+            log.warn("订阅系统配置变更通知失败，限流阈值需重启后生效: {}", e.getMessage());
+        }
+    }
+
+    @Before("@annotation(rateLimit)")
+    public void checkRateLimit(RateLimit rateLimit) {
+        int limit = rateLimit.limit();
+        if (StringUtils.hasText(rateLimit.limitConfigKey())) {
+            limit = configuredLimits.computeIfAbsent(rateLimit.limitConfigKey(), k -> loadLimit(k, rateLimit.limit()));
+        }
+        String prefix = KEY_PREFIX + rateLimit.name();
+        String key = prefix + ":" + resolveSubject(rateLimit.dimension());
+        RateLimitService.Decision decision = rateLimitService.tryAcquire(prefix, key, limit,
+                Duration.ofSeconds(rateLimit.windowSeconds()), rateLimit.algorithm(), rateLimit.mode());
+        if (!decision.isAllowed()) {
+            long retryAfterSeconds = Math.max(1L, (decision.getRetryAfterMillis() + 999L) / 1000L);
+            log.warn("接口限流触发，键: {}, 阈值: {}, 建议重试秒数: {}", key, limit, retryAfterSeconds);
+            throw new ServiceException(ErrorCode.TOO_MANY_REQUESTS,
+                    ErrorCode.TOO_MANY_REQUESTS.getMessage() + "，请" + retryAfterSeconds + "秒后重试");
+        }
+    }
+
+    private int loadLimit(String configKey, int defaultLimit) {
+        try {
+            Integer value = systemConfigService.getConfigValueAsInt(configKey, defaultLimit);
+            return value != null ? value : defaultLimit;
+        } catch (Exception e) {
+            log.debug("读取限流配置失败，使用注解默认值，配置键: {}", configKey);
+            return defaultLimit;
+        }
+    }
+
+    private void onConfigChanged(Message message, byte[] pattern) {
+        String configKey = new String(message.getBody(), StandardCharsets.UTF_8);
+        if ("*".equals(configKey)) {
+            configuredLimits.clear();
+        } else {
+            configuredLimits.remove(configKey);
+        }
+    }
+
+    private String resolveSubject(RateLimit.Dimension dimension) {
+        if (dimension == RateLimit.Dimension.GLOBAL) {
+            return "all";
+        }
+        if (dimension == RateLimit.Dimension.USER) {
+            Object loginId = StpUtil.getLoginIdDefaultNull();
+            if (loginId != null) {
+                return "u:" + loginId;
+            }
+        }
+        ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
+        HttpServletRequest request = attributes != null ? attributes.getRequest() : null;
+        // 限流键只取经可信代理解析后的连接地址，客户端自带的 X-Forwarded-For 等头不能用来轮换限流键
+        return "ip:" + (request != null ? IpUtils.getTrustedClientIp(request) : "unknown");
+    }
+}
@@ -0,0 +1,44 @@
+/**
+ * 权限验证切面：处理 {@link RequirePermission} 注解
+ * 
+ * 通过 Sa-Token 校验，权限列表为位集时由自定义 StpLogic 以位测试判断
+ * 
+ * @author hanjor
+ * @version 1.0
+ * @date 2026-10-17 20:00:00
+ */
+package com.okbug.platform.common.aspect;
+
+import cn.dev33.satoken.stp.StpUtil;
+import com.okbug.platform.common.annotation.RequirePermission;
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Before;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+
+@Aspect
+@Component
+public class RequirePermissionAspect {
+    
+    @Before("@annotation(com.okbug.platform.common.annotation.RequirePermission) "
+            + "|| @within(com.okbug.platform.common.annotation.RequirePermission)")
+    public void checkPermission(JoinPoint joinPoint) {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        RequirePermission annotation = AnnotationUtils.findAnnotation(method, RequirePermission.class);
+        if (annotation == null) {
+            annotation = AnnotationUtils.findAnnotation(joinPoint.getTarget().getClass(), RequirePermission.class);
+        }
+        if (annotation == null || annotation.value().length == 0) {
+            return;
+        }
+        if (annotation.mode() == RequirePermission.Mode.OR) {
+            StpUtil.checkPermissionOr(annotation.value());
+        } else {
+            StpUtil.checkPermissionAnd(annotation.value());
+        }
+    }
+}
@@ -102,6 +102,7 @@ public enum ErrorCode {
     USER_REGISTER_DISABLED(1713, "用户注册功能未开启"),
     USER_REGISTER_REWARD_DISABLED(1714, "用户注册奖励功能未开启"),
     USER_REFERRAL_REWARD_DISABLED(1715, "引荐奖励功能未开启"),
+    PASSWORD_HASH_BUSY(1716, "登录人数较多，请稍后重试"),
     
     // ================ 引荐码相关错误 1720-1729 ================
     REFERRAL_CODE_NOT_FOUND(1720, "引荐码不存在"),
@@ -148,6 +149,11 @@ public enum ErrorCode {
     CREDIT_USER_ROLE_NOT_ALLOWED(1921, "用户角色不允许使用此积分场景"),
     CREDIT_SYSTEM_BESSY(1922, "积分系统繁忙，请稍后再试~"),
     CREDIT_TYPE_DELETE_FORBIDDEN_HAS_BALANCE(1923, "存在非零余额账户，禁止删除该积分类型"),
+    CREDIT_HOLD_NOT_FOUND(1924, "积分预授权不存在或已失效"),
+    CREDIT_HOLD_STATE_INVALID(1925, "积分预授权已结算、释放或过期"),
+    CREDIT_HOLD_CAPTURE_EXCEEDED(1926, "结算积分不能超过预授权积分"),
+    CREDIT_CHARGE_IN_PROGRESS(1927, "相同订单的积分扣费正在处理中，请稍后重试"),
+    CREDIT_ROLLUP_BUSY(1928, "积分交易汇总任务正在执行，请稍后重试"),
 
     // ================ 积分兑换码相关错误 1930-1949 ================
     REDEEM_CODE_INVALID(1930, "兑换码无效"),
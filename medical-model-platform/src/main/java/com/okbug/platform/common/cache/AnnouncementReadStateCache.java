@@ -0,0 +1,131 @@
+/**
+ * 公告已读状态缓存：在 Redis 中缓存用户的已读水位线与例外集合，未读角标计数命中时不访问数据库
+ *
+ * 功能描述：
+ * 1. 每个用户一个 Hash：w 字段为水位线，其余字段为高于水位线的已读公告ID（例外集合，通常为空或极少）
+ * 2. 未命中时由调用方从水位线表与例外表回源并写入，带过期时间
+ * 3. 用户标记已读后调用 evict，事务内会在提交后再清除一次
+ *
+ * Redis数据结构：
+ * - announcement:read:{userId}  Hash，w → 水位线，{公告ID} → 1
+ *
+ * @author hanjor
+ * @version 1.0
+ * @date 2026-10-17 23:58:00
+ */
+package com.okbug.platform.common.cache;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AnnouncementReadStateCache {
+
+    private static final String KEY_PREFIX = "announcement:read:";
+    private static final String FIELD_WATERMARK = "w";
+    private static final Duration EXPIRE_TIME = Duration.ofMinutes(30);
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 用户已读状态：水位线 + 高于水位线的已读公告ID
+     */
+    @Getter
+    public static final class ReadState {
+
+        private final long watermark;
+        private final Set<Long> exceptions;
+
+        public ReadState(long watermark, Set<Long> exceptions) {
+            this.watermark = watermark;
+            this.exceptions = exceptions;
+        }
+
+        /**
+         * 公告是否已读（可见序号不大于水位线，或在例外集合中）
+         */
+        public boolean isRead(Long announcementId, Long publishSeq) {
+            return (publishSeq != null && publishSeq <= watermark) || exceptions.contains(announcementId);
+        }
+    }
+
+    /**
+     * 获取用户已读状态，未命中时调用 loader 回源并写入 Redis；Redis 不可用时直接回源
+     */
+    public ReadState get(Long userId, Supplier<ReadState> loader) {
+        String key = KEY_PREFIX + userId;
+        try {
+            Map<Object, Object> fields = stringRedisTemplate.opsForHash().entries(key);
+            if (!fields.isEmpty()) {
+                return decode(fields);
+            }
+        } catch (Exception e) {
+            log.warn("读取公告已读状态缓存失败，回源数据库，userId: {}, 错误: {}", userId, e.getMessage());
+            return loader.get();
+        }
+        ReadState state = loader.get();
+        try {
+            Map<String, String> fields = new HashMap<>();
+            fields.put(FIELD_WATERMARK, String.valueOf(state.watermark));
+            for (Long id : state.exceptions) {
+                fields.put(String.valueOf(id), "1");
+            }
+            stringRedisTemplate.opsForHash().putAll(key, fields);
+            stringRedisTemplate.expire(key, EXPIRE_TIME);
+        } catch (Exception e) {
+            log.warn("写入公告已读状态缓存失败，userId: {}, 错误: {}", userId, e.getMessage());
+        }
+        return state;
+    }
+
+    /**
+     * 清除用户已读状态（标记已读后调用）
+     */
+    public void evict(Long userId) {
+        String key = KEY_PREFIX + userId;
+        Runnable action = () -> {
+            try {
+                stringRedisTemplate.delete(key);
+            } catch (Exception e) {
+                log.warn("清除公告已读状态缓存失败，userId: {}, 错误: {}", userId, e.getMessage());
+            }
+        };
+        action.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        }
+    }
+
+    private static ReadState decode(Map<Object, Object> fields) {
+        long watermark = 0L;
+        Set<Long> exceptions = new HashSet<>();
+        for (Map.Entry<Object, Object> e : fields.entrySet()) {
+            String field = String.valueOf(e.getKey());
+            if (FIELD_WATERMARK.equals(field)) {
+                watermark = Long.parseLong(String.valueOf(e.getValue()));
+            } else {
+                exceptions.add(Long.parseLong(field));
+            }
+        }
+        return new ReadState(watermark, exceptions);
+    }
+}
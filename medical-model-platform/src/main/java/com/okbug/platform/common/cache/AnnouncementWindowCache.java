@@ -0,0 +1,151 @@
+/**
+ * 公告可见窗口缓存：在本地缓存全部已发布且未过期公告的排序元数据（不含正文），替代可见/未读列表的逐次窗口查询
+ *
+ * 功能描述：
+ * 1. 快照按 优先级倒序、创建时间倒序 排列，可见性在读取时按当前时间判断（生效/失效时间到点无需刷新）
+ * 2. 发布、下线、到点分配可见序号后调用 invalidate，版本号递增并广播到所有节点，各节点下次读取时重建快照
+ * 3. 快照另有定期重建兜底（版本广播丢失、失效时间过后淘汰过期条目）
+ *
+ * @author hanjor
+ * @version 1.0
+ * @date 2026-10-17 23:55:00
+ */
+package com.okbug.platform.common.cache;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.okbug.platform.entity.system.message.Announcement;
+import com.okbug.platform.mapper.system.message.AnnouncementMapper;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AnnouncementWindowCache {
+
+    private static final String WINDOW_NS = "announcement:window";
+
+    /**
+     * 快照最长使用时长，到期后即使版本未变也重建
+     */
+    private static final long RELOAD_INTERVAL_MILLIS = 60_000L;
+
+    private final AnnouncementMapper announcementMapper;
+    private final CacheNamespaceManager cacheNamespaceManager;
+
+    private volatile Snapshot snapshot;
+
+    /**
+     * 公告排序元数据；publishSeq 为 null 表示尚未分配可见序号（历史数据或到点推送尚未处理）
+     */
+    @Getter
+    public static final class Entry {
+
+        private final Long id;
+        private final Long publishSeq;
+        private final LocalDateTime activeFrom;
+        private final LocalDateTime activeTo;
+
+        Entry(Announcement a) {
+            this.id = a.getId();
+            this.publishSeq = a.getPublishSeq();
+            this.activeFrom = a.getActiveFrom();
+            this.activeTo = a.getActiveTo();
+        }
+
+        /**
+         * 指定时间是否处于生效窗口内
+         */
+        public boolean visibleAt(LocalDateTime now) {
+            return (activeFrom == null || !activeFrom.isAfter(now)) && (activeTo == null || !activeTo.isBefore(now));
+        }
+    }
+
+    private static final class Snapshot {
+
+        final long version;
+        final long loadedAt;
+        final List<Entry> entries;
+
+        Snapshot(long version, long loadedAt, List<Entry> entries) {
+            this.version = version;
+            this.loadedAt = loadedAt;
+            this.entries = entries;
+        }
+    }
+
+    /**
+     * 获取当前可见的公告（优先级倒序、创建时间倒序）
+     */
+    public List<Entry> visible(LocalDateTime now) {
+        List<Entry> entries = current().entries;
+        List<Entry> result = new ArrayList<>(entries.size());
+        for (Entry e : entries) {
+            if (e.visibleAt(now)) {
+                result.add(e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 公告发布、下线或分配可见序号后失效窗口快照；事务内调用时提交后再失效一次
+     */
+    public void invalidate() {
+        Runnable action = () -> {
+            try {
+                cacheNamespaceManager.namespace(WINDOW_NS).invalidateAll();
+            } catch (Exception e) {
+                log.warn("递增公告窗口版本失败，仅清除本地快照: {}", e.getMessage());
+            }
+            snapshot = null;
+        };
+        action.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        }
+    }
+
+    private Snapshot current() {
+        long version = cacheNamespaceManager.namespace(WINDOW_NS).currentVersion();
+        Snapshot s = snapshot;
+        if (s != null && s.version == version && System.currentTimeMillis() - s.loadedAt < RELOAD_INTERVAL_MILLIS) {
+            return s;
+        }
+        synchronized (this) {
+            s = snapshot;
+            if (s != null && s.version == version && System.currentTimeMillis() - s.loadedAt < RELOAD_INTERVAL_MILLIS) {
+                return s;
+            }
+            s = load(version);
+            snapshot = s;
+            return s;
+        }
+    }
+
+    private Snapshot load(long version) {
+        long loadedAt = System.currentTimeMillis();
+        LambdaQueryWrapper<Announcement> qw = new LambdaQueryWrapper<>();
+        qw.select(Announcement::getId, Announcement::getPublishSeq, Announcement::getActiveFrom, Announcement::getActiveTo)
+          .eq(Announcement::getStatus, 1)
+          .and(w -> w.isNull(Announcement::getActiveTo).or().ge(Announcement::getActiveTo, LocalDateTime.now()))
+          .orderByDesc(Announcement::getPriority)
+          .orderByDesc(Announcement::getCreateTime);
+        List<Entry> entries = announcementMapper.selectList(qw).stream().map(Entry::new).toList();
+        log.debug("重建公告窗口快照: version={}, size={}", version, entries.size());
+        return new Snapshot(version, loadedAt, entries);
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * 缓存命名空间：以版本号组织同一类缓存键，整体失效只需递增版本号
+ *
+ * 功能描述：
+ * 1. 缓存键格式为 {命名空间}:v{版本号}:{标识}，读写均使用当前版本
+ * 2. 整体失效为一次版本号自增（O(1)），旧版本的键不再被访问，由各自TTL自然过期
+ * 3. 版本号在本地缓存，失效时经广播立即更新，另有短周期回源兜底丢失的广播
+ * 4. 本地版本号只增不减，版本计数丢失后以当前毫秒时间重建，不会回退到已用过的版本
+ *
+ * @author hanjor
+ * @version 1.0
+ * @date 2026-10-17 21:00:00
+ */
+package com.okbug.platform.common.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class CacheNamespace {
+
+    private final String name;
+    private final CacheNamespaceManager manager;
+    private final AtomicLong version = new AtomicLong(-1L);
+    private volatile long loadedAt;
+
+    private final LongAdder invalidations = new LongAdder();
+
+    CacheNamespace(String name, CacheNamespaceManager manager) {
+        this.name = name;
+        this.manager = manager;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 构建当前版本下的缓存键
+     *
+     * @param id 条目标识
+     * @return {命名空间}:v{版本号}:{标识}
+     */
+    public String key(Object id) {
+        return name + ":v" + currentVersion() + ":" + id;
+    }
+
+    /**
+     * 删除当前版本下的单个条目
+     */
+    public void evict(Object id) {
+        manager.delete(key(id));
+    }
+
+    /**
+     * 整体失效：递增版本号并广播，不扫描、不删除旧键
+     */
+    public void invalidateAll() {
+        invalidations.increment();
+        Long next = manager.bumpVersion(name);
+        if (next != null) {
+            accept(next);
+        }
+    }
+
+    /**
+     * 获取当前版本号；本地值超过刷新间隔时回源 Redis
+     */
+    public long currentVersion() {
+        long current = version.get();
+        if (current < 0 || System.currentTimeMillis() - loadedAt > manager.getLocalVersionTtlMillis()) {
+            Long loaded = manager.loadVersion(name);
+            loadedAt = System.currentTimeMillis();
+            if (loaded != null) {
+                current = accept(loaded);
+            } else if (current < 0) {
+                // Redis 不可用且从未加载过：使用0号版本，恢复后以新版本号继续
+                current = accept(0L);
+            }
+        }
+        return current;
+    }
+
+    long accept(long loaded) {
+        return version.accumulateAndGet(loaded, Math::max);
+    }
+
+    long getInvalidations() {
+        return invalidations.sum();
+    }
+}
@@ -0,0 +1,163 @@
+/**
+ * 缓存命名空间管理器：维护各命名空间在 Redis 中的版本号，替代 KEYS 前缀扫描式的整体失效
+ *
+ * 功能描述：
+ * 1. 按名称获取（首次访问时创建）缓存命名空间
+ * 2. 版本号自增与首次初始化均由 Lua 脚本原子完成
+ * 3. 版本号变化广播到所有节点，其他节点收到后立即采用新版本
+ *
+ * Redis数据结构：
+ * - cache:ns:{name}:version  命名空间当前版本号（无TTL）
+ *
+ * @author hanjor
+ * @version 1.0
+ * @date 2026-10-17 21:00:00
+ */
+package com.okbug.platform.common.cache;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CacheNamespaceManager {
+
+    /**
+     * 版本变更广播频道，消息格式：{nodeId}|{命名空间}|{版本号}
+     */
+    public static final String VERSION_CHANNEL = "cache:ns:changed";
+    private static final String VERSION_KEY_PREFIX = "cache:ns:";
+    private static final String VERSION_KEY_SUFFIX = ":version";
+
+    /**
+     * 本地版本号的回源间隔：广播丢失时其他节点最长在该间隔后采用新版本
+     */
+    private static final long LOCAL_VERSION_TTL_MILLIS = 5000L;
+
+    /**
+     * 读取版本号，不存在时以当前毫秒时间初始化
+     */
+    private static final DefaultRedisScript<Long> LOAD_SCRIPT = new DefaultRedisScript<>(
+            "local v = redis.call('GET', KEYS[1]) " +
+            "if not v then redis.call('SET', KEYS[1], ARGV[1]) v = ARGV[1] end " +
+            "return tonumber(v)", Long.class);
+
+    /**
+     * 递增版本号；计数丢失（INCR 得到1）时以当前毫秒时间重建，保证不回退
+     */
+    private static final DefaultRedisScript<Long> BUMP_SCRIPT = new DefaultRedisScript<>(
+            "local v = redis.call('INCR', KEYS[1]) " +
+            "if v == 1 then v = tonumber(ARGV[1]) redis.call('SET', KEYS[1], v) end " +
+            "return v", Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisMessageListenerContainer redisMessageListenerContainer;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<String, CacheNamespace> namespaces = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void subscribe() {
+        try {
+            redisMessageListenerContainer.addMessageListener(this::onVersionChanged, new ChannelTopic(VERSION_CHANNEL));
+        } catch (Exception e) {
+            log.warn("订阅缓存命名空间版本广播失败，仅依赖定期回源: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 获取缓存命名空间
+     *
+     * @param name 命名空间名称（即原缓存键前缀，不含末尾冒号）
+     * @return 缓存命名空间
+     */
+    public CacheNamespace namespace(String name) {
+        return namespaces.computeIfAbsent(name, n -> new CacheNamespace(n, this));
+    }
+
+    /**
+     * 获取各命名空间的版本与失效统计
+     */
+    public Map<String, Object> getNamespaceStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        namespaces.forEach((name, ns) -> {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("version", ns.currentVersion());
+            item.put("invalidations", ns.getInvalidations());
+            stats.put(name, item);
+        });
+        return stats;
+    }
+
+    long getLocalVersionTtlMillis() {
+        return LOCAL_VERSION_TTL_MILLIS;
+    }
+
+    Long loadVersion(String name) {
+        try {
+            return stringRedisTemplate.execute(LOAD_SCRIPT, Collections.singletonList(versionKey(name)),
+                    String.valueOf(System.currentTimeMillis()));
+        } catch (Exception e) {
+            log.warn("读取缓存命名空间版本失败，沿用本地版本，命名空间: {}, 错误: {}", name, e.getMessage());
+            return null;
+        }
+    }
+
+    Long bumpVersion(String name) {
+        try {
+            Long next = stringRedisTemplate.execute(BUMP_SCRIPT, Collections.singletonList(versionKey(name)),
+                    String.valueOf(System.currentTimeMillis()));
+            if (next != null) {
+                stringRedisTemplate.convertAndSend(VERSION_CHANNEL, nodeId + "|" + name + "|" + next);
+                log.info("缓存命名空间整体失效，命名空间: {}, 新版本: {}", name, next);
+            }
+            return next;
+        } catch (Exception e) {
+            log.warn("递增缓存命名空间版本失败，旧缓存将在TTL到期后失效，命名空间: {}, 错误: {}", name, e.getMessage());
+            return null;
+        }
+    }
+
+    void delete(String key) {
+        try {
+            stringRedisTemplate.delete(key);
+        } catch (Exception e) {
+            log.warn("删除缓存键失败，缓存键: {}, 错误: {}", key, e.getMessage());
+        }
+    }
+
+    private void onVersionChanged(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 3);
+        if (parts.length < 3 || nodeId.equals(parts[0])) {
+            return;
+        }
+        CacheNamespace ns = namespaces.get(parts[1]);
+        if (ns == null) {
+            return;
+        }
+        try {
+            ns.accept(Long.parseLong(parts[2]));
+        } catch (NumberFormatException e) {
+            log.warn("忽略格式错误的缓存命名空间版本广播: {}", parts[2]);
+        }
+    }
+
+    private static String versionKey(String name) {
+        return VERSION_KEY_PREFIX + name + VERSION_KEY_SUFFIX;
+    }
+}
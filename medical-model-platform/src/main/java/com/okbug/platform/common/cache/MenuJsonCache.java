@@ -0,0 +1,164 @@
+/**
+ * 菜单响应物化缓存：以预序列化的 JSON 字节缓存菜单接口的最终响应，命中时不再构建菜单树或序列化
+ *
+ * 功能描述：
+ * 1. 缓存键为 菜单版本号 + 生效权限编码集合摘要，权限集合相同的用户（通常为同一角色）共享同一份响应
+ * 2. 每份响应附带 ETag（W/"{版本号}-{集合摘要}"），前端携带 If-None-Match 刷新菜单时可直接返回304
+ * 3. gzip 压缩结果在首次需要时生成并随条目缓存，之后直接写出压缩字节
+ * 4. 权限定义（名称、路径、图标、排序、状态等）变更后调用 invalidateAll，版本号递增并广播到所有节点；
+ *    用户或角色权限集合变化时集合摘要随之变化，无需清除
+ *
+ * @author hanjor
+ * @version 1.0
+ * @date 2026-10-17 23:40:00
+ */
+package com.okbug.platform.common.cache;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.okbug.platform.common.base.ErrorCode;
+import com.okbug.platform.common.base.ServiceException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MenuJsonCache {
+
+    private static final String MENU_NS = "permission:menu";
+
+    private static final long LOCAL_MAX_SIZE = 1_000L;
+    private static final Duration LOCAL_EXPIRE_TIME = Duration.ofMinutes(30);
+
+    private final CacheNamespaceManager cacheNamespaceManager;
+    private final ObjectMapper objectMapper;
+
+    private final Cache<String, Payload> payloads = Caffeine.newBuilder()
+            .maximumSize(LOCAL_MAX_SIZE)
+            .expireAfterAccess(LOCAL_EXPIRE_TIME)
+            .build();
+
+    /**
+     * 预序列化的响应：JSON 字节、按需生成的 gzip 字节及 ETag，条目不可变（gzip 仅生成一次）
+     */
+    public static final class Payload {
+
+        private final byte[] body;
+        private final String etag;
+        private volatile byte[] gzipped;
+
+        Payload(byte[] body, String etag) {
+            this.body = body;
+            this.etag = etag;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        /**
+         * 获取 gzip 压缩后的响应字节（首次调用时压缩）
+         */
+        public byte[] getGzipped() {
+            byte[] result = gzipped;
+            if (result == null) {
+                result = gzip(body);
+                gzipped = result;
+            }
+            return result;
+        }
+
+        /**
+         * If-None-Match 是否命中当前 ETag（支持 * 与逗号分隔的多个值）
+         */
+        public boolean matches(String ifNoneMatch) {
+            if (ifNoneMatch == null || ifNoneMatch.isEmpty()) {
+                return false;
+            }
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                if ("*".equals(tag) || etag.equals(tag) || etag.equals("W/" + tag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 获取权限集合对应的菜单响应，未命中时调用 builder 构建响应对象并序列化
+     *
+     * @param effectiveCodes 用户生效权限编码
+     * @param builder        构建完整响应对象（序列化后即为接口响应体）
+     * @return 预序列化的响应
+     */
+    public Payload get(Collection<String> effectiveCodes, Supplier<Object> builder) {
+        long version = cacheNamespaceManager.namespace(MENU_NS).currentVersion();
+        String digest = digestOf(effectiveCodes);
+        String key = version + ":" + digest;
+        return payloads.get(key, k -> {
+            try {
+                return new Payload(objectMapper.writeValueAsBytes(builder.get()), "W/\"" + version + "-" + digest + "\"");
+            } catch (IOException e) {
+                throw new ServiceException(ErrorCode.INTERNAL_ERROR, e);
+            }
+        });
+    }
+
+    /**
+     * 权限定义变更后失效全部菜单响应（递增版本号，所有节点的旧条目不再命中并随访问过期淘汰）；
+     * 事务内调用时提交后再失效一次，避免提交前以旧数据回填新版本
+     */
+    public void invalidateAll() {
+        Runnable action = () -> {
+            try {
+                cacheNamespaceManager.namespace(MENU_NS).invalidateAll();
+            } catch (Exception e) {
+                log.warn("递增菜单缓存版本失败，仅清除本地菜单缓存: {}", e.getMessage());
+            }
+            payloads.invalidateAll();
+        };
+        action.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        }
+    }
+
+    private static String digestOf(Collection<String> codes) {
+        // 排序去重后摘要，同一集合与顺序无关
+        return DigestUtil.sha256Hex(String.join("\n", new TreeSet<>(codes))).substring(0, 16);
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        } catch (IOException e) {
+            throw new ServiceException(ErrorCode.INTERNAL_ERROR, e);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,301 @@
+/**
+ * 权限位集注册表：为 permissions.permission_code 分配稠密整数编号，负责权限位集的编码与解码
+ *
+ * 功能描述：
+ * 1. 按权限ID升序为全部未删除权限分配位编号，快照整体替换，读路径无锁
+ * 2. 快照指纹由有序编码列表计算，各节点基于相同数据得到相同指纹，无需协调
+ * 3. Redis 中的位集带指纹前缀，指纹不一致（注册表已重建）时视为未命中并重新计算
+ * 4. 权限新增/删除/改码后重建并广播，其他节点收到通知后重建；另有定时重建兜底
+ * 5. 编码时遇到未收录的编码按最小间隔触发重建，重建后仍未收录的编码短期负缓存，避免脏数据反复触发全表查询
+ *
+ * @author hanjor
+ * @version 1.0
+ * @date 2026-10-17 20:00:00
+ */
+package com.okbug.platform.common.cache;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.okbug.platform.entity.auth.Permission;
+import com.okbug.platform.mapper.auth.PermissionMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PermissionBitsetRegistry {
+
+    public static final String REGISTRY_CHANGED_CHANNEL = "permission:registry:changed";
+
+    /**
+     * 未收录编码触发重建的最小间隔
+     */
+    private static final long MISS_REFRESH_INTERVAL_NANOS = Duration.ofSeconds(5).toNanos();
+    private static final Duration UNKNOWN_CODE_TTL = Duration.ofMinutes(1);
+    private static final int UNKNOWN_CODE_MAX_SIZE = 10_000;
+
+    private final PermissionMapper permissionMapper;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisMessageListenerContainer redisMessageListenerContainer;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private volatile Snapshot snapshot = new Snapshot(new String[0], "0");
+
+    /**
+     * 重建后仍未收录的编码（注册表重建时清空）
+     */
+    private final Cache<String, Boolean> unknownCodes = Caffeine.newBuilder()
+            .maximumSize(UNKNOWN_CODE_MAX_SIZE)
+            .expireAfterWrite(UNKNOWN_CODE_TTL)
+            .build();
+    private final AtomicLong lastMissRefreshAt = new AtomicLong(System.nanoTime() - MISS_REFRESH_INTERVAL_NANOS);
+
+    /**
+     * 注册表快照（不可变）
+     */
+    public static final class Snapshot {
+
+        private final String[] codes;
+        private final Map<String, Integer> bits;
+        private final String fingerprint;
+
+        private Snapshot(String[] codes, String fingerprint) {
+            this.codes = codes;
+            this.fingerprint = fingerprint;
+            this.bits = new HashMap<>(codes.length * 2);
+            for (int i = 0; i < codes.length; i++) {
+                bits.put(codes[i], i);
+            }
+        }
+
+        int bitOf(String code) {
+            Integer bit = code == null ? null : bits.get(code);
+            return bit == null ? -1 : bit;
+        }
+
+        String codeAt(int bit) {
+            return codes[bit];
+        }
+
+        public int size() {
+            return codes.length;
+        }
+
+        public String getFingerprint() {
+            return fingerprint;
+        }
+    }
+
+    // ================ 初始化与重建 ================
+
+    @PostConstruct
+    public void init() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            log.warn("初始化权限位集注册表失败，首次编码时重试: {}", e.getMessage());
+        }
+        try {
+            redisMessageListenerContainer.addMessageListener(this::onRegistryChanged, new ChannelTopic(REGISTRY_CHANGED_CHANNEL));
+        } catch (Exception e) {
+            log.warn("订阅权限注册表变更通知失败，仅依赖定时重建: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 定时重建（每5分钟），兜底丢失的变更通知
+     */
+    @Scheduled(fixedDelay = 300000)
+    public void scheduledRefresh() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            log.warn("定时重建权限位集注册表失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 从数据库重建注册表；指纹未变化时保留原快照
+     */
+    public synchronized void refresh() {
+        List<Permission> permissions = permissionMapper.selectList(new LambdaQueryWrapper<Permission>()
+                .select(Permission::getId, Permission::getPermissionCode)
+                .orderByAsc(Permission::getId));
+        String[] codes = permissions.stream()
+                .map(Permission::getPermissionCode)
+                .filter(code -> code != null && !code.isEmpty())
+                .distinct()
+                .toArray(String[]::new);
+        CRC32 crc = new CRC32();
+        for (String code : codes) {
+            crc.update(code.getBytes(StandardCharsets.UTF_8));
+            crc.update('\n');
+        }
+        String fingerprint = Long.toHexString(crc.getValue()) + "-" + codes.length;
+        if (fingerprint.equals(snapshot.fingerprint)) {
+            return;
+        }
+        snapshot = new Snapshot(codes, fingerprint);
+        unknownCodes.invalidateAll();
+        log.info("权限位集注册表已重建，权限数量: {}, 指纹: {}", codes.length, fingerprint);
+    }
+
+    /**
+     * 重建并通知其他节点
+     */
+    public void refreshAndBroadcast() {
+        refresh();
+        try {
+            stringRedisTemplate.convertAndSend(REGISTRY_CHANGED_CHANNEL, nodeId);
+        } catch (Exception e) {
+            log.warn("发布权限注册表变更通知失败，其他节点将在定时重建时生效: {}", e.getMessage());
+        }
+    }
+
+    private void onRegistryChanged(Message message, byte[] pattern) {
+        if (nodeId.equals(new String(message.getBody(), StandardCharsets.UTF_8))) {
+            return;
+        }
+        try {
+            refresh();
+        } catch (Exception e) {
+            log.warn("收到权限注册表变更通知后重建失败: {}", e.getMessage());
+        }
+    }
+
+    // ================ 编码与解码 ================
+
+    public Snapshot current() {
+        return snapshot;
+    }
+
+    /**
+     * 将权限编码列表编译为位集；存在注册表未收录的编码时按最小间隔重建一次，仍未收录则返回null
+     *
+     * @param permissionCodes 权限编码列表
+     * @return 权限位集；无法编码时返回null
+     */
+    public PermissionSet compile(Collection<String> permissionCodes) {
+        Snapshot target = snapshot;
+        String unknown = firstUnknown(target, permissionCodes);
+        if (unknown == null) {
+            return tryCompile(target, permissionCodes);
+        }
+        if (unknownCodes.getIfPresent(unknown) != null || !tryRefreshOnMiss()) {
+            return null;
+        }
+        target = snapshot;
+        unknown = firstUnknown(target, permissionCodes);
+        if (unknown != null) {
+            unknownCodes.put(unknown, Boolean.TRUE);
+            log.warn("权限编码未收录于注册表，跳过位集编码: {}", unknown);
+            return null;
+        }
+        return tryCompile(target, permissionCodes);
+    }
+
+    /**
+     * 未收录编码触发的重建：同一间隔内只有一个调用方执行，其余调用方直接放弃编码
+     */
+    private boolean tryRefreshOnMiss() {
+        long now = System.nanoTime();
+        long last = lastMissRefreshAt.get();
+        if (now - last < MISS_REFRESH_INTERVAL_NANOS || !lastMissRefreshAt.compareAndSet(last, now)) {
+            return false;
+        }
+        try {
+            refresh();
+            return true;
+        } catch (Exception e) {
+            log.warn("未收录权限编码触发的重建失败: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 序列化为 Redis 存储格式：{指纹}:{Base64位集}
+     */
+    public String encode(PermissionSet set) {
+        long[] words = set.getWords();
+        ByteBuffer buffer = ByteBuffer.allocate(words.length * Long.BYTES);
+        for (long word : words) {
+            buffer.putLong(word);
+        }
+        return set.getSnapshot().fingerprint + ":" + Base64.getEncoder().encodeToString(buffer.array());
+    }
+
+    /**
+     * 从 Redis 存储格式解码；格式不符或指纹与当前注册表不一致时返回null
+     */
+    public PermissionSet decode(String value) {
+        Snapshot current = snapshot;
+        if (value == null || !value.startsWith(current.fingerprint + ":")) {
+            return null;
+        }
+        try {
+            byte[] bytes = Base64.getDecoder().decode(value.substring(current.fingerprint.length() + 1));
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            long[] words = new long[bytes.length / Long.BYTES];
+            for (int i = 0; i < words.length; i++) {
+                words[i] = buffer.getLong();
+            }
+            if (words.length > wordCount(current.size())) {
+                return null;
+            }
+            return new PermissionSet(current, words);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    private static String firstUnknown(Snapshot target, Collection<String> permissionCodes) {
+        if (permissionCodes != null) {
+            for (String code : permissionCodes) {
+                if (target.bitOf(code) < 0) {
+                    return code == null ? "" : code;
+                }
+            }
+        }
+        return null;
+    }
+
+    private PermissionSet tryCompile(Snapshot target, Collection<String> permissionCodes) {
+        long[] words = new long[wordCount(target.size())];
+        if (permissionCodes != null) {
+            for (String code : permissionCodes) {
+                int bit = target.bitOf(code);
+                if (bit < 0) {
+                    return null;
+                }
+                words[bit >>> 6] |= 1L << bit;
+            }
+        }
+        return new PermissionSet(target, words);
+    }
+
+    private static int wordCount(int bits) {
+        return (bits + 63) >>> 6;
+    }
+}
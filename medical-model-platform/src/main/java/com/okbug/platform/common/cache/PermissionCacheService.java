@@ -1,11 +1,15 @@
 /**
- * 权限缓存服务：提供权限数据的Redis缓存功能
+ * 权限缓存服务：提供权限数据的两级缓存功能（本地Caffeine + Redis）
  * 
  * 核心功能：
- * 1. 用户权限缓存
- * 2. 角色权限缓存
- * 3. 权限树缓存
- * 4. 缓存刷新机制
+ * 1. 用户权限缓存（L1 + L2），以注册表编号的位集存储，权限判断为位测试
+ * 2. 角色权限缓存（L1 + L2）
+ * 3. 权限树缓存（仅L2）
+ * 4. 缓存刷新机制：清除时广播到所有节点，事务内清除会在提交后再清除一次
+ * 
+ * 一致性说明：
+ * - L1 条目有界且短TTL，即使广播丢失，过期后也会回源
+ * - 失效计数（epoch）在每次失效时递增，回源期间发生失效则本次结果不写入L1，避免旧值覆盖失效
  * 
  * @author hanjor
  * @version 1.0
@@ -16,15 +20,32 @@ package com.okbug.platform.common.cache;
 import cn.hutool.core.util.StrUtil;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import com.okbug.platform.dto.permission.response.PermissionTreeResponse;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -34,28 +55,89 @@ public class PermissionCacheService {
     
     private final StringRedisTemplate redisTemplate;
     private final ObjectMapper objectMapper;
+    private final RedisMessageListenerContainer redisMessageListenerContainer;
+    private final PermissionBitsetRegistry permissionBitsetRegistry;
+    private final CacheNamespaceManager cacheNamespaceManager;
     
-    // 缓存键前缀
-    private static final String USER_PERMISSIONS_KEY = "user:permissions:";
-    private static final String ROLE_PERMISSIONS_KEY = "role:permissions:";
+    // 缓存命名空间（整体刷新时递增版本号，不再扫描键）
+    private static final String USER_PERMISSIONS_NS = "user:permissions";
+    private static final String ROLE_PERMISSIONS_NS = "role:permissions";
+    private static final String ROLE_PERMISSION_TREE_NS = "role:permission:tree";
     private static final String PERMISSION_TREE_KEY = "permission:tree";
-    private static final String ROLE_PERMISSION_TREE_KEY = "role:permission:tree:";
     
     // 缓存过期时间
     private static final Duration CACHE_EXPIRE_TIME = Duration.ofMinutes(30);
     private static final Duration CACHE_EXPIRE_TIME_EMPTY = Duration.ofMinutes(2);
     
+    /**
+     * 跨节点失效广播频道，消息格式：{nodeId}|{USER|ROLE|ALL}|{逗号分隔的用户ID或角色}
+     */
+    public static final String INVALIDATION_CHANNEL = "permission:cache:invalidate";
+    private static final String SCOPE_USER = "USER";
+    private static final String SCOPE_ROLE = "ROLE";
+    private static final String SCOPE_ALL = "ALL";
+    
+    // 本地缓存容量与过期时间（过期时间兜底广播丢失时的最长不一致窗口）
+    private static final long LOCAL_USER_MAX_SIZE = 10_000L;
+    private static final long LOCAL_ROLE_MAX_SIZE = 256L;
+    private static final Duration LOCAL_EXPIRE_TIME = Duration.ofSeconds(60);
+    
+    private final String nodeId = UUID.randomUUID().toString();
+    
+    private final Cache<Long, PermissionSet> localUserPermissions = Caffeine.newBuilder()
+            .maximumSize(LOCAL_USER_MAX_SIZE)
+            .expireAfterWrite(LOCAL_EXPIRE_TIME)
+            .recordStats()
+            .build();
+    
+    private final Cache<String, List<String>> localRolePermissions = Caffeine.newBuilder()
+            .maximumSize(LOCAL_ROLE_MAX_SIZE)
+            .expireAfterWrite(LOCAL_EXPIRE_TIME)
+            .recordStats()
+            .build();
+    
+    /**
+     * 失效计数：回源前记录，回源后未变化才写入L1
+     */
+    private final AtomicLong invalidationEpoch = new AtomicLong();
+    
+    private final LongAdder redisHits = new LongAdder();
+    private final LongAdder redisMisses = new LongAdder();
+    private final LongAdder invalidationsPublished = new LongAdder();
+    private final LongAdder invalidationsReceived = new LongAdder();
+    
+    /**
+     * 订阅跨节点失效广播
+     */
+    @PostConstruct
+    public void subscribeInvalidation() {
+        try {
+            redisMessageListenerContainer.addMessageListener(this::onInvalidation, new ChannelTopic(INVALIDATION_CHANNEL));
+        } catch (Exception e) {
+            log.warn("订阅权限缓存失效广播失败，本地缓存仅依赖过期时间: {}", e.getMessage());
+        }
+    }
+    
     /**
      * 获取用户权限缓存
      */
     public List<String> getUserPermissions(Long userId) {
+        PermissionSet local = localUserPermissions.getIfPresent(userId);
+        if (local != null && local.isCurrent(permissionBitsetRegistry.current())) {
+            return local;
+        }
+        long epoch = invalidationEpoch.get();
         try {
-            String key = USER_PERMISSIONS_KEY + userId;
+            String key = userKey(userId);
             String value = redisTemplate.opsForValue().get(key);
-            if (StrUtil.isNotBlank(value)) {
+            PermissionSet permissions = permissionBitsetRegistry.decode(value);
+            if (permissions != null) {
                 log.debug("从缓存获取用户权限，用户ID: {}", userId);
-                return objectMapper.readValue(value, new TypeReference<List<String>>() {});
+                redisHits.increment();
+                putLocal(localUserPermissions, userId, permissions, epoch);
+                return permissions;
             }
+            redisMisses.increment();
         } catch (Exception e) {
             log.warn("获取用户权限缓存失败，用户ID: {}", userId, e);
         }
@@ -67,8 +149,13 @@ public class PermissionCacheService {
      */
     public void setUserPermissions(Long userId, List<String> permissions) {
         try {
-            String key = USER_PERMISSIONS_KEY + userId;
-            String value = objectMapper.writeValueAsString(permissions);
+            PermissionSet set = permissions instanceof PermissionSet
+                    ? (PermissionSet) permissions : permissionBitsetRegistry.compile(permissions);
+            if (set == null) {
+                return;
+            }
+            String key = userKey(userId);
+            String value = permissionBitsetRegistry.encode(set);
             // 空列表采用短TTL，避免长时间缓存空结果导致权限回填后仍旧取不到
             Duration ttl = (permissions == null || permissions.isEmpty()) ? CACHE_EXPIRE_TIME_EMPTY : CACHE_EXPIRE_TIME;
             redisTemplate.opsForValue().set(key, value, ttl);
@@ -83,13 +170,22 @@ public class PermissionCacheService {
      * 获取角色权限缓存
      */
     public List<String> getRolePermissions(String role) {
+        List<String> local = localRolePermissions.getIfPresent(role);
+        if (local != null) {
+            return local;
+        }
+        long epoch = invalidationEpoch.get();
         try {
-            String key = ROLE_PERMISSIONS_KEY + role;
+            String key = roleKey(role);
             String value = redisTemplate.opsForValue().get(key);
             if (StrUtil.isNotBlank(value)) {
                 log.debug("从缓存获取角色权限，角色: {}", role);
-                return objectMapper.readValue(value, new TypeReference<List<String>>() {});
+                redisHits.increment();
+                List<String> permissions = toImmutable(objectMapper.readValue(value, new TypeReference<List<String>>() {}));
+                putLocal(localRolePermissions, role, permissions, epoch);
+                return permissions;
             }
+            redisMisses.increment();
         } catch (Exception e) {
             log.warn("获取角色权限缓存失败，角色: {}", role, e);
         }
@@ -101,7 +197,7 @@ public class PermissionCacheService {
      */
     public void setRolePermissions(String role, List<String> permissions) {
         try {
-            String key = ROLE_PERMISSIONS_KEY + role;
+            String key = roleKey(role);
             String value = objectMapper.writeValueAsString(permissions);
             redisTemplate.opsForValue().set(key, value, CACHE_EXPIRE_TIME);
             log.debug("设置角色权限缓存，角色: {}, 权限数量: {}", role, permissions.size());
@@ -144,7 +240,7 @@ public class PermissionCacheService {
      */
     public List<PermissionTreeResponse> getRolePermissionTree(String role) {
         try {
-            String key = ROLE_PERMISSION_TREE_KEY + role;
+            String key = roleTreeKey(role);
             String value = redisTemplate.opsForValue().get(key);
             if (StrUtil.isNotBlank(value)) {
                 log.debug("从缓存获取角色权限树，角色: {}", role);
@@ -161,7 +257,7 @@ public class PermissionCacheService {
      */
     public void setRolePermissionTree(String role, List<PermissionTreeResponse> permissionTree) {
         try {
-            String key = ROLE_PERMISSION_TREE_KEY + role;
+            String key = roleTreeKey(role);
             String value = objectMapper.writeValueAsString(permissionTree);
             redisTemplate.opsForValue().set(key, value, CACHE_EXPIRE_TIME);
             log.debug("设置角色权限树缓存，角色: {}, 节点数量: {}", role, permissionTree.size());
@@ -174,13 +270,17 @@ public class PermissionCacheService {
      * 清除用户权限缓存
      */
     public void clearUserPermissions(Long userId) {
-        try {
-            String key = USER_PERMISSIONS_KEY + userId;
-            redisTemplate.delete(key);
-            log.debug("清除用户权限缓存，用户ID: {}", userId);
-        } catch (Exception e) {
-            log.warn("清除用户权限缓存失败，用户ID: {}", userId, e);
-        }
+        runNowAndAfterCommit(() -> {
+            invalidateLocal(SCOPE_USER, Collections.singletonList(String.valueOf(userId)));
+            try {
+                String key = userKey(userId);
+                redisTemplate.delete(key);
+                log.debug("清除用户权限缓存，用户ID: {}", userId);
+            } catch (Exception e) {
+                log.warn("清除用户权限缓存失败，用户ID: {}", userId, e);
+            }
+            publishInvalidation(SCOPE_USER, String.valueOf(userId));
+        });
     }
     
     /**
@@ -191,28 +291,37 @@ public class PermissionCacheService {
             return;
         }
         
-        try {
-            List<String> keys = userIds.stream()
-                    .map(userId -> USER_PERMISSIONS_KEY + userId)
-                    .collect(Collectors.toList());
-            redisTemplate.delete(keys);
-            log.debug("批量清除用户权限缓存，用户数量: {}", userIds.size());
-        } catch (Exception e) {
-            log.warn("批量清除用户权限缓存失败，用户数量: {}", userIds.size(), e);
-        }
+        List<String> ids = userIds.stream().map(String::valueOf).collect(Collectors.toList());
+        runNowAndAfterCommit(() -> {
+            invalidateLocal(SCOPE_USER, ids);
+            try {
+                List<String> keys = ids.stream()
+                        .map(this::userKey)
+                        .collect(Collectors.toList());
+                redisTemplate.delete(keys);
+                log.debug("批量清除用户权限缓存，用户数量: {}", ids.size());
+            } catch (Exception e) {
+                log.warn("批量清除用户权限缓存失败，用户数量: {}", ids.size(), e);
+            }
+            publishInvalidation(SCOPE_USER, String.join(",", ids));
+        });
     }
     
     /**
      * 清除角色权限缓存
      */
     public void clearRolePermissions(String role) {
-        try {
-            String key = ROLE_PERMISSIONS_KEY + role;
-            redisTemplate.delete(key);
-            log.debug("清除角色权限缓存，角色: {}", role);
-        } catch (Exception e) {
-            log.warn("清除角色权限缓存失败，角色: {}", role, e);
-        }
+        runNowAndAfterCommit(() -> {
+            invalidateLocal(SCOPE_ROLE, Collections.singletonList(role));
+            try {
+                String key = roleKey(role);
+                redisTemplate.delete(key);
+                log.debug("清除角色权限缓存，角色: {}", role);
+            } catch (Exception e) {
+                log.warn("清除角色权限缓存失败，角色: {}", role, e);
+            }
+            publishInvalidation(SCOPE_ROLE, role);
+        });
     }
     
     /**
@@ -232,7 +341,7 @@ public class PermissionCacheService {
      */
     public void clearRolePermissionTree(String role) {
         try {
-            String key = ROLE_PERMISSION_TREE_KEY + role;
+            String key = roleTreeKey(role);
             redisTemplate.delete(key);
             log.debug("清除角色权限树缓存，角色: {}", role);
         } catch (Exception e) {
@@ -240,25 +349,32 @@ public class PermissionCacheService {
         }
     }
     
+    /**
+     * 清除全部权限树缓存（权限定义变更后调用：全局树直接删除，角色树递增命名空间版本）
+     */
+    public void clearAllPermissionTrees() {
+        runNowAndAfterCommit(() -> {
+            try {
+                redisTemplate.delete(PERMISSION_TREE_KEY);
+                cacheNamespaceManager.namespace(ROLE_PERMISSION_TREE_NS).invalidateAll();
+                log.debug("清除全部权限树缓存");
+            } catch (Exception e) {
+                log.warn("清除全部权限树缓存失败", e);
+            }
+        });
+    }
+    
     /**
      * 刷新所有权限缓存
      */
     public void refreshAllPermissionCache() {
+        invalidateLocal(SCOPE_ALL, Collections.emptyList());
+        publishInvalidation(SCOPE_ALL, "");
         try {
-            // 清除所有权限相关缓存
-            Set<String> userPermissionKeys = redisTemplate.keys(USER_PERMISSIONS_KEY + "*");
-            Set<String> rolePermissionKeys = redisTemplate.keys(ROLE_PERMISSIONS_KEY + "*");
-            Set<String> rolePermissionTreeKeys = redisTemplate.keys(ROLE_PERMISSION_TREE_KEY + "*");
-            
-            if (userPermissionKeys != null && !userPermissionKeys.isEmpty()) {
-                redisTemplate.delete(userPermissionKeys);
-            }
-            if (rolePermissionKeys != null && !rolePermissionKeys.isEmpty()) {
-                redisTemplate.delete(rolePermissionKeys);
-            }
-            if (rolePermissionTreeKeys != null && !rolePermissionTreeKeys.isEmpty()) {
-                redisTemplate.delete(rolePermissionTreeKeys);
-            }
+            // 递增命名空间版本，旧版本的键由TTL自然过期
+            cacheNamespaceManager.namespace(USER_PERMISSIONS_NS).invalidateAll();
+            cacheNamespaceManager.namespace(ROLE_PERMISSIONS_NS).invalidateAll();
+            cacheNamespaceManager.namespace(ROLE_PERMISSION_TREE_NS).invalidateAll();
             
             // 清除权限树缓存
             redisTemplate.delete(PERMISSION_TREE_KEY);
@@ -268,4 +384,126 @@ public class PermissionCacheService {
             log.error("权限缓存刷新失败", e);
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * 获取两级缓存统计信息
+     */
+    public Map<String, Object> getCacheStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("localUser", toStats(localUserPermissions));
+        stats.put("localRole", toStats(localRolePermissions));
+        stats.put("redisHits", redisHits.sum());
+        stats.put("redisMisses", redisMisses.sum());
+        stats.put("invalidationsPublished", invalidationsPublished.sum());
+        stats.put("invalidationsReceived", invalidationsReceived.sum());
+        stats.put("invalidationEpoch", invalidationEpoch.get());
+        return stats;
+    }
+    
+    // ================ 私有辅助方法 ================
+    
+    private String userKey(Object userId) {
+        return cacheNamespaceManager.namespace(USER_PERMISSIONS_NS).key(userId);
+    }
+    
+    private String roleKey(String role) {
+        return cacheNamespaceManager.namespace(ROLE_PERMISSIONS_NS).key(role);
+    }
+    
+    private String roleTreeKey(String role) {
+        return cacheNamespaceManager.namespace(ROLE_PERMISSION_TREE_NS).key(role);
+    }
+    
+    /**
+     * 立即执行；若处于事务中，提交后再执行一次（提交前的清除可能被其他请求以旧数据回填）
+     */
+    private void runNowAndAfterCommit(Runnable action) {
+        action.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        }
+    }
+    
+    private void invalidateLocal(String scope, Collection<String> ids) {
+        // 先递增失效计数，再清除条目：与回源写入L1的检查配合，避免旧值落入L1
+        invalidationEpoch.incrementAndGet();
+        switch (scope) {
+            case SCOPE_USER:
+                for (String id : ids) {
+                    try {
+                        localUserPermissions.invalidate(Long.valueOf(id));
+                    } catch (NumberFormatException ignored) {
+                        // 非法用户ID忽略
+                    }
+                }
+                break;
+            case SCOPE_ROLE:
+                // 角色变更会影响该角色下所有用户，用户条目一并清除
+                localRolePermissions.invalidateAll(ids);
+                localUserPermissions.invalidateAll();
+                break;
+            default:
+                localRolePermissions.invalidateAll();
+                localUserPermissions.invalidateAll();
+                break;
+        }
+    }
+    
+    private void publishInvalidation(String scope, String ids) {
+        try {
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, nodeId + "|" + scope + "|" + ids);
+            invalidationsPublished.increment();
+        } catch (Exception e) {
+            log.warn("发布权限缓存失效广播失败，其他节点将在本地缓存过期后生效: {}", e.getMessage());
+        }
+    }
+    
+    private void onInvalidation(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        String[] parts = body.split("\\|", 3);
+        if (parts.length < 3 || nodeId.equals(parts[0])) {
+            return;
+        }
+        invalidationsReceived.increment();
+        List<String> ids = new ArrayList<>();
+        for (String id : parts[2].split(",")) {
+            if (StrUtil.isNotBlank(id)) {
+                ids.add(id.trim());
+            }
+        }
+        invalidateLocal(parts[1], ids);
+    }
+    
+    /**
+     * 回源结果写入L1：回源期间发生过失效则不写入；写入后再次检查，覆盖"检查后、写入前"发生的失效
+     */
+    private <K, V> void putLocal(Cache<K, V> cache, K key, V permissions, long epoch) {
+        if (epoch != invalidationEpoch.get()) {
+            return;
+        }
+        cache.put(key, permissions);
+        if (epoch != invalidationEpoch.get()) {
+            cache.invalidate(key);
+        }
+    }
+    
+    private List<String> toImmutable(List<String> permissions) {
+        return permissions == null ? Collections.emptyList() : Collections.unmodifiableList(permissions);
+    }
+    
+    private Map<String, Object> toStats(Cache<?, ?> cache) {
+        CacheStats cacheStats = cache.stats();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", cache.estimatedSize());
+        stats.put("hits", cacheStats.hitCount());
+        stats.put("misses", cacheStats.missCount());
+        stats.put("evictions", cacheStats.evictionCount());
+        stats.put("hitRate", cacheStats.hitRate());
+        return stats;
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * 权限位集：以注册表分配的稠密编号存储用户生效权限，contains 为一次哈希查找加一次位测试
+ *
+ * 功能描述：
+ * 1. 以只读 List 形式对外暴露权限编码，兼容 StpInterface 与既有调用方
+ * 2. contains 走位测试，不再线性扫描编码列表
+ * 3. 绑定编码时的注册表快照，注册表重建后仍可正确判断（由调用方据 {@link #isCurrent} 决定是否重新编码）
+ *
+ * @author hanjor
+ * @version 1.0
+ * @date 2026-10-17 20:00:00
+ */
+package com.okbug.platform.common.cache;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+public final class PermissionSet extends AbstractList<String> implements RandomAccess {
+
+    private final PermissionBitsetRegistry.Snapshot snapshot;
+    private final long[] words;
+    private final String[] codes;
+    private final boolean wildcard;
+
+    PermissionSet(PermissionBitsetRegistry.Snapshot snapshot, long[] words) {
+        this.snapshot = snapshot;
+        this.words = words;
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        this.codes = new String[count];
+        boolean hasWildcard = false;
+        int index = 0;
+        for (int w = 0; w < words.length; w++) {
+            long word = words[w];
+            while (word != 0) {
+                int bit = (w << 6) + Long.numberOfTrailingZeros(word);
+                String code = snapshot.codeAt(bit);
+                codes[index++] = code;
+                hasWildcard |= code.indexOf('*') >= 0;
+                word &= word - 1;
+            }
+        }
+        this.wildcard = hasWildcard;
+    }
+
+    /**
+     * 位测试判断是否拥有权限编码
+     */
+    public boolean has(String permissionCode) {
+        int bit = snapshot.bitOf(permissionCode);
+        if (bit < 0) {
+            return false;
+        }
+        int w = bit >>> 6;
+        return w < words.length && (words[w] & (1L << bit)) != 0;
+    }
+
+    /**
+     * 是否包含通配符权限编码（此时需走 Sa-Token 的通配符匹配）
+     */
+    public boolean hasWildcard() {
+        return wildcard;
+    }
+
+    /**
+     * 是否基于当前注册表编码
+     */
+    public boolean isCurrent(PermissionBitsetRegistry.Snapshot current) {
+        return snapshot == current;
+    }
+
+    PermissionBitsetRegistry.Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    long[] getWords() {
+        return words;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof String && has((String) o);
+    }
+
+    @Override
+    public String get(int index) {
+        return codes[index];
+    }
+
+    @Override
+    public int size() {
+        return codes.length;
+    }
+}
@@ -0,0 +1,314 @@
+/**
+ * 团队成员关系缓存：缓存用户的启用团队成员关系与团队状态，替代团队鉴权中的逐次查询
+ *
+ * 功能描述：
+ * 1. 用户ID → 启用中的成员关系（团队ID、团队内角色、状态）；不在团队的用户同样缓存（空关系）
+ * 2. 团队ID → 团队状态（是否启用、拥有者ID）；已删除团队同样缓存（空团队）
+ * 3. 批量读取：未命中的用户以一次 IN 查询回源，供列表页整页鉴权
+ * 4. 成员或团队变更后调用 evict 系列方法，事务内会在提交后再清除一次，并广播到所有节点
+ * 5. 失效计数（epoch）在每次失效时递增，成员关系回源期间发生失效则本次结果不写入本地缓存，避免旧值覆盖失效
+ *
+ * @author hanjor
+ * @version 1.0
+ * @date 2026-10-17 22:30:00
+ */
+package com.okbug.platform.common.cache;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.okbug.platform.entity.team.Team;
+import com.okbug.platform.entity.team.TeamMember;
+import com.okbug.platform.mapper.team.TeamMapper;
+import com.okbug.platform.mapper.team.TeamMemberMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TeamMembershipCache {
+
+    /**
+     * 跨节点失效广播频道，消息格式：{nodeId}|{USER|TEAM}|{ID}
+     */
+    public static final String INVALIDATION_CHANNEL = "team:membership:invalidate";
+    private static final String SCOPE_USER = "USER";
+    private static final String SCOPE_TEAM = "TEAM";
+
+    private static final long LOCAL_MAX_SIZE = 20_000L;
+    private static final Duration LOCAL_EXPIRE_TIME = Duration.ofMinutes(5);
+
+    private final TeamMemberMapper teamMemberMapper;
+    private final TeamMapper teamMapper;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisMessageListenerContainer redisMessageListenerContainer;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final Cache<Long, Membership> memberships = Caffeine.newBuilder()
+            .maximumSize(LOCAL_MAX_SIZE)
+            .expireAfterWrite(LOCAL_EXPIRE_TIME)
+            .build();
+
+    private final Cache<Long, TeamState> teams = Caffeine.newBuilder()
+            .maximumSize(LOCAL_MAX_SIZE)
+            .expireAfterWrite(LOCAL_EXPIRE_TIME)
+            .build();
+
+    private final AtomicLong invalidationEpoch = new AtomicLong();
+
+    /**
+     * 用户的启用成员关系；不在任何团队时 teamId 为 null
+     */
+    @Getter
+    public static final class Membership {
+
+        static final Membership NONE = new Membership(null, null, null);
+
+        private final Long teamId;
+        private final String teamRole;
+        private final Integer status;
+
+        Membership(Long teamId, String teamRole, Integer status) {
+            this.teamId = teamId;
+            this.teamRole = teamRole;
+            this.status = status;
+        }
+
+        public boolean inTeam() {
+            return teamId != null;
+        }
+
+        /**
+         * 是否为指定团队的 OWNER/ADMIN
+         */
+        public boolean isManagerOf(Long targetTeamId) {
+            return teamId != null && teamId.equals(targetTeamId)
+                    && (TeamMember.ROLE_OWNER.equals(teamRole) || TeamMember.ROLE_ADMIN.equals(teamRole));
+        }
+    }
+
+    /**
+     * 团队状态；团队不存在或已删除时 exists 为 false
+     */
+    @Getter
+    public static final class TeamState {
+
+        static final TeamState MISSING = new TeamState(false, false, null);
+
+        private final boolean exists;
+        private final boolean enabled;
+        private final Long ownerUserId;
+
+        TeamState(boolean exists, boolean enabled, Long ownerUserId) {
+            this.exists = exists;
+            this.enabled = enabled;
+            this.ownerUserId = ownerUserId;
+        }
+    }
+
+    @PostConstruct
+    public void subscribeInvalidation() {
+        try {
+            redisMessageListenerContainer.addMessageListener(this::onInvalidation, new ChannelTopic(INVALIDATION_CHANNEL));
+        } catch (Exception e) {
+            log.warn("订阅团队成员关系失效广播失败，本地缓存仅依赖过期时间: {}", e.getMessage());
+        }
+    }
+
+    // ================ 读取 ================
+
+    /**
+     * 获取用户的启用成员关系（不为null）
+     */
+    public Membership getMembership(Long userId) {
+        if (userId == null) {
+            return Membership.NONE;
+        }
+        Membership cached = memberships.getIfPresent(userId);
+        if (cached != null) {
+            return cached;
+        }
+        long epoch = invalidationEpoch.get();
+        Membership loaded = loadMembership(userId);
+        putLocal(userId, loaded, epoch);
+        return loaded;
+    }
+
+    /**
+     * 批量获取用户的启用成员关系，未命中部分一次查询回源
+     */
+    public Map<Long, Membership> getMemberships(Collection<Long> userIds) {
+        List<Long> ids = userIds.stream().filter(Objects::nonNull).distinct().toList();
+        if (ids.isEmpty()) {
+            return new HashMap<>();
+        }
+        Map<Long, Membership> result = new HashMap<>(memberships.getAllPresent(ids));
+        if (result.size() == ids.size()) {
+            return result;
+        }
+        Set<Long> missing = new HashSet<>();
+        for (Long id : ids) {
+            if (!result.containsKey(id)) {
+                missing.add(id);
+            }
+        }
+        long epoch = invalidationEpoch.get();
+        Map<Long, Membership> loaded = loadMemberships(missing);
+        loaded.forEach((userId, membership) -> putLocal(userId, membership, epoch));
+        result.putAll(loaded);
+        return result;
+    }
+
+    /**
+     * 获取团队状态（不为null）
+     */
+    public TeamState getTeam(Long teamId) {
+        if (teamId == null) {
+            return TeamState.MISSING;
+        }
+        return teams.get(teamId, this::loadTeam);
+    }
+
+    // ================ 失效 ================
+
+    /**
+     * 清除用户成员关系（加入、退出、角色或状态变化后调用）
+     */
+    public void evictUser(Long userId) {
+        if (userId != null) {
+            runNowAndAfterCommit(SCOPE_USER, userId);
+        }
+    }
+
+    /**
+     * 清除团队状态及该团队全部成员的成员关系（团队状态变更、转让、解散后调用）
+     */
+    public void evictTeam(Long teamId) {
+        if (teamId != null) {
+            runNowAndAfterCommit(SCOPE_TEAM, teamId);
+        }
+    }
+
+    private void runNowAndAfterCommit(String scope, Long id) {
+        Runnable action = () -> {
+            invalidateLocal(scope, id);
+            publishInvalidation(scope, id);
+        };
+        action.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        }
+    }
+
+    private void invalidateLocal(String scope, Long id) {
+        // 先递增失效计数，再清除条目：与回源写入本地缓存的检查配合，避免旧值落入缓存
+        invalidationEpoch.incrementAndGet();
+        if (SCOPE_USER.equals(scope)) {
+            memberships.invalidate(id);
+        } else if (SCOPE_TEAM.equals(scope)) {
+            teams.invalidate(id);
+            memberships.asMap().entrySet().removeIf(e -> id.equals(e.getValue().getTeamId()));
+        }
+    }
+
+    private void publishInvalidation(String scope, Long id) {
+        try {
+            stringRedisTemplate.convertAndSend(INVALIDATION_CHANNEL, nodeId + "|" + scope + "|" + id);
+        } catch (Exception e) {
+            log.warn("发布团队成员关系失效广播失败，其他节点将在本地缓存过期后生效: {}", e.getMessage());
+        }
+    }
+
+    private void onInvalidation(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 3);
+        if (parts.length < 3 || nodeId.equals(parts[0])) {
+            return;
+        }
+        try {
+            invalidateLocal(parts[1], Long.parseLong(parts[2]));
+        } catch (NumberFormatException e) {
+            log.warn("忽略格式错误的团队成员关系失效广播: {}", parts[2]);
+        }
+    }
+
+    // ================ 回源 ================
+
+    /**
+     * 回源结果写入本地缓存：回源期间发生过失效则不写入；写入后再次检查，覆盖"检查后、写入前"发生的失效
+     */
+    private void putLocal(Long userId, Membership membership, long epoch) {
+        if (epoch != invalidationEpoch.get()) {
+            return;
+        }
+        memberships.put(userId, membership);
+        if (epoch != invalidationEpoch.get()) {
+            memberships.invalidate(userId);
+        }
+    }
+
+    private Membership loadMembership(Long userId) {
+        TeamMember m = teamMemberMapper.selectOne(new LambdaQueryWrapper<TeamMember>()
+                .select(TeamMember::getTeamId, TeamMember::getUserId, TeamMember::getTeamRole, TeamMember::getStatus)
+                .eq(TeamMember::getUserId, userId)
+                .eq(TeamMember::getStatus, TeamMember.STATUS_ENABLED)
+                .last("limit 1"));
+        return toMembership(m);
+    }
+
+    private Map<Long, Membership> loadMemberships(Set<? extends Long> userIds) {
+        List<TeamMember> rows = teamMemberMapper.selectList(new LambdaQueryWrapper<TeamMember>()
+                .select(TeamMember::getTeamId, TeamMember::getUserId, TeamMember::getTeamRole, TeamMember::getStatus)
+                .in(TeamMember::getUserId, userIds)
+                .eq(TeamMember::getStatus, TeamMember.STATUS_ENABLED));
+        Map<Long, Membership> result = new HashMap<>(userIds.size() * 2);
+        for (TeamMember m : rows) {
+            result.putIfAbsent(m.getUserId(), toMembership(m));
+        }
+        for (Long userId : userIds) {
+            result.putIfAbsent(userId, Membership.NONE);
+        }
+        return result;
+    }
+
+    private TeamState loadTeam(Long teamId) {
+        Team t = teamMapper.selectOne(new LambdaQueryWrapper<Team>()
+                .select(Team::getId, Team::getStatus, Team::getOwnerUserId)
+                .eq(Team::getId, teamId));
+        if (t == null) {
+            return TeamState.MISSING;
+        }
+        return new TeamState(true, t.getStatus() != null && t.getStatus() == Team.STATUS_ENABLED, t.getOwnerUserId());
+    }
+
+    private static Membership toMembership(TeamMember m) {
+        return m == null ? Membership.NONE : new Membership(m.getTeamId(), m.getTeamRole(), m.getStatus());
+    }
+}
@@ -0,0 +1,54 @@
+/**
+ * 用户快照：鉴权与展示常用的用户字段（不含密码等敏感信息），不可变
+ *
+ * @author hanjor
+ * @version 1.0
+ * @date 2026-10-17 22:00:00
+ */
+package com.okbug.platform.common.cache;
+
+import com.okbug.platform.entity.auth.User;
+import lombok.Getter;
+import org.springframework.util.StringUtils;
+
+@Getter
+public final class UserSnapshot {
+
+    private final Long id;
+    private final String username;
+    private final String nickname;
+    private final String email;
+    private final String role;
+    private final Integer status;
+
+    private UserSnapshot(User user) {
+        this.id = user.getId();
+        this.username = user.getUsername();
+        this.nickname = user.getNickname();
+        this.email = user.getEmail();
+        this.role = user.getRole();
+        this.status = user.getStatus();
+    }
+
+    public static UserSnapshot of(User user) {
+        return user == null ? null : new UserSnapshot(user);
+    }
+
+    public boolean isSuperAdmin() {
+        return User.ROLE_SUPER_ADMIN.equals(role);
+    }
+
+    public boolean isAdmin() {
+        return User.ROLE_ADMIN.equals(role);
+    }
+
+    /**
+     * 展示名称：优先昵称，其次用户名，均为空时返回ID
+     */
+    public String getDisplayName() {
+        if (StringUtils.hasText(nickname)) {
+            return nickname;
+        }
+        return StringUtils.hasText(username) ? username : String.valueOf(id);
+    }
+}
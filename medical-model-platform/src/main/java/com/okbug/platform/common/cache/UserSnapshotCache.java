@@ -0,0 +1,152 @@
+/**
+ * 用户快照缓存：按用户ID缓存鉴权与展示所需的用户字段，替代各处重复的 selectById
+ *
+ * 功能描述：
+ * 1. 读取顺序：请求级上下文（AuthContext）→ 本地Caffeine缓存 → 数据库（仅查询快照字段）
+ * 2. 用户资料、状态变更及删除后调用 {@link #evict}，事务内会在提交后再清除一次
+ * 3. 清除广播到所有节点；本地条目短TTL，广播丢失时过期后回源
+ *
+ * @author hanjor
+ * @version 1.0
+ * @date 2026-10-17 22:00:00
+ */
+package com.okbug.platform.common.cache;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.okbug.platform.common.context.AuthContext;
+import com.okbug.platform.entity.auth.User;
+import com.okbug.platform.mapper.auth.UserMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.UUID;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserSnapshotCache {
+
+    /**
+     * 跨节点失效广播频道，消息格式：{nodeId}|{userId}
+     */
+    public static final String INVALIDATION_CHANNEL = "user:snapshot:invalidate";
+
+    private static final long LOCAL_MAX_SIZE = 10_000L;
+    private static final Duration LOCAL_EXPIRE_TIME = Duration.ofMinutes(5);
+
+    private final UserMapper userMapper;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisMessageListenerContainer redisMessageListenerContainer;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final Cache<Long, UserSnapshot> localSnapshots = Caffeine.newBuilder()
+            .maximumSize(LOCAL_MAX_SIZE)
+            .expireAfterWrite(LOCAL_EXPIRE_TIME)
+            .build();
+
+    @PostConstruct
+    public void subscribeInvalidation() {
+        try {
+            redisMessageListenerContainer.addMessageListener(this::onInvalidation, new ChannelTopic(INVALIDATION_CHANNEL));
+        } catch (Exception e) {
+            log.warn("订阅用户快照失效广播失败，本地缓存仅依赖过期时间: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 获取用户快照
+     *
+     * @param userId 用户ID
+     * @return 用户快照；用户不存在（或已删除）时返回null
+     */
+    public UserSnapshot get(Long userId) {
+        if (userId == null) {
+            return null;
+        }
+        UserSnapshot current = AuthContext.lookup(userId);
+        if (current != null) {
+            return current;
+        }
+        // Caffeine 对同一键的加载与失效互斥，加载期间的失效会移除本次加载结果
+        return localSnapshots.get(userId, this::load);
+    }
+
+    /**
+     * 获取用户角色；用户不存在时返回null
+     */
+    public String getRole(Long userId) {
+        UserSnapshot snapshot = get(userId);
+        return snapshot == null ? null : snapshot.getRole();
+    }
+
+    /**
+     * 获取用户展示名称；用户不存在时返回ID字符串
+     */
+    public String getDisplayName(Long userId) {
+        UserSnapshot snapshot = get(userId);
+        return snapshot == null ? String.valueOf(userId) : snapshot.getDisplayName();
+    }
+
+    /**
+     * 清除用户快照（本节点立即清除并广播；事务内提交后再清除一次）
+     */
+    public void evict(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        Runnable action = () -> {
+            localSnapshots.invalidate(userId);
+            AuthContext.forget(userId);
+            publishInvalidation(userId);
+        };
+        action.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        }
+    }
+
+    private UserSnapshot load(Long userId) {
+        User user = userMapper.selectOne(new LambdaQueryWrapper<User>()
+                .select(User::getId, User::getUsername, User::getNickname, User::getEmail, User::getRole, User::getStatus)
+                .eq(User::getId, userId));
+        return UserSnapshot.of(user);
+    }
+
+    private void publishInvalidation(Long userId) {
+        try {
+            stringRedisTemplate.convertAndSend(INVALIDATION_CHANNEL, nodeId + "|" + userId);
+        } catch (Exception e) {
+            log.warn("发布用户快照失效广播失败，其他节点将在本地缓存过期后生效: {}", e.getMessage());
+        }
+    }
+
+    private void onInvalidation(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 2);
+        if (parts.length < 2 || nodeId.equals(parts[0])) {
+            return;
+        }
+        try {
+            localSnapshots.invalidate(Long.parseLong(parts[1]));
+        } catch (NumberFormatException e) {
+            log.warn("忽略格式错误的用户快照失效广播: {}", parts[1]);
+        }
+    }
+}
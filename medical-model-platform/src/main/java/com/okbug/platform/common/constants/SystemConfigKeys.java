@@ -66,6 +66,24 @@ public final class SystemConfigKeys {
      */
     public static final String USER_OPERATION_FAIL_WINDOW_MINUTES = "user.operation.fail.window.minutes";
     
+    /**
+     * 同一IP登录失败最大次数
+     * 配置类型：NUMBER
+     * 配置分类：USER
+     * 默认值：20
+     * 说明：同一客户端IP在失败计数窗口内的登录失败（含账号不存在）达到此次数后，该IP临时禁止登录，用于抵御跨账号的密码喷洒
+     */
+    public static final String USER_LOGIN_IP_FAIL_MAX_COUNT = "user.login.ip.fail.max.count";
+    
+    /**
+     * 密码加密强度（BCrypt cost）
+     * 配置类型：NUMBER
+     * 配置分类：USER
+     * 默认值：10
+     * 说明：取值4-16，每加1单次加密/校验耗时约翻倍；调高后旧密码在用户下次登录成功时按新强度重新加密
+     */
+    public static final String USER_PASSWORD_HASH_COST = "user.password.hash.cost";
+    
     /**
      * 是否开启用户注册功能
      * 配置类型：BOOLEAN
@@ -133,6 +151,12 @@ public final class SystemConfigKeys {
     public static final String TEAM_INVITE_IDEMPOTENCY_TTL_SECONDS = "team.invite.idem.ttl.seconds";
     /** 加入申请幂等TTL（秒） */
     public static final String TEAM_JOIN_IDEMPOTENCY_TTL_SECONDS = "team.join.idem.ttl.seconds";
+
+    // ==================== 接口限流 ====================
+    /** 用户注册-每IP每分钟最大次数 */
+    public static final String AUTH_REGISTER_RATE_LIMIT_PER_MINUTE = "auth.register.rate.per.minute";
+    /** 使用兑换码-每用户每分钟最大次数（令牌桶容量） */
+    public static final String CREDIT_REDEEM_RATE_LIMIT_PER_MINUTE = "credit.redeem.rate.per.minute";
     
 
     // ==================== 团队邀请链接 ====================
@@ -155,6 +179,147 @@ public final class SystemConfigKeys {
     /** 是否继续暴露子账号相关API（默认关闭） */
     public static final String SUBACCOUNT_API_ENABLED = "system.subaccount.api.enabled";
 
+    // ==================== 积分扣减 ====================
+    /**
+     * 启用原子条件扣减的积分类型
+     * 配置类型：STRING
+     * 配置分类：SYSTEM
+     * 默认值：*
+     * 说明：逗号分隔的积分类型编码，"*" 表示全部类型；未命中的类型仍走乐观锁重试扣减
+     */
+    public static final String CREDIT_DEBIT_ATOMIC_TYPES = "credit.debit.atomic.types";
+
+    /**
+     * 启用扣减合并的热点账户
+     * 配置类型：STRING
+     * 配置分类：SYSTEM
+     * 默认值：空（不启用）
+     * 说明：逗号分隔，格式为 userId:creditTypeCode 或 userId（该用户全部类型），如团队所有者共享账户
+     */
+    public static final String CREDIT_DEBIT_COALESCE_ACCOUNTS = "credit.debit.coalesce.accounts";
+
+    /**
+     * 扣减合并等待窗口（毫秒）
+     * 配置类型：NUMBER
+     * 配置分类：SYSTEM
+     * 默认值：2
+     * 说明：首个请求到达后最多等待该时长收集同账户的并发扣减
+     */
+    public static final String CREDIT_DEBIT_COALESCE_WINDOW_DURATION_MILLIS = "credit.debit.coalesce.window.duration.millis";
+
+    /**
+     * 扣减合并单批最大请求数
+     * 配置类型：NUMBER
+     * 配置分类：SYSTEM
+     * 默认值：32
+     * 说明：批次达到该数量时立即提交，不再等待窗口结束
+     */
+    public static final String CREDIT_DEBIT_COALESCE_BATCH_MAX_COUNT = "credit.debit.coalesce.batch.max.count";
+
+    // ==================== 积分预授权 ====================
+    /**
+     * 积分预授权默认有效期（秒）
+     * 配置类型：NUMBER
+     * 配置分类：SYSTEM
+     * 默认值：1800
+     * 说明：预授权未结算或释放时，到期后由清理任务自动释放
+     */
+    public static final String CREDIT_HOLD_TTL_SECONDS = "credit.hold.ttl.seconds";
+
+    /**
+     * 积分预授权结算入账单批最大条数
+     * 配置类型：NUMBER
+     * 配置分类：SYSTEM
+     * 默认值：200
+     * 说明：结算记录先进入Redis队列，由对账任务按批写入 user_credits 与 credit_transactions
+     */
+    public static final String CREDIT_HOLD_RECONCILE_BATCH_COUNT = "credit.hold.reconcile.batch.count";
+
+    // ==================== 积分每日限次 ====================
+    /**
+     * 积分场景每日限次的自然日时区
+     * 配置类型：STRING
+     * 配置分类：SYSTEM
+     * 默认值：Asia/Shanghai
+     * 说明：每日计数器在该时区的零点过期；修改后次日生效
+     */
+    public static final String CREDIT_DAILY_LIMIT_TIMEZONE = "credit.daily.limit.timezone";
+
+    // ==================== 积分扣费幂等 ====================
+    /**
+     * 积分扣费幂等结果保留时长（秒）
+     * 配置类型：NUMBER
+     * 配置分类：SYSTEM
+     * 默认值：86400
+     * 说明：同一用户同一订单号的重复扣费请求在该时长内直接返回首次扣费结果；过期后由 uk_credit_tx_idem 兜底
+     */
+    public static final String CREDIT_CHARGE_IDEMPOTENCY_TTL_SECONDS = "credit.charge.idempotency.ttl.seconds";
+
+    // ==================== 积分交易汇总 ====================
+    /**
+     * 是否启用积分交易汇总
+     * 配置类型：BOOLEAN
+     * 配置分类：SYSTEM
+     * 默认值：true
+     * 说明：关闭后汇总任务暂停，统计查询全部回退为明细聚合
+     */
+    public static final String CREDIT_ROLLUP_ENABLED = "credit.rollup.enabled";
+
+    /**
+     * 积分交易汇总单批最大交易条数
+     * 配置类型：NUMBER
+     * 配置分类：SYSTEM
+     * 默认值：5000
+     * 说明：汇总任务按创建时间分批推进，每批一个事务
+     */
+    public static final String CREDIT_ROLLUP_BATCH_COUNT = "credit.rollup.batch.count";
+
+    /**
+     * 积分交易汇总的落定延迟（秒）
+     * 配置类型：NUMBER
+     * 配置分类：SYSTEM
+     * 默认值：60
+     * 说明：创建时间晚于"当前时间-延迟"的交易暂不汇总，等待并发事务提交，减少落入重扫窗口的交易
+     */
+    public static final String CREDIT_ROLLUP_SETTLE_DURATION_SECONDS = "credit.rollup.settle.duration.seconds";
+
+    /**
+     * 积分交易汇总的重扫窗口（秒）
+     * 配置类型：NUMBER
+     * 配置分类：SYSTEM
+     * 默认值：600
+     * 说明：每批从"已覆盖时间点-窗口"开始扫描并按交易ID去重，提交晚于创建时间不超过"落定延迟+窗口"的交易仍会被汇总
+     */
+    public static final String CREDIT_ROLLUP_OVERLAP_DURATION_SECONDS = "credit.rollup.overlap.duration.seconds";
+
+    // ==================== WebSocket 推送 ====================
+    /**
+     * 单个 WebSocket 会话的待发送消息上限
+     * 配置类型：NUMBER
+     * 配置分类：SYSTEM
+     * 默认值：1000
+     * 说明：推送只入队不等待网络发送，客户端读取过慢导致队列达到上限时按溢出策略处理；新建连接时生效
+     */
+    public static final String WEBSOCKET_SEND_BUFFER_MAX_COUNT = "websocket.send.buffer.max.count";
+
+    /**
+     * WebSocket 单次发送时限（毫秒）
+     * 配置类型：NUMBER
+     * 配置分类：SYSTEM
+     * 默认值：10000
+     * 说明：单条消息发送超过此时长（客户端长时间不读取）后，该会话收到新消息时被关闭；新建连接时生效
+     */
+    public static final String WEBSOCKET_SEND_TIMEOUT_DURATION_MILLIS = "websocket.send.timeout.duration.millis";
+
+    /**
+     * WebSocket 发送队列溢出策略
+     * 配置类型：STRING
+     * 配置分类：SYSTEM
+     * 默认值：DROP_OLDEST
+     * 说明：DROP_OLDEST 丢弃最早的待发送消息，DROP_NEWEST 丢弃新消息，TERMINATE 关闭该会话（客户端重连后恢复）；新建连接时生效
+     */
+    public static final String WEBSOCKET_SEND_OVERFLOW_STRATEGY = "websocket.send.overflow.strategy";
+
     // ==================== 工具方法 ====================
     
     /**
@@ -258,6 +423,10 @@ public final class SystemConfigKeys {
                 return "30";
             case USER_OPERATION_FAIL_WINDOW_MINUTES:
                 return "10";
+            case USER_LOGIN_IP_FAIL_MAX_COUNT:
+                return "20";
+            case USER_PASSWORD_HASH_COST:
+                return "10";
             case USER_REGISTER_ENABLED:
                 return "true";
             case USER_REGISTER_REWARD_ENABLED:
@@ -281,6 +450,10 @@ public final class SystemConfigKeys {
                 return "30";
             case TEAM_JOIN_IDEMPOTENCY_TTL_SECONDS:
                 return "30";
+            case AUTH_REGISTER_RATE_LIMIT_PER_MINUTE:
+                return "10";
+            case CREDIT_REDEEM_RATE_LIMIT_PER_MINUTE:
+                return "20";
             
             case MIGRATION_SUBACCOUNT_TO_TEAM_ENABLED:
                 return "false";
@@ -288,6 +461,36 @@ public final class SystemConfigKeys {
                 return "false";
             case TEAM_INVITE_BASE_URL:
                 return "http://localhost:8081/register?teamCode=";
+            case CREDIT_DEBIT_ATOMIC_TYPES:
+                return "*";
+            case CREDIT_DEBIT_COALESCE_ACCOUNTS:
+                return "";
+            case CREDIT_DEBIT_COALESCE_WINDOW_DURATION_MILLIS:
+                return "2";
+            case CREDIT_DEBIT_COALESCE_BATCH_MAX_COUNT:
+                return "32";
+            case CREDIT_HOLD_TTL_SECONDS:
+                return "1800";
+            case CREDIT_DAILY_LIMIT_TIMEZONE:
+                return "Asia/Shanghai";
+            case CREDIT_CHARGE_IDEMPOTENCY_TTL_SECONDS:
+                return "86400";
+            case CREDIT_HOLD_RECONCILE_BATCH_COUNT:
+                return "200";
+            case CREDIT_ROLLUP_ENABLED:
+                return "true";
+            case CREDIT_ROLLUP_BATCH_COUNT:
+                return "5000";
+            case CREDIT_ROLLUP_SETTLE_DURATION_SECONDS:
+                return "60";
+            case CREDIT_ROLLUP_OVERLAP_DURATION_SECONDS:
+                return "600";
+            case WEBSOCKET_SEND_BUFFER_MAX_COUNT:
+                return "1000";
+            case WEBSOCKET_SEND_TIMEOUT_DURATION_MILLIS:
+                return "10000";
+            case WEBSOCKET_SEND_OVERFLOW_STRATEGY:
+                return "DROP_OLDEST";
             default:
                 return null;
         }
@@ -0,0 +1,61 @@
+/**
+ * 请求级鉴权上下文：由 SaTokenInterceptor 在请求开始时绑定当前登录用户快照，请求结束时清除
+ *
+ * 功能描述：
+ * 1. 同一请求内读取当前用户的角色、展示名称不再重复查询用户表
+ * 2. 仅在 Web 请求线程内有效，异步线程与定时任务中为空，调用方应经 UserSnapshotCache 读取
+ * 3. 请求内修改了当前用户时，快照随缓存失效一并清除，后续读取重新加载
+ *
+ * @author hanjor
+ * @version 1.0
+ * @date 2026-10-17 22:00:00
+ */
+package com.okbug.platform.common.context;
+
+import com.okbug.platform.common.cache.UserSnapshot;
+
+import java.util.Objects;
+
+public final class AuthContext {
+
+    private static final ThreadLocal<UserSnapshot> CURRENT = new ThreadLocal<>();
+
+    private AuthContext() {
+    }
+
+    public static void bind(UserSnapshot snapshot) {
+        if (snapshot == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(snapshot);
+        }
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    /**
+     * 当前请求的登录用户快照；非请求线程或未登录时为null
+     */
+    public static UserSnapshot current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 获取上下文中指定用户的快照；上下文为空或不是该用户时返回null
+     */
+    public static UserSnapshot lookup(Long userId) {
+        UserSnapshot snapshot = CURRENT.get();
+        return snapshot != null && Objects.equals(snapshot.getId(), userId) ? snapshot : null;
+    }
+
+    /**
+     * 指定用户被修改时丢弃上下文中的旧快照
+     */
+    public static void forget(Long userId) {
+        if (lookup(userId) != null) {
+            CURRENT.remove();
+        }
+    }
+}
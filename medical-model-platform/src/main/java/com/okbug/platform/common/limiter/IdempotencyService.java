@@ -4,8 +4,10 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.DataAccessException;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Service;
 
+import java.util.Collections;
 import java.util.concurrent.TimeUnit;
 
 @Slf4j
@@ -13,6 +15,16 @@ import java.util.concurrent.TimeUnit;
 @RequiredArgsConstructor
 public class IdempotencyService {
 
+    /**
+     * 已存在返回当前值；不存在则写入占位值并返回空
+     */
+    private static final DefaultRedisScript<String> ACQUIRE_OR_GET_SCRIPT = new DefaultRedisScript<>(
+            "local v = redis.call('GET', KEYS[1]) " +
+            "if v then return v end " +
+            "redis.call('SET', KEYS[1], ARGV[1], 'EX', ARGV[2]) " +
+            "return nil",
+            String.class);
+
     private final StringRedisTemplate stringRedisTemplate;
 
     /**
@@ -27,6 +39,40 @@ public class IdempotencyService {
             return true; // 降级放行，避免影响主流程
         }
     }
-}
 
+    /**
+     * 登记幂等键或读取已存储的结果（单次Redis调用）。
+     * 首次登记写入占位值并返回null；重复时返回占位值或 {@link #complete} 写入的结果；Redis异常时降级返回null。
+     */
+    public String tryAcquireOrGet(String key, String pendingValue, long ttlSeconds) {
+        try {
+            return stringRedisTemplate.execute(ACQUIRE_OR_GET_SCRIPT, Collections.singletonList(key),
+                    pendingValue, String.valueOf(ttlSeconds));
+        } catch (DataAccessException e) {
+            log.warn("Idempotency degraded, redis error for key {}: {}", key, e.getMessage());
+            return null; // 降级放行，由数据库唯一键兜底
+        }
+    }
 
+    /**
+     * 以处理结果覆盖占位值，后续重复请求直接读取该结果。
+     */
+    public void complete(String key, String value, long ttlSeconds) {
+        try {
+            stringRedisTemplate.opsForValue().set(key, value, ttlSeconds, TimeUnit.SECONDS);
+        } catch (DataAccessException e) {
+            log.warn("Idempotency result not stored, redis error for key {}: {}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * 释放幂等键，允许处理失败的请求重试。
+     */
+    public void release(String key) {
+        try {
+            stringRedisTemplate.delete(key);
+        } catch (DataAccessException e) {
+            log.warn("Idempotency key not released, redis error for key {}: {}", key, e.getMessage());
+        }
+    }
+}
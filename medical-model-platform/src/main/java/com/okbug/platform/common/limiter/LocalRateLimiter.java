@@ -0,0 +1,253 @@
+/**
+ * 本地限流器：进程内无锁的按键限流桶，已放行数在后台同步到 Redis 汇总集群配额
+ *
+ * 功能描述：
+ * 1. 令牌桶采用 GCRA（理论到达时间）实现，状态为单个 AtomicLong，一次 CAS 完成判定
+ * 2. 滑动窗口以不可变窗口状态 + CAS 实现，同样不加锁
+ * 3. 每秒将各键新增放行数累加到 Redis 的集群计数（Lua 原子累加并设置过期），
+ *    集群计数达到阈值后本地拒绝至该计数过期，集群超发量不超过一个同步周期内各节点的放行数
+ * 4. 同时作为集群模式的降级判定：Redis 不可用时仅按本地桶判定，不再无条件放行
+ *
+ * Redis数据结构：
+ * - {限流键}:sync  集群内当前窗口已放行数（TTL=窗口长度，由首次累加设置）
+ *
+ * @author hanjor
+ * @version 1.0
+ * @date 2026-10-17 23:00:00
+ */
+package com.okbug.platform.common.limiter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LocalRateLimiter {
+
+    private static final String SYNC_KEY_SUFFIX = ":sync";
+    private static final long LOCAL_MAX_SIZE = 100_000L;
+    private static final Duration LOCAL_EXPIRE_TIME = Duration.ofMinutes(10);
+
+    /**
+     * 累加集群已放行数，首次累加时设置窗口过期；返回 {集群已放行数, 剩余毫秒}
+     */
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> SYNC_SCRIPT = new DefaultRedisScript<>(
+            "local c = redis.call('INCRBY', KEYS[1], ARGV[1]) " +
+            "local ttl = redis.call('PTTL', KEYS[1]) " +
+            "if ttl < 0 then redis.call('PEXPIRE', KEYS[1], ARGV[2]) ttl = tonumber(ARGV[2]) end " +
+            "return {c, ttl}", List.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final Cache<String, Bucket> buckets = Caffeine.newBuilder()
+            .maximumSize(LOCAL_MAX_SIZE)
+            .expireAfterAccess(LOCAL_EXPIRE_TIME)
+            .build();
+
+    private final LongAdder syncRounds = new LongAdder();
+    private final LongAdder syncFailures = new LongAdder();
+    private final LongAdder clusterThrottled = new LongAdder();
+
+    /**
+     * 本地判定并计入待同步的放行数
+     */
+    RateLimitService.Decision tryAcquire(String key, int limit, Duration window, RateLimitService.Algorithm algorithm) {
+        Bucket bucket = bucketOf(key, limit, window, algorithm);
+        long nowNanos = System.nanoTime();
+        long blockedUntil = bucket.clusterBlockedUntilNanos;
+        if (blockedUntil != 0L && nowNanos < blockedUntil) {
+            clusterThrottled.increment();
+            return new RateLimitService.Decision(false, 0L, (blockedUntil - nowNanos) / 1_000_000L);
+        }
+        RateLimitService.Decision decision = bucket.acquire(nowNanos);
+        if (decision.isAllowed()) {
+            bucket.pendingSync.increment();
+        }
+        return decision;
+    }
+
+    /**
+     * 仅本地判定，不参与集群同步（集群模式降级时使用）
+     */
+    RateLimitService.Decision evaluateOnly(String key, int limit, Duration window, RateLimitService.Algorithm algorithm) {
+        return bucketOf(key, limit, window, algorithm).acquire(System.nanoTime());
+    }
+
+    /**
+     * 定时同步（每秒）：上报各键新增放行数，据集群汇总决定是否本地拒绝
+     */
+    @Scheduled(fixedDelay = 1000)
+    public void syncWithCluster() {
+        syncRounds.increment();
+        for (Map.Entry<String, Bucket> entry : buckets.asMap().entrySet()) {
+            Bucket bucket = entry.getValue();
+            long pending = bucket.pendingSync.sumThenReset();
+            if (pending == 0L) {
+                continue;
+            }
+            try {
+                List<?> result = stringRedisTemplate.execute(SYNC_SCRIPT,
+                        Collections.singletonList(entry.getKey() + SYNC_KEY_SUFFIX),
+                        String.valueOf(pending), String.valueOf(bucket.windowMillis));
+                if (result == null || result.size() < 2) {
+                    continue;
+                }
+                long clusterCount = ((Number) result.get(0)).longValue();
+                long ttlMillis = ((Number) result.get(1)).longValue();
+                bucket.clusterBlockedUntilNanos = clusterCount >= bucket.limit
+                        ? System.nanoTime() + ttlMillis * 1_000_000L : 0L;
+            } catch (Exception e) {
+                syncFailures.increment();
+                log.debug("同步本地限流计数失败，键: {}, 错误: {}", entry.getKey(), e.getMessage());
+            }
+        }
+    }
+
+    Map<String, Object> getLocalStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("buckets", buckets.estimatedSize());
+        stats.put("syncRounds", syncRounds.sum());
+        stats.put("syncFailures", syncFailures.sum());
+        stats.put("clusterThrottled", clusterThrottled.sum());
+        return stats;
+    }
+
+    private Bucket bucketOf(String key, int limit, Duration window, RateLimitService.Algorithm algorithm) {
+        long windowMillis = Math.max(1L, window.toMillis());
+        Bucket bucket = buckets.get(key, k -> newBucket(limit, windowMillis, algorithm));
+        if (!bucket.matches(limit, windowMillis, algorithm)) {
+            // 同一键的规则被调整（如动态配置变化）：以新规则重建
+            bucket = buckets.asMap().compute(key, (k, old) ->
+                    old != null && old.matches(limit, windowMillis, algorithm) ? old : newBucket(limit, windowMillis, algorithm));
+        }
+        return bucket;
+    }
+
+    private static Bucket newBucket(int limit, long windowMillis, RateLimitService.Algorithm algorithm) {
+        return algorithm == RateLimitService.Algorithm.TOKEN_BUCKET
+                ? new TokenBucket(limit, windowMillis)
+                : new SlidingWindowBucket(limit, windowMillis);
+    }
+
+    // ================ 限流桶 ================
+
+    private abstract static class Bucket {
+
+        final int limit;
+        final long windowMillis;
+        final LongAdder pendingSync = new LongAdder();
+        volatile long clusterBlockedUntilNanos;
+
+        Bucket(int limit, long windowMillis) {
+            this.limit = limit;
+            this.windowMillis = windowMillis;
+        }
+
+        abstract RateLimitService.Algorithm algorithm();
+
+        abstract RateLimitService.Decision acquire(long nowNanos);
+
+        boolean matches(int limit, long windowMillis, RateLimitService.Algorithm algorithm) {
+            return this.limit == limit && this.windowMillis == windowMillis && algorithm() == algorithm;
+        }
+    }
+
+    /**
+     * GCRA 令牌桶：tat 为下一个许可的理论到达时间，允许条件为 tat' - now <= 容量 × 发放间隔
+     */
+    private static final class TokenBucket extends Bucket {
+
+        private final long intervalNanos;
+        private final long burstNanos;
+        private final AtomicLong tat = new AtomicLong(Long.MIN_VALUE);
+
+        TokenBucket(int limit, long windowMillis) {
+            super(limit, windowMillis);
+            this.intervalNanos = Math.max(1L, windowMillis * 1_000_000L / limit);
+            this.burstNanos = intervalNanos * limit;
+        }
+
+        @Override
+        RateLimitService.Algorithm algorithm() {
+            return RateLimitService.Algorithm.TOKEN_BUCKET;
+        }
+
+        @Override
+        RateLimitService.Decision acquire(long nowNanos) {
+            while (true) {
+                long current = tat.get();
+                long base = current == Long.MIN_VALUE || current - nowNanos < 0 ? nowNanos : current;
+                long next = base + intervalNanos;
+                long ahead = next - nowNanos;
+                if (ahead > burstNanos) {
+                    return new RateLimitService.Decision(false, 0L, (ahead - burstNanos) / 1_000_000L + 1L);
+                }
+                if (tat.compareAndSet(current, next)) {
+                    return new RateLimitService.Decision(true, (burstNanos - ahead) / intervalNanos, 0L);
+                }
+            }
+        }
+    }
+
+    /**
+     * 滑动窗口：当前窗口计数加上一窗口按剩余时间加权的估算值不超过阈值
+     */
+    private static final class SlidingWindowBucket extends Bucket {
+
+        private final long windowNanos;
+        private final AtomicReference<WindowState> state = new AtomicReference<>(new WindowState(Long.MIN_VALUE, 0L, 0L));
+
+        private record WindowState(long index, long previous, long current) {
+        }
+
+        SlidingWindowBucket(int limit, long windowMillis) {
+            super(limit, windowMillis);
+            this.windowNanos = windowMillis * 1_000_000L;
+        }
+
+        @Override
+        RateLimitService.Algorithm algorithm() {
+            return RateLimitService.Algorithm.SLIDING_WINDOW;
+        }
+
+        @Override
+        RateLimitService.Decision acquire(long nowNanos) {
+            long index = Math.floorDiv(nowNanos, windowNanos);
+            long elapsed = nowNanos - index * windowNanos;
+            while (true) {
+                WindowState s = state.get();
+                long previous = s.index == index ? s.previous : (s.index == index - 1 ? s.current : 0L);
+                long current = s.index == index ? s.current : 0L;
+                double estimated = previous * (double) (windowNanos - elapsed) / windowNanos + current;
+                if (estimated + 1 > limit) {
+                    long retryNanos = windowNanos - elapsed;
+                    double room = limit - 1 - current;
+                    if (room >= 0 && previous > 0) {
+                        retryNanos = Math.max(1L, (long) (windowNanos - room * windowNanos / previous) - elapsed);
+                    }
+                    return new RateLimitService.Decision(false, 0L, retryNanos / 1_000_000L + 1L);
+                }
+                if (state.compareAndSet(s, new WindowState(index, previous, current + 1))) {
+                    return new RateLimitService.Decision(true, (long) (limit - estimated - 1), 0L);
+                }
+            }
+        }
+    }
+}
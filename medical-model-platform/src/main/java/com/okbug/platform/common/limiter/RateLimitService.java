@@ -1,34 +1,220 @@
 package com.okbug.platform.common.limiter;
 
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class RateLimitService {
 
+    /**
+     * 限流算法
+     * SLIDING_WINDOW: 滑动窗口计数（当前窗口计数 + 上一窗口按剩余时间加权），窗口边界不会出现2倍突发
+     * TOKEN_BUCKET: 令牌桶，容量为 limit，每个窗口匀速补满，允许容量内的突发
+     */
+    public enum Algorithm {
+        SLIDING_WINDOW, TOKEN_BUCKET
+    }
+
+    /**
+     * 限流模式
+     * CLUSTER: 单次 Lua 原子判定，集群内精确；Redis 不可用时降级为本地判定
+     * LOCAL: 进程内无锁判定，不经网络；已放行数后台同步到 Redis，集群配额耗尽后本地拒绝至窗口结束
+     */
+    public enum Mode {
+        CLUSTER, LOCAL
+    }
+
+    /**
+     * 限流判定结果
+     */
+    @Getter
+    public static final class Decision {
+
+        private final boolean allowed;
+        private final long remaining;
+        private final long retryAfterMillis;
+
+        Decision(boolean allowed, long remaining, long retryAfterMillis) {
+            this.allowed = allowed;
+            this.remaining = Math.max(0L, remaining);
+            this.retryAfterMillis = Math.max(0L, retryAfterMillis);
+        }
+    }
+
+    /**
+     * 滑动窗口计数：单个 Hash 保存窗口起点(w)、当前窗口计数(c)、上一窗口计数(p)，时间取 Redis 服务器时间
+     * 返回 {是否放行, 剩余次数, 建议重试毫秒}
+     */
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> SLIDING_WINDOW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.replicate_commands then redis.replicate_commands() end " +
+            "local t = redis.call('TIME') " +
+            "local now = tonumber(t[1]) * 1000 + math.floor(tonumber(t[2]) / 1000) " +
+            "local limit = tonumber(ARGV[1]) local window = tonumber(ARGV[2]) local permits = tonumber(ARGV[3]) " +
+            "local start = now - (now % window) " +
+            "local s = redis.call('HMGET', KEYS[1], 'w', 'c', 'p') " +
+            "local w = tonumber(s[1]) or start local c = tonumber(s[2]) or 0 local p = tonumber(s[3]) or 0 " +
+            "if w ~= start then if w == start - window then p = c else p = 0 end c = 0 end " +
+            "local est = p * (window - (now - start)) / window + c " +
+            "if est + permits > limit then " +
+            "  local room = limit - permits - c " +
+            "  local retry = start + window - now " +
+            "  if room >= 0 and p > 0 then retry = math.max(1, math.ceil(start + window - room * window / p - now)) end " +
+            "  return {0, math.floor(limit - est), retry} " +
+            "end " +
+            "c = c + permits " +
+            "redis.call('HSET', KEYS[1], 'w', start, 'c', c, 'p', p) " +
+            "redis.call('PEXPIRE', KEYS[1], window * 2) " +
+            "return {1, math.floor(limit - est - permits), 0}", List.class);
+
+    /**
+     * 令牌桶：单个 Hash 保存令牌数(t)与上次补充时间(ts)，时间取 Redis 服务器时间
+     * 返回 {是否放行, 剩余令牌, 建议重试毫秒}
+     */
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> TOKEN_BUCKET_SCRIPT = new DefaultRedisScript<>(
+            "if redis.replicate_commands then redis.replicate_commands() end " +
+            "local t = redis.call('TIME') " +
+            "local now = tonumber(t[1]) * 1000 + math.floor(tonumber(t[2]) / 1000) " +
+            "local capacity = tonumber(ARGV[1]) local window = tonumber(ARGV[2]) local permits = tonumber(ARGV[3]) " +
+            "local s = redis.call('HMGET', KEYS[1], 't', 'ts') " +
+            "local tokens = tonumber(s[1]) local ts = tonumber(s[2]) " +
+            "if tokens == nil or ts == nil then tokens = capacity ts = now end " +
+            "tokens = math.min(capacity, tokens + math.max(0, now - ts) * capacity / window) " +
+            "local allowed = 0 local retry = 0 " +
+            "if tokens >= permits then tokens = tokens - permits allowed = 1 " +
+            "else retry = math.ceil((permits - tokens) * window / capacity) end " +
+            "redis.call('HSET', KEYS[1], 't', tostring(tokens), 'ts', now) " +
+            "redis.call('PEXPIRE', KEYS[1], window) " +
+            "return {allowed, math.floor(tokens), retry}", List.class);
+
+    /**
+     * 指标按键前缀聚合，前缀数量超过上限后归入 other，避免以用户ID等作前缀时无限增长
+     */
+    private static final int MAX_METRIC_PREFIXES = 256;
+    private static final String OTHER_PREFIX = "other";
+
     private final StringRedisTemplate redis;
+    private final LocalRateLimiter localRateLimiter;
+
+    private final Map<String, Metrics> metrics = new ConcurrentHashMap<>();
+
+    private static final class Metrics {
+        final LongAdder allowed = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+        final LongAdder degraded = new LongAdder();
+    }
 
     /**
-     * 简单固定窗口限流：在窗口期内累计计数，超过阈值返回false。
+     * 滑动窗口限流（集群精确）：在任意窗口长度的时间段内累计不超过阈值，超过返回false
      */
     public boolean allow(String key, int limit, Duration window) {
+        return tryAcquire(key, limit, window, Algorithm.SLIDING_WINDOW, Mode.CLUSTER).isAllowed();
+    }
+
+    /**
+     * 按指定算法与模式申请一次许可
+     *
+     * @param key       限流键（指标按最后一个冒号之前的部分聚合）
+     * @param limit     窗口内最大次数（令牌桶为桶容量）
+     * @param window    窗口长度（令牌桶为补满一桶的时间）
+     * @param algorithm 限流算法
+     * @param mode      限流模式
+     * @return 判定结果
+     */
+    public Decision tryAcquire(String key, int limit, Duration window, Algorithm algorithm, Mode mode) {
+        return tryAcquire(metricPrefix(key), key, limit, window, algorithm, mode);
+    }
+
+    /**
+     * 按指定算法与模式申请一次许可，指标归入显式给出的前缀
+     */
+    public Decision tryAcquire(String prefix, String key, int limit, Duration window, Algorithm algorithm, Mode mode) {
+        Metrics m = metricsOf(prefix);
+        if (limit <= 0) {
+            m.rejected.increment();
+            return new Decision(false, 0L, window.toMillis());
+        }
+        Decision decision;
+        if (mode == Mode.LOCAL) {
+            decision = localRateLimiter.tryAcquire(key, limit, window, algorithm);
+        } else {
+            decision = evaluateInRedis(key, limit, window, algorithm);
+            if (decision == null) {
+                m.degraded.increment();
+                decision = localRateLimiter.evaluateOnly(key, limit, window, algorithm);
+            }
+        }
+        (decision.isAllowed() ? m.allowed : m.rejected).increment();
+        return decision;
+    }
+
+    /**
+     * 获取按键前缀聚合的放行、拒绝、降级计数及本地限流器状态
+     */
+    public Map<String, Object> getRateLimitStats() {
+        Map<String, Object> byPrefix = new TreeMap<>();
+        metrics.forEach((prefix, m) -> {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("allowed", m.allowed.sum());
+            item.put("rejected", m.rejected.sum());
+            item.put("degraded", m.degraded.sum());
+            byPrefix.put(prefix, item);
+        });
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("prefixes", byPrefix);
+        stats.put("local", localRateLimiter.getLocalStats());
+        return stats;
+    }
+
+    @SuppressWarnings("rawtypes")
+    private Decision evaluateInRedis(String key, int limit, Duration window, Algorithm algorithm) {
+        DefaultRedisScript<List> script = algorithm == Algorithm.TOKEN_BUCKET ? TOKEN_BUCKET_SCRIPT : SLIDING_WINDOW_SCRIPT;
         try {
-            Long c = redis.opsForValue().increment(key);
-            if (c != null && c == 1L) {
-                redis.expire(key, window);
+            List result = redis.execute(script, Collections.singletonList(key),
+                    String.valueOf(limit), String.valueOf(Math.max(1L, window.toMillis())), "1");
+            if (result == null || result.size() < 3) {
+                return null;
             }
-            return c == null || c <= limit;
+            return new Decision(toLong(result.get(0)) == 1L, toLong(result.get(1)), toLong(result.get(2)));
         } catch (Exception e) {
-            log.warn("RateLimit degraded, key {}: {}", key, e.getMessage());
-            return true; // 降级放行
+            log.warn("RateLimit degraded to local, key {}: {}", key, e.getMessage());
+            return null;
         }
     }
-}
 
+    private Metrics metricsOf(String prefix) {
+        Metrics m = metrics.get(prefix);
+        if (m != null) {
+            return m;
+        }
+        if (metrics.size() >= MAX_METRIC_PREFIXES) {
+            return metrics.computeIfAbsent(OTHER_PREFIX, p -> new Metrics());
+        }
+        return metrics.computeIfAbsent(prefix, p -> new Metrics());
+    }
+
+    private static String metricPrefix(String key) {
+        int idx = key.lastIndexOf(':');
+        return idx > 0 ? key.substring(0, idx) : key;
+    }
 
+    private static long toLong(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : Long.parseLong(String.valueOf(value));
+    }
+}
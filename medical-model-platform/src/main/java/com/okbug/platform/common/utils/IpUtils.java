@@ -2,7 +2,7 @@
  * IP地址工具类：提供IP地址解析和地理位置查询功能
  * 
  * 核心功能：
- * 1. 获取客户端真实IP地址
+ * 1. 获取客户端真实IP地址（安全判定使用经可信代理解析的地址）
  * 2. IP地址格式验证
  * 3. IP地理位置解析（预留接口）
  * 
@@ -115,6 +115,29 @@ public class IpUtils {
         return normalizeIp(ip);
     }
 
+    /**
+     * 获取经可信代理解析的客户端IP地址（用于限流、防暴力锁定等安全判定）
+     * 
+     * 仅使用 request.getRemoteAddr()：由 server.forward-headers-strategy=native 启用的 RemoteIpValve
+     * 只在直连方为可信代理（server.tomcat.remoteip.internal-proxies）时，才从 X-Forwarded-For 右侧取第一个非可信地址，
+     * 客户端伪造的最左侧地址不会生效。不同于 {@link #getClientIp}，不读取任何客户端可控的请求头。
+     * 
+     * @param request HttpServletRequest对象
+     * @return 客户端IP地址
+     */
+    public static String getTrustedClientIp(HttpServletRequest request) {
+        if (request == null) {
+            return LOCAL_IP;
+        }
+        String ip;
+        try {
+            ip = request.getRemoteAddr();
+        } catch (Exception e) {
+            ip = null;
+        }
+        return StrUtil.isNotBlank(ip) ? normalizeIp(ip) : LOCAL_IP;
+    }
+
     private static String normalizeIp(String ip) {
         if (ip == null) {
             return LOCAL_IP;
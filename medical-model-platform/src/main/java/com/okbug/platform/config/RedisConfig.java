@@ -5,6 +5,7 @@
  * 1. 配置RedisTemplate bean，支持String和Object的序列化
  * 2. 配置Redis连接工厂和序列化器
  * 3. 支持Redis缓存和会话管理
+ * 4. 提供发布订阅监听容器，用于跨节点缓存失效通知
  * 
  * @author hanjor
  * @version 1.0
@@ -20,6 +21,7 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
@@ -67,4 +69,19 @@ public class RedisConfig {
         
         return template;
     }
-} 
\ No newline at end of file
+    
+    /**
+     * 配置Redis发布订阅监听容器
+     * 
+     * 各业务组件在初始化时自行注册频道监听器
+     * 
+     * @param connectionFactory Redis连接工厂
+     * @return 监听容器
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        return container;
+    }
+}
@@ -15,17 +15,29 @@ package com.okbug.platform.config;
 
 import cn.dev33.satoken.interceptor.SaInterceptor;
 import cn.dev33.satoken.router.SaRouter;
+import cn.dev33.satoken.stp.StpLogic;
 import cn.dev33.satoken.stp.StpUtil;
 import cn.dev33.satoken.strategy.SaStrategy;
 import com.okbug.platform.common.base.ApiResult;
 import com.okbug.platform.common.base.ErrorCode;
+import com.okbug.platform.common.cache.PermissionSet;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.util.List;
+
 @Configuration
 public class SaTokenConfig implements WebMvcConfigurer {
     
+    private final ObjectProvider<SaTokenInterceptor> saTokenInterceptorProvider;
+    
+    public SaTokenConfig(ObjectProvider<SaTokenInterceptor> saTokenInterceptorProvider) {
+        this.saTokenInterceptorProvider = saTokenInterceptorProvider;
+    }
+    
     /**
      * 注册Sa-Token拦截器，打开注解式鉴权功能
      */
@@ -50,6 +62,25 @@ public class SaTokenConfig implements WebMvcConfigurer {
                 .notMatch("/error")    // 排除错误页面
                 .check(r -> StpUtil.checkLogin());        // 要执行的校验动作，可以写完整的 lambda 表达式
         })).addPathPatterns("/**");
+        
+        // 登录校验之后绑定请求级鉴权上下文
+        registry.addInterceptor(saTokenInterceptorProvider.getObject()).addPathPatterns("/**");
+    }
+    
+    /**
+     * 自定义 StpLogic：权限列表为位集时以位测试判断，其余情况（角色列表、通配符权限）沿用默认匹配
+     */
+    @Bean
+    public StpLogic stpLogic() {
+        return new StpLogic(StpUtil.TYPE) {
+            @Override
+            public boolean hasElement(List<String> list, String element) {
+                if (list instanceof PermissionSet && !((PermissionSet) list).hasWildcard()) {
+                    return ((PermissionSet) list).has(element);
+                }
+                return super.hasElement(list, element);
+            }
+        };
     }
     
     /**
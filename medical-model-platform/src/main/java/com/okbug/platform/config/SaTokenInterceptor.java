@@ -6,6 +6,7 @@
  * 2. 接口权限验证
  * 3. 数据权限控制
  * 4. 权限异常处理
+ * 5. 绑定请求级鉴权上下文（当前用户快照），请求结束时清除
  * 
  * @author hanjor
  * @version 1.0
@@ -19,6 +20,8 @@ import cn.dev33.satoken.exception.NotRoleException;
 import cn.dev33.satoken.stp.StpUtil;
 import com.okbug.platform.common.base.ApiResult;
 import com.okbug.platform.common.base.ErrorCode;
+import com.okbug.platform.common.cache.UserSnapshotCache;
+import com.okbug.platform.common.context.AuthContext;
 import com.okbug.platform.service.permission.PermissionService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -34,12 +37,14 @@ import jakarta.servlet.http.HttpServletResponse;
 public class SaTokenInterceptor implements HandlerInterceptor {
     
     private final PermissionService permissionService;
+    private final UserSnapshotCache userSnapshotCache;
     
     /**
      * 请求前置处理
      */
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        AuthContext.clear();
         try {
             // 获取请求路径
             String requestUri = request.getRequestURI();
@@ -56,6 +61,9 @@ public class SaTokenInterceptor implements HandlerInterceptor {
                 Long userId = StpUtil.getLoginIdAsLong();
                 log.debug("用户访问接口，用户ID: {}, 接口: {} {}", userId, method, requestUri);
                 
+                // 绑定当前用户快照，本请求内的角色/展示名称读取不再查询用户表
+                bindAuthContext(userId);
+                
                 // 可以在这里添加更多的权限验证逻辑
                 // 例如：API调用频率限制、IP白名单检查等
             }
@@ -88,6 +96,25 @@ public class SaTokenInterceptor implements HandlerInterceptor {
         }
     }
     
+    /**
+     * 请求完成后清除鉴权上下文
+     */
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        AuthContext.clear();
+    }
+    
+    /**
+     * 绑定鉴权上下文；加载失败不影响请求，后续读取按需回源
+     */
+    private void bindAuthContext(Long userId) {
+        try {
+            AuthContext.bind(userSnapshotCache.get(userId));
+        } catch (Exception e) {
+            log.warn("加载用户快照失败，跳过鉴权上下文绑定，用户ID: {}, 错误: {}", userId, e.getMessage());
+        }
+    }
+    
     /**
      * 处理权限异常，返回JSON响应
      */
@@ -3,13 +3,13 @@
  *
  * 实现策略：
  * - 权限：返回用户生效的权限编码列表（仅来源于用户-权限 ALLOW；超级管理员拥有全部启用权限）
- * - 角色：返回用户主角色（若用户不存在则返回空列表）
+ * - 角色：返回用户主角色（读取用户快照缓存；若用户不存在则返回空列表）
  */
 package com.okbug.platform.config;
 
 import cn.dev33.satoken.stp.StpInterface;
-import com.okbug.platform.entity.auth.User;
-import com.okbug.platform.mapper.auth.UserMapper;
+import com.okbug.platform.common.cache.UserSnapshot;
+import com.okbug.platform.common.cache.UserSnapshotCache;
 import com.okbug.platform.service.permission.PermissionService;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -24,7 +24,7 @@ import org.springframework.stereotype.Component;
 public class StpInterfaceImpl implements StpInterface {
 
     private final PermissionService permissionService;
-    private final UserMapper userMapper;
+    private final UserSnapshotCache userSnapshotCache;
 
     @Override
     public List<String> getPermissionList(Object loginId, String loginType) {
@@ -48,7 +48,7 @@ public class StpInterfaceImpl implements StpInterface {
             if (userId == null) {
                 return Collections.emptyList();
             }
-            User user = userMapper.selectById(userId);
+            UserSnapshot user = userSnapshotCache.get(userId);
             if (user == null || user.getRole() == null) {
                 return Collections.emptyList();
             }
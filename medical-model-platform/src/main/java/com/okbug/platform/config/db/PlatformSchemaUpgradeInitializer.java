@@ -0,0 +1,175 @@
+package com.okbug.platform.config.db;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+
+/**
+ * 为已部署的库补齐 init.sql 中新增的表、列与索引（幂等执行）。
+ *
+ * 说明：
+ * - 通过 information_schema 判断表/列/索引是否存在，仅创建缺失部分，重复启动无副作用
+ * - 覆盖：用户层级闭包、积分交易汇总、公告已读水位线与可见序号、通知调度租约
+ * - 最先执行，其后的启动任务（如用户层级闭包对账）可直接使用新表
+ * - 需要数据库账号具备相应 DDL 权限
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class PlatformSchemaUpgradeInitializer implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(PlatformSchemaUpgradeInitializer.class);
+
+    private static final String TABLE_OPTIONS =
+            " ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT=";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public PlatformSchemaUpgradeInitializer(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void run(String... args) {
+        try {
+            String schema = jdbcTemplate.queryForObject("SELECT DATABASE()", String.class);
+            if (schema == null || schema.isEmpty()) {
+                logger.warn("Skip PlatformSchemaUpgradeInitializer: schema is empty");
+                return;
+            }
+
+            // ============ user_hierarchy_closure ============
+            ensureTableExists(schema, "user_hierarchy_closure",
+                    "CREATE TABLE `user_hierarchy_closure` ("
+                            + "`ancestor_id` bigint NOT NULL COMMENT '祖先用户ID',"
+                            + "`descendant_id` bigint NOT NULL COMMENT '后代用户ID',"
+                            + "`depth` int NOT NULL COMMENT '层级距离(直接子账号为1)',"
+                            + "PRIMARY KEY (`ancestor_id`, `descendant_id`)"
+                            + ")" + TABLE_OPTIONS + "'用户层级闭包表'");
+            ensureIndexExists(schema, "user_hierarchy_closure", "idx_uhc_descendant",
+                    "CREATE INDEX idx_uhc_descendant ON user_hierarchy_closure(descendant_id)");
+
+            // ============ credit_transaction_rollups / credit_rollup_applied / credit_rollup_state ============
+            ensureTableExists(schema, "credit_transaction_rollups",
+                    "CREATE TABLE `credit_transaction_rollups` ("
+                            + "`id` bigint NOT NULL AUTO_INCREMENT COMMENT '主键ID',"
+                            + "`bucket_type` varchar(10) COLLATE utf8mb4_unicode_ci NOT NULL COMMENT '汇总粒度(HOUR:小时 DAY:自然日)',"
+                            + "`bucket_start` datetime NOT NULL COMMENT '汇总区间起始时间',"
+                            + "`credit_type_code` varchar(50) COLLATE utf8mb4_unicode_ci NOT NULL COMMENT '积分类型编码',"
+                            + "`scenario_code` varchar(50) COLLATE utf8mb4_unicode_ci NOT NULL DEFAULT '' COMMENT '使用场景编码(无场景为空串)',"
+                            + "`transaction_type` varchar(30) COLLATE utf8mb4_unicode_ci NOT NULL COMMENT '交易类型',"
+                            + "`user_id` bigint NOT NULL COMMENT '用户ID',"
+                            + "`tx_count` bigint NOT NULL DEFAULT '0' COMMENT '交易笔数',"
+                            + "`income_amount` decimal(16,2) NOT NULL DEFAULT '0.00' COMMENT '收入合计',"
+                            + "`expense_amount` decimal(16,2) NOT NULL DEFAULT '0.00' COMMENT '支出合计(正数)',"
+                            + "`create_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',"
+                            + "`update_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',"
+                            + "PRIMARY KEY (`id`)"
+                            + ")" + TABLE_OPTIONS + "'积分交易汇总表'");
+            ensureIndexExists(schema, "credit_transaction_rollups", "uk_credit_rollup_bucket",
+                    "CREATE UNIQUE INDEX uk_credit_rollup_bucket ON credit_transaction_rollups"
+                            + "(bucket_type, bucket_start, credit_type_code, scenario_code, transaction_type, user_id)");
+            ensureIndexExists(schema, "credit_transaction_rollups", "idx_credit_rollup_user_bucket",
+                    "CREATE INDEX idx_credit_rollup_user_bucket ON credit_transaction_rollups(user_id, bucket_type, bucket_start)");
+
+            ensureTableExists(schema, "credit_rollup_applied",
+                    "CREATE TABLE `credit_rollup_applied` ("
+                            + "`transaction_id` bigint NOT NULL COMMENT '已汇总的交易ID',"
+                            + "`create_time` datetime NOT NULL COMMENT '交易创建时间',"
+                            + "`batch_id` bigint NOT NULL COMMENT '汇总批次ID',"
+                            + "PRIMARY KEY (`transaction_id`)"
+                            + ")" + TABLE_OPTIONS + "'积分汇总去重表(仅保留重扫窗口内的交易)'");
+            ensureIndexExists(schema, "credit_rollup_applied", "idx_credit_rollup_applied_batch",
+                    "CREATE INDEX idx_credit_rollup_applied_batch ON credit_rollup_applied(batch_id)");
+            ensureIndexExists(schema, "credit_rollup_applied", "idx_credit_rollup_applied_time",
+                    "CREATE INDEX idx_credit_rollup_applied_time ON credit_rollup_applied(create_time)");
+
+            ensureTableExists(schema, "credit_rollup_state",
+                    "CREATE TABLE `credit_rollup_state` ("
+                            + "`rollup_name` varchar(50) COLLATE utf8mb4_unicode_ci NOT NULL COMMENT '汇总名称',"
+                            + "`covered_until` datetime DEFAULT NULL COMMENT '早于该时间的交易均已汇总',"
+                            + "`update_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',"
+                            + "PRIMARY KEY (`rollup_name`)"
+                            + ")" + TABLE_OPTIONS + "'积分汇总进度表'");
+
+            // ============ announcements / announcement_read_cursors / announcement_publish_seq ============
+            ensureColumnExists(schema, "announcements", "publish_seq",
+                    "ALTER TABLE announcements ADD COLUMN `publish_seq` bigint DEFAULT NULL "
+                            + "COMMENT '可见序号（进入生效窗口时按提交顺序分配，用于已读水位线比较）' AFTER `first_push_time`");
+            ensureTableExists(schema, "announcement_read_cursors",
+                    "CREATE TABLE `announcement_read_cursors` ("
+                            + "`user_id` bigint NOT NULL COMMENT '用户ID',"
+                            + "`watermark_seq` bigint NOT NULL DEFAULT '0' COMMENT '已读水位线（公告可见序号）',"
+                            + "`update_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',"
+                            + "PRIMARY KEY (`user_id`)"
+                            + ")" + TABLE_OPTIONS + "'公告已读水位线表'");
+            ensureTableExists(schema, "announcement_publish_seq",
+                    "CREATE TABLE `announcement_publish_seq` ("
+                            + "`id` int NOT NULL COMMENT '计数行ID（固定为1）',"
+                            + "`last_seq` bigint NOT NULL DEFAULT '0' COMMENT '最近分配的可见序号',"
+                            + "PRIMARY KEY (`id`)"
+                            + ")" + TABLE_OPTIONS + "'公告可见序号计数表'");
+            jdbcTemplate.update("INSERT IGNORE INTO announcement_publish_seq (id, last_seq) VALUES (1, 0)");
+
+            // ============ notify_messages ============
+            ensureColumnExists(schema, "notify_messages", "lease_owner",
+                    "ALTER TABLE notify_messages ADD COLUMN `lease_owner` varchar(64) COLLATE utf8mb4_unicode_ci DEFAULT NULL "
+                            + "COMMENT '调度租约持有者(节点ID:批次号)' AFTER `status`");
+            ensureColumnExists(schema, "notify_messages", "lease_until",
+                    "ALTER TABLE notify_messages ADD COLUMN `lease_until` datetime DEFAULT NULL "
+                            + "COMMENT '调度租约到期时间(到期未完成可被重新领取)' AFTER `lease_owner`");
+            ensureIndexExists(schema, "notify_messages", "idx_notify_messages_due",
+                    "CREATE INDEX idx_notify_messages_due ON notify_messages(status, schedule_time)");
+            ensureIndexExists(schema, "notify_messages", "idx_notify_messages_lease",
+                    "CREATE INDEX idx_notify_messages_lease ON notify_messages(lease_owner)");
+
+            logger.info("PlatformSchemaUpgradeInitializer completed for schema: {}", schema);
+        } catch (Exception e) {
+            logger.warn("PlatformSchemaUpgradeInitializer skipped due to error: {}", e.getMessage());
+        }
+    }
+
+    private void ensureTableExists(String schema, String tableName, String createTableSql) {
+        String existsSql = "SELECT COUNT(1) FROM information_schema.tables WHERE table_schema = ? AND table_name = ?";
+        Integer count = jdbcTemplate.queryForObject(existsSql, Integer.class, schema, tableName);
+        if (Objects.equals(count, 0)) {
+            try {
+                jdbcTemplate.execute(createTableSql);
+                logger.info("Created table {}", tableName);
+            } catch (Exception e) {
+                logger.warn("Create table {} failed: {}", tableName, e.getMessage());
+            }
+        }
+    }
+
+    private void ensureColumnExists(String schema, String tableName, String columnName, String addColumnSql) {
+        String existsSql = "SELECT COUNT(1) FROM information_schema.columns WHERE table_schema = ? AND table_name = ? AND column_name = ?";
+        Integer count = jdbcTemplate.queryForObject(existsSql, Integer.class, schema, tableName, columnName);
+        if (Objects.equals(count, 0)) {
+            try {
+                jdbcTemplate.execute(addColumnSql);
+                logger.info("Added column {} to {}", columnName, tableName);
+            } catch (Exception e) {
+                logger.warn("Add column {} to {} failed: {}", columnName, tableName, e.getMessage());
+            }
+        }
+    }
+
+    private void ensureIndexExists(String schema, String tableName, String indexName, String createIndexSql) {
+        String existsSql = "SELECT COUNT(1) FROM information_schema.statistics WHERE table_schema = ? AND table_name = ? AND index_name = ?";
+        Integer count = jdbcTemplate.queryForObject(existsSql, Integer.class, schema, tableName, indexName);
+        if (Objects.equals(count, 0)) {
+            try {
+                jdbcTemplate.execute(createIndexSql);
+                logger.info("Created index {} on {}", indexName, tableName);
+            } catch (Exception e) {
+                logger.warn("Create index {} on {} failed: {}", indexName, tableName, e.getMessage());
+            }
+        }
+    }
+}
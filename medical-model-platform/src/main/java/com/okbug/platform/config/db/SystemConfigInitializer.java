@@ -116,6 +116,117 @@ public class SystemConfigInitializer implements CommandLineRunner {
                     71
             );
 
+            // 积分扣减
+            ensureConfig(
+                    SystemConfigKeys.CREDIT_DEBIT_ATOMIC_TYPES,
+                    "启用原子条件扣减的积分类型（逗号分隔，*表示全部）",
+                    80
+            );
+            ensureConfig(
+                    SystemConfigKeys.CREDIT_DEBIT_COALESCE_ACCOUNTS,
+                    "启用扣减合并的热点账户（逗号分隔，userId:积分类型 或 userId）",
+                    81
+            );
+            ensureConfig(
+                    SystemConfigKeys.CREDIT_DEBIT_COALESCE_WINDOW_DURATION_MILLIS,
+                    "扣减合并等待窗口（毫秒）",
+                    82
+            );
+            ensureConfig(
+                    SystemConfigKeys.CREDIT_DEBIT_COALESCE_BATCH_MAX_COUNT,
+                    "扣减合并单批最大请求数",
+                    83
+            );
+
+            // 积分预授权
+            ensureConfig(
+                    SystemConfigKeys.CREDIT_HOLD_TTL_SECONDS,
+                    "积分预授权默认有效期（秒）",
+                    90
+            );
+            ensureConfig(
+                    SystemConfigKeys.CREDIT_HOLD_RECONCILE_BATCH_COUNT,
+                    "积分预授权结算入账单批最大条数",
+                    91
+            );
+
+            // 积分每日限次
+            ensureConfig(
+                    SystemConfigKeys.CREDIT_DAILY_LIMIT_TIMEZONE,
+                    "积分场景每日限次的自然日时区（计数器在该时区零点过期）",
+                    100
+            );
+
+            // 积分扣费幂等
+            ensureConfig(
+                    SystemConfigKeys.CREDIT_CHARGE_IDEMPOTENCY_TTL_SECONDS,
+                    "积分扣费幂等结果保留时长（秒）",
+                    101
+            );
+
+            // 积分交易汇总
+            ensureConfig(
+                    SystemConfigKeys.CREDIT_ROLLUP_ENABLED,
+                    "是否启用积分交易汇总（关闭后统计查询回退为明细聚合）",
+                    102
+            );
+            ensureConfig(
+                    SystemConfigKeys.CREDIT_ROLLUP_BATCH_COUNT,
+                    "积分交易汇总单批最大交易条数",
+                    103
+            );
+            ensureConfig(
+                    SystemConfigKeys.CREDIT_ROLLUP_SETTLE_DURATION_SECONDS,
+                    "积分交易汇总的落定延迟（秒），晚于该延迟的交易暂不汇总",
+                    104
+            );
+            ensureConfig(
+                    SystemConfigKeys.CREDIT_ROLLUP_OVERLAP_DURATION_SECONDS,
+                    "积分交易汇总的重扫窗口（秒），窗口内晚提交的交易按交易ID去重后补充汇总",
+                    112
+            );
+
+            // 接口限流
+            ensureConfig(
+                    SystemConfigKeys.AUTH_REGISTER_RATE_LIMIT_PER_MINUTE,
+                    "用户注册-每IP每分钟最大次数",
+                    105
+            );
+            ensureConfig(
+                    SystemConfigKeys.CREDIT_REDEEM_RATE_LIMIT_PER_MINUTE,
+                    "使用兑换码-每用户每分钟最大次数",
+                    106
+            );
+
+            // 登录防暴力尝试
+            ensureConfig(
+                    SystemConfigKeys.USER_LOGIN_IP_FAIL_MAX_COUNT,
+                    "同一IP登录失败最大次数（达到后该IP临时禁止登录）",
+                    107
+            );
+            ensureConfig(
+                    SystemConfigKeys.USER_PASSWORD_HASH_COST,
+                    "密码加密强度（BCrypt cost，4-16，调高后旧密码在下次登录时升级）",
+                    108
+            );
+
+            // WebSocket 推送队列
+            ensureConfig(
+                    SystemConfigKeys.WEBSOCKET_SEND_BUFFER_MAX_COUNT,
+                    "WebSocket 单个会话待发送消息上限",
+                    109
+            );
+            ensureConfig(
+                    SystemConfigKeys.WEBSOCKET_SEND_TIMEOUT_DURATION_MILLIS,
+                    "WebSocket 单次发送时限（毫秒，超时后关闭慢客户端会话）",
+                    110
+            );
+            ensureConfig(
+                    SystemConfigKeys.WEBSOCKET_SEND_OVERFLOW_STRATEGY,
+                    "WebSocket 发送队列溢出策略（DROP_OLDEST/DROP_NEWEST/TERMINATE）",
+                    111
+            );
+
             log.info("SystemConfigInitializer completed");
         } catch (Exception e) {
             log.warn("SystemConfigInitializer skipped due to error: {}", e.getMessage());
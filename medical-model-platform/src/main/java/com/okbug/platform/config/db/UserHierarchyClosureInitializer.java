@@ -0,0 +1,29 @@
+package com.okbug.platform.config.db;
+
+import com.okbug.platform.service.security.DataScopeService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * 在应用启动时按 users.parent_user_id 对账用户层级闭包表。
+ * 清除无法推导的关系并补齐缺失关系，可重复执行；新建、删除子账号时的增量维护由 DataScopeService 完成。
+ * 业务接口不变更已有用户的父用户，库中直接修改 parent_user_id 后的闭包由本对账重建。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserHierarchyClosureInitializer implements CommandLineRunner {
+
+    private final DataScopeService dataScopeService;
+
+    @Override
+    public void run(String... args) {
+        try {
+            dataScopeService.rebuildHierarchy();
+        } catch (Exception e) {
+            log.warn("UserHierarchyClosureInitializer skipped due to error: {}", e.getMessage());
+        }
+    }
+}
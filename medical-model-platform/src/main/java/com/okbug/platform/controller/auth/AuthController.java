@@ -15,7 +15,9 @@ package com.okbug.platform.controller.auth;
 
 import cn.dev33.satoken.annotation.SaCheckLogin;
 import com.okbug.platform.common.annotation.OperationLog;
+import com.okbug.platform.common.annotation.RateLimit;
 import com.okbug.platform.common.base.ApiResult;
+import com.okbug.platform.common.constants.SystemConfigKeys;
 import com.okbug.platform.dto.auth.request.UserLoginRequest;
 import com.okbug.platform.dto.auth.request.UserRegisterRequest;
 import com.okbug.platform.dto.auth.response.UserLoginResponse;
@@ -44,6 +46,8 @@ public class AuthController {
     @PostMapping("/register")
     @Operation(summary = "用户注册", description = "新用户注册，支持推荐码机制")
     @OperationLog(module = "AUTH", type = "REGISTER", description = "用户注册", recordParams = true, async = true)
+    @RateLimit(name = "auth:register", limit = 10, limitConfigKey = SystemConfigKeys.AUTH_REGISTER_RATE_LIMIT_PER_MINUTE,
+            dimension = RateLimit.Dimension.IP)
     public ApiResult<UserRegisterResponse> register(@Valid @RequestBody UserRegisterRequest request) {
         log.info("用户注册请求，用户名: {}", request.getUsername());
         
@@ -29,6 +29,12 @@ import com.okbug.platform.dto.credit.response.UserCreditsSummaryResponse;
 import com.okbug.platform.entity.credit.CreditTransaction;
 import com.okbug.platform.entity.credit.CreditType;
 import com.okbug.platform.entity.credit.UserCredit;
+import com.okbug.platform.manager.credit.CreditDebitCoalescer;
+import com.okbug.platform.manager.credit.CreditDebitManager;
+import com.okbug.platform.manager.credit.CreditChargeIdempotencyManager;
+import com.okbug.platform.manager.credit.CreditDailyLimitManager;
+import com.okbug.platform.manager.credit.CreditHoldManager;
+import com.okbug.platform.manager.credit.CreditRollupManager;
 import com.okbug.platform.common.enums.credit.CreditTransactionType;
 import com.okbug.platform.mapper.credit.CreditTransactionMapper;
 import com.okbug.platform.service.credit.CreditService;
@@ -63,6 +69,12 @@ public class CreditController {
     private final CreditService creditService;
     private final CreditTypeService creditTypeService;
     private final CreditTransactionMapper creditTransactionMapper;
+    private final CreditDebitManager creditDebitManager;
+    private final CreditDebitCoalescer creditDebitCoalescer;
+    private final CreditHoldManager creditHoldManager;
+    private final CreditDailyLimitManager creditDailyLimitManager;
+    private final CreditChargeIdempotencyManager creditChargeIdempotencyManager;
+    private final CreditRollupManager creditRollupManager;
     
     /**
      * 获取当前用户积分余额
@@ -301,20 +313,59 @@ public class CreditController {
     public ApiResult<Object> getCreditStatistics(
             @Parameter(description = "统计类型", example = "DAILY") @RequestParam(defaultValue = "DAILY") String type,
             @Parameter(description = "开始时间", example = "2025-01-01 00:00:00") @RequestParam(required = false) String startTime,
-            @Parameter(description = "结束时间", example = "2025-01-15 23:59:59") @RequestParam(required = false) String endTime) {
+            @Parameter(description = "结束时间", example = "2025-01-15 23:59:59") @RequestParam(required = false) String endTime,
+            @Parameter(description = "团队ID（可选，仅统计该团队成员的交易）") @RequestParam(required = false) Long teamId) {
         
         Long currentUserId = StpUtil.getLoginIdAsLong();
         
-        log.info("获取积分统计信息，管理员ID: {}, 统计类型: {}", currentUserId, type);
+        log.info("获取积分统计信息，管理员ID: {}, 统计类型: {}, 团队ID: {}", currentUserId, type, teamId);
         
-        // TODO: 实现积分统计逻辑
-        Map<String, Object> statistics = new HashMap<>();
-        statistics.put("type", type);
-        statistics.put("message", "积分统计功能暂未完全实现，请等待后续版本");
+        LocalDateTime start = StringUtils.hasText(startTime)
+                ? LocalDateTime.parse(startTime, DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")) : null;
+        LocalDateTime end = StringUtils.hasText(endTime)
+                ? LocalDateTime.parse(endTime, DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")) : null;
+        Map<String, Object> statistics = creditService.getCreditStatistics(type, start, end, teamId);
         
         return ApiResult.success(statistics);
     }
     
+    /**
+     * 获取积分扣减竞争指标
+     */
+    @GetMapping("/admin/debit-stats")
+    @Operation(summary = "获取积分扣减竞争指标", description = "返回原子扣减、乐观锁扣减、热点账户合并扣减、预授权、每日限次与扣费幂等的尝试、成功、冲突、批次等计数")
+    @SaCheckPermission("credit-system:user-credits")
+    public ApiResult<Map<String, Object>> getDebitStats() {
+        Map<String, Object> stats = creditDebitManager.getDebitStats();
+        stats.put("coalesce", creditDebitCoalescer.getCoalesceStats());
+        stats.put("hold", creditHoldManager.getHoldStats());
+        stats.put("dailyLimit", creditDailyLimitManager.getDailyLimitStats());
+        stats.put("idempotency", creditChargeIdempotencyManager.getIdempotencyStats());
+        return ApiResult.success(stats);
+    }
+    
+    /**
+     * 获取积分交易汇总状态
+     */
+    @GetMapping("/admin/rollups/status")
+    @Operation(summary = "获取积分交易汇总状态", description = "返回汇总高水位、已覆盖时间点、批次与查询命中汇总/明细的区间数")
+    @SaCheckPermission("credit-system:user-credits")
+    public ApiResult<Map<String, Object>> getRollupStatus() {
+        return ApiResult.success(creditRollupManager.getRollupStats());
+    }
+    
+    /**
+     * 重建积分交易汇总
+     */
+    @PostMapping("/admin/rollups/rebuild")
+    @Operation(summary = "重建积分交易汇总", description = "清空汇总表并重置高水位，由后台任务从头重算；重算完成前统计查询回退为明细聚合")
+    @SaCheckPermission("credit-system:user-credits")
+    @OperationLog(moduleEnum = OperationModule.CREDIT, typeEnum = OperationType.UPDATE, description = "重建积分交易汇总")
+    public ApiResult<Map<String, Object>> rebuildRollups() {
+        log.info("重建积分交易汇总，管理员ID: {}", StpUtil.getLoginIdAsLong());
+        return ApiResult.success(creditRollupManager.rebuild());
+    }
+    
     // ================ 私有辅助方法 ================
     
     /**
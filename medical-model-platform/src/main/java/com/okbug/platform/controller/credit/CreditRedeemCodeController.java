@@ -23,6 +23,9 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 import com.okbug.platform.common.annotation.OperationLog;
+import com.okbug.platform.common.annotation.RateLimit;
+import com.okbug.platform.common.constants.SystemConfigKeys;
+import com.okbug.platform.common.limiter.RateLimitService;
 import com.okbug.platform.common.enums.OperationModule;
 import com.okbug.platform.common.enums.OperationType;
 
@@ -73,6 +76,8 @@ public class CreditRedeemCodeController {
     @Operation(summary = "使用兑换码（当前用户）")
     @SaCheckLogin
     @OperationLog(moduleEnum = OperationModule.CREDIT, typeEnum = OperationType.UPDATE, description = "使用积分兑换码", async = true)
+    @RateLimit(name = "credit:redeem", limit = 20, limitConfigKey = SystemConfigKeys.CREDIT_REDEEM_RATE_LIMIT_PER_MINUTE,
+            algorithm = RateLimitService.Algorithm.TOKEN_BUCKET)
     public ApiResult<Boolean> redeem(@Parameter(description = "兑换码KEY") @NotBlank @RequestParam String codeKey) {
         boolean ok = redeemCodeService.redeem(codeKey);
         return ok ? ApiResult.success(true) : ApiResult.error("兑换失败");
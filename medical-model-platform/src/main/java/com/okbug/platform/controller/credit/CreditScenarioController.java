@@ -35,6 +35,11 @@ import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import cn.dev33.satoken.stp.StpUtil;
 import com.okbug.platform.dto.credit.request.ScenarioExecuteRequest;
+import com.okbug.platform.dto.credit.request.CreditChargeBatchRequest;
+import com.okbug.platform.dto.credit.request.CreditHoldCaptureRequest;
+import com.okbug.platform.dto.credit.request.CreditHoldRequest;
+import com.okbug.platform.dto.credit.response.CreditChargeBatchResponse;
+import com.okbug.platform.dto.credit.response.CreditHoldResponse;
 import com.okbug.platform.entity.credit.UserCredit;
 import com.okbug.platform.service.credit.CreditService;
 
@@ -344,6 +349,71 @@ public class CreditScenarioController {
         return ApiResult.success("执行成功", result);
     }
 
+    /**
+     * 批量计量扣费：推理服务按影像/序列的用量合并上报，按账户分组一次扣减
+     */
+    @PostMapping("/execute/batch")
+    @Operation(summary = "批量计量扣费", description = "按（用户, 积分类型）分组扣费，逐条返回结果；订单号作为幂等键，重复上报不会重复扣费")
+    @SaCheckPermission("credit-system:user-credits")
+    @OperationLog(moduleEnum = OperationModule.CREDIT, typeEnum = OperationType.SCENARIO_EXECUTE, description = "批量计量扣费", recordParams = false, recordResult = false, async = true)
+    public ApiResult<CreditChargeBatchResponse> executeBatch(@Valid @RequestBody CreditChargeBatchRequest request) {
+        log.info("批量计量扣费，明细数: {}", request.getItems().size());
+        CreditChargeBatchResponse result = creditService.applyScenarioBatch(request.getItems());
+        return ApiResult.success("执行完成", result);
+    }
+
+    /**
+     * 积分预授权：长耗时任务先预留积分，完成后按实际用量结算
+     */
+    @PostMapping("/holds")
+    @Operation(summary = "登记积分预授权", description = "预留积分但不立即扣减；到期未结算自动释放；同一订单号重复提交返回同一预授权")
+    @SaCheckLogin
+    @OperationLog(moduleEnum = OperationModule.CREDIT, typeEnum = OperationType.SCENARIO_EXECUTE, description = "登记积分预授权", async = true)
+    public ApiResult<CreditHoldResponse> holdCredits(@Valid @RequestBody CreditHoldRequest request) {
+        log.info("登记积分预授权，请求: {}", request);
+        CreditHoldResponse hold = creditService.holdCredits(request.getScenarioCode(), request.getAmount(), request.getOrderId(), request.getTtlSeconds());
+        return ApiResult.success("预授权成功", hold);
+    }
+
+    /**
+     * 结算积分预授权（剩余部分自动释放）
+     */
+    @PostMapping("/holds/{holdId}/capture")
+    @Operation(summary = "结算积分预授权", description = "结算部分或全部预授权积分，剩余部分释放；结算记录异步批量入账")
+    @SaCheckLogin
+    @OperationLog(moduleEnum = OperationModule.CREDIT, typeEnum = OperationType.SCENARIO_EXECUTE, description = "结算积分预授权", async = true)
+    public ApiResult<CreditHoldResponse> captureHold(
+            @Parameter(description = "预授权ID", required = true) @PathVariable String holdId,
+            @Valid @RequestBody(required = false) CreditHoldCaptureRequest request) {
+        log.info("结算积分预授权，预授权ID: {}, 请求: {}", holdId, request);
+        CreditHoldResponse hold = creditService.captureHold(holdId, request == null ? null : request.getAmount());
+        return ApiResult.success("结算成功", hold);
+    }
+
+    /**
+     * 释放积分预授权
+     */
+    @PostMapping("/holds/{holdId}/release")
+    @Operation(summary = "释放积分预授权", description = "释放全部预授权积分，不产生扣减")
+    @SaCheckLogin
+    @OperationLog(moduleEnum = OperationModule.CREDIT, typeEnum = OperationType.SCENARIO_EXECUTE, description = "释放积分预授权", async = true)
+    public ApiResult<CreditHoldResponse> releaseHold(
+            @Parameter(description = "预授权ID", required = true) @PathVariable String holdId) {
+        log.info("释放积分预授权，预授权ID: {}", holdId);
+        return ApiResult.success("释放成功", creditService.releaseHold(holdId));
+    }
+
+    /**
+     * 查询积分预授权
+     */
+    @GetMapping("/holds/{holdId}")
+    @Operation(summary = "查询积分预授权", description = "查询当前用户的预授权金额、结算情况与状态")
+    @SaCheckLogin
+    public ApiResult<CreditHoldResponse> getHold(
+            @Parameter(description = "预授权ID", required = true) @PathVariable String holdId) {
+        return ApiResult.success(creditService.getHold(holdId));
+    }
+
     // ================ 私有方法 ================
     
     /**
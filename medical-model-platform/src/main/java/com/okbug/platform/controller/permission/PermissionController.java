@@ -3,7 +3,7 @@
  * 
  * 核心接口：
  * 1. GET /api/permissions/user - 获取用户权限
- * 2. GET /api/permissions/menus - 获取菜单权限
+ * 2. GET /api/permissions/menus - 获取菜单权限（支持 ETag/304 与 gzip）
  * 
  * @author hanjor
  * @version 1.0
@@ -13,18 +13,23 @@ package com.okbug.platform.controller.permission;
 
 import cn.dev33.satoken.annotation.SaCheckLogin;
 import com.okbug.platform.common.base.ApiResult;
-import com.okbug.platform.dto.auth.response.MenuResponse;
+import com.okbug.platform.common.cache.MenuJsonCache;
 import com.okbug.platform.dto.auth.response.UserPermissionResponse;
 import com.okbug.platform.service.permission.PermissionService;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import io.swagger.v3.oas.annotations.Operation;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.util.List;
 
 @Slf4j
 @RestController
@@ -50,14 +55,33 @@ public class PermissionController {
     
     /**
      * 获取当前用户菜单权限
+     * 
+     * 响应体为按权限集合物化的 JSON 字节：If-None-Match 命中 ETag 时返回304，
+     * 客户端支持 gzip 时直接写出缓存的压缩字节
      */
     @GetMapping("/menus")
     @Operation(summary = "获取菜单权限", description = "根据用户权限返回可访问的菜单树")
     @SaCheckLogin
-    public ApiResult<List<MenuResponse>> getUserMenus() {
-        log.info("获取菜单权限请求");
+    public ResponseEntity<byte[]> getUserMenus(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        MenuJsonCache.Payload payload = permissionService.getCurrentUserMenuPayload();
         
-        List<MenuResponse> menus = permissionService.getCurrentUserMenus();
-        return ApiResult.success(menus);
+        if (payload.matches(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(payload.getEtag())
+                    .cacheControl(CacheControl.noCache().cachePrivate())
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .eTag(payload.getEtag())
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .contentType(MediaType.APPLICATION_JSON);
+        if (acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip")) {
+            return builder.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(payload.getGzipped());
+        }
+        return builder.body(payload.getBody());
     }
 } 
@@ -26,6 +26,7 @@ import com.okbug.platform.common.annotation.OperationLog;
 import com.okbug.platform.common.enums.OperationModule;
 import com.okbug.platform.common.enums.OperationType;
 import com.okbug.platform.common.base.ApiResult;
+import com.okbug.platform.common.cache.PermissionCacheService;
 import com.okbug.platform.dto.permission.request.PermissionCreateRequest;
 import com.okbug.platform.dto.permission.request.PermissionQueryRequest;
 import com.okbug.platform.dto.permission.request.RolePermissionUpdateRequest;
@@ -44,6 +45,7 @@ import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
 import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @RestController
@@ -54,6 +56,7 @@ public class PermissionManagementController {
     
     private final PermissionManagementService permissionManagementService;
     private final PermissionVersionService permissionVersionService;
+    private final PermissionCacheService permissionCacheService;
     
     /**
      * 获取权限树形结构
@@ -263,6 +266,16 @@ public class PermissionManagementController {
         return ApiResult.success("权限缓存刷新成功");
     }
 
+    /**
+     * 获取权限缓存统计
+     */
+    @GetMapping("/cache/stats")
+    @SaCheckPermission("user-permission:permission")
+    @Operation(summary = "获取权限缓存统计", description = "返回本地缓存命中/未命中/淘汰数、Redis命中数与失效广播计数")
+    public ApiResult<Map<String, Object>> getPermissionCacheStats() {
+        return ApiResult.success(permissionCacheService.getCacheStats());
+    }
+
     /**
      * 获取指定用户的权限覆盖配置
      */
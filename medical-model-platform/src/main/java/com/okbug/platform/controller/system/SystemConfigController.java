@@ -19,10 +19,14 @@ import cn.dev33.satoken.annotation.SaCheckPermission;
 import com.okbug.platform.common.annotation.OperationLog;
 import com.okbug.platform.common.base.ApiResult;
 import com.okbug.platform.common.base.ErrorCode;
+import com.okbug.platform.common.limiter.RateLimitService;
 import com.okbug.platform.dto.system.SystemConfigDTO;
 import com.okbug.platform.dto.system.SystemConfigQueryDTO;
 import com.okbug.platform.dto.system.SystemConfigCreateDTO;
 import com.okbug.platform.dto.system.SystemConfigUpdateDTO;
+import com.okbug.platform.service.security.PasswordHasher;
+import com.okbug.platform.service.system.message.scheduler.MessageScheduler;
+import com.okbug.platform.ws.RealtimeWebSocketHandler;
 import com.okbug.platform.service.system.SystemConfigService;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import io.swagger.v3.oas.annotations.Operation;
@@ -53,6 +57,18 @@ public class SystemConfigController {
     @Autowired
     private SystemConfigService systemConfigService;
     
+    @Autowired
+    private RateLimitService rateLimitService;
+    
+    @Autowired
+    private PasswordHasher passwordHasher;
+    
+    @Autowired
+    private MessageScheduler messageScheduler;
+    
+    @Autowired
+    private RealtimeWebSocketHandler realtimeWebSocketHandler;
+    
     /**
      * 分页查询配置列表
      * 
@@ -472,4 +488,52 @@ public class SystemConfigController {
             return ApiResult.error(ErrorCode.INTERNAL_ERROR, "清除失败: " + e.getMessage());
         }
     }
+    
+    /**
+     * 获取接口限流统计
+     * 
+     * @return 按键前缀聚合的放行/拒绝/降级计数与本地限流器状态
+     */
+    @GetMapping("/rate-limit/stats")
+    @Operation(summary = "获取接口限流统计")
+    @SaCheckPermission("system:config")
+    public ApiResult<Map<String, Object>> getRateLimitStats() {
+        return ApiResult.success(rateLimitService.getRateLimitStats());
+    }
+    
+    /**
+     * 获取密码哈希统计
+     * 
+     * @return 当前加密强度、线程池占用、平均校验耗时、繁忙拒绝与哈希升级次数，用于调整加密强度
+     */
+    @GetMapping("/password-hash/stats")
+    @Operation(summary = "获取密码哈希统计")
+    @SaCheckPermission("system:config")
+    public ApiResult<Map<String, Object>> getPasswordHashStats() {
+        return ApiResult.success(passwordHasher.getHashStats());
+    }
+
+    /**
+     * 获取定时消息调度统计
+     * 
+     * @return 本节点分片、在途与时间轮待触发数量、领取与分发计数，用于观察调度积压
+     */
+    @GetMapping("/message-scheduler/stats")
+    @Operation(summary = "获取定时消息调度统计")
+    @SaCheckPermission("system:config")
+    public ApiResult<Map<String, Object>> getMessageSchedulerStats() {
+        return ApiResult.success(messageScheduler.getSchedulerStats());
+    }
+
+    /**
+     * 获取 WebSocket 推送统计
+     * 
+     * @return 本节点会话数、发送队列深度、发送/丢弃/失败/关闭计数与发送耗时，用于发现慢客户端
+     */
+    @GetMapping("/websocket/stats")
+    @Operation(summary = "获取WebSocket推送统计")
+    @SaCheckPermission("system:config")
+    public ApiResult<Map<String, Object>> getWebSocketStats() {
+        return ApiResult.success(realtimeWebSocketHandler.getSendStats());
+    }
 } 
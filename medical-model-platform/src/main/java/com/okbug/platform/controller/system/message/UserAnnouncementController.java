@@ -50,6 +50,14 @@ public class UserAnnouncementController {
         return ApiResult.success(page);
     }
 
+    @Operation(summary = "未读且可见公告数量")
+    @GetMapping("/visible/unread/count")
+    @SaCheckLogin
+    public ApiResult<Long> countVisibleUnread() {
+        Long userId = StpUtil.getLoginIdAsLong();
+        return ApiResult.success(announcementService.countVisibleUnread(userId));
+    }
+
     @Operation(summary = "公告详情")
     @GetMapping("/{id}")
     @SaCheckLogin
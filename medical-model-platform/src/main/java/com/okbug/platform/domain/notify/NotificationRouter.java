@@ -5,8 +5,11 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -52,6 +55,40 @@ public class NotificationRouter {
         return result;
     }
 
+    /**
+     * 批量计算有效渠道：整批用户的类型与渠道偏好各一次查询，结果与逐个调用单用户版本一致
+     * @param userIds 用户ID集合
+     * @param allowedChannelsByTemplate 模板允许渠道，如 "inbox,email"
+     * @param typeCode 消息类型编码
+     * @return 用户ID → 有效渠道（类型被关闭的用户为空集合）
+     */
+    public Map<Long, Set<String>> resolveEffectiveChannels(Collection<Long> userIds,
+                                                           String allowedChannelsByTemplate,
+                                                           String typeCode) {
+        Set<String> candidates = new HashSet<>(toSet(allowedChannelsByTemplate));
+        candidates.retainAll(notifyDictionary.channelCodes());
+        candidates.retainAll(MessageChannel.allCodes());
+        Set<String> shared = Collections.unmodifiableSet(candidates);
+        Set<Long> typeDisabled = preferenceService.findTypeDisabledUserIds(userIds, typeCode);
+        Map<Long, Set<String>> disabledChannels = preferenceService.findDisabledChannels(userIds);
+        Map<Long, Set<String>> result = new HashMap<>(userIds.size() * 2);
+        for (Long userId : userIds) {
+            if (typeDisabled.contains(userId)) {
+                result.put(userId, Collections.emptySet());
+                continue;
+            }
+            Set<String> disabled = disabledChannels.get(userId);
+            if (disabled == null || disabled.isEmpty()) {
+                result.put(userId, shared);
+            } else {
+                Set<String> channels = new HashSet<>(candidates);
+                channels.removeAll(disabled);
+                result.put(userId, channels);
+            }
+        }
+        return result;
+    }
+
     private Set<String> toSet(String csv) {
         if (csv == null || csv.trim().isEmpty()) return Collections.emptySet();
         java.util.Set<String> set = new java.util.HashSet<>();
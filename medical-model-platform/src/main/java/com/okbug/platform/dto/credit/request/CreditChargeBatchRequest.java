@@ -0,0 +1,57 @@
+package com.okbug.platform.dto.credit.request;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+
+/**
+ * 批量计量扣费请求：推理服务按影像/序列上报的用量合并为一次请求
+ *
+ * @author hanjor
+ * @version 1.0
+ * @date 2026-10-17 18:00:00
+ */
+@Data
+@Schema(name = "批量计量扣费请求")
+public class CreditChargeBatchRequest {
+
+    @Valid
+    @NotEmpty(message = "扣费明细不能为空")
+    @Size(max = 5000, message = "单次批量扣费不能超过5000条")
+    @Schema(description = "扣费明细", required = true)
+    private List<Item> items;
+
+    /**
+     * 单条用量明细
+     */
+    @Data
+    @Schema(name = "批量计量扣费明细")
+    public static class Item {
+
+        @NotNull(message = "用户ID不能为空")
+        @Schema(description = "扣费用户ID", required = true, example = "1234567890")
+        private Long userId;
+
+        @NotBlank(message = "场景编码不能为空")
+        @Schema(description = "使用场景编码（须为消费场景）", required = true, example = "AI_COMPUTE")
+        private String scenarioCode;
+
+        @NotBlank(message = "订单号不能为空")
+        @Size(max = 50, message = "订单号长度不能超过50")
+        @Schema(description = "关联订单号（幂等键，重复上报不会重复扣费）", required = true, example = "INFER-202510170001-S3")
+        private String orderId;
+
+        @Min(value = 1, message = "用量不能小于1")
+        @Max(value = 100000, message = "用量不能超过100000")
+        @Schema(description = "用量（扣费积分=场景每次消耗积分×用量，不传默认1）", example = "1")
+        private Integer quantity;
+    }
+}
@@ -0,0 +1,23 @@
+package com.okbug.platform.dto.credit.request;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import jakarta.validation.constraints.DecimalMin;
+import java.math.BigDecimal;
+
+/**
+ * 积分预授权结算请求：结算部分或全部预授权积分，剩余部分自动释放
+ *
+ * @author hanjor
+ * @version 1.0
+ * @date 2026-10-17 15:00:00
+ */
+@Data
+@Schema(name = "积分预授权结算请求")
+public class CreditHoldCaptureRequest {
+
+    @DecimalMin(value = "0.00", message = "结算积分不能为负数")
+    @Schema(description = "实际结算积分数（不传则全额结算）", example = "12.50")
+    private BigDecimal amount;
+}
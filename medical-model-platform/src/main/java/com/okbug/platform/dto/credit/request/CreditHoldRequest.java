@@ -0,0 +1,38 @@
+package com.okbug.platform.dto.credit.request;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import java.math.BigDecimal;
+
+/**
+ * 积分预授权请求：为长耗时任务（如模型推理）预留积分
+ *
+ * @author hanjor
+ * @version 1.0
+ * @date 2026-10-17 15:00:00
+ */
+@Data
+@Schema(name = "积分预授权请求")
+public class CreditHoldRequest {
+
+    @NotBlank(message = "场景编码不能为空")
+    @Schema(description = "使用场景编码", required = true, example = "AI_COMPUTE")
+    private String scenarioCode;
+
+    @DecimalMin(value = "0.01", message = "预授权积分必须大于0")
+    @Schema(description = "预授权积分数（不传则取场景每次消耗积分）", example = "20.00")
+    private BigDecimal amount;
+
+    @Schema(description = "关联订单号（建议必传，同一订单重复预授权返回同一预授权）", example = "JOB-202510170001")
+    private String orderId;
+
+    @Min(value = 60, message = "预授权有效期不能少于60秒")
+    @Max(value = 86400, message = "预授权有效期不能超过86400秒")
+    @Schema(description = "预授权有效期（秒，不传则取系统配置）", example = "1800")
+    private Integer ttlSeconds;
+}
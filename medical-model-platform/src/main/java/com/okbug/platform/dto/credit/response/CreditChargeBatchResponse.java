@@ -0,0 +1,80 @@
+package com.okbug.platform.dto.credit.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 批量计量扣费响应：汇总与逐条结果（顺序与请求明细一致）
+ *
+ * @author hanjor
+ * @version 1.0
+ * @date 2026-10-17 18:00:00
+ */
+@Data
+@Schema(description = "批量计量扣费响应")
+public class CreditChargeBatchResponse {
+
+    public static final String STATUS_APPLIED = "APPLIED";
+    public static final String STATUS_DUPLICATE = "DUPLICATE";
+    public static final String STATUS_INSUFFICIENT = "INSUFFICIENT";
+    public static final String STATUS_REJECTED = "REJECTED";
+
+    @Schema(description = "明细总数", example = "500")
+    private Integer total;
+
+    @Schema(description = "扣费成功数", example = "498")
+    private Integer applied;
+
+    @Schema(description = "幂等重复数（此前已扣费）", example = "1")
+    private Integer duplicated;
+
+    @Schema(description = "未扣费数（余额不足或校验未通过）", example = "1")
+    private Integer failed;
+
+    @Schema(description = "扣费积分合计", example = "996.00")
+    private BigDecimal totalAmount;
+
+    @Schema(description = "逐条结果")
+    private List<ItemResult> results;
+
+    /**
+     * 单条扣费结果
+     */
+    @Data
+    @Schema(description = "批量计量扣费单条结果")
+    public static class ItemResult {
+
+        @Schema(description = "请求明细下标", example = "0")
+        private Integer index;
+
+        @Schema(description = "用户ID", example = "1234567890")
+        private Long userId;
+
+        @Schema(description = "使用场景编码", example = "AI_COMPUTE")
+        private String scenarioCode;
+
+        @Schema(description = "关联订单号", example = "INFER-202510170001-S3")
+        private String orderId;
+
+        @Schema(description = "结果状态：APPLIED/DUPLICATE/INSUFFICIENT/REJECTED", example = "APPLIED")
+        private String status;
+
+        @Schema(description = "扣费积分", example = "2.00")
+        private BigDecimal amount;
+
+        @Schema(description = "扣费后余额", example = "98.00")
+        private BigDecimal balanceAfter;
+
+        @Schema(description = "交易记录ID", example = "1234567890123")
+        private Long transactionId;
+
+        @Schema(description = "错误码（未扣费时）", example = "1920")
+        private Integer errorCode;
+
+        @Schema(description = "错误信息（未扣费时）", example = "积分使用次数超过每日限制")
+        private String errorMessage;
+    }
+}
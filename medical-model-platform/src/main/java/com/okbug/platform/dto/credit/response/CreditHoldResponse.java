@@ -0,0 +1,48 @@
+package com.okbug.platform.dto.credit.response;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 积分预授权响应：预授权的金额、结算情况与状态
+ *
+ * @author hanjor
+ * @version 1.0
+ * @date 2026-10-17 15:00:00
+ */
+@Data
+@Schema(name = "积分预授权响应")
+public class CreditHoldResponse {
+
+    @Schema(description = "预授权ID", example = "1847200000000000001")
+    private String holdId;
+
+    @Schema(description = "用户ID", example = "1")
+    private Long userId;
+
+    @Schema(description = "积分类型编码", example = "NORMAL")
+    private String creditTypeCode;
+
+    @Schema(description = "使用场景编码", example = "AI_COMPUTE")
+    private String scenarioCode;
+
+    @Schema(description = "关联订单号", example = "JOB-202510170001")
+    private String orderId;
+
+    @Schema(description = "预授权积分数", example = "20.00")
+    private BigDecimal amount;
+
+    @Schema(description = "已结算积分数", example = "12.50")
+    private BigDecimal capturedAmount;
+
+    @Schema(description = "状态：HELD-预授权中 CAPTURED-已结算 RELEASED-已释放 EXPIRED-已过期", example = "HELD")
+    private String status;
+
+    @Schema(description = "过期时间", example = "2026-10-17 15:30:00")
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime expireTime;
+}
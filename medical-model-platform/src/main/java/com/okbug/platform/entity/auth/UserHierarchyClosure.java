@@ -0,0 +1,37 @@
+/**
+ * 用户层级闭包实体类：对应数据库user_hierarchy_closure表
+ * 
+ * 功能描述：
+ * 1. 记录子账号树中每一对祖先-后代关系（不含自身）
+ * 2. 数据域按祖先ID一次索引查找即可得到全部后代，无需逐层遍历
+ * 
+ * @author hanjor
+ * @version 1.0
+ * @date 2026-10-17 21:30:00
+ */
+package com.okbug.platform.entity.auth;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+@Data
+@EqualsAndHashCode(callSuper = false)
+@TableName("user_hierarchy_closure")
+public class UserHierarchyClosure {
+
+    /**
+     * 祖先用户ID
+     */
+    private Long ancestorId;
+
+    /**
+     * 后代用户ID
+     */
+    private Long descendantId;
+
+    /**
+     * 层级距离（直接子账号为1）
+     */
+    private Integer depth;
+}
@@ -0,0 +1,42 @@
+/**
+ * 积分汇总进度实体类：对应数据库credit_rollup_state表
+ * 
+ * 功能描述：
+ * 1. 记录已完整汇总的时间点，统计查询据此判断汇总表是否覆盖查询区间
+ * 2. 汇总任务从该时间点减去重扫窗口处继续扫描
+ * 
+ * @author hanjor
+ * @version 1.0
+ * @date 2026-10-17 19:00:00
+ */
+package com.okbug.platform.entity.credit;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.time.LocalDateTime;
+
+@Data
+@EqualsAndHashCode(callSuper = false)
+@TableName("credit_rollup_state")
+public class CreditRollupState {
+
+    /**
+     * 汇总名称（主键）
+     */
+    @TableId(value = "rollup_name", type = IdType.INPUT)
+    private String rollupName;
+
+    /**
+     * 早于该时间的交易均已汇总（为空表示尚未汇总）
+     */
+    private LocalDateTime coveredUntil;
+
+    /**
+     * 更新时间
+     */
+    private LocalDateTime updateTime;
+}
@@ -0,0 +1,97 @@
+/**
+ * 积分交易汇总实体类：对应数据库credit_transaction_rollups表
+ * 
+ * 功能描述：
+ * 1. 按小时/自然日预聚合积分交易（积分类型、场景、交易类型、用户）
+ * 2. 按用户聚合，按团队统计时以查询时的团队成员过滤
+ * 3. 由汇总任务增量维护，统计查询优先读取
+ * 
+ * @author hanjor
+ * @version 1.0
+ * @date 2026-10-17 19:00:00
+ */
+package com.okbug.platform.entity.credit;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@EqualsAndHashCode(callSuper = false)
+@TableName("credit_transaction_rollups")
+public class CreditTransactionRollup {
+
+    /**
+     * 汇总粒度：小时
+     */
+    public static final String BUCKET_HOUR = "HOUR";
+
+    /**
+     * 汇总粒度：自然日
+     */
+    public static final String BUCKET_DAY = "DAY";
+
+    /**
+     * 主键ID
+     */
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 汇总粒度（HOUR/DAY）
+     */
+    private String bucketType;
+
+    /**
+     * 汇总区间起始时间
+     */
+    private LocalDateTime bucketStart;
+
+    /**
+     * 积分类型编码
+     */
+    private String creditTypeCode;
+
+    /**
+     * 使用场景编码（无场景为空串）
+     */
+    private String scenarioCode;
+
+    /**
+     * 交易类型
+     */
+    private String transactionType;
+
+    /**
+     * 用户ID
+     */
+    private Long userId;
+
+    /**
+     * 交易笔数
+     */
+    private Long txCount;
+
+    /**
+     * 收入合计
+     */
+    private BigDecimal incomeAmount;
+
+    /**
+     * 支出合计（正数）
+     */
+    private BigDecimal expenseAmount;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createTime;
+
+    /**
+     * 更新时间
+     */
+    private LocalDateTime updateTime;
+}
@@ -4,7 +4,7 @@
  * 功能描述：
  * 1. 管理用户在不同积分类型下的账户信息
  * 2. 记录积分余额和累计统计
- * 3. 支持乐观锁防止并发操作
+ * 3. 支持乐观锁防止并发操作（预授权占用积分保存在Redis，扣减时由调用方传入）
  * 4. 支持软删除和审计字段
  * 
  * @author hanjor
@@ -92,6 +92,16 @@ public class UserCredit {
         return this.balance.compareTo(requiredAmount) >= 0;
     }
     
+    /**
+     * 判断扣除预授权占用积分后余额是否足够
+     */
+    public boolean hasSufficientBalance(BigDecimal requiredAmount, BigDecimal reserved) {
+        if (this.balance == null || requiredAmount == null) {
+            return false;
+        }
+        return getSpendableBalance(reserved).compareTo(requiredAmount) >= 0;
+    }
+    
     /**
      * 判断积分余额是否不足
      */
@@ -149,6 +159,13 @@ public class UserCredit {
         return this.balance != null ? this.balance : BigDecimal.ZERO;
     }
     
+    /**
+     * 获取可扣减余额：余额 - 预授权占用积分
+     */
+    public BigDecimal getSpendableBalance(BigDecimal reserved) {
+        return getAvailableBalance().subtract(reserved != null ? reserved : BigDecimal.ZERO);
+    }
+    
     /**
      * 获取累计获得积分（如果为null则返回0）
      */
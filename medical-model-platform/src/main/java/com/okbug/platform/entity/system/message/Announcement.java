@@ -11,6 +11,7 @@
  * - status: 0=草稿 1=已发布 2=已下线
  * - forceRead: 是否强制阅读（1 表示前端需拦截处理）
  * - activeFrom/activeTo: 生效/失效时间窗，用于筛选可见公告
+ * - publishSeq: 可见序号，不大于用户水位线的公告视为已读
  */
 package com.okbug.platform.entity.system.message;
 
@@ -60,6 +61,9 @@ public class Announcement implements Serializable {
     /** 首次到点推送时间 */
     private LocalDateTime firstPushTime;
 
+    /** 可见序号（进入生效窗口时按提交顺序分配，用于与用户已读水位线比较） */
+    private Long publishSeq;
+
     /** 状态(0:草稿 1:已发布 2:已下线) */
     private Integer status;
 
@@ -0,0 +1,29 @@
+/**
+ * 公告可见序号计数实体：系统/消息模块 - 可见序号分配器
+ *
+ * 设计说明：
+ * - 对应表：announcement_publish_seq，仅一行
+ * - 分配序号的事务持有该行的行锁直至提交，序号按提交顺序分配
+ */
+package com.okbug.platform.entity.system.message;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.io.Serializable;
+
+@Data
+@TableName("announcement_publish_seq")
+public class AnnouncementPublishSeq implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** 计数行ID（固定为1） */
+    @TableId(value = "id", type = IdType.INPUT)
+    private Integer id;
+
+    /** 最近分配的可见序号 */
+    private Long lastSeq;
+}
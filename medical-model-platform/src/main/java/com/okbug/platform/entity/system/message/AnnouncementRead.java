@@ -1,10 +1,10 @@
 /**
- * 公告阅读明细实体：系统/消息模块 - 用户公告阅读记录
+ * 公告已读例外实体：系统/消息模块 - 用户公告阅读记录
  *
  * 设计说明：
  * - 对应表：announcement_reads
  * - 唯一约束：(announcement_id, user_id)
- * - 记录用户对公告的已读状态与时间
+ * - 仅记录可见序号高于用户水位线的已读（乱序阅读），水位线以下的公告由 AnnouncementReadCursor 表示已读
  */
 package com.okbug.platform.entity.system.message;
 
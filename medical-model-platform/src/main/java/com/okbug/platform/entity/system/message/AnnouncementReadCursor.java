@@ -0,0 +1,33 @@
+/**
+ * 公告已读水位线实体：系统/消息模块 - 用户公告已读游标
+ *
+ * 设计说明：
+ * - 对应表：announcement_read_cursors，每个用户一行
+ * - 可见序号不大于水位线的公告均视为已读；水位线只增不减
+ */
+package com.okbug.platform.entity.system.message;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+@Data
+@TableName("announcement_read_cursors")
+public class AnnouncementReadCursor implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** 用户ID（主键） */
+    @TableId(value = "user_id", type = IdType.INPUT)
+    private Long userId;
+
+    /** 已读水位线（公告可见序号） */
+    private Long watermarkSeq;
+
+    /** 更新时间 */
+    private LocalDateTime updateTime;
+}
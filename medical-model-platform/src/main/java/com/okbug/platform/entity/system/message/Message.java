@@ -40,6 +40,12 @@ public class Message implements Serializable {
     /** 消息状态：0=待调度 1=已入队 2=已完成 3=已取消 4=失败 */
     private Integer status;
 
+    /** 调度租约持有者（节点ID:批次号），仅调度器领取后有值 */
+    private String leaseOwner;
+
+    /** 调度租约到期时间，到期仍未完成的消息可被其他节点重新领取 */
+    private LocalDateTime leaseUntil;
+
     /** 逻辑删除标记(0:正常 1:删除) */
     @TableLogic
     private Integer isDeleted;
@@ -0,0 +1,243 @@
+/**
+ * 积分扣费幂等管理器：按（用户, 订单号）登记扣费请求并缓存首次扣费结果
+ *
+ * 功能描述：
+ * 1. 一级过滤：IdempotencyService 单次Redis调用完成 SET NX 登记或读取已存储结果
+ * 2. 结果缓存：事务提交后以扣费后的账户快照覆盖占位值，重复请求直接返回（余额为首次扣费后的余额）
+ * 3. 失败释放：事务回滚后删除登记，允许调用方重试
+ * 4. 最终兜底：Redis降级或结果过期时，由唯一键 uk_credit_tx_idem 拦截重复入账，并按已存在的流水还原结果
+ *
+ * Redis数据结构：
+ * - idem:credit:spend:{userId}:{orderId}  PENDING（处理中，短TTL）或首次扣费结果JSON
+ *
+ * @author hanjor
+ * @version 1.0
+ * @date 2026-10-17 17:00:00
+ */
+package com.okbug.platform.manager.credit;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.okbug.platform.common.base.ErrorCode;
+import com.okbug.platform.common.base.ServiceException;
+import com.okbug.platform.common.constants.SystemConfigKeys;
+import com.okbug.platform.common.enums.credit.CreditTransactionType;
+import com.okbug.platform.common.limiter.IdempotencyService;
+import com.okbug.platform.entity.credit.CreditTransaction;
+import com.okbug.platform.entity.credit.UserCredit;
+import com.okbug.platform.mapper.credit.CreditTransactionMapper;
+import com.okbug.platform.service.system.SystemConfigService;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CreditChargeIdempotencyManager {
+
+    private static final String KEY_PREFIX = "idem:credit:spend:";
+    private static final String PENDING = "PENDING";
+    /**
+     * 处理中占位的有效期：进程异常退出时占位自动过期，之后的重试由唯一键兜底
+     */
+    private static final long PENDING_TTL_SECONDS = 60L;
+
+    private final IdempotencyService idempotencyService;
+    private final CreditTransactionMapper creditTransactionMapper;
+    private final SystemConfigService systemConfigService;
+    private final ObjectMapper objectMapper;
+
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder inProgress = new LongAdder();
+    private final LongAdder ledgerDuplicates = new LongAdder();
+
+    /**
+     * 已存储的扣费结果（扣费后的账户快照）
+     */
+    @Data
+    public static class ChargeRecord {
+        private Long id;
+        private Long userId;
+        private String creditTypeCode;
+        private BigDecimal balance;
+        private BigDecimal totalEarned;
+        private BigDecimal totalConsumed;
+        private Integer version;
+    }
+
+    /**
+     * 一次扣费请求的幂等登记
+     */
+    public final class Claim {
+
+        private final String key;
+        private final UserCredit replayedResult;
+        private UserCredit result;
+        private boolean storeOnRollback;
+
+        private Claim(String key, UserCredit replayedResult) {
+            this.key = key;
+            this.replayedResult = replayedResult;
+        }
+
+        /**
+         * 是否命中已存储的首次扣费结果
+         */
+        public boolean isReplayed() {
+            return replayedResult != null;
+        }
+
+        public UserCredit getReplayed() {
+            return replayedResult;
+        }
+
+        /**
+         * 登记本次扣费结果，事务提交后写入Redis
+         */
+        public void complete(UserCredit account) {
+            this.result = account;
+            if (key != null && !TransactionSynchronizationManager.isSynchronizationActive()) {
+                store(key, account);
+            }
+        }
+
+        /**
+         * 登记由唯一键兜底还原的首次扣费结果；本次事务将回滚，但结果仍写入Redis
+         */
+        public void completeDuplicate(UserCredit account) {
+            this.storeOnRollback = true;
+            complete(account);
+        }
+
+        private void afterCompletion(boolean committed) {
+            if (result != null && (committed || storeOnRollback)) {
+                store(key, result);
+            } else {
+                idempotencyService.release(key);
+            }
+        }
+    }
+
+    /**
+     * 登记扣费请求
+     *
+     * @param userId  用户ID
+     * @param orderId 订单号（为空时不做幂等登记）
+     * @return 幂等登记；命中已存储结果时 {@link Claim#isReplayed()} 为true
+     * @throws ServiceException 相同订单的扣费仍在处理中
+     */
+    public Claim claim(Long userId, String orderId) {
+        if (!StringUtils.hasText(orderId)) {
+            return new Claim(null, null);
+        }
+        String key = KEY_PREFIX + userId + ":" + orderId;
+        String stored = idempotencyService.tryAcquireOrGet(key, PENDING, PENDING_TTL_SECONDS);
+        if (stored == null) {
+            acquired.increment();
+            Claim claim = new Claim(key, null);
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        claim.afterCompletion(status == STATUS_COMMITTED);
+                    }
+                });
+            }
+            return claim;
+        }
+        if (PENDING.equals(stored)) {
+            inProgress.increment();
+            throw new ServiceException(ErrorCode.CREDIT_CHARGE_IN_PROGRESS);
+        }
+        try {
+            ChargeRecord record = objectMapper.readValue(stored, ChargeRecord.class);
+            replayed.increment();
+            log.info("积分扣费幂等命中，返回首次扣费结果，userId={}, orderId={}", userId, orderId);
+            return new Claim(null, toAccount(record));
+        } catch (JsonProcessingException e) {
+            // 结果无法解析：按未登记处理，由唯一键兜底
+            log.warn("积分扣费幂等结果解析失败，key={}, error={}", key, e.getMessage());
+            return new Claim(null, null);
+        }
+    }
+
+    /**
+     * 唯一键冲突时按已存在的消费流水还原首次扣费结果
+     *
+     * @param userId  用户ID
+     * @param orderId 订单号
+     * @param account 当前账户快照（用于补齐账户标识）
+     * @return 余额为首次扣费后余额的账户快照；流水不可见时返回当前快照
+     */
+    public UserCredit resolveDuplicate(Long userId, String orderId, UserCredit account) {
+        ledgerDuplicates.increment();
+        CreditTransaction existing = creditTransactionMapper.selectByIdempotencyKeyForShare(
+                userId, orderId, CreditTransactionType.SPEND.getCode());
+        if (existing == null || existing.getBalanceAfter() == null) {
+            return account;
+        }
+        UserCredit snapshot = new UserCredit();
+        snapshot.setId(account.getId());
+        snapshot.setUserId(userId);
+        snapshot.setCreditTypeCode(existing.getCreditTypeCode());
+        snapshot.setBalance(existing.getBalanceAfter());
+        snapshot.setTotalEarned(account.getTotalEarned());
+        snapshot.setTotalConsumed(account.getTotalConsumed());
+        snapshot.setVersion(account.getVersion());
+        return snapshot;
+    }
+
+    /**
+     * 获取扣费幂等统计
+     */
+    public Map<String, Object> getIdempotencyStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("acquired", acquired.sum());
+        stats.put("replayed", replayed.sum());
+        stats.put("inProgress", inProgress.sum());
+        stats.put("ledgerDuplicates", ledgerDuplicates.sum());
+        return stats;
+    }
+
+    private void store(String key, UserCredit account) {
+        ChargeRecord record = new ChargeRecord();
+        record.setId(account.getId());
+        record.setUserId(account.getUserId());
+        record.setCreditTypeCode(account.getCreditTypeCode());
+        record.setBalance(account.getBalance());
+        record.setTotalEarned(account.getTotalEarned());
+        record.setTotalConsumed(account.getTotalConsumed());
+        record.setVersion(account.getVersion());
+        try {
+            long ttl = systemConfigService.getConfigValueAsInt(
+                    SystemConfigKeys.CREDIT_CHARGE_IDEMPOTENCY_TTL_SECONDS, 86400).longValue();
+            idempotencyService.complete(key, objectMapper.writeValueAsString(record), ttl);
+        } catch (Exception e) {
+            log.warn("积分扣费幂等结果写入失败，key={}, error={}", key, e.getMessage());
+            idempotencyService.release(key);
+        }
+    }
+
+    private UserCredit toAccount(ChargeRecord record) {
+        UserCredit account = new UserCredit();
+        account.setId(record.getId());
+        account.setUserId(record.getUserId());
+        account.setCreditTypeCode(record.getCreditTypeCode());
+        account.setBalance(record.getBalance());
+        account.setTotalEarned(record.getTotalEarned());
+        account.setTotalConsumed(record.getTotalConsumed());
+        account.setVersion(record.getVersion());
+        return account;
+    }
+}
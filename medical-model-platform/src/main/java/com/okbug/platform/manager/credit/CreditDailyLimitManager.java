@@ -0,0 +1,413 @@
+/**
+ * 积分场景每日限次管理器：基于Redis计数器的每日使用次数校验与占用
+ *
+ * 功能描述：
+ * 1. 占用：Lua脚本原子完成"未达上限则 +1"，校验成本与当日交易量无关；批量扣费时整批一次脚本调用
+ * 2. 回滚：占用发生在事务内时，事务回滚后自动归还；事务外由调用方显式归还
+ * 3. 过期：计数器在配置时区的次日零点过期，无需清理任务
+ * 4. 冷启动：计数器不存在（首次上线/Redis数据丢失）时按当日消费流水计数一次并写入
+ *
+ * Redis数据结构：
+ * - credit:daily:{yyyyMMdd}:{userId}:{scenarioCode}  当日已使用次数（String，EXPIREAT=次日零点）
+ *
+ * 降级策略：Redis不可用时回退为按当日消费流水计数的只读校验
+ *
+ * @author hanjor
+ * @version 1.0
+ * @date 2026-10-17 16:00:00
+ */
+package com.okbug.platform.manager.credit;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.okbug.platform.common.constants.SystemConfigKeys;
+import com.okbug.platform.common.enums.credit.CreditTransactionType;
+import com.okbug.platform.entity.credit.CreditTransaction;
+import com.okbug.platform.entity.credit.CreditUsageScenario;
+import com.okbug.platform.mapper.credit.CreditTransactionMapper;
+import com.okbug.platform.service.system.SystemConfigService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CreditDailyLimitManager {
+
+    private static final String KEY_PREFIX = "credit:daily:";
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final ZoneId DEFAULT_ZONE = ZoneId.of("Asia/Shanghai");
+    private static final long ZONE_CACHE_MILLIS = 30_000L;
+
+    /**
+     * 原子占用：返回 -1 计数器不存在；0 已达上限；1 占用成功
+     */
+    private static final DefaultRedisScript<Long> ACQUIRE_SCRIPT = new DefaultRedisScript<>(
+            "local used = redis.call('GET', KEYS[1]) " +
+            "if not used then return -1 end " +
+            "if tonumber(used) >= tonumber(ARGV[1]) then return 0 end " +
+            "redis.call('INCR', KEYS[1]) " +
+            "return 1",
+            Long.class);
+
+    /**
+     * 批量原子占用：KEYS 与 ARGV（上限）一一对应，按顺序逐项"未达上限则 +1"（同键多项依次累计），
+     * 返回与 KEYS 对应的结果数组：-1 计数器不存在；0 已达上限；1 占用成功
+     */
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> ACQUIRE_ALL_SCRIPT = new DefaultRedisScript<>(
+            "local out = {} " +
+            "for i = 1, #KEYS do " +
+            "  local used = redis.call('GET', KEYS[i]) " +
+            "  if not used then out[i] = -1 " +
+            "  elseif tonumber(used) >= tonumber(ARGV[i]) then out[i] = 0 " +
+            "  else redis.call('INCR', KEYS[i]) out[i] = 1 end " +
+            "end " +
+            "return out",
+            List.class);
+
+    /**
+     * 归还：计数器已过期则忽略，避免生成无过期时间的负数键
+     */
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "local used = tonumber(redis.call('GET', KEYS[1]) or '0') " +
+            "if used <= 0 then return 0 end " +
+            "return redis.call('DECR', KEYS[1])",
+            Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final CreditTransactionMapper creditTransactionMapper;
+    private final SystemConfigService systemConfigService;
+
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder released = new LongAdder();
+    private final LongAdder seeded = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+
+    private volatile ZoneId configuredZone = DEFAULT_ZONE;
+    private volatile long zoneLoadedAt = 0L;
+
+    /**
+     * 一次每日限次占用；重复归还无副作用
+     */
+    public final class Reservation {
+
+        private final String key;
+        private final AtomicBoolean active;
+
+        private Reservation(String key) {
+            this.key = key;
+            this.active = new AtomicBoolean(key != null);
+        }
+
+        /**
+         * 归还本次占用
+         */
+        public void release() {
+            if (!active.compareAndSet(true, false)) {
+                return;
+            }
+            try {
+                stringRedisTemplate.execute(RELEASE_SCRIPT, Collections.singletonList(key));
+                released.increment();
+            } catch (DataAccessException e) {
+                log.warn("归还每日限次占用失败，key={}, error={}", key, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 原子校验并占用一次当日使用次数
+     *
+     * 在事务内调用时，事务回滚后自动归还占用；事务外调用时，后续操作失败需由调用方 {@link Reservation#release()}
+     *
+     * @param userId   用户ID
+     * @param scenario 使用场景
+     * @return 占用凭证；已达上限返回null
+     */
+    public Reservation tryAcquire(Long userId, CreditUsageScenario scenario) {
+        if (scenario == null || !scenario.hasDailyLimit()) {
+            return new Reservation(null);
+        }
+        ZoneId zone = resolveZone();
+        LocalDate today = LocalDate.now(zone);
+        String key = buildKey(today, userId, scenario.getScenarioCode());
+        String limit = String.valueOf(scenario.getDailyLimit());
+        try {
+            Long result = stringRedisTemplate.execute(ACQUIRE_SCRIPT, Collections.singletonList(key), limit);
+            if (result != null && result < 0) {
+                seed(key, today, zone, userId, scenario.getScenarioCode());
+                result = stringRedisTemplate.execute(ACQUIRE_SCRIPT, Collections.singletonList(key), limit);
+            }
+            if (result == null || result == 0) {
+                rejected.increment();
+                return null;
+            }
+        } catch (DataAccessException e) {
+            // Redis不可用：回退为按流水计数的只读校验
+            fallbacks.increment();
+            log.warn("每日限次计数器不可用，回退为流水计数，userId={}, scenarioCode={}, error={}",
+                    userId, scenario.getScenarioCode(), e.getMessage());
+            if (countFromLedger(today, zone, userId, scenario.getScenarioCode()) >= scenario.getDailyLimit()) {
+                rejected.increment();
+                return null;
+            }
+            return new Reservation(null);
+        }
+        acquired.increment();
+        return bindToTransaction(new Reservation(key));
+    }
+
+    /**
+     * 批量原子校验并占用当日使用次数：整批一次Lua调用，同一用户同一场景的多项按顺序累计
+     *
+     * 计数器不存在的项按流水初始化后再以一次调用补占；事务语义同 {@link #tryAcquire}
+     *
+     * @param userIds   用户ID（与 scenarios 一一对应）
+     * @param scenarios 使用场景
+     * @return 与入参顺序对应的占用凭证；已达上限的项为null
+     */
+    public List<Reservation> tryAcquireAll(List<Long> userIds, List<CreditUsageScenario> scenarios) {
+        int size = scenarios.size();
+        Reservation[] reservations = new Reservation[size];
+        ZoneId zone = resolveZone();
+        LocalDate today = LocalDate.now(zone);
+        List<Integer> limited = new ArrayList<>(size);
+        String[] keys = new String[size];
+        for (int i = 0; i < size; i++) {
+            CreditUsageScenario scenario = scenarios.get(i);
+            if (scenario == null || !scenario.hasDailyLimit()) {
+                reservations[i] = new Reservation(null);
+                continue;
+            }
+            keys[i] = buildKey(today, userIds.get(i), scenario.getScenarioCode());
+            limited.add(i);
+        }
+        if (limited.isEmpty()) {
+            return Arrays.asList(reservations);
+        }
+
+        try {
+            List<Integer> missing = acquireAll(limited, keys, scenarios, reservations);
+            if (!missing.isEmpty()) {
+                Set<String> seededKeys = new HashSet<>();
+                for (Integer index : missing) {
+                    if (seededKeys.add(keys[index])) {
+                        seed(keys[index], today, zone, userIds.get(index), scenarios.get(index).getScenarioCode());
+                    }
+                }
+                // 初始化后仍不存在（极端情况下刚好过期）：按已达上限处理
+                rejected.add(acquireAll(missing, keys, scenarios, reservations).size());
+            }
+        } catch (DataAccessException e) {
+            fallbacks.increment();
+            log.warn("每日限次计数器不可用，批量回退为流水计数，items={}, error={}", limited.size(), e.getMessage());
+            for (Integer index : limited) {
+                CreditUsageScenario scenario = scenarios.get(index);
+                boolean exceeded = countFromLedger(today, zone, userIds.get(index), scenario.getScenarioCode())
+                        >= scenario.getDailyLimit();
+                if (exceeded) {
+                    rejected.increment();
+                }
+                reservations[index] = exceeded ? null : new Reservation(null);
+            }
+        }
+        return Arrays.asList(reservations);
+    }
+
+    /**
+     * 执行一次批量占用脚本，填充占用成功的凭证
+     *
+     * @return 计数器不存在的下标
+     */
+    @SuppressWarnings("unchecked")
+    private List<Integer> acquireAll(List<Integer> indices, String[] keys, List<CreditUsageScenario> scenarios,
+                                     Reservation[] reservations) {
+        List<String> scriptKeys = new ArrayList<>(indices.size());
+        Object[] limits = new Object[indices.size()];
+        for (int i = 0; i < indices.size(); i++) {
+            scriptKeys.add(keys[indices.get(i)]);
+            limits[i] = String.valueOf(scenarios.get(indices.get(i)).getDailyLimit());
+        }
+        List<Object> results = stringRedisTemplate.execute(ACQUIRE_ALL_SCRIPT, scriptKeys, limits);
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < indices.size(); i++) {
+            int index = indices.get(i);
+            long result = results != null && i < results.size() ? ((Number) results.get(i)).longValue() : 0L;
+            if (result > 0) {
+                acquired.increment();
+                reservations[index] = bindToTransaction(new Reservation(keys[index]));
+            } else if (result < 0) {
+                missing.add(index);
+            } else {
+                rejected.increment();
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * 在事务内占用时，事务未提交则自动归还
+     */
+    private Reservation bindToTransaction(Reservation reservation) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        reservation.release();
+                    }
+                }
+            });
+        }
+        return reservation;
+    }
+
+    /**
+     * 记录一次已发生的使用（不校验上限），用于预授权结算等已通过校验的路径
+     *
+     * @param userId       用户ID
+     * @param scenarioCode 场景编码
+     */
+    public void record(Long userId, String scenarioCode) {
+        ZoneId zone = resolveZone();
+        LocalDate today = LocalDate.now(zone);
+        String key = buildKey(today, userId, scenarioCode);
+        try {
+            if (!Boolean.TRUE.equals(stringRedisTemplate.hasKey(key))) {
+                seed(key, today, zone, userId, scenarioCode);
+            }
+            stringRedisTemplate.opsForValue().increment(key);
+        } catch (DataAccessException e) {
+            log.warn("记录每日限次使用失败，userId={}, scenarioCode={}, error={}", userId, scenarioCode, e.getMessage());
+        }
+    }
+
+    /**
+     * 只读判断当日使用次数是否已达上限
+     *
+     * @param userId   用户ID
+     * @param scenario 使用场景
+     * @return 是否已达上限
+     */
+    public boolean isExceeded(Long userId, CreditUsageScenario scenario) {
+        if (scenario == null || !scenario.hasDailyLimit()) {
+            return false;
+        }
+        return getUsage(userId, scenario.getScenarioCode()) >= scenario.getDailyLimit();
+    }
+
+    /**
+     * 查询当日已使用次数
+     *
+     * @param userId       用户ID
+     * @param scenarioCode 场景编码
+     * @return 当日已使用次数
+     */
+    public long getUsage(Long userId, String scenarioCode) {
+        ZoneId zone = resolveZone();
+        LocalDate today = LocalDate.now(zone);
+        String key = buildKey(today, userId, scenarioCode);
+        try {
+            String value = stringRedisTemplate.opsForValue().get(key);
+            if (value != null) {
+                return Long.parseLong(value);
+            }
+            return seed(key, today, zone, userId, scenarioCode);
+        } catch (DataAccessException e) {
+            fallbacks.increment();
+            return countFromLedger(today, zone, userId, scenarioCode);
+        }
+    }
+
+    /**
+     * 获取每日限次统计
+     */
+    public Map<String, Object> getDailyLimitStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("acquired", acquired.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("released", released.sum());
+        stats.put("seeded", seeded.sum());
+        stats.put("fallbacks", fallbacks.sum());
+        stats.put("zone", resolveZone().getId());
+        return stats;
+    }
+
+    /**
+     * 计数器不存在时按当日消费流水初始化（仅在当日首次访问时发生）
+     */
+    private long seed(String key, LocalDate day, ZoneId zone, Long userId, String scenarioCode) {
+        long count = countFromLedger(day, zone, userId, scenarioCode);
+        Duration ttl = Duration.between(ZonedDateTime.now(zone), day.plusDays(1).atStartOfDay(zone));
+        if (ttl.isNegative() || ttl.isZero()) {
+            ttl = Duration.ofSeconds(1);
+        }
+        Boolean created = stringRedisTemplate.opsForValue().setIfAbsent(key, String.valueOf(count), ttl);
+        if (Boolean.TRUE.equals(created)) {
+            seeded.increment();
+            return count;
+        }
+        String current = stringRedisTemplate.opsForValue().get(key);
+        return current != null ? Long.parseLong(current) : count;
+    }
+
+    private long countFromLedger(LocalDate day, ZoneId zone, Long userId, String scenarioCode) {
+        // create_time 以服务器本地时区存储，按配置时区的自然日换算查询区间
+        LocalDateTime dayStart = day.atStartOfDay(zone).withZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+        LocalDateTime dayEnd = day.plusDays(1).atStartOfDay(zone).withZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+
+        LambdaQueryWrapper<CreditTransaction> query = new LambdaQueryWrapper<>();
+        query.eq(CreditTransaction::getUserId, userId);
+        query.eq(CreditTransaction::getScenarioCode, scenarioCode);
+        query.eq(CreditTransaction::getTransactionType, CreditTransactionType.SPEND.getCode());
+        query.ge(CreditTransaction::getCreateTime, dayStart);
+        query.lt(CreditTransaction::getCreateTime, dayEnd);
+        query.eq(CreditTransaction::getIsDeleted, 0);
+        Long count = creditTransactionMapper.selectCount(query);
+        return count == null ? 0 : count;
+    }
+
+    private String buildKey(LocalDate day, Long userId, String scenarioCode) {
+        return KEY_PREFIX + day.format(DAY_FORMAT) + ":" + userId + ":" + scenarioCode;
+    }
+
+    private ZoneId resolveZone() {
+        long now = System.currentTimeMillis();
+        if (now - zoneLoadedAt < ZONE_CACHE_MILLIS) {
+            return configuredZone;
+        }
+        try {
+            String value = systemConfigService.getConfigValue(SystemConfigKeys.CREDIT_DAILY_LIMIT_TIMEZONE,
+                    SystemConfigKeys.getDefaultValue(SystemConfigKeys.CREDIT_DAILY_LIMIT_TIMEZONE));
+            configuredZone = ZoneId.of(value.trim());
+        } catch (Exception e) {
+            log.warn("读取每日限次时区配置失败，沿用上次配置: {}", e.getMessage());
+        }
+        zoneLoadedAt = now;
+        return configuredZone;
+    }
+}
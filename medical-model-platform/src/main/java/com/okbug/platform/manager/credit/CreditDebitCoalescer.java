@@ -0,0 +1,410 @@
+/**
+ * 热点账户扣减合并器：将同一积分账户的并发扣减合并为一次行更新与一次批量账本写入
+ *
+ * 功能描述：
+ * 1. 按账户（userId + creditTypeCode）启用，配置项 credit.debit.coalesce.accounts
+ * 2. 首个到达的请求成为批次领导者，等待合并窗口（默认2ms）或批次满（默认32）后统一提交
+ * 3. 领导者在自身事务内通过 CreditDebitManager#debitBatch 提交整批：锁定一次账户行，按到达顺序分配余额
+ * 4. 跟随者在领导者事务提交后获得各自的扣减前后余额；领导者事务回滚时跟随者退回单笔扣减
+ *
+ * 使用约束：
+ * - 仅合并自身开启事务的调用方（不嵌套在外层事务内）：领导者的批次随领导者事务提交，
+ *   外层事务的其他写入与耗时不会牵连同批次的跟随者；嵌套调用由 isCoalesced 判定为不合并
+ * - 跟随者等待领导者提交的时间有上限，超时以系统繁忙失败，重试时由幂等唯一键识别已提交的扣减
+ * - 账本记录由合并器写入，调用方无需再次插入
+ * - 幂等唯一键冲突以 DuplicateKeyException 抛给调用方，此时该笔未产生任何扣减
+ *
+ * @author hanjor
+ * @version 1.0
+ * @date 2026-10-17 14:00:00
+ */
+package com.okbug.platform.manager.credit;
+
+import com.okbug.platform.common.base.ErrorCode;
+import com.okbug.platform.common.base.ServiceException;
+import com.okbug.platform.common.constants.SystemConfigKeys;
+import com.okbug.platform.entity.credit.CreditTransaction;
+import com.okbug.platform.service.system.SystemConfigService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.NoTransactionException;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CreditDebitCoalescer {
+
+    /**
+     * 合并配置的本地缓存时长（毫秒）
+     */
+    private static final long CONFIG_CACHE_MILLIS = 30_000L;
+
+    /**
+     * 已被批次领取的跟随者等待领导者事务完成的上限（毫秒）
+     */
+    private static final long FOLLOWER_WAIT_MILLIS = 5_000L;
+
+    private static final String ALL_TYPES = "*";
+
+    private static final int STATE_PENDING = 0;
+    private static final int STATE_CLAIMED = 1;
+
+    private final CreditDebitManager creditDebitManager;
+    private final SystemConfigService systemConfigService;
+
+    /**
+     * 账户 -> 待合并队列；仅包含启用合并的热点账户，数量可控
+     */
+    private final Map<String, AccountBuffer> buffers = new ConcurrentHashMap<>();
+
+    // ================ 合并指标 ================
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder coalescedDebits = new LongAdder();
+    private final LongAdder insufficientDebits = new LongAdder();
+    private final LongAdder duplicateDebits = new LongAdder();
+    private final LongAdder fallbackDebits = new LongAdder();
+    private final LongAdder followerTimeouts = new LongAdder();
+    private final AtomicInteger maxBatchSize = new AtomicInteger();
+
+    // ================ 配置快照 ================
+
+    private volatile Set<String> coalesceAccounts = Collections.emptySet();
+    private volatile long windowNanos = TimeUnit.MILLISECONDS.toNanos(2);
+    private volatile int batchMaxCount = 32;
+    private volatile long configLoadedAt = 0;
+
+    /**
+     * 单个账户的待合并队列与领导者标记
+     */
+    private static final class AccountBuffer {
+        private final Queue<PendingDebit> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicBoolean leader = new AtomicBoolean();
+    }
+
+    /**
+     * 一笔待合并的扣减请求
+     */
+    private static final class PendingDebit {
+        private final CreditTransaction ledger;
+        private final AtomicInteger state = new AtomicInteger(STATE_PENDING);
+        private final CompletableFuture<CreditDebitManager.DebitResult> future = new CompletableFuture<>();
+        private CreditDebitManager.DebitResult result;
+        private RuntimeException error;
+
+        private PendingDebit(CreditTransaction ledger) {
+            this.ledger = ledger;
+        }
+
+        private boolean claim() {
+            return state.compareAndSet(STATE_PENDING, STATE_CLAIMED);
+        }
+
+        private CreditDebitManager.DebitResult outcome() {
+            if (error != null) {
+                throw error;
+            }
+            return result;
+        }
+
+        private void publish() {
+            if (error != null) {
+                future.completeExceptionally(error);
+            } else {
+                future.complete(result);
+            }
+        }
+    }
+
+    /**
+     * 领导者事务回滚时通知跟随者退回单笔扣减
+     */
+    private static final class BatchAbortedException extends RuntimeException {
+        private BatchAbortedException() {
+            super("coalesced batch rolled back", null, false, false);
+        }
+    }
+
+    // ================ 合并开关 ================
+
+    /**
+     * 指定账户是否启用扣减合并（且调用方持有自身开启的事务）
+     *
+     * @param userId 用户ID
+     * @param creditTypeCode 积分类型编码
+     * @return true:走合并路径
+     */
+    public boolean isCoalesced(Long userId, String creditTypeCode) {
+        Set<String> accounts = resolveConfig();
+        if (accounts.isEmpty() || userId == null) {
+            return false;
+        }
+        if (!accounts.contains(userId + ":" + ALL_TYPES) && !accounts.contains(userId + ":" + creditTypeCode)) {
+            return false;
+        }
+        return ownsTransaction();
+    }
+
+    /**
+     * 当前事务是否由调用方法自身开启（未加入外层事务）
+     */
+    static boolean ownsTransaction() {
+        try {
+            return TransactionAspectSupport.currentTransactionStatus().isNewTransaction();
+        } catch (NoTransactionException e) {
+            return false;
+        }
+    }
+
+    private Set<String> resolveConfig() {
+        long now = System.currentTimeMillis();
+        if (now - configLoadedAt < CONFIG_CACHE_MILLIS) {
+            return coalesceAccounts;
+        }
+        try {
+            String value = systemConfigService.getConfigValue(SystemConfigKeys.CREDIT_DEBIT_COALESCE_ACCOUNTS,
+                    SystemConfigKeys.getDefaultValue(SystemConfigKeys.CREDIT_DEBIT_COALESCE_ACCOUNTS));
+            Set<String> accounts = new HashSet<>();
+            if (StringUtils.hasText(value)) {
+                for (String entry : value.split(",")) {
+                    String trimmed = entry.trim();
+                    if (!StringUtils.hasText(trimmed)) {
+                        continue;
+                    }
+                    accounts.add(trimmed.contains(":") ? trimmed : trimmed + ":" + ALL_TYPES);
+                }
+            }
+            coalesceAccounts = Collections.unmodifiableSet(accounts);
+
+            Integer window = systemConfigService.getConfigValueAsInt(
+                    SystemConfigKeys.CREDIT_DEBIT_COALESCE_WINDOW_DURATION_MILLIS, 2);
+            windowNanos = TimeUnit.MILLISECONDS.toNanos(window == null || window < 1 ? 1 : window);
+            Integer maxCount = systemConfigService.getConfigValueAsInt(
+                    SystemConfigKeys.CREDIT_DEBIT_COALESCE_BATCH_MAX_COUNT, 32);
+            batchMaxCount = maxCount == null || maxCount < 1 ? 1 : maxCount;
+        } catch (Exception e) {
+            log.warn("读取积分扣减合并配置失败，沿用上次配置: {}", e.getMessage());
+        }
+        configLoadedAt = now;
+        return coalesceAccounts;
+    }
+
+    // ================ 合并扣减 ================
+
+    /**
+     * 合并扣减（需在事务内调用），成功时账本记录已写入
+     *
+     * @param userId 用户ID
+     * @param creditTypeCode 积分类型编码
+     * @param ledger 待写入的消费交易记录（扣减金额取其金额绝对值，余额字段由合并器填充）
+     * @return 本笔扣减结果
+     * @throws ServiceException 账户不存在或余额不足
+     * @throws DuplicateKeyException 命中幂等唯一键，本笔未扣减
+     */
+    public CreditDebitManager.DebitResult debit(Long userId, String creditTypeCode, CreditTransaction ledger) {
+        AccountBuffer buffer = buffers.computeIfAbsent(userId + ":" + creditTypeCode, k -> new AccountBuffer());
+        PendingDebit self = new PendingDebit(ledger);
+        buffer.queue.add(self);
+        buffer.size.incrementAndGet();
+
+        while (true) {
+            if (self.state.get() == STATE_PENDING && buffer.leader.compareAndSet(false, true)) {
+                List<PendingDebit> batch = collectBatch(buffer, self);
+                if (batch != null) {
+                    return lead(userId, creditTypeCode, batch, self);
+                }
+            }
+            boolean claimed = self.state.get() == STATE_CLAIMED;
+            try {
+                if (claimed) {
+                    return self.future.get(FOLLOWER_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+                }
+                return self.future.get(windowNanos, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                if (claimed) {
+                    // 领导者事务迟迟未完成：本笔结果未知，不能退回单笔扣减，由调用方重试并经幂等键识别
+                    followerTimeouts.increment();
+                    log.warn("积分合并扣减等待领导者超时，userId={}, creditType={}", userId, creditTypeCode);
+                    throw new ServiceException(ErrorCode.CREDIT_SYSTEM_BESSY);
+                }
+                // 仍未被任何批次领取：下一轮尝试成为领导者
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ServiceException(ErrorCode.CREDIT_SYSTEM_BESSY);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof BatchAbortedException) {
+                    fallbackDebits.increment();
+                    return applyAlone(userId, creditTypeCode, self);
+                }
+                if (e.getCause() instanceof RuntimeException runtime) {
+                    throw runtime;
+                }
+                throw new ServiceException(ErrorCode.CREDIT_SYSTEM_BESSY);
+            }
+        }
+    }
+
+    /**
+     * 领导者收集批次：等待窗口结束或批次满，按到达顺序领取请求（自身必然在批次内）
+     *
+     * @return 批次；自身已被上一批次领取时返回null
+     */
+    private List<PendingDebit> collectBatch(AccountBuffer buffer, PendingDebit self) {
+        try {
+            if (!self.claim()) {
+                return null;
+            }
+            int maxCount = batchMaxCount;
+            long deadline = System.nanoTime() + windowNanos;
+            long remaining;
+            while (buffer.size.get() < maxCount && (remaining = deadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(Math.min(remaining, 100_000L));
+            }
+            List<PendingDebit> batch = new ArrayList<>(Math.min(maxCount, buffer.size.get() + 1));
+            batch.add(self);
+            PendingDebit next;
+            while (batch.size() < maxCount && (next = buffer.queue.poll()) != null) {
+                buffer.size.decrementAndGet();
+                if (next != self && next.claim()) {
+                    batch.add(next);
+                }
+            }
+            if (buffer.queue.remove(self)) {
+                buffer.size.decrementAndGet();
+            }
+            return batch;
+        } finally {
+            buffer.leader.set(false);
+        }
+    }
+
+    /**
+     * 领导者在自身事务内提交批次，跟随者的结果在事务完成后发布
+     */
+    private CreditDebitManager.DebitResult lead(Long userId, String creditTypeCode, List<PendingDebit> batch,
+                                                PendingDebit self) {
+        try {
+            applyBatch(userId, creditTypeCode, batch);
+        } catch (RuntimeException e) {
+            for (PendingDebit pending : batch) {
+                if (pending != self) {
+                    pending.future.completeExceptionally(new BatchAbortedException());
+                }
+            }
+            throw e;
+        }
+        if (batch.size() > 1) {
+            List<PendingDebit> followers = batch.subList(1, batch.size());
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        for (PendingDebit pending : followers) {
+                            if (status == STATUS_COMMITTED) {
+                                pending.publish();
+                            } else {
+                                pending.future.completeExceptionally(new BatchAbortedException());
+                            }
+                        }
+                    }
+                });
+            } else {
+                followers.forEach(PendingDebit::publish);
+            }
+        }
+        return self.outcome();
+    }
+
+    /**
+     * 领导者事务回滚后的退路：在调用方自身事务内单笔提交
+     */
+    private CreditDebitManager.DebitResult applyAlone(Long userId, String creditTypeCode, PendingDebit pending) {
+        pending.result = null;
+        pending.error = null;
+        applyBatch(userId, creditTypeCode, Collections.singletonList(pending));
+        return pending.outcome();
+    }
+
+    /**
+     * 通过批量扣减提交批次，并将每笔结果回填到对应请求
+     */
+    private void applyBatch(Long userId, String creditTypeCode, List<PendingDebit> batch) {
+        List<CreditTransaction> ledgers = new ArrayList<>(batch.size());
+        for (PendingDebit pending : batch) {
+            ledgers.add(pending.ledger);
+        }
+        CreditDebitManager.BatchDebitResult batchResult = creditDebitManager.debitBatch(userId, creditTypeCode, ledgers);
+        batches.increment();
+        maxBatchSize.accumulateAndGet(batch.size(), Math::max);
+        for (int i = 0; i < batch.size(); i++) {
+            PendingDebit pending = batch.get(i);
+            switch (batchResult.getOutcomes().get(i)) {
+                case APPLIED:
+                    coalescedDebits.increment();
+                    pending.result = batchResult.getResults().get(i);
+                    break;
+                case INSUFFICIENT:
+                    insufficientDebits.increment();
+                    pending.error = new ServiceException(ErrorCode.INSUFFICIENT_CREDIT_BALANCE);
+                    break;
+                case DUPLICATE:
+                default:
+                    duplicateDebits.increment();
+                    pending.error = new DuplicateKeyException("credit transaction idempotency key conflict");
+                    break;
+            }
+        }
+    }
+
+    // ================ 指标查询 ================
+
+    /**
+     * 获取扣减合并统计信息
+     *
+     * @return 统计信息
+     */
+    public Map<String, Object> getCoalesceStats() {
+        long batchCount = batches.sum();
+        long debits = coalescedDebits.sum();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("accounts", resolveConfig());
+        stats.put("windowMillis", TimeUnit.NANOSECONDS.toMillis(windowNanos));
+        stats.put("batchMaxCount", batchMaxCount);
+        stats.put("batches", batchCount);
+        stats.put("coalescedDebits", debits);
+        stats.put("avgBatchSize", batchCount == 0 ? 0 : (double) debits / batchCount);
+        stats.put("maxBatchSize", maxBatchSize.get());
+        stats.put("insufficient", insufficientDebits.sum());
+        stats.put("duplicates", duplicateDebits.sum());
+        stats.put("fallbacks", fallbackDebits.sum());
+        stats.put("followerTimeouts", followerTimeouts.sum());
+        stats.put("activeBuffers", buffers.size());
+        return stats;
+    }
+}
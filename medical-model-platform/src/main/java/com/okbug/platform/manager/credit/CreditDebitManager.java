@@ -0,0 +1,367 @@
+/**
+ * 积分扣减管理器：统一封装用户积分账户的扣减路径与竞争指标
+ *
+ * 功能描述：
+ * 1. 原子条件扣减：单条 UPDATE ... WHERE balance - 预授权占用 >= ? 完成校验与扣减，无读-改-写与睡眠重试
+ * 2. 按积分类型选择扣减模式（配置项 credit.debit.atomic.types）
+ * 3. 记录扣减竞争指标：尝试/成功/余额不足/乐观锁冲突/重试耗尽/耗时
+ * 4. 同账户批量扣减：锁定一次账户行，按序分配余额，一次 UPDATE 与一次多值 INSERT 完成整批
+ * 5. 预授权占用：扣减前通过 CreditHoldReservations 读取Redis中的预授权合计，占用部分不可扣减
+ *
+ * 使用约束：
+ * - debit 必须在调用方事务内执行，账本写入与扣减处于同一事务
+ * - 扣减成功后行锁持有至事务提交，回读余额即为本次扣减后的余额
+ *
+ * @author hanjor
+ * @version 1.0
+ * @date 2026-10-17 10:00:00
+ */
+package com.okbug.platform.manager.credit;
+
+import com.okbug.platform.common.base.ErrorCode;
+import com.okbug.platform.common.base.ServiceException;
+import com.okbug.platform.common.constants.SystemConfigKeys;
+import com.okbug.platform.entity.credit.CreditTransaction;
+import com.okbug.platform.entity.credit.UserCredit;
+import com.okbug.platform.mapper.credit.CreditTransactionMapper;
+import com.okbug.platform.mapper.credit.UserCreditMapper;
+import com.okbug.platform.service.system.SystemConfigService;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CreditDebitManager {
+
+    /**
+     * 扣减模式配置的本地缓存时长（毫秒），避免每次扣减都访问配置缓存
+     */
+    private static final long MODE_CACHE_MILLIS = 30_000L;
+
+    private static final String ALL_TYPES = "*";
+
+    private final UserCreditMapper userCreditMapper;
+    private final CreditTransactionMapper creditTransactionMapper;
+    private final SystemConfigService systemConfigService;
+    private final CreditHoldReservations creditHoldReservations;
+
+    // ================ 竞争指标 ================
+
+    private final LongAdder atomicAttempts = new LongAdder();
+    private final LongAdder atomicSuccess = new LongAdder();
+    private final LongAdder atomicInsufficient = new LongAdder();
+    private final LongAdder atomicNanos = new LongAdder();
+    private final LongAdder batchDebits = new LongAdder();
+    private final LongAdder batchEntries = new LongAdder();
+    private final LongAdder optimisticAttempts = new LongAdder();
+    private final LongAdder optimisticConflicts = new LongAdder();
+    private final LongAdder optimisticExhausted = new LongAdder();
+
+    /**
+     * 原子扣减启用的积分类型快照
+     */
+    private volatile Set<String> atomicTypes = Collections.singleton(ALL_TYPES);
+    private volatile long atomicTypesLoadedAt = 0;
+
+    /**
+     * 扣减结果：扣减后的账户与扣减前后余额
+     */
+    @Data
+    @AllArgsConstructor
+    public static class DebitResult {
+        private UserCredit account;
+        private BigDecimal balanceBefore;
+        private BigDecimal balanceAfter;
+    }
+
+    /**
+     * 批量扣减中单笔的处理结果
+     */
+    public enum DebitOutcome {
+        /** 已扣减并写入账本 */
+        APPLIED,
+        /** 余额不足，未扣减 */
+        INSUFFICIENT,
+        /** 命中幂等唯一键，未扣减 */
+        DUPLICATE
+    }
+
+    /**
+     * 批量扣减结果：与入参账本顺序一一对应
+     */
+    @Data
+    @AllArgsConstructor
+    public static class BatchDebitResult {
+        private List<DebitOutcome> outcomes;
+        /** 单笔扣减结果，未扣减的为null */
+        private List<DebitResult> results;
+        private BigDecimal totalDebited;
+    }
+
+    // ================ 扣减模式 ================
+
+    /**
+     * 指定积分类型是否启用原子条件扣减
+     *
+     * @param creditTypeCode 积分类型编码
+     * @return true:原子扣减 false:乐观锁重试扣减
+     */
+    public boolean isAtomicDebitEnabled(String creditTypeCode) {
+        Set<String> types = resolveAtomicTypes();
+        return types.contains(ALL_TYPES) || (creditTypeCode != null && types.contains(creditTypeCode));
+    }
+
+    private Set<String> resolveAtomicTypes() {
+        long now = System.currentTimeMillis();
+        if (now - atomicTypesLoadedAt < MODE_CACHE_MILLIS) {
+            return atomicTypes;
+        }
+        try {
+            String value = systemConfigService.getConfigValue(SystemConfigKeys.CREDIT_DEBIT_ATOMIC_TYPES,
+                    SystemConfigKeys.getDefaultValue(SystemConfigKeys.CREDIT_DEBIT_ATOMIC_TYPES));
+            atomicTypes = StringUtils.hasText(value)
+                    ? Arrays.stream(value.split(","))
+                        .map(String::trim)
+                        .filter(StringUtils::hasText)
+                        .collect(Collectors.toUnmodifiableSet())
+                    : Collections.emptySet();
+        } catch (Exception e) {
+            log.warn("读取积分扣减模式配置失败，沿用上次配置: {}", e.getMessage());
+        }
+        atomicTypesLoadedAt = now;
+        return atomicTypes;
+    }
+
+    // ================ 预授权占用 ================
+
+    /**
+     * 读取账户的预授权占用积分（预授权中 + 已结算待入账），扣减与余额校验需排除该部分
+     *
+     * @param userId 用户ID
+     * @param creditTypeCode 积分类型编码
+     * @return 占用积分
+     * @throws ServiceException Redis不可用
+     */
+    public BigDecimal reservedBalance(Long userId, String creditTypeCode) {
+        return creditHoldReservations.reserved(userId, creditTypeCode);
+    }
+
+    // ================ 原子扣减 ================
+
+    /**
+     * 原子条件扣减（需在事务内调用）
+     *
+     * @param userId 用户ID
+     * @param creditTypeCode 积分类型编码
+     * @param amount 扣减积分数（正数）
+     * @return 扣减结果
+     * @throws ServiceException 账户不存在或余额不足
+     */
+    public DebitResult debit(Long userId, String creditTypeCode, BigDecimal amount) {
+        long start = System.nanoTime();
+        atomicAttempts.increment();
+        try {
+            BigDecimal reserved = creditHoldReservations.reserved(userId, creditTypeCode);
+            int updated = userCreditMapper.debitIfSufficient(userId, creditTypeCode, amount, reserved);
+            // 同一事务内回读：扣减成功时行锁仍由本事务持有，读到的即为扣减后余额
+            UserCredit account = userCreditMapper.selectByUserIdAndCreditType(userId, creditTypeCode);
+            if (account == null) {
+                throw new ServiceException(ErrorCode.USER_CREDIT_ACCOUNT_NOT_FOUND);
+            }
+            if (updated <= 0) {
+                atomicInsufficient.increment();
+                throw new ServiceException(ErrorCode.INSUFFICIENT_CREDIT_BALANCE);
+            }
+            atomicSuccess.increment();
+            BigDecimal balanceAfter = account.getAvailableBalance();
+            return new DebitResult(account, balanceAfter.add(amount), balanceAfter);
+        } finally {
+            atomicNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    // ================ 批量扣减 ================
+
+    /**
+     * 同账户批量扣减（需在事务内调用）
+     *
+     * 按入参顺序分配余额：余额不足的单笔跳过，命中幂等唯一键的单笔跳过，其余写入账本并一次扣减合计金额。
+     * 账本的扣减前后余额由本方法填充，扣减金额取账本金额的绝对值。
+     *
+     * @param userId 用户ID
+     * @param creditTypeCode 积分类型编码
+     * @param ledgers 待写入的消费交易记录
+     * @return 批量扣减结果
+     * @throws ServiceException 账户不存在
+     */
+    public BatchDebitResult debitBatch(Long userId, String creditTypeCode, List<CreditTransaction> ledgers) {
+        return debitBatch(userId, creditTypeCode, ledgers, creditHoldReservations.reserved(userId, creditTypeCode));
+    }
+
+    /**
+     * 同账户批量扣减，按指定的预授权占用积分分配余额（需在事务内调用）
+     *
+     * 用于预授权结算入账：待入账合计中包含本批结算金额，调用方传入扣除本批后的占用积分，
+     * 使结算只校验并扣减一次 user_credits。
+     *
+     * @param userId 用户ID
+     * @param creditTypeCode 积分类型编码
+     * @param ledgers 待写入的消费交易记录
+     * @param reserved 不可分配的预授权占用积分
+     * @return 批量扣减结果
+     * @throws ServiceException 账户不存在
+     */
+    public BatchDebitResult debitBatch(Long userId, String creditTypeCode, List<CreditTransaction> ledgers, BigDecimal reserved) {
+        UserCredit account = userCreditMapper.selectForUpdate(userId, creditTypeCode);
+        if (account == null) {
+            throw new ServiceException(ErrorCode.USER_CREDIT_ACCOUNT_NOT_FOUND);
+        }
+        batchDebits.increment();
+        batchEntries.add(ledgers.size());
+
+        BigDecimal opening = account.getAvailableBalance();
+        List<DebitOutcome> outcomes = new ArrayList<>(ledgers.size());
+        List<DebitResult> results = new ArrayList<>(ledgers.size());
+        BigDecimal running = allocate(account, opening, reserved, ledgers, outcomes, results, false);
+        List<CreditTransaction> applied = new ArrayList<>(ledgers.size());
+        for (int i = 0; i < ledgers.size(); i++) {
+            if (outcomes.get(i) == DebitOutcome.APPLIED) {
+                applied.add(ledgers.get(i));
+            }
+        }
+        if (!applied.isEmpty()) {
+            try {
+                creditTransactionMapper.insertBatch(applied);
+            } catch (DuplicateKeyException dup) {
+                // 批内存在幂等重复：逐笔写入定位重复项（单语句失败不影响事务内已写入的行）
+                outcomes.clear();
+                results.clear();
+                running = allocate(account, opening, reserved, ledgers, outcomes, results, true);
+            }
+        }
+
+        BigDecimal total = opening.subtract(running);
+        if (total.compareTo(BigDecimal.ZERO) > 0
+                && userCreditMapper.debitIfSufficient(userId, creditTypeCode, total, reserved) <= 0) {
+            // 行锁已持有且余额按序分配，不应失败；交由调用方事务整体回滚
+            throw new ServiceException(ErrorCode.CREDIT_SYSTEM_BESSY);
+        }
+        return new BatchDebitResult(outcomes, results, total);
+    }
+
+    /**
+     * 按序分配余额并填充账本余额字段，insertEach 为 true 时逐笔写入账本并识别幂等重复；
+     * reserved 为不可分配的预授权占用积分，账本余额仍记录账户余额
+     *
+     * @return 分配后的剩余余额
+     */
+    private BigDecimal allocate(UserCredit account, BigDecimal opening, BigDecimal reserved, List<CreditTransaction> ledgers,
+                                List<DebitOutcome> outcomes, List<DebitResult> results, boolean insertEach) {
+        BigDecimal running = opening;
+        for (CreditTransaction ledger : ledgers) {
+            BigDecimal amount = ledger.getAmount().abs();
+            if (running.subtract(reserved).compareTo(amount) < 0) {
+                outcomes.add(DebitOutcome.INSUFFICIENT);
+                results.add(null);
+                continue;
+            }
+            BigDecimal after = running.subtract(amount);
+            ledger.setBalanceBefore(running);
+            ledger.setBalanceAfter(after);
+            if (insertEach) {
+                try {
+                    creditTransactionMapper.insert(ledger);
+                } catch (DuplicateKeyException dup) {
+                    outcomes.add(DebitOutcome.DUPLICATE);
+                    results.add(null);
+                    continue;
+                }
+            }
+            outcomes.add(DebitOutcome.APPLIED);
+            results.add(new DebitResult(snapshot(account, opening, after), running, after));
+            running = after;
+        }
+        return running;
+    }
+
+    /**
+     * 构造单笔扣减后的账户快照（累计消费按批内已分配金额推算）
+     */
+    private UserCredit snapshot(UserCredit account, BigDecimal opening, BigDecimal balanceAfter) {
+        UserCredit snapshot = new UserCredit();
+        snapshot.setId(account.getId());
+        snapshot.setUserId(account.getUserId());
+        snapshot.setCreditTypeCode(account.getCreditTypeCode());
+        snapshot.setBalance(balanceAfter);
+        snapshot.setTotalEarned(account.getTotalEarned());
+        snapshot.setTotalConsumed(account.getTotalConsumedAmount().add(opening.subtract(balanceAfter)));
+        snapshot.setVersion(account.getVersion());
+        snapshot.setIsDeleted(account.getIsDeleted());
+        snapshot.setCreateTime(account.getCreateTime());
+        snapshot.setUpdateTime(account.getUpdateTime());
+        return snapshot;
+    }
+
+    // ================ 乐观锁路径指标 ================
+
+    /**
+     * 记录一次乐观锁扣减尝试
+     */
+    public void recordOptimisticAttempt() {
+        optimisticAttempts.increment();
+    }
+
+    /**
+     * 记录一次乐观锁版本冲突
+     */
+    public void recordOptimisticConflict() {
+        optimisticConflicts.increment();
+    }
+
+    /**
+     * 记录一次乐观锁重试耗尽（返回系统繁忙）
+     */
+    public void recordOptimisticExhausted() {
+        optimisticExhausted.increment();
+    }
+
+    // ================ 指标查询 ================
+
+    /**
+     * 获取扣减竞争统计信息
+     *
+     * @return 统计信息
+     */
+    public Map<String, Object> getDebitStats() {
+        long attempts = atomicAttempts.sum();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("atomicTypes", resolveAtomicTypes());
+        stats.put("atomicAttempts", attempts);
+        stats.put("atomicSuccess", atomicSuccess.sum());
+        stats.put("atomicInsufficient", atomicInsufficient.sum());
+        stats.put("atomicAvgMicros", attempts == 0 ? 0 : atomicNanos.sum() / attempts / 1000);
+        stats.put("batchDebits", batchDebits.sum());
+        stats.put("batchEntries", batchEntries.sum());
+        stats.put("optimisticAttempts", optimisticAttempts.sum());
+        stats.put("optimisticConflicts", optimisticConflicts.sum());
+        stats.put("optimisticExhausted", optimisticExhausted.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,626 @@
+/**
+ * 积分预授权管理器：基于Redis的预授权（hold）/结算（capture）/释放（release）与批量入账
+ *
+ * 功能描述：
+ * 1. 预授权：Lua脚本原子校验 账户余额 - 预授权中 - 待入账 >= 金额并登记预授权（带TTL），不写 user_credits
+ * 2. 结算：结算有效期内预授权的部分或全部，剩余部分释放；结算记录进入Redis入账队列，结算部分计入待入账合计直至入账
+ * 3. 入账：定时任务按批读取入账队列，按账户分组通过 CreditDebitManager#debitBatch 一次扣减 user_credits 并写入 credit_transactions
+ * 4. 清理：定时任务释放已过期且未结算的预授权
+ *
+ * Redis数据结构：
+ * - credit:hold:{holdId}                     预授权详情（Hash，TTL=有效期+宽限期）
+ * - credit:hold:account:{userId}:{typeCode}  账户预授权合计 held 与待入账合计 captured（Hash，单位：分）
+ * - credit:hold:expiry                       预授权到期索引（ZSet，score=到期毫秒）
+ * - credit:hold:order:{userId}:{orderId}     订单号到预授权ID的幂等映射
+ * - credit:hold:settle                       待入账结算记录队列（List）
+ * - credit:hold:settle:failed                入账失败记录（List，需人工处理；暂时性失败先在入账队列中退避重试）
+ *
+ * 使用约束：
+ * - 占用以Redis账户合计为准：所有扣减路径（原子扣减、乐观锁扣减、转账、批量扣减）经 CreditHoldReservations 读取
+ *   预授权中 + 待入账合计并只使用 余额 - 占用；预授权/结算/释放不访问 MySQL，user_credits 仅在入账时写入一次
+ * - 读取占用与扣减之间的并发预授权可能使入账时余额不足，此类结算转入失败队列人工处理
+ * - 入账以订单号（缺省为 HOLD-{holdId}）作为幂等键，重复入账由 uk_credit_tx_idem 拦截
+ *
+ * @author hanjor
+ * @version 1.0
+ * @date 2026-10-17 15:00:00
+ */
+package com.okbug.platform.manager.credit;
+
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.okbug.platform.common.base.ErrorCode;
+import com.okbug.platform.common.base.ServiceException;
+import com.okbug.platform.common.constants.SystemConfigKeys;
+import com.okbug.platform.common.enums.credit.CreditTransactionType;
+import com.okbug.platform.dto.credit.response.CreditHoldResponse;
+import com.okbug.platform.entity.credit.CreditTransaction;
+import com.okbug.platform.service.system.SystemConfigService;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CreditHoldManager {
+
+    public static final String STATUS_HELD = "HELD";
+    public static final String STATUS_CAPTURED = "CAPTURED";
+    public static final String STATUS_RELEASED = "RELEASED";
+    public static final String STATUS_EXPIRED = "EXPIRED";
+
+    private static final String HOLD_KEY_PREFIX = "credit:hold:";
+    private static final String ORDER_KEY_PREFIX = "credit:hold:order:";
+    private static final String EXPIRY_KEY = "credit:hold:expiry";
+    private static final String SETTLE_KEY = "credit:hold:settle";
+    private static final String SETTLE_FAILED_KEY = "credit:hold:settle:failed";
+    private static final String RECONCILE_LOCK_KEY = "credit:hold:reconcile:lock";
+
+    /**
+     * 预授权详情在到期后的保留时长（秒），便于查询结果与清理任务补偿
+     */
+    private static final long HOLD_GRACE_SECONDS = 86_400L;
+    private static final long RECONCILE_LOCK_SECONDS = 60L;
+    private static final int SWEEP_BATCH_SIZE = 500;
+    private static final int MAX_SETTLE_ATTEMPTS = 12;
+    private static final long MAX_RETRY_BACKOFF_MILLIS = 300_000L;
+
+    private static final DefaultRedisScript<String> HOLD_SCRIPT = new DefaultRedisScript<>(
+            "if ARGV[10] == '1' then " +
+            "  local existing = redis.call('GET', KEYS[4]) " +
+            "  if existing then return 'DUP:' .. existing end " +
+            "end " +
+            "local held = tonumber(redis.call('HGET', KEYS[1], 'held') or '0') " +
+            "local captured = tonumber(redis.call('HGET', KEYS[1], 'captured') or '0') " +
+            "if tonumber(ARGV[1]) - held - captured < tonumber(ARGV[2]) then return 'INSUFFICIENT' end " +
+            "redis.call('HINCRBY', KEYS[1], 'held', ARGV[2]) " +
+            "redis.call('HSET', KEYS[2], 'userId', ARGV[4], 'creditTypeCode', ARGV[5], 'scenarioCode', ARGV[6], " +
+            "  'orderId', ARGV[7], 'amount', ARGV[2], 'captured', '0', 'status', 'HELD', 'expireAt', ARGV[8]) " +
+            "redis.call('EXPIRE', KEYS[2], ARGV[9]) " +
+            "redis.call('ZADD', KEYS[3], ARGV[8], ARGV[3]) " +
+            "if ARGV[10] == '1' then redis.call('SET', KEYS[4], ARGV[3], 'EX', ARGV[9]) end " +
+            "return 'OK'",
+            String.class);
+
+    private static final DefaultRedisScript<Long> CAPTURE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('HGET', KEYS[2], 'status') ~= 'HELD' then return -1 end " +
+            "if tonumber(redis.call('HGET', KEYS[2], 'expireAt')) <= tonumber(ARGV[4]) then return -3 end " +
+            "local amount = tonumber(redis.call('HGET', KEYS[2], 'amount')) " +
+            "local capture = tonumber(ARGV[1]) " +
+            "if capture > amount then return -2 end " +
+            "redis.call('HINCRBY', KEYS[1], 'held', -amount) " +
+            "if capture > 0 then " +
+            "  redis.call('HINCRBY', KEYS[1], 'captured', capture) " +
+            "  redis.call('RPUSH', KEYS[4], ARGV[3]) " +
+            "end " +
+            "redis.call('HSET', KEYS[2], 'status', 'CAPTURED', 'captured', capture) " +
+            "redis.call('ZREM', KEYS[3], ARGV[2]) " +
+            "return 1",
+            Long.class);
+
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('HGET', KEYS[2], 'status') ~= 'HELD' then " +
+            "  redis.call('ZREM', KEYS[3], ARGV[1]) " +
+            "  return -1 " +
+            "end " +
+            "local amount = tonumber(redis.call('HGET', KEYS[2], 'amount')) " +
+            "redis.call('HINCRBY', KEYS[1], 'held', -amount) " +
+            "redis.call('HSET', KEYS[2], 'status', ARGV[2]) " +
+            "redis.call('ZREM', KEYS[3], ARGV[1]) " +
+            "return 1",
+            Long.class);
+
+    /**
+     * 结算记录终态后扣回待入账合计：以预授权详情上的 settled 标记去重，重放同一结算不会重复扣回
+     */
+    private static final DefaultRedisScript<Long> SETTLED_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('HGET', KEYS[2], 'settled') == '1' then return 0 end " +
+            "if redis.call('EXISTS', KEYS[2]) == 1 then redis.call('HSET', KEYS[2], 'settled', '1') end " +
+            "local v = redis.call('HINCRBY', KEYS[1], 'captured', -tonumber(ARGV[1])) " +
+            "if v < 0 then redis.call('HSET', KEYS[1], 'captured', '0') end " +
+            "return 1",
+            Long.class);
+
+    private static final DefaultRedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end return 0",
+            Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ObjectMapper objectMapper;
+    private final CreditDebitManager creditDebitManager;
+    private final PlatformTransactionManager transactionManager;
+    private final SystemConfigService systemConfigService;
+
+    // ================ 预授权指标 ================
+
+    private final LongAdder holdsPlaced = new LongAdder();
+    private final LongAdder holdsInsufficient = new LongAdder();
+    private final LongAdder holdsCaptured = new LongAdder();
+    private final LongAdder holdsReleased = new LongAdder();
+    private final LongAdder holdsExpired = new LongAdder();
+    private final LongAdder settledEntries = new LongAdder();
+    private final LongAdder settleFailures = new LongAdder();
+
+    /**
+     * 待入账结算记录
+     */
+    @Data
+    public static class SettleEntry {
+        private String holdId;
+        private Long userId;
+        private String creditTypeCode;
+        private String scenarioCode;
+        private String orderId;
+        private long amountCents;
+        private String description;
+        /**
+         * 暂时性失败的重试次数
+         */
+        private int attempts;
+        /**
+         * 下次重试时间（毫秒），0 表示立即处理
+         */
+        private long retryAt;
+    }
+
+    // ================ 预授权 / 结算 / 释放 ================
+
+    /**
+     * 登记预授权
+     *
+     * @param userId 用户ID
+     * @param creditTypeCode 积分类型编码
+     * @param scenarioCode 使用场景编码
+     * @param orderId 关联订单号（可选，同一订单重复预授权返回已有预授权）
+     * @param amount 预授权积分数
+     * @param balance 账户当前余额（快照读）
+     * @param ttlSeconds 有效期（秒），为空时取系统配置
+     * @return 预授权详情
+     * @throws ServiceException 可用余额不足、Redis不可用
+     */
+    public CreditHoldResponse hold(Long userId, String creditTypeCode, String scenarioCode, String orderId,
+                                   BigDecimal amount, BigDecimal balance, Integer ttlSeconds) {
+        long ttl = ttlSeconds != null ? ttlSeconds : resolveTtlSeconds();
+        long expireAt = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(ttl);
+        String holdId = IdWorker.getIdStr();
+        boolean hasOrder = StringUtils.hasText(orderId);
+        List<String> keys = Arrays.asList(
+                accountKey(userId, creditTypeCode),
+                holdKey(holdId),
+                EXPIRY_KEY,
+                hasOrder ? ORDER_KEY_PREFIX + userId + ":" + orderId : ORDER_KEY_PREFIX + "none");
+
+        String result;
+        try {
+            result = stringRedisTemplate.execute(HOLD_SCRIPT, keys,
+                    String.valueOf(toCents(balance)),
+                    String.valueOf(toCents(amount)),
+                    holdId,
+                    String.valueOf(userId),
+                    creditTypeCode,
+                    scenarioCode == null ? "" : scenarioCode,
+                    hasOrder ? orderId : "",
+                    String.valueOf(expireAt),
+                    String.valueOf(ttl + HOLD_GRACE_SECONDS),
+                    hasOrder ? "1" : "0");
+        } catch (DataAccessException e) {
+            log.error("积分预授权失败，Redis不可用，userId={}, orderId={}, error={}", userId, orderId, e.getMessage());
+            throw new ServiceException(ErrorCode.CREDIT_SYSTEM_BESSY);
+        }
+
+        if (result != null && result.startsWith("DUP:")) {
+            String existingId = result.substring(4);
+            log.info("积分预授权幂等命中，userId={}, orderId={}, holdId={}", userId, orderId, existingId);
+            CreditHoldResponse existing = getHold(existingId);
+            if (existing == null) {
+                throw new ServiceException(ErrorCode.CREDIT_HOLD_NOT_FOUND);
+            }
+            return existing;
+        }
+        if (!"OK".equals(result)) {
+            holdsInsufficient.increment();
+            throw new ServiceException(ErrorCode.INSUFFICIENT_CREDIT_BALANCE);
+        }
+
+        holdsPlaced.increment();
+        return getHold(holdId);
+    }
+
+    /**
+     * 结算预授权，剩余部分释放
+     *
+     * @param hold 预授权详情（调用方已校验归属）
+     * @param captureAmount 结算积分数
+     * @param description 入账交易描述
+     * @return 结算后的预授权详情
+     */
+    public CreditHoldResponse capture(CreditHoldResponse hold, BigDecimal captureAmount, String description) {
+        long captureCents = toCents(captureAmount);
+        SettleEntry entry = new SettleEntry();
+        entry.setHoldId(hold.getHoldId());
+        entry.setUserId(hold.getUserId());
+        entry.setCreditTypeCode(hold.getCreditTypeCode());
+        entry.setScenarioCode(hold.getScenarioCode());
+        entry.setOrderId(hold.getOrderId());
+        entry.setAmountCents(captureCents);
+        entry.setDescription(description);
+
+        Long result = execute(CAPTURE_SCRIPT,
+                Arrays.asList(accountKey(hold.getUserId(), hold.getCreditTypeCode()), holdKey(hold.getHoldId()), EXPIRY_KEY, SETTLE_KEY),
+                String.valueOf(captureCents), hold.getHoldId(), toJson(entry), String.valueOf(System.currentTimeMillis()));
+        if (result == null || result == -1 || result == -3) {
+            // -3：已过有效期但尚未被清理任务释放，同样视为已失效
+            throw new ServiceException(ErrorCode.CREDIT_HOLD_STATE_INVALID);
+        }
+        if (result == -2) {
+            throw new ServiceException(ErrorCode.CREDIT_HOLD_CAPTURE_EXCEEDED);
+        }
+        holdsCaptured.increment();
+        return getHold(hold.getHoldId());
+    }
+
+    /**
+     * 释放预授权
+     *
+     * @param hold 预授权详情（调用方已校验归属）
+     * @return 释放后的预授权详情
+     */
+    public CreditHoldResponse release(CreditHoldResponse hold) {
+        Long result = releaseWithStatus(hold.getHoldId(), hold.getUserId(), hold.getCreditTypeCode(), STATUS_RELEASED);
+        if (result == null || result == -1) {
+            throw new ServiceException(ErrorCode.CREDIT_HOLD_STATE_INVALID);
+        }
+        holdsReleased.increment();
+        return getHold(hold.getHoldId());
+    }
+
+    /**
+     * 查询预授权详情
+     *
+     * @param holdId 预授权ID
+     * @return 预授权详情，不存在时返回null
+     */
+    public CreditHoldResponse getHold(String holdId) {
+        Map<Object, Object> fields;
+        try {
+            fields = stringRedisTemplate.opsForHash().entries(holdKey(holdId));
+        } catch (DataAccessException e) {
+            log.error("查询积分预授权失败，Redis不可用，holdId={}, error={}", holdId, e.getMessage());
+            throw new ServiceException(ErrorCode.CREDIT_SYSTEM_BESSY);
+        }
+        if (fields == null || fields.isEmpty()) {
+            return null;
+        }
+        CreditHoldResponse hold = new CreditHoldResponse();
+        hold.setHoldId(holdId);
+        hold.setUserId(Long.valueOf(String.valueOf(fields.get("userId"))));
+        hold.setCreditTypeCode(String.valueOf(fields.get("creditTypeCode")));
+        hold.setScenarioCode(emptyToNull(fields.get("scenarioCode")));
+        hold.setOrderId(emptyToNull(fields.get("orderId")));
+        hold.setAmount(fromCents(Long.parseLong(String.valueOf(fields.get("amount")))));
+        hold.setCapturedAmount(fromCents(Long.parseLong(String.valueOf(fields.getOrDefault("captured", "0")))));
+        hold.setStatus(String.valueOf(fields.get("status")));
+        long expireAt = Long.parseLong(String.valueOf(fields.get("expireAt")));
+        hold.setExpireTime(LocalDateTime.ofInstant(Instant.ofEpochMilli(expireAt), ZoneId.systemDefault()));
+        return hold;
+    }
+
+    // ================ 过期清理 ================
+
+    /**
+     * 释放已过期且未结算的预授权
+     */
+    @Scheduled(fixedDelay = 30000)
+    public void sweepExpiredHolds() {
+        Set<String> expired;
+        try {
+            expired = stringRedisTemplate.opsForZSet()
+                    .rangeByScore(EXPIRY_KEY, 0, System.currentTimeMillis(), 0, SWEEP_BATCH_SIZE);
+        } catch (DataAccessException e) {
+            log.warn("积分预授权过期清理跳过，Redis不可用: {}", e.getMessage());
+            return;
+        }
+        if (expired == null || expired.isEmpty()) {
+            return;
+        }
+        int released = 0;
+        for (String holdId : expired) {
+            try {
+                CreditHoldResponse hold = getHold(holdId);
+                if (hold == null) {
+                    stringRedisTemplate.opsForZSet().remove(EXPIRY_KEY, holdId);
+                    continue;
+                }
+                Long result = releaseWithStatus(holdId, hold.getUserId(), hold.getCreditTypeCode(), STATUS_EXPIRED);
+                if (result != null && result == 1) {
+                    released++;
+                }
+            } catch (Exception e) {
+                log.warn("积分预授权过期释放失败，holdId={}, error={}", holdId, e.getMessage());
+            }
+        }
+        holdsExpired.add(released);
+        if (released > 0) {
+            log.info("积分预授权过期清理完成，释放数量: {}", released);
+        }
+    }
+
+    // ================ 批量入账 ================
+
+    /**
+     * 按批将结算记录写入 user_credits 与 credit_transactions（多实例下由Redis锁保证单实例执行）
+     */
+    @Scheduled(fixedDelay = 1000)
+    public void reconcileSettlements() {
+        String token = UUID.randomUUID().toString();
+        Boolean locked;
+        try {
+            locked = stringRedisTemplate.opsForValue()
+                    .setIfAbsent(RECONCILE_LOCK_KEY, token, RECONCILE_LOCK_SECONDS, TimeUnit.SECONDS);
+        } catch (DataAccessException e) {
+            log.warn("积分预授权入账跳过，Redis不可用: {}", e.getMessage());
+            return;
+        }
+        if (!Boolean.TRUE.equals(locked)) {
+            return;
+        }
+        try {
+            List<String> raw = stringRedisTemplate.opsForList().range(SETTLE_KEY, 0, resolveReconcileBatchCount() - 1);
+            if (raw == null || raw.isEmpty()) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            Map<String, List<SettleEntry>> groups = new LinkedHashMap<>();
+            List<SettleEntry> retries = new ArrayList<>();
+            for (String json : raw) {
+                SettleEntry entry = fromJson(json);
+                if (entry == null) {
+                    stringRedisTemplate.opsForList().rightPush(SETTLE_FAILED_KEY, json);
+                    settleFailures.increment();
+                    continue;
+                }
+                if (entry.getRetryAt() > now) {
+                    // 退避未到期，原样放回队尾
+                    retries.add(entry);
+                    continue;
+                }
+                groups.computeIfAbsent(entry.getUserId() + ":" + entry.getCreditTypeCode(), k -> new ArrayList<>()).add(entry);
+            }
+            groups.values().forEach(group -> settleAccount(group, retries));
+            // 先放回重试记录再裁剪已读取部分，进程中断时最多重复处理（由幂等键与预授权结算标记去重）
+            for (SettleEntry entry : retries) {
+                stringRedisTemplate.opsForList().rightPush(SETTLE_KEY, toJson(entry));
+            }
+            stringRedisTemplate.opsForList().trim(SETTLE_KEY, raw.size(), -1);
+        } catch (Exception e) {
+            log.error("积分预授权批量入账失败，等待下次重试: {}", e.getMessage(), e);
+        } finally {
+            try {
+                stringRedisTemplate.execute(UNLOCK_SCRIPT, Collections.singletonList(RECONCILE_LOCK_KEY), token);
+            } catch (DataAccessException e) {
+                log.warn("释放积分预授权入账锁失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 单账户入账：一个事务内完成整组扣减与账本写入，user_credits 只更新一次
+     *
+     * - 余额分配排除其他预授权占用：待入账合计包含本组结算金额，扣除本组后作为不可分配的占用积分
+     * - 已入账、幂等重复、余额不足（转入失败队列）的单笔为终态，逐笔扣回待入账合计释放占用（按预授权幂等，重放不会重复扣回）
+     * - 数据库异常等暂时性失败整组退避重试，超过最大次数后转入失败队列，待入账合计保留至人工处理
+     */
+    private void settleAccount(List<SettleEntry> entries, List<SettleEntry> retries) {
+        SettleEntry first = entries.get(0);
+        List<CreditTransaction> ledgers = new ArrayList<>(entries.size());
+        long settlingCents = 0;
+        for (SettleEntry entry : entries) {
+            ledgers.add(toLedger(entry));
+            settlingCents += entry.getAmountCents();
+        }
+        long pendingCents = settlingCents;
+
+        CreditDebitManager.BatchDebitResult result;
+        try {
+            TransactionTemplate template = new TransactionTemplate(transactionManager);
+            result = template.execute(status -> {
+                BigDecimal reserved = creditDebitManager.reservedBalance(first.getUserId(), first.getCreditTypeCode())
+                        .subtract(fromCents(pendingCents)).max(BigDecimal.ZERO);
+                return creditDebitManager.debitBatch(first.getUserId(), first.getCreditTypeCode(), ledgers, reserved);
+            });
+        } catch (ServiceException e) {
+            if (ErrorCode.USER_CREDIT_ACCOUNT_NOT_FOUND.getCode().equals(e.getCode())) {
+                // 账户不存在：重试无意义，整组转入失败队列
+                for (SettleEntry entry : entries) {
+                    fail(entry, "账户不存在");
+                    markSettled(entry);
+                }
+                return;
+            }
+            retryLater(entries, retries, e.getMessage());
+            return;
+        } catch (Exception e) {
+            retryLater(entries, retries, e.getMessage());
+            return;
+        }
+
+        for (int i = 0; i < entries.size(); i++) {
+            SettleEntry entry = entries.get(i);
+            CreditDebitManager.DebitOutcome outcome = result == null ? null : result.getOutcomes().get(i);
+            if (outcome == CreditDebitManager.DebitOutcome.INSUFFICIENT) {
+                fail(entry, "余额不足");
+            } else {
+                settledEntries.increment();
+            }
+            // 幂等重复说明此前已入账，同样扣回待入账合计，避免占用泄漏
+            markSettled(entry);
+        }
+    }
+
+    /**
+     * 暂时性失败：按次数指数退避后重新入队，超过最大次数转入失败队列
+     */
+    private void retryLater(List<SettleEntry> entries, List<SettleEntry> retries, String error) {
+        SettleEntry first = entries.get(0);
+        log.warn("积分预授权入账暂时失败，等待重试，userId={}, creditTypeCode={}, entries={}, error={}",
+                first.getUserId(), first.getCreditTypeCode(), entries.size(), error);
+        long now = System.currentTimeMillis();
+        for (SettleEntry entry : entries) {
+            int attempts = entry.getAttempts() + 1;
+            if (attempts >= MAX_SETTLE_ATTEMPTS) {
+                fail(entry, "重试次数耗尽");
+                continue;
+            }
+            entry.setAttempts(attempts);
+            entry.setRetryAt(now + Math.min(MAX_RETRY_BACKOFF_MILLIS, 1000L << attempts));
+            retries.add(entry);
+        }
+    }
+
+    private void fail(SettleEntry entry, String reason) {
+        log.error("积分预授权入账失败，转入失败队列，reason={}, holdId={}, userId={}, amountCents={}",
+                reason, entry.getHoldId(), entry.getUserId(), entry.getAmountCents());
+        stringRedisTemplate.opsForList().rightPush(SETTLE_FAILED_KEY, toJson(entry));
+        settleFailures.increment();
+    }
+
+    /**
+     * 扣回单笔结算的待入账合计（失败时仅记录，不影响已提交的入账）
+     */
+    private void markSettled(SettleEntry entry) {
+        try {
+            stringRedisTemplate.execute(SETTLED_SCRIPT,
+                    Arrays.asList(accountKey(entry.getUserId(), entry.getCreditTypeCode()), holdKey(entry.getHoldId())),
+                    String.valueOf(entry.getAmountCents()));
+        } catch (DataAccessException e) {
+            log.warn("扣回积分预授权待入账合计失败，holdId={}, error={}", entry.getHoldId(), e.getMessage());
+        }
+    }
+
+    private CreditTransaction toLedger(SettleEntry entry) {
+        CreditTransaction transaction = new CreditTransaction();
+        transaction.setUserSubject(entry.getUserId());
+        transaction.setCreditTypeCode(entry.getCreditTypeCode());
+        transaction.setTransactionType(CreditTransactionType.SPEND.getCode());
+        transaction.setAmount(fromCents(entry.getAmountCents()).negate());
+        transaction.setRelatedOrderId(StringUtils.hasText(entry.getOrderId()) ? entry.getOrderId() : "HOLD-" + entry.getHoldId());
+        transaction.setScenarioCode(entry.getScenarioCode());
+        transaction.setDescription(entry.getDescription());
+        return transaction;
+    }
+
+    // ================ 指标查询 ================
+
+    /**
+     * 获取预授权统计信息
+     *
+     * @return 统计信息
+     */
+    public Map<String, Object> getHoldStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("placed", holdsPlaced.sum());
+        stats.put("insufficient", holdsInsufficient.sum());
+        stats.put("captured", holdsCaptured.sum());
+        stats.put("released", holdsReleased.sum());
+        stats.put("expired", holdsExpired.sum());
+        stats.put("settledEntries", settledEntries.sum());
+        stats.put("settleFailures", settleFailures.sum());
+        try {
+            stats.put("pendingSettlements", stringRedisTemplate.opsForList().size(SETTLE_KEY));
+            stats.put("activeHolds", stringRedisTemplate.opsForZSet().zCard(EXPIRY_KEY));
+        } catch (DataAccessException e) {
+            stats.put("redisError", e.getMessage());
+        }
+        return stats;
+    }
+
+    // ================ 私有辅助方法 ================
+
+    private Long releaseWithStatus(String holdId, Long userId, String creditTypeCode, String status) {
+        return execute(RELEASE_SCRIPT,
+                Arrays.asList(accountKey(userId, creditTypeCode), holdKey(holdId), EXPIRY_KEY),
+                holdId, status);
+    }
+
+    private Long execute(DefaultRedisScript<Long> script, List<String> keys, String... args) {
+        try {
+            return stringRedisTemplate.execute(script, keys, (Object[]) args);
+        } catch (DataAccessException e) {
+            log.error("积分预授权脚本执行失败，keys={}, error={}", keys, e.getMessage());
+            throw new ServiceException(ErrorCode.CREDIT_SYSTEM_BESSY);
+        }
+    }
+
+    private long resolveTtlSeconds() {
+        Integer ttl = systemConfigService.getConfigValueAsInt(SystemConfigKeys.CREDIT_HOLD_TTL_SECONDS, 1800);
+        return ttl == null || ttl < 60 ? 1800 : ttl;
+    }
+
+    private int resolveReconcileBatchCount() {
+        Integer count = systemConfigService.getConfigValueAsInt(SystemConfigKeys.CREDIT_HOLD_RECONCILE_BATCH_COUNT, 200);
+        return count == null || count < 1 ? 200 : count;
+    }
+
+    private String toJson(SettleEntry entry) {
+        try {
+            return objectMapper.writeValueAsString(entry);
+        } catch (JsonProcessingException e) {
+            throw new ServiceException(ErrorCode.CREDIT_SYSTEM_BESSY);
+        }
+    }
+
+    private SettleEntry fromJson(String json) {
+        try {
+            return objectMapper.readValue(json, SettleEntry.class);
+        } catch (JsonProcessingException e) {
+            log.error("积分预授权入账记录解析失败，转入失败队列: {}", json);
+            return null;
+        }
+    }
+
+    private static String holdKey(String holdId) {
+        return HOLD_KEY_PREFIX + holdId;
+    }
+
+    private static String accountKey(Long userId, String creditTypeCode) {
+        return CreditHoldReservations.accountKey(userId, creditTypeCode);
+    }
+
+    private static long toCents(BigDecimal amount) {
+        return CreditHoldReservations.toCents(amount);
+    }
+
+    private static BigDecimal fromCents(long cents) {
+        return CreditHoldReservations.fromCents(cents);
+    }
+
+    private static String emptyToNull(Object value) {
+        return value == null || String.valueOf(value).isEmpty() ? null : String.valueOf(value);
+    }
+}
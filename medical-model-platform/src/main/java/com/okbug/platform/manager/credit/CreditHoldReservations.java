@@ -0,0 +1,96 @@
+/**
+ * 积分预授权占用读取器：读取账户在Redis中的预授权占用合计，供扣减路径排除预授权中与待入账的积分
+ *
+ * 功能描述：
+ * 1. 维护账户预授权合计键 credit:hold:account:{userId}:{typeCode}（Hash：held 预授权中、captured 已结算待入账，单位：分）
+ * 2. 单次 HMGET 读取 held + captured 作为不可扣减的占用积分
+ *
+ * 使用约束：
+ * - 合计仅由 CreditHoldManager 的Lua脚本原子增减，本类只读
+ * - Redis不可用时无法确认占用，扣减按系统繁忙拒绝（不放行可能已被预授权的积分）
+ *
+ * @author hanjor
+ * @version 1.0
+ * @date 2026-10-17 16:40:00
+ */
+package com.okbug.platform.manager.credit;
+
+import com.okbug.platform.common.base.ErrorCode;
+import com.okbug.platform.common.base.ServiceException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.List;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CreditHoldReservations {
+
+    static final String ACCOUNT_KEY_PREFIX = "credit:hold:account:";
+    static final String FIELD_HELD = "held";
+    static final String FIELD_CAPTURED = "captured";
+    static final int AMOUNT_SCALE = 2;
+
+    private static final List<Object> FIELDS = Arrays.asList(FIELD_HELD, FIELD_CAPTURED);
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 读取账户的预授权占用积分（预授权中 + 已结算待入账）
+     *
+     * @param userId 用户ID
+     * @param creditTypeCode 积分类型编码
+     * @return 占用积分，无预授权时为0
+     * @throws ServiceException Redis不可用
+     */
+    public BigDecimal reserved(Long userId, String creditTypeCode) {
+        return fromCents(reservedCents(userId, creditTypeCode));
+    }
+
+    /**
+     * 读取账户的预授权占用积分（单位：分）
+     *
+     * @param userId 用户ID
+     * @param creditTypeCode 积分类型编码
+     * @return 占用积分（分），不低于0
+     * @throws ServiceException Redis不可用
+     */
+    public long reservedCents(Long userId, String creditTypeCode) {
+        List<Object> values;
+        try {
+            values = stringRedisTemplate.opsForHash().multiGet(accountKey(userId, creditTypeCode), FIELDS);
+        } catch (DataAccessException e) {
+            log.error("读取积分预授权占用失败，Redis不可用，userId={}, creditTypeCode={}, error={}",
+                    userId, creditTypeCode, e.getMessage());
+            throw new ServiceException(ErrorCode.CREDIT_SYSTEM_BESSY);
+        }
+        long cents = 0;
+        if (values != null) {
+            for (Object value : values) {
+                if (value != null) {
+                    cents += Long.parseLong(String.valueOf(value));
+                }
+            }
+        }
+        return Math.max(cents, 0);
+    }
+
+    static String accountKey(Long userId, String creditTypeCode) {
+        return ACCOUNT_KEY_PREFIX + userId + ":" + creditTypeCode;
+    }
+
+    static long toCents(BigDecimal amount) {
+        return amount.setScale(AMOUNT_SCALE, RoundingMode.HALF_UP).movePointRight(AMOUNT_SCALE).longValueExact();
+    }
+
+    static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, AMOUNT_SCALE);
+    }
+}
@@ -0,0 +1,372 @@
+/**
+ * 积分交易汇总管理器：维护小时/自然日汇总表，并为统计查询组合汇总与明细
+ *
+ * 功能描述：
+ * 1. 增量汇总：后台任务按创建时间分批推进，每批一个事务内认领交易、写入汇总行并推进已覆盖时间点
+ * 2. 落定延迟：创建时间晚于"当前时间-延迟"的交易暂不汇总，等待并发事务提交
+ * 3. 重扫窗口：每批从"已覆盖时间点-窗口"开始扫描，认领记录按交易ID去重，晚提交的交易在窗口内补充汇总
+ * 4. 重建：清空汇总表与去重表并重置覆盖时间点，由后台任务从头重算
+ * 5. 查询：已完整汇总的整点区间读汇总表（整日用DAY、零散小时用HOUR），区间首尾与未汇总的开放区间回退为明细聚合
+ *
+ * 说明：交易ID（IdWorker）与创建时间都在提交前生成，多节点间也不保证有序，不能作为提交顺序的高水位；
+ * 提交晚于创建时间超过"落定延迟+重扫窗口"的交易不会被汇总（统计结果偏少，重建可修正）；
+ * 团队维度按查询时的团队成员过滤（汇总行按用户聚合），汇总区间与明细区间口径一致
+ *
+ * 多实例下由Redis锁保证同一时刻只有一个实例执行汇总或重建
+ *
+ * @author hanjor
+ * @version 1.0
+ * @date 2026-10-17 19:00:00
+ */
+package com.okbug.platform.manager.credit;
+
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
+import com.okbug.platform.common.base.ErrorCode;
+import com.okbug.platform.common.base.ServiceException;
+import com.okbug.platform.common.constants.SystemConfigKeys;
+import com.okbug.platform.entity.credit.CreditRollupState;
+import com.okbug.platform.entity.credit.CreditTransactionRollup;
+import com.okbug.platform.mapper.credit.CreditRollupStateMapper;
+import com.okbug.platform.mapper.credit.CreditTransactionMapper;
+import com.okbug.platform.mapper.credit.CreditTransactionRollupMapper;
+import com.okbug.platform.service.system.SystemConfigService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CreditRollupManager {
+
+    public static final String ROLLUP_NAME = "credit_transactions";
+
+    private static final String LOCK_KEY = "credit:rollup:lock";
+    private static final long LOCK_SECONDS = 120L;
+    private static final int PRUNE_BATCH_SIZE = 5000;
+
+    /**
+     * 覆盖时间点为空（首次汇总或重建后）时的扫描起点
+     */
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private static final DefaultRedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end return 0",
+            Long.class);
+
+    private static final DefaultRedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('EXPIRE', KEYS[1], ARGV[2]) end return 0",
+            Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final CreditTransactionMapper creditTransactionMapper;
+    private final CreditTransactionRollupMapper creditTransactionRollupMapper;
+    private final CreditRollupStateMapper creditRollupStateMapper;
+    private final PlatformTransactionManager transactionManager;
+    private final SystemConfigService systemConfigService;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder transactionsRolledUp = new LongAdder();
+    private final LongAdder rebuilds = new LongAdder();
+    private final LongAdder rollupSegments = new LongAdder();
+    private final LongAdder rawSegments = new LongAdder();
+
+    // ================ 增量汇总 ================
+
+    /**
+     * 按创建时间增量汇总，直到追平落定时间点
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void rollupIncrementally() {
+        if (!isEnabled()) {
+            return;
+        }
+        String token = tryLock();
+        if (token == null) {
+            return;
+        }
+        try {
+            int batchSize = Math.max(1, systemConfigService.getConfigValueAsInt(
+                    SystemConfigKeys.CREDIT_ROLLUP_BATCH_COUNT, 5000));
+            long settleSeconds = Math.max(0, systemConfigService.getConfigValueAsInt(
+                    SystemConfigKeys.CREDIT_ROLLUP_SETTLE_DURATION_SECONDS, 60));
+            long overlapSeconds = Math.max(0, systemConfigService.getConfigValueAsInt(
+                    SystemConfigKeys.CREDIT_ROLLUP_OVERLAP_DURATION_SECONDS, 600));
+            TransactionTemplate template = new TransactionTemplate(transactionManager);
+            boolean more = true;
+            while (more) {
+                LocalDateTime cutoff = LocalDateTime.now().minusSeconds(settleSeconds).truncatedTo(ChronoUnit.SECONDS);
+                more = Boolean.TRUE.equals(template.execute(status -> rollupBatch(batchSize, cutoff, overlapSeconds)));
+                if (more && !renewLock(token)) {
+                    log.warn("积分交易汇总锁已失效，等待下次调度继续");
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.error("积分交易汇总失败，等待下次重试: {}", e.getMessage(), e);
+        } finally {
+            unlock(token);
+        }
+    }
+
+    /**
+     * 认领并汇总一批交易，推进已覆盖时间点；追平后清理重扫窗口之前的去重记录
+     *
+     * @return 是否仍有待汇总的交易
+     */
+    private boolean rollupBatch(int batchSize, LocalDateTime cutoff, long overlapSeconds) {
+        CreditRollupState state = lockState();
+        LocalDateTime coveredUntil = state.getCoveredUntil();
+        LocalDateTime fromTime = coveredUntil != null ? coveredUntil.minusSeconds(overlapSeconds) : EPOCH;
+
+        long batchId = IdWorker.getId();
+        int count = creditTransactionRollupMapper.claimPending(batchId, fromTime, cutoff, batchSize);
+        LocalDateTime lastTime = null;
+        if (count > 0) {
+            creditTransactionRollupMapper.upsertHourly(batchId);
+            creditTransactionRollupMapper.upsertDaily(batchId);
+            lastTime = creditTransactionRollupMapper.selectMaxCreateTime(batchId);
+            transactionsRolledUp.add(count);
+        }
+        batches.increment();
+        boolean caughtUp = count < batchSize;
+
+        // 未追平时只覆盖到本批最晚创建时间（按创建时间顺序认领，更早的已提交交易均已认领）
+        LocalDateTime covered = caughtUp ? cutoff : lastTime;
+        if (covered != null && (coveredUntil == null || covered.isAfter(coveredUntil))) {
+            state.setCoveredUntil(covered);
+        }
+        state.setUpdateTime(LocalDateTime.now());
+        creditRollupStateMapper.updateById(state);
+
+        if (caughtUp && state.getCoveredUntil() != null) {
+            creditTransactionRollupMapper.pruneApplied(state.getCoveredUntil().minusSeconds(overlapSeconds), PRUNE_BATCH_SIZE);
+        }
+        return !caughtUp;
+    }
+
+    private CreditRollupState lockState() {
+        CreditRollupState state = creditRollupStateMapper.selectForUpdate(ROLLUP_NAME);
+        if (state != null) {
+            return state;
+        }
+        CreditRollupState initial = new CreditRollupState();
+        initial.setRollupName(ROLLUP_NAME);
+        initial.setUpdateTime(LocalDateTime.now());
+        try {
+            creditRollupStateMapper.insert(initial);
+        } catch (DuplicateKeyException e) {
+            log.debug("积分汇总进度已由其他实例初始化");
+        }
+        return creditRollupStateMapper.selectForUpdate(ROLLUP_NAME);
+    }
+
+    // ================ 重建 ================
+
+    /**
+     * 重建汇总：重置覆盖时间点并清空汇总表与去重表，由后台任务从头重算
+     *
+     * 重建期间统计查询因覆盖时间点为空而全部回退为明细聚合
+     *
+     * @return 重建后的汇总状态
+     * @throws ServiceException 汇总任务正在执行
+     */
+    public Map<String, Object> rebuild() {
+        String token = tryLock();
+        if (token == null) {
+            throw new ServiceException(ErrorCode.CREDIT_ROLLUP_BUSY);
+        }
+        try {
+            // 先重置进度再清空汇总表：任一时刻读方都不会把空表当作已覆盖
+            ensureState();
+            creditRollupStateMapper.update(null, new LambdaUpdateWrapper<CreditRollupState>()
+                    .set(CreditRollupState::getCoveredUntil, null)
+                    .set(CreditRollupState::getUpdateTime, LocalDateTime.now())
+                    .eq(CreditRollupState::getRollupName, ROLLUP_NAME));
+            creditTransactionRollupMapper.truncate();
+            creditTransactionRollupMapper.truncateApplied();
+            rebuilds.increment();
+            log.info("积分交易汇总已重置，等待后台任务从头重算");
+        } finally {
+            unlock(token);
+        }
+        return getRollupStats();
+    }
+
+    private void ensureState() {
+        if (creditRollupStateMapper.selectById(ROLLUP_NAME) == null) {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> lockState());
+        }
+    }
+
+    // ================ 统计查询 ================
+
+    /**
+     * 按积分类型、交易类型汇总 [startTime, endTime) 内的交易
+     *
+     * 已完整汇总的整点区间读汇总表，其余区间（首尾零散部分、尚未汇总的开放区间）读明细
+     *
+     * @param startTime 开始时间（含）
+     * @param endTime 结束时间（不含）
+     * @param teamId 团队ID（可选）
+     * @return 每组一行：credit_type_code, transaction_type, tx_count, total_amount
+     */
+    public List<Map<String, Object>> summarizeByType(LocalDateTime startTime, LocalDateTime endTime, Long teamId) {
+        Map<String, Map<String, Object>> merged = new LinkedHashMap<>();
+        LocalDateTime coveredUntil = resolveCoveredUntil();
+
+        LocalDateTime rollupStart = ceil(startTime, ChronoUnit.HOURS);
+        LocalDateTime rollupEnd = coveredUntil == null ? rollupStart
+                : min(endTime.truncatedTo(ChronoUnit.HOURS), coveredUntil.truncatedTo(ChronoUnit.HOURS));
+        if (!rollupStart.isBefore(rollupEnd)) {
+            mergeRaw(merged, startTime, endTime, teamId);
+            return new ArrayList<>(merged.values());
+        }
+
+        if (startTime.isBefore(rollupStart)) {
+            mergeRaw(merged, startTime, rollupStart, teamId);
+        }
+        LocalDateTime dayStart = ceil(rollupStart, ChronoUnit.DAYS);
+        LocalDateTime dayEnd = rollupEnd.truncatedTo(ChronoUnit.DAYS);
+        if (dayStart.isBefore(dayEnd)) {
+            mergeRollup(merged, CreditTransactionRollup.BUCKET_HOUR, rollupStart, dayStart, teamId);
+            mergeRollup(merged, CreditTransactionRollup.BUCKET_DAY, dayStart, dayEnd, teamId);
+            mergeRollup(merged, CreditTransactionRollup.BUCKET_HOUR, dayEnd, rollupEnd, teamId);
+        } else {
+            mergeRollup(merged, CreditTransactionRollup.BUCKET_HOUR, rollupStart, rollupEnd, teamId);
+        }
+        if (rollupEnd.isBefore(endTime)) {
+            mergeRaw(merged, rollupEnd, endTime, teamId);
+        }
+        return new ArrayList<>(merged.values());
+    }
+
+    /**
+     * 获取汇总统计信息
+     */
+    public Map<String, Object> getRollupStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", isEnabled());
+        stats.put("batches", batches.sum());
+        stats.put("transactionsRolledUp", transactionsRolledUp.sum());
+        stats.put("rebuilds", rebuilds.sum());
+        stats.put("rollupSegments", rollupSegments.sum());
+        stats.put("rawSegments", rawSegments.sum());
+        try {
+            CreditRollupState state = creditRollupStateMapper.selectById(ROLLUP_NAME);
+            stats.put("coveredUntil", state != null ? state.getCoveredUntil() : null);
+        } catch (DataAccessException e) {
+            stats.put("stateError", e.getMessage());
+        }
+        return stats;
+    }
+
+    // ================ 私有辅助方法 ================
+
+    private void mergeRollup(Map<String, Map<String, Object>> merged, String bucketType,
+                             LocalDateTime start, LocalDateTime end, Long teamId) {
+        if (!start.isBefore(end)) {
+            return;
+        }
+        rollupSegments.increment();
+        merge(merged, creditTransactionRollupMapper.selectAmountGroupByType(bucketType, start, end, teamId));
+    }
+
+    private void mergeRaw(Map<String, Map<String, Object>> merged, LocalDateTime start, LocalDateTime end, Long teamId) {
+        rawSegments.increment();
+        merge(merged, creditTransactionMapper.selectAmountGroupByType(start, end, teamId));
+    }
+
+    private void merge(Map<String, Map<String, Object>> merged, List<Map<String, Object>> rows) {
+        for (Map<String, Object> row : rows) {
+            String creditTypeCode = (String) row.get("credit_type_code");
+            String transactionType = (String) row.get("transaction_type");
+            Map<String, Object> target = merged.computeIfAbsent(creditTypeCode + "#" + transactionType, k -> {
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("credit_type_code", creditTypeCode);
+                item.put("transaction_type", transactionType);
+                item.put("tx_count", 0L);
+                item.put("total_amount", BigDecimal.ZERO);
+                return item;
+            });
+            target.put("tx_count", (Long) target.get("tx_count") + toDecimal(row.get("tx_count")).longValue());
+            target.put("total_amount", ((BigDecimal) target.get("total_amount")).add(toDecimal(row.get("total_amount"))));
+        }
+    }
+
+    private LocalDateTime resolveCoveredUntil() {
+        if (!isEnabled()) {
+            return null;
+        }
+        CreditRollupState state = creditRollupStateMapper.selectById(ROLLUP_NAME);
+        return state != null ? state.getCoveredUntil() : null;
+    }
+
+    private boolean isEnabled() {
+        return Boolean.TRUE.equals(systemConfigService.getConfigValueAsBoolean(SystemConfigKeys.CREDIT_ROLLUP_ENABLED, true));
+    }
+
+    private String tryLock() {
+        String token = UUID.randomUUID().toString();
+        try {
+            Boolean locked = stringRedisTemplate.opsForValue()
+                    .setIfAbsent(LOCK_KEY, token, LOCK_SECONDS, TimeUnit.SECONDS);
+            return Boolean.TRUE.equals(locked) ? token : null;
+        } catch (DataAccessException e) {
+            log.warn("积分交易汇总跳过，Redis不可用: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private boolean renewLock(String token) {
+        try {
+            Long renewed = stringRedisTemplate.execute(RENEW_SCRIPT, Collections.singletonList(LOCK_KEY),
+                    token, String.valueOf(LOCK_SECONDS));
+            return renewed != null && renewed > 0;
+        } catch (DataAccessException e) {
+            log.warn("续期积分交易汇总锁失败: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private void unlock(String token) {
+        try {
+            stringRedisTemplate.execute(UNLOCK_SCRIPT, Collections.singletonList(LOCK_KEY), token);
+        } catch (DataAccessException e) {
+            log.warn("释放积分交易汇总锁失败: {}", e.getMessage());
+        }
+    }
+
+    private static LocalDateTime ceil(LocalDateTime time, ChronoUnit unit) {
+        LocalDateTime floor = time.truncatedTo(unit);
+        return floor.equals(time) ? time : floor.plus(1, unit);
+    }
+
+    private static LocalDateTime min(LocalDateTime a, LocalDateTime b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    private static BigDecimal toDecimal(Object value) {
+        return value == null ? BigDecimal.ZERO : new BigDecimal(value.toString());
+    }
+}
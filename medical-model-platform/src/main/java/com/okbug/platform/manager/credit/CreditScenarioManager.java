@@ -2,16 +2,16 @@
  * 积分场景配置管理器：统一管理积分使用场景的动态配置
  * 
  * 功能描述：
- * 1. 提供积分场景配置的缓存管理
+ * 1. 提供积分场景与积分类型配置的缓存管理
  * 2. 支持动态配置热更新
  * 3. 统一场景配置的访问接口
- * 4. 优化数据库查询性能
+ * 4. 优化数据库查询性能：扣费热路径的场景/类型解析不再访问数据库
  * 
  * 核心特性：
- * - 内存缓存 + 定时刷新
+ * - 不可变快照 + 原子替换：读路径无锁，刷新期间读到的始终是完整的旧快照或新快照
+ * - 定时刷新 + 写后刷新（事务提交后）+ Redis发布订阅跨节点失效
  * - 类型安全的场景编码访问
- * - 配置变更事件通知
- * - 降级策略支持
+ * - 降级策略支持：快照未加载成功时回退数据库查询
  * 
  * @author hanjor
  * @version 1.0
@@ -20,57 +20,109 @@
 package com.okbug.platform.manager.credit;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.okbug.platform.entity.credit.CreditType;
 import com.okbug.platform.entity.credit.CreditUsageScenario;
 import com.okbug.platform.common.enums.credit.CreditScenarioCode;
+import com.okbug.platform.mapper.credit.CreditTypeMapper;
 import com.okbug.platform.mapper.credit.CreditUsageScenarioMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
 import jakarta.annotation.PostConstruct;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Component
 public class CreditScenarioManager {
     
+    /**
+     * 跨节点配置变更通知频道，消息体为发布节点ID
+     */
+    public static final String CONFIG_CHANGED_CHANNEL = "credit:config:changed";
+    
     @Autowired
     private CreditUsageScenarioMapper creditScenarioMapper;
     
-    /**
-     * 场景配置缓存：scenarioCode -> CreditUsageScenario
-     */
-    private final Map<String, CreditUsageScenario> scenarioCache = new ConcurrentHashMap<>();
+    @Autowired
+    private CreditTypeMapper creditTypeMapper;
+    
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
     
     /**
-     * 奖励场景缓存：便于快速查找奖励场景
+     * 当前节点ID：忽略自身发布的变更通知
      */
-    private final Map<String, CreditUsageScenario> rewardScenarioCache = new ConcurrentHashMap<>();
+    private final String nodeId = UUID.randomUUID().toString();
     
     /**
-     * 消费场景缓存：便于快速查找消费场景
+     * 当前配置快照，刷新时整体替换
      */
-    private final Map<String, CreditUsageScenario> consumptionScenarioCache = new ConcurrentHashMap<>();
+    private volatile ConfigSnapshot snapshot = ConfigSnapshot.EMPTY;
     
     /**
-     * 缓存最后更新时间
+     * 积分配置不可变快照
      */
-    private volatile long lastUpdateTime = 0;
+    private static final class ConfigSnapshot {
+        
+        private static final ConfigSnapshot EMPTY = new ConfigSnapshot(
+                Collections.emptyMap(), Collections.emptyMap(), Collections.emptyMap(),
+                Collections.emptyMap(), Collections.emptyMap(), 0);
+        
+        /** 全部场景（含禁用）：scenarioCode -> CreditUsageScenario */
+        private final Map<String, CreditUsageScenario> allScenarios;
+        /** 启用场景：scenarioCode -> CreditUsageScenario */
+        private final Map<String, CreditUsageScenario> scenarios;
+        /** 启用的奖励场景 */
+        private final Map<String, CreditUsageScenario> rewardScenarios;
+        /** 启用的消费场景 */
+        private final Map<String, CreditUsageScenario> consumptionScenarios;
+        /** 全部积分类型（含禁用）：typeCode -> CreditType */
+        private final Map<String, CreditType> creditTypes;
+        /** 加载时间，0 表示尚未成功加载 */
+        private final long loadedAt;
+        
+        private ConfigSnapshot(Map<String, CreditUsageScenario> allScenarios,
+                               Map<String, CreditUsageScenario> scenarios,
+                               Map<String, CreditUsageScenario> rewardScenarios,
+                               Map<String, CreditUsageScenario> consumptionScenarios,
+                               Map<String, CreditType> creditTypes,
+                               long loadedAt) {
+            this.allScenarios = allScenarios;
+            this.scenarios = scenarios;
+            this.rewardScenarios = rewardScenarios;
+            this.consumptionScenarios = consumptionScenarios;
+            this.creditTypes = creditTypes;
+            this.loadedAt = loadedAt;
+        }
+    }
     
     // ================ 初始化方法 ================
     
     /**
-     * 启动时初始化缓存
+     * 启动时初始化缓存并订阅跨节点变更通知
      */
     @PostConstruct
     public void initializeCache() {
         log.info("初始化积分场景配置缓存");
         refreshCache();
+        try {
+            redisMessageListenerContainer.addMessageListener(this::onConfigChanged, new ChannelTopic(CONFIG_CHANGED_CHANNEL));
+        } catch (Exception e) {
+            log.warn("订阅积分配置变更通知失败，仅依赖定时刷新: {}", e.getMessage());
+        }
     }
     
     /**
@@ -89,40 +141,116 @@ public class CreditScenarioManager {
         try {
             log.debug("开始刷新积分场景配置缓存");
             
-            // 从数据库获取所有启用的场景配置（直接使用Mapper，避免与Service形成循环依赖）
+            // 从数据库获取全部场景与积分类型（直接使用Mapper，避免与Service形成循环依赖）
             LambdaQueryWrapper<CreditUsageScenario> queryWrapper = new LambdaQueryWrapper<>();
-            queryWrapper.eq(CreditUsageScenario::getStatus, CreditUsageScenario.STATUS_ENABLED);
             queryWrapper.orderByAsc(CreditUsageScenario::getId);
-            List<CreditUsageScenario> scenarios = creditScenarioMapper.selectList(queryWrapper);
+            List<CreditUsageScenario> scenarioList = creditScenarioMapper.selectList(queryWrapper);
             
-            // 清空缓存
-            scenarioCache.clear();
-            rewardScenarioCache.clear();
-            consumptionScenarioCache.clear();
+            LambdaQueryWrapper<CreditType> typeQuery = new LambdaQueryWrapper<>();
+            typeQuery.orderByAsc(CreditType::getSortOrder);
+            List<CreditType> typeList = creditTypeMapper.selectList(typeQuery);
             
-            // 重新构建缓存
-            for (CreditUsageScenario scenario : scenarios) {
+            // 构建新快照
+            Map<String, CreditUsageScenario> allScenarios = new LinkedHashMap<>();
+            Map<String, CreditUsageScenario> scenarios = new LinkedHashMap<>();
+            Map<String, CreditUsageScenario> rewardScenarios = new LinkedHashMap<>();
+            Map<String, CreditUsageScenario> consumptionScenarios = new LinkedHashMap<>();
+            for (CreditUsageScenario scenario : scenarioList) {
                 String code = scenario.getScenarioCode();
-                scenarioCache.put(code, scenario);
+                allScenarios.put(code, scenario);
+                if (!scenario.isEnabled()) {
+                    continue;
+                }
+                scenarios.put(code, scenario);
                 
                 // 分类缓存
                 if (scenario.isRewardScenario()) {
-                    rewardScenarioCache.put(code, scenario);
+                    rewardScenarios.put(code, scenario);
                 } else if (scenario.isConsumptionScenario()) {
-                    consumptionScenarioCache.put(code, scenario);
+                    consumptionScenarios.put(code, scenario);
                 }
             }
+            Map<String, CreditType> creditTypes = new LinkedHashMap<>();
+            for (CreditType creditType : typeList) {
+                creditTypes.put(creditType.getTypeCode(), creditType);
+            }
             
-            lastUpdateTime = System.currentTimeMillis();
+            // 原子替换
+            snapshot = new ConfigSnapshot(
+                    Collections.unmodifiableMap(allScenarios),
+                    Collections.unmodifiableMap(scenarios),
+                    Collections.unmodifiableMap(rewardScenarios),
+                    Collections.unmodifiableMap(consumptionScenarios),
+                    Collections.unmodifiableMap(creditTypes),
+                    System.currentTimeMillis());
             
-            log.info("积分场景配置缓存刷新完成，共加载 {} 个场景，其中奖励场景 {} 个，消费场景 {} 个", 
-                scenarios.size(), rewardScenarioCache.size(), consumptionScenarioCache.size());
+            log.info("积分场景配置缓存刷新完成，共加载 {} 个启用场景，其中奖励场景 {} 个，消费场景 {} 个，积分类型 {} 个", 
+                scenarios.size(), rewardScenarios.size(), consumptionScenarios.size(), creditTypes.size());
                 
         } catch (Exception e) {
             log.error("刷新积分场景配置缓存失败", e);
         }
     }
     
+    /**
+     * 刷新本节点缓存并通知其他节点刷新（场景/类型写操作事务提交后调用）
+     */
+    public void refreshAndBroadcast() {
+        refreshCache();
+        try {
+            stringRedisTemplate.convertAndSend(CONFIG_CHANGED_CHANNEL, nodeId);
+        } catch (Exception e) {
+            log.warn("发布积分配置变更通知失败，其他节点将在定时刷新时生效: {}", e.getMessage());
+        }
+    }
+    
+    private void onConfigChanged(Message message, byte[] pattern) {
+        String publisher = new String(message.getBody(), StandardCharsets.UTF_8);
+        if (nodeId.equals(publisher)) {
+            return;
+        }
+        log.info("收到积分配置变更通知，刷新本地快照");
+        refreshCache();
+    }
+    
+    // ================ 热路径解析 ================
+    
+    /**
+     * 根据场景编码解析场景（含禁用场景，由调用方判断启用状态）
+     * 
+     * @param scenarioCode 场景编码
+     * @return 场景配置，不存在则返回null
+     */
+    public CreditUsageScenario findScenario(String scenarioCode) {
+        if (!StringUtils.hasText(scenarioCode)) {
+            return null;
+        }
+        ConfigSnapshot current = snapshot;
+        if (current.loadedAt == 0) {
+            // 降级：快照尚未加载成功
+            return creditScenarioMapper.selectByScenarioCode(scenarioCode);
+        }
+        return current.allScenarios.get(scenarioCode.trim());
+    }
+    
+    /**
+     * 根据类型编码解析积分类型（含禁用类型，由调用方判断启用状态）
+     * 
+     * @param typeCode 积分类型编码
+     * @return 积分类型，不存在则返回null
+     */
+    public CreditType findCreditType(String typeCode) {
+        if (!StringUtils.hasText(typeCode)) {
+            return null;
+        }
+        ConfigSnapshot current = snapshot;
+        if (current.loadedAt == 0) {
+            // 降级：快照尚未加载成功
+            return creditTypeMapper.selectOne(new LambdaQueryWrapper<CreditType>().eq(CreditType::getTypeCode, typeCode));
+        }
+        return current.creditTypes.get(typeCode.trim());
+    }
+    
     // ================ 场景配置查询 ================
     
     /**
@@ -136,7 +264,7 @@ public class CreditScenarioManager {
             return null;
         }
         
-        CreditUsageScenario scenario = scenarioCache.get(scenarioCode.trim());
+        CreditUsageScenario scenario = snapshot.scenarios.get(scenarioCode.trim());
         if (scenario == null) {
             log.warn("未找到场景配置，场景编码: {}", scenarioCode);
         }
@@ -218,7 +346,7 @@ public class CreditScenarioManager {
      * @return 奖励场景配置列表
      */
     public List<CreditUsageScenario> getRewardScenarios() {
-        return new ArrayList<>(rewardScenarioCache.values());
+        return new ArrayList<>(snapshot.rewardScenarios.values());
     }
     
     /**
@@ -227,7 +355,7 @@ public class CreditScenarioManager {
      * @return 消费场景配置列表
      */
     public List<CreditUsageScenario> getConsumptionScenarios() {
-        return new ArrayList<>(consumptionScenarioCache.values());
+        return new ArrayList<>(snapshot.consumptionScenarios.values());
     }
     
     // ================ 场景规则验证 ================
@@ -330,12 +458,14 @@ public class CreditScenarioManager {
      * @return 缓存统计信息
      */
     public Map<String, Object> getCacheStats() {
+        ConfigSnapshot current = snapshot;
         Map<String, Object> stats = new HashMap<>();
-        stats.put("totalScenarios", scenarioCache.size());
-        stats.put("rewardScenarios", rewardScenarioCache.size());
-        stats.put("consumptionScenarios", consumptionScenarioCache.size());
-        stats.put("lastUpdateTime", new Date(lastUpdateTime));
-        stats.put("cacheKeys", new ArrayList<>(scenarioCache.keySet()));
+        stats.put("totalScenarios", current.scenarios.size());
+        stats.put("rewardScenarios", current.rewardScenarios.size());
+        stats.put("consumptionScenarios", current.consumptionScenarios.size());
+        stats.put("creditTypes", current.creditTypes.size());
+        stats.put("lastUpdateTime", new Date(current.loadedAt));
+        stats.put("cacheKeys", new ArrayList<>(current.scenarios.keySet()));
         
         return stats;
     }
@@ -345,10 +475,7 @@ public class CreditScenarioManager {
      */
     public void clearCache() {
         log.info("清空积分场景配置缓存");
-        scenarioCache.clear();
-        rewardScenarioCache.clear();
-        consumptionScenarioCache.clear();
-        lastUpdateTime = 0;
+        snapshot = ConfigSnapshot.EMPTY;
     }
     
     /**
@@ -367,7 +494,7 @@ public class CreditScenarioManager {
      * @return 场景编码列表
      */
     public List<String> getEnabledScenarioCodes() {
-        return scenarioCache.values().stream()
+        return snapshot.scenarios.values().stream()
                 .filter(CreditUsageScenario::isEnabled)
                 .map(CreditUsageScenario::getScenarioCode)
                 .collect(Collectors.toList());
@@ -384,7 +511,7 @@ public class CreditScenarioManager {
             return Collections.emptyList();
         }
         
-        return scenarioCache.values().stream()
+        return snapshot.scenarios.values().stream()
                 .filter(scenario -> scenario.isEnabled() && scenario.hasRolePermission(userRole))
                 .collect(Collectors.toList());
     }
@@ -396,6 +523,6 @@ public class CreditScenarioManager {
      * @return true:有效 false:无效
      */
     public boolean isValidScenarioCode(String scenarioCode) {
-        return StringUtils.hasText(scenarioCode) && scenarioCache.containsKey(scenarioCode.trim());
+        return StringUtils.hasText(scenarioCode) && snapshot.scenarios.containsKey(scenarioCode.trim());
     }
 }
@@ -51,7 +51,9 @@ public interface OperationLogMapper extends BaseMapper<OperationLog> {
                                                 @Param("orderBy") String orderBy);
 
     /**
-     * 分页查询操作日志（通过用户ID/用户名集合进行过滤）
+     * 分页查询操作日志（通过用户ID/用户名集合进行过滤，可叠加数据域子查询）
+     * 
+     * 注意：scopeSql 仅接受 DataScope 以数值ID拼装的子查询，不可传入外部输入
      */
     @Select("<script>" +
             "SELECT * FROM operation_logs " +
@@ -66,6 +68,7 @@ public interface OperationLogMapper extends BaseMapper<OperationLog> {
             "    </if>" +
             "  )" +
             "</if>" +
+            "<if test='scopeSql != null'> AND user_id IN (${scopeSql}) </if>" +
             "<if test='operationModule != null and operationModule != \"\"'> AND operation_module = #{operationModule} </if>" +
             "<if test='operationStatus != null'> AND operation_status = #{operationStatus} </if>" +
             "<if test='keyword != null and keyword != \"\"'> AND (operation_desc LIKE CONCAT('%', #{keyword}, '%') OR request_url LIKE CONCAT('%', #{keyword}, '%')) </if>" +
@@ -79,6 +82,7 @@ public interface OperationLogMapper extends BaseMapper<OperationLog> {
     IPage<OperationLog> selectPageWithUserFilters(Page<OperationLog> page,
                                                  @Param("userIds") List<Long> userIds,
                                                  @Param("usernames") List<String> usernames,
+                                                 @Param("scopeSql") String scopeSql,
                                                  @Param("operationModule") String operationModule,
                                                  @Param("operationStatus") Integer operationStatus,
                                                  @Param("keyword") String keyword,
@@ -95,16 +99,11 @@ public interface OperationLogMapper extends BaseMapper<OperationLog> {
     int deleteExpiredLogs(@Param("expireTime") LocalDateTime expireTime);
 
     /**
-     * 批量删除过期日志（限定用户范围）
+     * 批量删除过期日志（限定数据域，scopeSql 为 DataScope 生成的用户ID子查询）
      */
-    @Delete("<script>" +
-            "DELETE FROM operation_logs " +
-            "WHERE operation_time &lt; #{expireTime} " +
-            "AND user_id IN " +
-            "<foreach collection='userIds' item='id' open='(' separator=',' close=')'> #{id} </foreach>" +
-            "</script>")
-    int deleteExpiredLogsByUserIds(@Param("expireTime") LocalDateTime expireTime,
-                                   @Param("userIds") List<Long> userIds);
+    @Delete("DELETE FROM operation_logs WHERE operation_time < #{expireTime} AND user_id IN (${scopeSql})")
+    int deleteExpiredLogsInScope(@Param("expireTime") LocalDateTime expireTime,
+                                 @Param("scopeSql") String scopeSql);
 
     
 } 
@@ -0,0 +1,78 @@
+/**
+ * 用户层级闭包Mapper接口：维护子账号树的祖先-后代关系
+ * 
+ * @author hanjor
+ * @version 1.0
+ * @date 2026-10-17 21:30:00
+ */
+package com.okbug.platform.mapper.auth;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.okbug.platform.entity.auth.UserHierarchyClosure;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+@Mapper
+public interface UserHierarchyClosureMapper extends BaseMapper<UserHierarchyClosure> {
+
+    /**
+     * 挂接新用户：继承父用户的全部祖先（距离+1），并登记父用户本身
+     * 
+     * @param parentUserId 父用户ID
+     * @param userId 新用户ID
+     * @return 插入行数
+     */
+    @Insert("INSERT IGNORE INTO user_hierarchy_closure (ancestor_id, descendant_id, depth) " +
+            "SELECT ancestor_id, #{userId}, depth + 1 FROM user_hierarchy_closure WHERE descendant_id = #{parentUserId} " +
+            "UNION ALL SELECT #{parentUserId}, #{userId}, 1")
+    int insertUnderParent(@Param("parentUserId") Long parentUserId, @Param("userId") Long userId);
+
+    /**
+     * 按 users.parent_user_id 补齐闭包关系（幂等，跳过已删除的端点用户）；层级上限防止 parent_user_id 成环时无限递归
+     * 
+     * @param maxDepth 最大层级
+     * @return 插入行数
+     */
+    @Insert("INSERT IGNORE INTO user_hierarchy_closure (ancestor_id, descendant_id, depth) " +
+            "WITH RECURSIVE h (ancestor_id, descendant_id, depth) AS (" +
+            "  SELECT parent_user_id, id, 1 FROM users WHERE parent_user_id IS NOT NULL " +
+            "  UNION ALL " +
+            "  SELECT h.ancestor_id, u.id, h.depth + 1 FROM h JOIN users u ON u.parent_user_id = h.descendant_id " +
+            "  WHERE h.depth < #{maxDepth}" +
+            ") SELECT h.ancestor_id, h.descendant_id, MIN(h.depth) FROM h " +
+            "JOIN users a ON a.id = h.ancestor_id AND a.is_deleted = 0 " +
+            "JOIN users d ON d.id = h.descendant_id AND d.is_deleted = 0 " +
+            "WHERE h.ancestor_id <> h.descendant_id GROUP BY h.ancestor_id, h.descendant_id")
+    int insertMissingFromUsers(@Param("maxDepth") int maxDepth);
+
+    /**
+     * 删除用户时移除其作为祖先或后代的全部关系；其后代与更上层祖先的关系保持不变（相当于挂接到祖父节点）
+     * 
+     * @param userId 被删除的用户ID
+     * @return 删除行数
+     */
+    @Delete("DELETE FROM user_hierarchy_closure WHERE ancestor_id = #{userId} OR descendant_id = #{userId}")
+    int deleteByUser(@Param("userId") Long userId);
+
+    /**
+     * 清除无法由 users.parent_user_id 推导出的关系（父用户被直接修改、端点用户已删除等），与 insertMissingFromUsers 配合完成对账。
+     * 推导时经过已删除的中间节点仍视为连通，与 deleteByUser 的语义一致
+     * 
+     * @param maxDepth 最大层级
+     * @return 删除行数
+     */
+    @Delete("WITH RECURSIVE h (ancestor_id, descendant_id, depth) AS (" +
+            "  SELECT parent_user_id, id, 1 FROM users WHERE parent_user_id IS NOT NULL " +
+            "  UNION ALL " +
+            "  SELECT h.ancestor_id, u.id, h.depth + 1 FROM h JOIN users u ON u.parent_user_id = h.descendant_id " +
+            "  WHERE h.depth < #{maxDepth}" +
+            ") DELETE c FROM user_hierarchy_closure c " +
+            "LEFT JOIN (SELECT DISTINCT h.ancestor_id, h.descendant_id FROM h " +
+            "  JOIN users a ON a.id = h.ancestor_id AND a.is_deleted = 0 " +
+            "  JOIN users d ON d.id = h.descendant_id AND d.is_deleted = 0) v " +
+            "ON v.ancestor_id = c.ancestor_id AND v.descendant_id = c.descendant_id " +
+            "WHERE v.ancestor_id IS NULL")
+    int deleteStale(@Param("maxDepth") int maxDepth);
+}
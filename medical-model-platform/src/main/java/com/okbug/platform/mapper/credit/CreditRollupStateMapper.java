@@ -0,0 +1,27 @@
+/**
+ * 积分汇总进度Mapper接口：读写汇总任务的已覆盖时间点
+ * 
+ * @author hanjor
+ * @version 1.0
+ * @date 2026-10-17 19:00:00
+ */
+package com.okbug.platform.mapper.credit;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.okbug.platform.entity.credit.CreditRollupState;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+@Mapper
+public interface CreditRollupStateMapper extends BaseMapper<CreditRollupState> {
+
+    /**
+     * 加锁读取汇总进度（与汇总写入处于同一事务，保证覆盖时间点与汇总行一致推进）
+     * 
+     * @param rollupName 汇总名称
+     * @return 汇总进度
+     */
+    @Select("SELECT * FROM credit_rollup_state WHERE rollup_name = #{rollupName} FOR UPDATE")
+    CreditRollupState selectForUpdate(@Param("rollupName") String rollupName);
+}
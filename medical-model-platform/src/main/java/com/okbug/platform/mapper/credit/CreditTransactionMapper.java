@@ -13,19 +13,31 @@
  */
 package com.okbug.platform.mapper.credit;
 
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.baomidou.mybatisplus.core.toolkit.Constants;
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
 import com.okbug.platform.entity.credit.CreditTransaction;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 @Mapper
 public interface CreditTransactionMapper extends BaseMapper<CreditTransaction> {
     
+    /**
+     * 按团队过滤交易的条件（团队ID以参数绑定）：取查询时的团队成员，明细与汇总表统计共用同一口径
+     */
+    String TEAM_MEMBER_FILTER = "user_id IN (SELECT user_id FROM team_members WHERE team_id_active = {0})";
+    
     /**
      * 分页查询用户积分交易记录
      * 
@@ -186,19 +198,12 @@ public interface CreditTransactionMapper extends BaseMapper<CreditTransaction> {
      * @return 积分收入总额
      */
     default BigDecimal sumUserIncomeInTimeRange(Long userId, LocalDateTime startTime, LocalDateTime endTime) {
-        List<CreditTransaction> transactions = selectList(new com.baomidou.mybatisplus.core.conditions.query.QueryWrapper<CreditTransaction>()
+        return sumAmount(new com.baomidou.mybatisplus.core.conditions.query.QueryWrapper<CreditTransaction>()
+                .select("COALESCE(SUM(amount), 0)")
                 .eq("user_id", userId)
                 .gt("amount", 0)
                 .ge("create_time", startTime)
                 .le("create_time", endTime));
-        
-        BigDecimal totalIncome = BigDecimal.ZERO;
-        for (CreditTransaction transaction : transactions) {
-            if (transaction.getAmount() != null) {
-                totalIncome = totalIncome.add(transaction.getAmount());
-            }
-        }
-        return totalIncome;
     }
     
     /**
@@ -210,18 +215,121 @@ public interface CreditTransactionMapper extends BaseMapper<CreditTransaction> {
      * @return 积分支出总额
      */
     default BigDecimal sumUserExpenseInTimeRange(Long userId, LocalDateTime startTime, LocalDateTime endTime) {
-        List<CreditTransaction> transactions = selectList(new com.baomidou.mybatisplus.core.conditions.query.QueryWrapper<CreditTransaction>()
+        return sumAmount(new com.baomidou.mybatisplus.core.conditions.query.QueryWrapper<CreditTransaction>()
+                .select("COALESCE(SUM(-amount), 0)")
                 .eq("user_id", userId)
                 .lt("amount", 0)
                 .ge("create_time", startTime)
                 .le("create_time", endTime));
-        
-        BigDecimal totalExpense = BigDecimal.ZERO;
+    }
+    
+    /**
+     * 按条件汇总交易笔数与收支金额（数据库侧聚合，不加载交易行）
+     * 
+     * 说明：金额大于0计为收入，其余计为支出（与逐行统计口径一致）；条件中不应包含排序
+     * 
+     * @param wrapper 查询条件（需自行包含 is_deleted = 0）
+     * @return total_transactions, total_income, total_expense, income_count, expense_count
+     */
+    @Select("SELECT COUNT(*) AS total_transactions, "
+            + "COALESCE(SUM(CASE WHEN amount > 0 THEN amount ELSE 0 END), 0) AS total_income, "
+            + "COALESCE(SUM(CASE WHEN amount > 0 THEN 0 ELSE -amount END), 0) AS total_expense, "
+            + "COALESCE(SUM(CASE WHEN amount > 0 THEN 1 ELSE 0 END), 0) AS income_count, "
+            + "COALESCE(SUM(CASE WHEN amount > 0 THEN 0 ELSE 1 END), 0) AS expense_count "
+            + "FROM credit_transactions ${ew.customSqlSegment}")
+    Map<String, Object> selectAmountSummary(@Param(Constants.WRAPPER) Wrapper<CreditTransaction> wrapper);
+    
+    /**
+     * 按积分类型与交易类型分组汇总 [startTime, endTime) 内的交易（数据库侧聚合）
+     * 
+     * @param startTime 开始时间（含）
+     * @param endTime 结束时间（不含）
+     * @param teamId 团队ID（可选，按当前团队成员过滤，与汇总表查询口径一致）
+     * @return 每组一行：credit_type_code, transaction_type, tx_count, total_amount
+     */
+    default List<Map<String, Object>> selectAmountGroupByType(LocalDateTime startTime, LocalDateTime endTime, Long teamId) {
+        return selectMaps(new com.baomidou.mybatisplus.core.conditions.query.QueryWrapper<CreditTransaction>()
+                .select("credit_type_code",
+                        "transaction_type",
+                        "COUNT(*) AS tx_count",
+                        "COALESCE(SUM(amount), 0) AS total_amount")
+                .ge("create_time", startTime)
+                .lt("create_time", endTime)
+                .apply(teamId != null, TEAM_MEMBER_FILTER, teamId)
+                .groupBy("credit_type_code", "transaction_type"));
+    }
+    
+    /**
+     * 读取单值求和结果
+     */
+    private BigDecimal sumAmount(com.baomidou.mybatisplus.core.conditions.query.QueryWrapper<CreditTransaction> wrapper) {
+        List<Object> sums = selectObjs(wrapper);
+        if (sums == null || sums.isEmpty() || sums.get(0) == null) {
+            return BigDecimal.ZERO;
+        }
+        return new BigDecimal(sums.get(0).toString());
+    }
+    
+    /**
+     * 批量写入交易记录（单条多值 INSERT）
+     * 
+     * 说明：自定义SQL不会触发主键生成与自动填充，此处补齐ID与创建/更新时间
+     * 
+     * @param transactions 交易记录列表
+     * @return 影响行数
+     */
+    default int insertBatch(List<CreditTransaction> transactions) {
+        if (transactions == null || transactions.isEmpty()) {
+            return 0;
+        }
+        LocalDateTime now = LocalDateTime.now();
         for (CreditTransaction transaction : transactions) {
-            if (transaction.getAmount() != null) {
-                totalExpense = totalExpense.add(transaction.getAmount().abs());
+            if (transaction.getId() == null) {
+                transaction.setId(IdWorker.getId());
+            }
+            if (transaction.getIsDeleted() == null) {
+                transaction.setIsDeleted(0);
+            }
+            if (transaction.getCreateTime() == null) {
+                transaction.setCreateTime(now);
+            }
+            if (transaction.getUpdateTime() == null) {
+                transaction.setUpdateTime(now);
             }
         }
-        return totalExpense;
+        return insertBatchValues(transactions);
     }
-} 
\ No newline at end of file
+    
+    /**
+     * 批量写入交易记录的底层SQL，调用方应使用 {@link #insertBatch(List)}
+     * 
+     * @param transactions 已补齐ID与时间的交易记录列表
+     * @return 影响行数
+     */
+    @Insert({"<script>",
+            "INSERT INTO credit_transactions (id, user_id, credit_type_code, transaction_type, amount, ",
+            "balance_before, balance_after, related_user_id, related_order_id, related_transaction_id, ",
+            "scenario_code, description, is_deleted, create_time, update_time) VALUES ",
+            "<foreach collection='list' item='t' separator=','>",
+            "(#{t.id}, #{t.userId}, #{t.creditTypeCode}, #{t.transactionType}, #{t.amount}, ",
+            "#{t.balanceBefore}, #{t.balanceAfter}, #{t.relatedUserId}, #{t.relatedOrderId}, #{t.relatedTransactionId}, ",
+            "#{t.scenarioCode}, #{t.description}, #{t.isDeleted}, #{t.createTime}, #{t.updateTime})",
+            "</foreach>",
+            "</script>"})
+    int insertBatchValues(@Param("list") List<CreditTransaction> transactions);
+    
+    /**
+     * 按幂等键读取已提交的交易记录（共享锁读，可见其他事务刚提交的记录）
+     * 
+     * 说明：幂等键由 user_id#related_order_id#transaction_type 生成，对应唯一键 uk_credit_tx_idem
+     * 
+     * @param userId 用户ID
+     * @param relatedOrderId 关联订单号
+     * @param transactionType 交易类型
+     * @return 交易记录
+     */
+    @Select("SELECT * FROM credit_transactions WHERE idempotency_key = CONCAT(#{userId}, '#', #{relatedOrderId}, '#', #{transactionType}) LOCK IN SHARE MODE")
+    CreditTransaction selectByIdempotencyKeyForShare(@Param("userId") Long userId,
+                                                     @Param("relatedOrderId") String relatedOrderId,
+                                                     @Param("transactionType") String transactionType);
+}
@@ -0,0 +1,143 @@
+/**
+ * 积分交易汇总Mapper接口：提供汇总表的增量维护与区间聚合
+ * 
+ * 功能描述：
+ * 1. 按创建时间窗口认领尚未汇总的交易（credit_rollup_applied 按交易ID去重），将本批交易聚合写入小时/自然日汇总
+ *    （INSERT ... SELECT ... ON DUPLICATE KEY UPDATE）
+ * 2. 按积分类型、交易类型汇总指定区间内的汇总行
+ * 3. 重建时清空汇总表与去重表
+ * 
+ * @author hanjor
+ * @version 1.0
+ * @date 2026-10-17 19:00:00
+ */
+package com.okbug.platform.mapper.credit;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.okbug.platform.entity.credit.CreditTransactionRollup;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@Mapper
+public interface CreditTransactionRollupMapper extends BaseMapper<CreditTransactionRollup> {
+
+    String UPSERT_HEAD = "INSERT INTO credit_transaction_rollups (bucket_type, bucket_start, credit_type_code, scenario_code, " +
+            "transaction_type, user_id, tx_count, income_amount, expense_amount) ";
+
+    String UPSERT_MEASURES = "t.credit_type_code, COALESCE(t.scenario_code, '') AS scenario, t.transaction_type, t.user_id, " +
+            "COUNT(*), " +
+            "SUM(CASE WHEN t.amount > 0 THEN t.amount ELSE 0 END), " +
+            "SUM(CASE WHEN t.amount < 0 THEN -t.amount ELSE 0 END) " +
+            "FROM credit_transactions t " +
+            "JOIN credit_rollup_applied a ON a.transaction_id = t.id AND a.batch_id = #{batchId} " +
+            "GROUP BY bucket, t.credit_type_code, scenario, t.transaction_type, t.user_id ";
+
+    String UPSERT_TAIL = "ON DUPLICATE KEY UPDATE " +
+            "credit_transaction_rollups.tx_count = credit_transaction_rollups.tx_count + VALUES(tx_count), " +
+            "credit_transaction_rollups.income_amount = credit_transaction_rollups.income_amount + VALUES(income_amount), " +
+            "credit_transaction_rollups.expense_amount = credit_transaction_rollups.expense_amount + VALUES(expense_amount)";
+
+    /**
+     * 认领一批尚未汇总的交易：[fromTime, cutoff) 内未登记在去重表中的交易按创建时间顺序登记到本批
+     * 
+     * 说明：只能看到已提交的交易；晚提交的交易在后续批次的重扫窗口内被认领，去重表保证每笔交易只汇总一次
+     * 
+     * @param batchId 批次ID
+     * @param fromTime 扫描起点（含）
+     * @param cutoff 落定时间点（不含）
+     * @param limit 最大条数
+     * @return 本批认领的交易数
+     */
+    @Insert("INSERT INTO credit_rollup_applied (transaction_id, create_time, batch_id) " +
+            "SELECT t.id, t.create_time, #{batchId} FROM credit_transactions t " +
+            "LEFT JOIN credit_rollup_applied a ON a.transaction_id = t.id " +
+            "WHERE t.create_time >= #{fromTime} AND t.create_time < #{cutoff} AND t.is_deleted = 0 " +
+            "AND a.transaction_id IS NULL " +
+            "ORDER BY t.create_time, t.id LIMIT #{limit}")
+    int claimPending(@Param("batchId") Long batchId, @Param("fromTime") LocalDateTime fromTime,
+                     @Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+
+    /**
+     * 本批认领交易的最晚创建时间
+     * 
+     * @param batchId 批次ID
+     * @return 最晚创建时间，本批为空时返回null
+     */
+    @Select("SELECT MAX(create_time) FROM credit_rollup_applied WHERE batch_id = #{batchId}")
+    LocalDateTime selectMaxCreateTime(@Param("batchId") Long batchId);
+
+    /**
+     * 将本批认领的交易累加到小时汇总
+     * 
+     * @param batchId 批次ID
+     * @return 影响行数
+     */
+    @Insert(UPSERT_HEAD +
+            "SELECT 'HOUR', DATE_FORMAT(t.create_time, '%Y-%m-%d %H:00:00') AS bucket, " +
+            UPSERT_MEASURES + UPSERT_TAIL)
+    int upsertHourly(@Param("batchId") Long batchId);
+
+    /**
+     * 将本批认领的交易累加到自然日汇总
+     * 
+     * @param batchId 批次ID
+     * @return 影响行数
+     */
+    @Insert(UPSERT_HEAD +
+            "SELECT 'DAY', DATE_FORMAT(t.create_time, '%Y-%m-%d 00:00:00') AS bucket, " +
+            UPSERT_MEASURES + UPSERT_TAIL)
+    int upsertDaily(@Param("batchId") Long batchId);
+
+    /**
+     * 清除重扫窗口之前的去重记录（这些交易不会再被扫描）
+     * 
+     * @param before 创建时间早于该时间的记录
+     * @param limit 单次最大删除条数
+     * @return 删除行数
+     */
+    @Delete("DELETE FROM credit_rollup_applied WHERE create_time < #{before} LIMIT #{limit}")
+    int pruneApplied(@Param("before") LocalDateTime before, @Param("limit") int limit);
+
+    /**
+     * 清空汇总表（仅用于重建）
+     */
+    @Update("TRUNCATE TABLE credit_transaction_rollups")
+    void truncate();
+
+    /**
+     * 清空去重表（仅用于重建）
+     */
+    @Update("TRUNCATE TABLE credit_rollup_applied")
+    void truncateApplied();
+
+    /**
+     * 按积分类型、交易类型汇总 [startTime, endTime) 内的汇总行
+     * 
+     * @param bucketType 汇总粒度（HOUR/DAY），区间边界需与粒度对齐
+     * @param startTime 开始时间（含）
+     * @param endTime 结束时间（不含）
+     * @param teamId 团队ID（可选，按当前团队成员过滤，与明细聚合口径一致）
+     * @return 每组一行：credit_type_code, transaction_type, tx_count, total_amount
+     */
+    default List<Map<String, Object>> selectAmountGroupByType(String bucketType, LocalDateTime startTime,
+                                                              LocalDateTime endTime, Long teamId) {
+        return selectMaps(new com.baomidou.mybatisplus.core.conditions.query.QueryWrapper<CreditTransactionRollup>()
+                .select("credit_type_code",
+                        "transaction_type",
+                        "COALESCE(SUM(tx_count), 0) AS tx_count",
+                        "COALESCE(SUM(income_amount - expense_amount), 0) AS total_amount")
+                .eq("bucket_type", bucketType)
+                .ge("bucket_start", startTime)
+                .lt("bucket_start", endTime)
+                .apply(teamId != null, CreditTransactionMapper.TEAM_MEMBER_FILTER, teamId)
+                .groupBy("credit_type_code", "transaction_type"));
+    }
+}
@@ -4,7 +4,7 @@
  * 功能描述：
  * 1. 用户积分账户的CRUD操作
  * 2. 积分账户查询和统计
- * 3. 支持乐观锁和并发控制
+ * 3. 支持乐观锁和并发控制（含单语句条件扣减）
  * 4. 使用MyBatis-Plus Java API
  * 
  * @author hanjor
@@ -16,9 +16,13 @@ package com.okbug.platform.mapper.credit;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.okbug.platform.entity.credit.UserCredit;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 
 @Mapper
 public interface UserCreditMapper extends BaseMapper<UserCredit> {
@@ -36,6 +40,43 @@ public interface UserCreditMapper extends BaseMapper<UserCredit> {
                 .eq("credit_type_code", creditTypeCode));
     }
     
+    /**
+     * 原子条件扣减：单条 UPDATE 完成余额校验与扣减，不依赖乐观锁版本号
+     * 
+     * 说明：
+     * - 仅当扣除预授权占用后余额充足时扣减（balance - reserved >= amount，占用积分由调用方从Redis读取），否则影响行数为0
+     * - 同步累加 total_consumed 并递增 version，保持与乐观锁路径的版本语义一致
+     * - 需在事务内调用，行锁持有至事务提交，调用方可在同一事务内读取扣减后的余额
+     * 
+     * @param userId 用户ID
+     * @param creditTypeCode 积分类型编码
+     * @param amount 扣减积分数（正数）
+     * @param reserved 不可扣减的预授权占用积分（非负）
+     * @return 影响行数，1表示扣减成功，0表示账户不存在或余额不足
+     */
+    @Update("UPDATE user_credits " +
+            "SET balance = balance - #{amount}, total_consumed = total_consumed + #{amount}, " +
+            "version = version + 1, update_time = NOW() " +
+            "WHERE user_id = #{userId} AND credit_type_code = #{creditTypeCode} " +
+            "AND is_deleted = 0 AND balance - #{reserved} >= #{amount}")
+    int debitIfSufficient(@Param("userId") Long userId,
+                          @Param("creditTypeCode") String creditTypeCode,
+                          @Param("amount") BigDecimal amount,
+                          @Param("reserved") BigDecimal reserved);
+    
+    /**
+     * 锁定读取积分账户（SELECT ... FOR UPDATE），需在事务内调用
+     * 
+     * @param userId 用户ID
+     * @param creditTypeCode 积分类型编码
+     * @return 积分账户，不存在时返回null
+     */
+    @Select("SELECT * FROM user_credits " +
+            "WHERE user_id = #{userId} AND credit_type_code = #{creditTypeCode} AND is_deleted = 0 " +
+            "FOR UPDATE")
+    UserCredit selectForUpdate(@Param("userId") Long userId,
+                               @Param("creditTypeCode") String creditTypeCode);
+    
     /**
      * 根据用户ID查询所有积分账户
      * 
@@ -48,6 +89,21 @@ public interface UserCreditMapper extends BaseMapper<UserCredit> {
                 .orderByAsc("credit_type_code"));
     }
     
+    /**
+     * 根据用户ID批量查询积分账户（单条 IN 查询）
+     * 
+     * @param userIds 用户ID集合
+     * @return 积分账户列表，按用户ID、积分类型编码排序
+     */
+    default List<UserCredit> selectByUserIds(java.util.Collection<Long> userIds) {
+        if (userIds == null || userIds.isEmpty()) {
+            return java.util.Collections.emptyList();
+        }
+        return selectList(new com.baomidou.mybatisplus.core.conditions.query.QueryWrapper<UserCredit>()
+                .in("user_id", userIds)
+                .orderByAsc("user_id", "credit_type_code"));
+    }
+    
     /**
      * 根据积分类型编码查询所有用户的积分账户
      * 
@@ -120,14 +176,7 @@ public interface UserCreditMapper extends BaseMapper<UserCredit> {
      * @return 总积分余额
      */
     default BigDecimal selectTotalBalanceByCreditType(String creditTypeCode) {
-        List<UserCredit> accounts = selectByCreditTypeCode(creditTypeCode);
-        BigDecimal totalBalance = BigDecimal.ZERO;
-        for (UserCredit account : accounts) {
-            if (account.getBalance() != null) {
-                totalBalance = totalBalance.add(account.getBalance());
-            }
-        }
-        return totalBalance;
+        return sumByCreditType("balance", creditTypeCode);
     }
     
     /**
@@ -137,14 +186,7 @@ public interface UserCreditMapper extends BaseMapper<UserCredit> {
      * @return 总获得积分
      */
     default BigDecimal selectTotalEarnedByCreditType(String creditTypeCode) {
-        List<UserCredit> accounts = selectByCreditTypeCode(creditTypeCode);
-        BigDecimal totalEarned = BigDecimal.ZERO;
-        for (UserCredit account : accounts) {
-            if (account.getTotalEarned() != null) {
-                totalEarned = totalEarned.add(account.getTotalEarned());
-            }
-        }
-        return totalEarned;
+        return sumByCreditType("total_earned", creditTypeCode);
     }
     
     /**
@@ -154,13 +196,34 @@ public interface UserCreditMapper extends BaseMapper<UserCredit> {
      * @return 总消费积分
      */
     default BigDecimal selectTotalConsumedByCreditType(String creditTypeCode) {
-        List<UserCredit> accounts = selectByCreditTypeCode(creditTypeCode);
-        BigDecimal totalConsumed = BigDecimal.ZERO;
-        for (UserCredit account : accounts) {
-            if (account.getTotalConsumed() != null) {
-                totalConsumed = totalConsumed.add(account.getTotalConsumed());
-            }
+        return sumByCreditType("total_consumed", creditTypeCode);
+    }
+    
+    /**
+     * 按积分类型分组汇总账户数与余额/获得/消费合计（数据库侧聚合）
+     * 
+     * @return 每个积分类型一行：credit_type_code, account_count, total_balance, total_earned, total_consumed
+     */
+    default List<Map<String, Object>> selectTotalsGroupByCreditType() {
+        return selectMaps(new com.baomidou.mybatisplus.core.conditions.query.QueryWrapper<UserCredit>()
+                .select("credit_type_code",
+                        "COUNT(*) AS account_count",
+                        "COALESCE(SUM(balance), 0) AS total_balance",
+                        "COALESCE(SUM(total_earned), 0) AS total_earned",
+                        "COALESCE(SUM(total_consumed), 0) AS total_consumed")
+                .groupBy("credit_type_code"));
+    }
+    
+    /**
+     * 按积分类型对指定列求和（数据库侧聚合，不加载账户行）
+     */
+    private BigDecimal sumByCreditType(String column, String creditTypeCode) {
+        List<Object> sums = selectObjs(new com.baomidou.mybatisplus.core.conditions.query.QueryWrapper<UserCredit>()
+                .select("COALESCE(SUM(" + column + "), 0)")
+                .eq("credit_type_code", creditTypeCode));
+        if (sums == null || sums.isEmpty() || sums.get(0) == null) {
+            return BigDecimal.ZERO;
         }
-        return totalConsumed;
+        return new BigDecimal(sums.get(0).toString());
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,12 @@
+package com.okbug.platform.mapper.system.message;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.okbug.platform.entity.system.message.AnnouncementPublishSeq;
+import org.apache.ibatis.annotations.Mapper;
+
+/**
+ * 公告可见序号计数 Mapper 接口：系统/消息模块
+ */
+@Mapper
+public interface AnnouncementPublishSeqMapper extends BaseMapper<AnnouncementPublishSeq> {
+}
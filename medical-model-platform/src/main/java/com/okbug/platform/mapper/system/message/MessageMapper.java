@@ -2,10 +2,79 @@ package com.okbug.platform.mapper.system.message;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.okbug.platform.entity.system.message.Message;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 
 @Mapper
 public interface MessageMapper extends BaseMapper<Message> {
-}
 
+    /**
+     * 领取到期（或即将到期）的待调度消息：置为已入队并写入租约，单条 UPDATE 原子完成，多节点不会重复领取。
+     * 租约过期仍处于已入队的消息（领取节点宕机，含批量扇出中未完成的即时消息）同样可被重新领取；
+     * 按 CRC32(id) 取模分片，各节点只领取自己的分片。
+     *
+     * @param leaseOwner 租约持有者（本批次唯一，领取后据此查询本批消息）
+     * @param leaseUntil 租约到期时间
+     * @param dueBefore  计划时间上限（当前时间 + 预取时长）
+     * @param now        当前时间（判断租约过期）
+     * @param shardCount 分片总数
+     * @param shardIndex 本节点分片序号
+     * @param limit      本批最多领取条数
+     * @return 领取条数
+     */
+    @Update("UPDATE notify_messages SET status = 1, lease_owner = #{leaseOwner}, lease_until = #{leaseUntil}, update_time = NOW() " +
+            "WHERE is_deleted = 0 " +
+            "AND ((status = 0 AND schedule_time IS NOT NULL AND schedule_time <= #{dueBefore}) " +
+            "OR (status = 1 AND lease_until IS NOT NULL AND lease_until < #{now})) " +
+            "AND MOD(CRC32(id), #{shardCount}) = #{shardIndex} " +
+            "ORDER BY schedule_time LIMIT #{limit}")
+    int claimDue(@Param("leaseOwner") String leaseOwner,
+                 @Param("leaseUntil") LocalDateTime leaseUntil,
+                 @Param("dueBefore") LocalDateTime dueBefore,
+                 @Param("now") LocalDateTime now,
+                 @Param("shardCount") int shardCount,
+                 @Param("shardIndex") int shardIndex,
+                 @Param("limit") int limit);
+
+    /**
+     * 续租：仅当租约仍由本批次持有且尚未过期时延长，返回0表示租约已丢失（可能已被其他节点重新领取）
+     */
+    @Update("UPDATE notify_messages SET lease_until = #{leaseUntil}, update_time = NOW() " +
+            "WHERE id = #{id} AND status = 1 AND lease_owner = #{leaseOwner} AND lease_until > #{now}")
+    int renewLease(@Param("id") Long id,
+                   @Param("leaseOwner") String leaseOwner,
+                   @Param("leaseUntil") LocalDateTime leaseUntil,
+                   @Param("now") LocalDateTime now);
 
+    /**
+     * 批量结束租约并写入最终状态（仅更新仍处于已入队且租约仍由该持有者持有的消息：
+     * 期间被取消的消息保持取消，租约过期后被其他节点重新领取的消息由新持有者回写）
+     */
+    @Update("<script>" +
+            "UPDATE notify_messages SET status = #{status}, lease_owner = NULL, lease_until = NULL, update_time = NOW() " +
+            "WHERE status = 1 AND lease_owner = #{leaseOwner} AND id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int completeLeased(@Param("ids") Collection<Long> ids,
+                       @Param("leaseOwner") String leaseOwner,
+                       @Param("status") int status);
+
+    /**
+     * 多行插入（批量扇出使用，ID 由调用方预先生成）
+     */
+    @Insert("<script>" +
+            "INSERT INTO notify_messages (id, user_id, message_type, title, content, schedule_time, status, " +
+            "lease_owner, lease_until, is_deleted, create_time, update_time, create_by, update_by) VALUES " +
+            "<foreach collection='list' item='m' separator=','>" +
+            "(#{m.id}, #{m.userId}, #{m.messageType}, #{m.title}, #{m.content}, #{m.scheduleTime}, #{m.status}, " +
+            "#{m.leaseOwner}, #{m.leaseUntil}, 0, #{m.createTime}, #{m.updateTime}, #{m.createBy}, #{m.updateBy})" +
+            "</foreach>" +
+            "</script>")
+    int insertBatch(@Param("list") List<Message> messages);
+}
@@ -1,11 +1,69 @@
 package com.okbug.platform.mapper.system.message;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
 import com.okbug.platform.entity.system.message.MessageRead;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 @Mapper
 public interface MessageReadMapper extends BaseMapper<MessageRead> {
-}
 
+    /**
+     * 单次写入的阅读记录上限，控制多值 INSERT 的语句长度
+     */
+    int UNREAD_CHUNK_SIZE = 1000;
+
+    /**
+     * 将用户全部未读消息标记为已读：查询未读消息ID，按批生成阅读记录ID后多值写入。
+     * 阅读记录使用独立的雪花ID，主键不会冲突，与单条标记已读并发时仅命中唯一约束 uk_notify_message_read_user，
+     * 由 ON DUPLICATE KEY UPDATE 保留原记录。
+     *
+     * @return 处理的未读消息数
+     */
+    default int insertAllUnread(Long userId, LocalDateTime now) {
+        List<Long> unread = selectUnreadMessageIds(userId);
+        for (int from = 0; from < unread.size(); from += UNREAD_CHUNK_SIZE) {
+            List<Long> chunk = unread.subList(from, Math.min(from + UNREAD_CHUNK_SIZE, unread.size()));
+            List<MessageRead> reads = new ArrayList<>(chunk.size());
+            for (Long messageId : chunk) {
+                MessageRead read = new MessageRead();
+                read.setId(IdWorker.getId());
+                read.setMessageId(messageId);
+                read.setUserId(userId);
+                read.setReadAt(now);
+                read.setCreateTime(now);
+                read.setUpdateTime(now);
+                reads.add(read);
+            }
+            upsertBatch(reads);
+        }
+        return unread.size();
+    }
 
+    /**
+     * 查询用户尚无阅读记录的消息ID
+     */
+    @Select("SELECT m.id FROM notify_messages m " +
+            "WHERE m.user_id = #{userId} AND m.is_deleted = 0 " +
+            "AND NOT EXISTS (SELECT 1 FROM notify_message_reads r WHERE r.message_id = m.id AND r.user_id = m.user_id)")
+    List<Long> selectUnreadMessageIds(@Param("userId") Long userId);
+
+    /**
+     * 多值写入阅读记录（ID 由调用方预先生成），(message_id, user_id) 已存在时保留原记录，调用方应使用 {@link #insertAllUnread}
+     */
+    @Insert("<script>" +
+            "INSERT INTO notify_message_reads (id, message_id, user_id, read_at, is_deleted, create_time, update_time) VALUES " +
+            "<foreach collection='list' item='r' separator=','>" +
+            "(#{r.id}, #{r.messageId}, #{r.userId}, #{r.readAt}, 0, #{r.createTime}, #{r.updateTime})" +
+            "</foreach>" +
+            " ON DUPLICATE KEY UPDATE read_at = read_at" +
+            "</script>")
+    int upsertBatch(@Param("list") List<MessageRead> reads);
+}
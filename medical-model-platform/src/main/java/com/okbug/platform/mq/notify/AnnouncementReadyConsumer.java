@@ -2,6 +2,7 @@ package com.okbug.platform.mq.notify;
 
 import com.okbug.platform.entity.system.message.Announcement;
 import com.okbug.platform.mapper.system.message.AnnouncementMapper;
+import com.okbug.platform.service.system.message.counter.AnnouncementPublishSequencer;
 import com.okbug.platform.ws.RealtimeWebSocketHandler;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -21,6 +22,7 @@ public class AnnouncementReadyConsumer {
 
     private final AnnouncementMapper announcementMapper;
     private final RealtimeWebSocketHandler permissionSocketHandler;
+    private final AnnouncementPublishSequencer announcementPublishSequencer;
 
     @RabbitListener(queues = QUEUE_READY)
     public void onReady(@Payload Map<String, Object> body) {
@@ -44,12 +46,7 @@ public class AnnouncementReadyConsumer {
             permissionSocketHandler.sendNewAnnouncementNotification(0L, a.getId(), a.getTitle(), a.getContent());
             log.info("[Announcement] 到点推送: id={}, title={}", a.getId(), a.getTitle());
 
-            Announcement upd = new Announcement();
-            upd.setId(a.getId());
-            upd.setNotified(1);
-            upd.setFirstPushTime(now);
-            upd.setUpdateTime(now);
-            announcementMapper.updateById(upd);
+            announcementPublishSequencer.markVisible(a.getId(), now, null);
         } catch (Exception e) {
             log.error("[Announcement] 到点推送处理失败", e);
         }
@@ -35,6 +35,8 @@ import com.okbug.platform.entity.auth.Permission;
 import com.okbug.platform.entity.auth.UserPermission;
 import com.okbug.platform.service.auth.AuthService;
 import com.okbug.platform.service.permission.PermissionService;
+import com.okbug.platform.service.security.BruteForceGuard;
+import com.okbug.platform.service.security.PasswordHasher;
 import com.okbug.platform.service.system.SystemConfigService;
 import com.okbug.platform.common.constants.SystemConfigKeys;
 import com.okbug.platform.service.credit.CreditService;
@@ -68,6 +70,8 @@ public class AuthServiceImpl implements AuthService {
     private final UserMapper userMapper;
     private final PermissionService permissionService;
     private final SystemConfigService systemConfigService;
+    private final BruteForceGuard bruteForceGuard;
+    private final PasswordHasher passwordHasher;
     private final CreditService creditService;
     private final CreditScenarioService creditScenarioService;
     private final CreditScenarioManager scenarioManager;
@@ -144,7 +148,14 @@ public class AuthServiceImpl implements AuthService {
         
         // 2. 获取客户端信息
         HttpServletRequest httpRequest = getCurrentHttpRequest();
-        String clientIp = IpUtils.getClientIp(httpRequest);
+        // 锁定按可信代理解析的地址计数，客户端伪造的 X-Forwarded-For 无法绕过或嫁祸
+        String clientIp = IpUtils.getTrustedClientIp(httpRequest);
+        
+        // 同一IP失败过多时直接拒绝（本地缓存锁定状态，不查库、不校验密码）
+        if (bruteForceGuard.isLocked(BruteForceGuard.SCENE_LOGIN_IP, clientIp)) {
+            log.warn("客户端IP登录失败次数过多，暂时禁止登录，IP: {}", clientIp);
+            throw new ServiceException(ErrorCode.LOGIN_FAILED_TOO_MANY);
+        }
         
         try {
             // 3. 获取用户信息
@@ -195,6 +206,11 @@ public class AuthServiceImpl implements AuthService {
             
         } catch (ServiceException e) {
             log.warn("用户登录失败，用户名: {}, 原因: {}", request.getUsername(), e.getMessage());
+            // 账号不存在与密码错误均计入IP失败次数，抵御跨账号的密码喷洒
+            if (ErrorCode.USER_NOT_FOUND.getCode().equals(e.getCode())
+                    || ErrorCode.USER_PASSWORD_WRONG.getCode().equals(e.getCode())) {
+                bruteForceGuard.recordFailure(BruteForceGuard.SCENE_LOGIN_IP, clientIp);
+            }
             throw e;
         }
     }
@@ -367,7 +383,7 @@ public class AuthServiceImpl implements AuthService {
     private User createUser(UserRegisterRequest request, User referrerUser) {
         User user = new User();
         user.setUsername(request.getUsername());
-        user.setPassword(PasswordUtils.encodePassword(request.getPassword()));
+        user.setPassword(passwordHasher.encode(request.getPassword()));
         user.setEmail(request.getEmail());
         user.setPhone(request.getPhone());
         
@@ -433,18 +449,17 @@ public class AuthServiceImpl implements AuthService {
     }
     
     /**
-     * 验证密码
+     * 验证密码（在密码哈希线程池中执行），通过后若哈希强度低于当前配置则重新加密，随登录信息一并更新
      */
     private void validatePassword(User user, String password) {
-        if (!PasswordUtils.matches(password, user.getPassword())) {
+        if (!passwordHasher.matches(password, user.getPassword())) {
             // 增加登录失败次数
             user.increaseLoginFailCount();
             
-            // 检查是否需要锁定账户
-            Integer maxLoginFailCount = systemConfigService.getConfigValueAsInt(
-                SystemConfigKeys.USER_OPERATION_FAIL_MAX_COUNT, 5);
-            Integer loginLockDuration = systemConfigService.getConfigValueAsInt(
-                SystemConfigKeys.USER_OPERATION_LOCK_DURATION_MINUTES, 30);
+            // 检查是否需要锁定账户（策略由 BruteForceGuard 预先解析）
+            BruteForceGuard.Policy policy = bruteForceGuard.policyOf(BruteForceGuard.SCENE_LOGIN);
+            int maxLoginFailCount = policy.maxFailures;
+            int loginLockDuration = (int) policy.lockDuration.toMinutes();
             
             if (user.getLoginFailCount() >= maxLoginFailCount) {
                 user.setLoginLock(loginLockDuration);
@@ -457,6 +472,15 @@ public class AuthServiceImpl implements AuthService {
             
             throw new ServiceException(ErrorCode.USER_PASSWORD_WRONG);
         }
+        
+        // 哈希强度低于当前配置时重新加密，随登录信息一并更新
+        if (passwordHasher.needsUpgrade(user.getPassword())) {
+            String upgraded = passwordHasher.upgrade(password);
+            if (upgraded != null) {
+                user.setPassword(upgraded);
+                log.info("用户密码哈希已升级至当前加密强度，用户ID: {}", user.getId());
+            }
+        }
     }
     
     /**
@@ -7,6 +7,7 @@
  * 3. 积分账户初始化和管理
  * 4. 积分转账和分配
  * 5. 积分规则查询和验证
+ * 6. 积分预授权（预留/结算/释放）
  * 
  * @author hanjor
  * @version 1.0
@@ -15,10 +16,15 @@
 package com.okbug.platform.service.credit;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.okbug.platform.dto.credit.request.CreditChargeBatchRequest;
+import com.okbug.platform.dto.credit.response.CreditChargeBatchResponse;
+import com.okbug.platform.dto.credit.response.CreditHoldResponse;
 import com.okbug.platform.dto.credit.response.UserCreditsSummaryResponse;
 import com.okbug.platform.entity.auth.User;
 import com.okbug.platform.entity.credit.UserCredit;
@@ -220,6 +226,21 @@ public interface CreditService {
      */
     UserCredit applyScenario(String scenarioCode, String relatedOrderId, Long relatedUserId, String description);
 
+    /**
+     * 批量计量扣费（推理服务用量上报）
+     *
+     * 说明：
+     * - 仅支持消费场景，扣费积分=场景每次消耗积分×用量；
+     * - 按（用户, 积分类型）分组，每组一个事务：一次行锁读取、一次多值写入账本、一次扣减余额；
+     * - 组内按明细顺序分配余额，余额不足或命中订单号幂等的明细单独标记，不影响其他明细；
+     * - 仅处理操作人数据域内的用户（管理员：本人及子账号；超级管理员：任意），越权明细标记为权限不足；
+     * - 逐条返回结果，顺序与请求一致。
+     *
+     * @param items 扣费明细
+     * @return 汇总与逐条结果
+     */
+    CreditChargeBatchResponse applyScenarioBatch(List<CreditChargeBatchRequest.Item> items);
+
     /**
      * 分页查询用户 + 积分账户汇总（管理员）
      *
@@ -228,4 +249,60 @@ public interface CreditService {
      * @return 用户积分汇总分页结果
      */
     IPage<UserCreditsSummaryResponse> getUserCreditsSummaryPage(Page<User> page, String keyword);
+
+    /**
+     * 积分系统统计（管理员）：按积分类型汇总账户，按积分类型与交易类型汇总时间范围内的交易
+     *
+     * 说明：全部在数据库侧聚合，不加载账户与交易行；交易汇总优先读取小时/自然日汇总表，未汇总区间回退为明细聚合
+     *
+     * @param type 统计类型（DAILY/WEEKLY/MONTHLY，未指定时间范围时决定默认区间）
+     * @param startTime 开始时间（可选）
+     * @param endTime 结束时间（可选）
+     * @param teamId 团队ID（可选，仅统计该团队成员的交易）
+     * @return 统计结果
+     */
+    Map<String, Object> getCreditStatistics(String type, LocalDateTime startTime, LocalDateTime endTime, Long teamId);
+
+    /**
+     * 为当前用户登记积分预授权（预留积分，不立即扣减）
+     *
+     * 说明：
+     * - 预授权只在Redis中预留可用余额，不持有数据库行锁；
+     * - 到期未结算的预授权由清理任务自动释放；
+     * - 同一订单号重复预授权返回已有预授权。
+     *
+     * @param scenarioCode 使用场景编码
+     * @param amount 预授权积分数（为空时取场景每次消耗积分）
+     * @param orderId 关联订单号（可选）
+     * @param ttlSeconds 有效期（秒，为空时取系统配置）
+     * @return 预授权详情
+     */
+    CreditHoldResponse holdCredits(String scenarioCode, BigDecimal amount, String orderId, Integer ttlSeconds);
+
+    /**
+     * 结算当前用户的积分预授权，剩余部分自动释放
+     *
+     * 说明：结算记录由对账任务按批写入积分账户与交易记录
+     *
+     * @param holdId 预授权ID
+     * @param amount 结算积分数（为空时全额结算）
+     * @return 结算后的预授权详情
+     */
+    CreditHoldResponse captureHold(String holdId, BigDecimal amount);
+
+    /**
+     * 释放当前用户的积分预授权
+     *
+     * @param holdId 预授权ID
+     * @return 释放后的预授权详情
+     */
+    CreditHoldResponse releaseHold(String holdId);
+
+    /**
+     * 查询当前用户的积分预授权
+     *
+     * @param holdId 预授权ID
+     * @return 预授权详情
+     */
+    CreditHoldResponse getHold(String holdId);
 } 
\ No newline at end of file
@@ -25,8 +25,6 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 import cn.dev33.satoken.stp.StpUtil;
 import com.okbug.platform.service.security.BruteForceGuard;
-import com.okbug.platform.service.system.SystemConfigService;
-import com.okbug.platform.common.constants.SystemConfigKeys;
 import com.okbug.platform.service.system.message.NotificationFacade;
 import com.okbug.platform.common.cache.PermissionCacheService;
 
@@ -58,7 +56,6 @@ public class CreditRedeemCodeServiceImpl implements CreditRedeemCodeService {
     private final CreditTransactionMapper creditTransactionMapper;
     private final UserMapper userMapper;
     private final BruteForceGuard bruteForceGuard;
-    private final SystemConfigService systemConfigService;
     
     private final NotificationFacade notificationFacade;
     private final PermissionCacheService permissionCacheService;
@@ -219,10 +216,9 @@ public class CreditRedeemCodeServiceImpl implements CreditRedeemCodeService {
         log.info("发起兑换，用户: {}({})，codeKey={}（已脱敏）", username, userId, maskedKey);
 
         // 暴力尝试保护：检查是否被锁
-        if (bruteForceGuard.isLocked("redeem", userId)) {
+        if (bruteForceGuard.isLocked(BruteForceGuard.SCENE_REDEEM, userId)) {
             log.warn("用户处于临时锁定状态，userId={}", userId);
             forceOfflineAndClearCache(userId);
-            persistUserTempLock(userId);
             throw new ServiceException(ErrorCode.REDEEM_USER_TEMP_LOCKED);
         }
 
@@ -234,29 +230,13 @@ public class CreditRedeemCodeServiceImpl implements CreditRedeemCodeService {
         CreditRedeemCode code = redeemCodeMapper.selectOne(new LambdaQueryWrapper<CreditRedeemCode>()
                 .eq(CreditRedeemCode::getCodeKey, codeKey));
         if (code == null || Objects.equals(code.getIsDeleted(), 1)) {
-            int max = systemConfigService.getConfigValueAsInt(SystemConfigKeys.USER_OPERATION_FAIL_MAX_COUNT, 5);
-            int lockMin = systemConfigService.getConfigValueAsInt(SystemConfigKeys.USER_OPERATION_LOCK_DURATION_MINUTES, 30);
-            int windowMin = systemConfigService.getConfigValueAsInt(SystemConfigKeys.USER_OPERATION_FAIL_WINDOW_MINUTES, 10);
-            bruteForceGuard.recordFailure("redeem", userId,
-                    new BruteForceGuard.Policy(max, java.time.Duration.ofMinutes(Math.max(windowMin, 0)), java.time.Duration.ofMinutes(lockMin), true));
-            if (bruteForceGuard.isLocked("redeem", userId)) {
-                forceOfflineAndClearCache(userId);
-                persistUserTempLock(userId);
-            }
+            recordRedeemFailure(userId);
             log.warn("兑换码不存在或已删除，userId={}，codeKey={}（已脱敏）", userId, maskedKey);
             throw new ServiceException(ErrorCode.REDEEM_CODE_INVALID);
         }
         if (code.getStatus() != null && code.getStatus() != 0) {
             if (code.getStatus() == 1) {
-                int max = systemConfigService.getConfigValueAsInt(SystemConfigKeys.USER_OPERATION_FAIL_MAX_COUNT, 5);
-                int lockMin = systemConfigService.getConfigValueAsInt(SystemConfigKeys.USER_OPERATION_LOCK_DURATION_MINUTES, 30);
-                int windowMin = systemConfigService.getConfigValueAsInt(SystemConfigKeys.USER_OPERATION_FAIL_WINDOW_MINUTES, 10);
-                bruteForceGuard.recordFailure("redeem", userId,
-                        new BruteForceGuard.Policy(max, java.time.Duration.ofMinutes(Math.max(windowMin, 0)), java.time.Duration.ofMinutes(lockMin), false));
-                if (bruteForceGuard.isLocked("redeem", userId)) {
-                    forceOfflineAndClearCache(userId);
-                    persistUserTempLock(userId);
-                }
+                recordRedeemFailure(userId);
                 log.warn("兑换码已被使用，userId={}，codeKey={}（已脱敏）", userId, maskedKey);
                 throw new ServiceException(ErrorCode.REDEEM_CODE_USED);
             }
@@ -264,15 +244,7 @@ public class CreditRedeemCodeServiceImpl implements CreditRedeemCodeService {
             throw new ServiceException(ErrorCode.REDEEM_CODE_INVALID);
         }
         if (code.getExpireTime() != null && code.getExpireTime().isBefore(LocalDateTime.now())) {
-            int max = systemConfigService.getConfigValueAsInt(SystemConfigKeys.USER_OPERATION_FAIL_MAX_COUNT, 5);
-            int lockMin = systemConfigService.getConfigValueAsInt(SystemConfigKeys.USER_OPERATION_LOCK_DURATION_MINUTES, 30);
-            int windowMin = systemConfigService.getConfigValueAsInt(SystemConfigKeys.USER_OPERATION_FAIL_WINDOW_MINUTES, 10);
-            bruteForceGuard.recordFailure("redeem", userId,
-                    new BruteForceGuard.Policy(max, java.time.Duration.ofMinutes(Math.max(windowMin, 0)), java.time.Duration.ofMinutes(lockMin), false));
-            if (bruteForceGuard.isLocked("redeem", userId)) {
-                forceOfflineAndClearCache(userId);
-                persistUserTempLock(userId);
-            }
+            recordRedeemFailure(userId);
             log.warn("兑换码已过期，userId={}，codeKey={}（已脱敏）", userId, maskedKey);
             throw new ServiceException(ErrorCode.REDEEM_CODE_EXPIRED);
         }
@@ -282,15 +254,7 @@ public class CreditRedeemCodeServiceImpl implements CreditRedeemCodeService {
                 .eq(UserCredit::getUserId, userId)
                 .eq(UserCredit::getCreditTypeCode, code.getCreditTypeCode()));
         if (userCredit == null) {
-            int max = systemConfigService.getConfigValueAsInt(SystemConfigKeys.USER_OPERATION_FAIL_MAX_COUNT, 5);
-            int lockMin = systemConfigService.getConfigValueAsInt(SystemConfigKeys.USER_OPERATION_LOCK_DURATION_MINUTES, 30);
-            int windowMin = systemConfigService.getConfigValueAsInt(SystemConfigKeys.USER_OPERATION_FAIL_WINDOW_MINUTES, 10);
-            bruteForceGuard.recordFailure("redeem", userId,
-                    new BruteForceGuard.Policy(max, java.time.Duration.ofMinutes(Math.max(windowMin, 0)), java.time.Duration.ofMinutes(lockMin), false));
-            if (bruteForceGuard.isLocked("redeem", userId)) {
-                forceOfflineAndClearCache(userId);
-                persistUserTempLock(userId);
-            }
+            recordRedeemFailure(userId);
             log.warn("用户积分账户不存在，userId={}，typeCode={}", userId, code.getCreditTypeCode());
             throw new ServiceException(ErrorCode.USER_CREDIT_ACCOUNT_NOT_FOUND);
         }
@@ -346,7 +310,7 @@ public class CreditRedeemCodeServiceImpl implements CreditRedeemCodeService {
             log.warn("发送兑换到账消息失败，不影响业务，userId={}, codeKey={}, error={}", userId, code.getCodeKey(), e.getMessage());
         }
         // 成功后重置失败计数
-        bruteForceGuard.reset("redeem", userId);
+        bruteForceGuard.reset(BruteForceGuard.SCENE_REDEEM, userId);
         return true;
     }
 
@@ -364,11 +328,10 @@ public class CreditRedeemCodeServiceImpl implements CreditRedeemCodeService {
         String maskedKey = codeKey == null ? "-" : (codeKey.length() <= 6 ? codeKey : ("***" + codeKey.substring(codeKey.length() - 6)));
         log.info("查询兑换码信息，codeKey={}（已脱敏）", maskedKey);
         Long userId = StpUtil.getLoginIdAsLong();
-        if (bruteForceGuard.isLocked("redeem", userId)) {
-            // 已被锁定：清理缓存并强制下线
+        if (bruteForceGuard.isLocked(BruteForceGuard.SCENE_REDEEM, userId)) {
+            // 已被锁定：清理缓存并强制下线（锁定已在触发时落库）
             log.warn("用户处于临时锁定状态，userId={}", userId);
             forceOfflineAndClearCache(userId);
-            persistUserTempLock(userId);
             throw new ServiceException(ErrorCode.REDEEM_USER_TEMP_LOCKED);
         }
         if (!StringUtils.hasText(codeKey)) {
@@ -378,28 +341,13 @@ public class CreditRedeemCodeServiceImpl implements CreditRedeemCodeService {
         CreditRedeemCode code = redeemCodeMapper.selectOne(new LambdaQueryWrapper<CreditRedeemCode>()
                 .eq(CreditRedeemCode::getCodeKey, codeKey));
         if (code == null || java.util.Objects.equals(code.getIsDeleted(), 1)) {
-            int max = systemConfigService.getConfigValueAsInt(SystemConfigKeys.USER_OPERATION_FAIL_MAX_COUNT, 5);
-            int lockMin = systemConfigService.getConfigValueAsInt(SystemConfigKeys.USER_OPERATION_LOCK_DURATION_MINUTES, 30);
-            int windowMin = systemConfigService.getConfigValueAsInt(SystemConfigKeys.USER_OPERATION_FAIL_WINDOW_MINUTES, 10);
-            bruteForceGuard.recordFailure("redeem", userId,
-                    new BruteForceGuard.Policy(max, java.time.Duration.ofMinutes(Math.max(windowMin, 0)), java.time.Duration.ofMinutes(lockMin), true));
-            if (bruteForceGuard.isLocked("redeem", userId)) {
-                forceOfflineAndClearCache(userId);
-                persistUserTempLock(userId);
-            }
+            recordRedeemFailure(userId);
             log.warn("兑换码不存在或已删除，userId={}，codeKey={}（已脱敏）", userId, maskedKey);
             throw new ServiceException(ErrorCode.REDEEM_CODE_INVALID);
         }
         if (code.getStatus() != null && code.getStatus() != 0) {
             if (code.getStatus() == 1) {
-                int max = systemConfigService.getConfigValueAsInt(SystemConfigKeys.USER_OPERATION_FAIL_MAX_COUNT, 5);
-                int lockMin = systemConfigService.getConfigValueAsInt(SystemConfigKeys.USER_OPERATION_LOCK_DURATION_MINUTES, 30);
-                bruteForceGuard.recordFailure("redeem", userId,
-                        new BruteForceGuard.Policy(max, java.time.Duration.ofMinutes(10), java.time.Duration.ofMinutes(lockMin), false));
-                if (bruteForceGuard.isLocked("redeem", userId)) {
-                    forceOfflineAndClearCache(userId);
-                    persistUserTempLock(userId);
-                }
+                recordRedeemFailure(userId);
                 log.warn("兑换码已被使用（查询）userId={}，codeKey={}（已脱敏）", userId, maskedKey);
                 throw new ServiceException(ErrorCode.REDEEM_CODE_USED);
             }
@@ -407,14 +355,7 @@ public class CreditRedeemCodeServiceImpl implements CreditRedeemCodeService {
             throw new ServiceException(ErrorCode.REDEEM_CODE_INVALID);
         }
         if (code.getExpireTime() != null && code.getExpireTime().isBefore(LocalDateTime.now())) {
-            int max = systemConfigService.getConfigValueAsInt(SystemConfigKeys.USER_OPERATION_FAIL_MAX_COUNT, 5);
-            int lockMin = systemConfigService.getConfigValueAsInt(SystemConfigKeys.USER_OPERATION_LOCK_DURATION_MINUTES, 30);
-            bruteForceGuard.recordFailure("redeem", userId,
-                    new BruteForceGuard.Policy(max, java.time.Duration.ofMinutes(10), java.time.Duration.ofMinutes(lockMin), false));
-            if (bruteForceGuard.isLocked("redeem", userId)) {
-                forceOfflineAndClearCache(userId);
-                persistUserTempLock(userId);
-            }
+            recordRedeemFailure(userId);
             log.warn("兑换码已过期（查询）userId={}，codeKey={}（已脱敏）", userId, maskedKey);
             throw new ServiceException(ErrorCode.REDEEM_CODE_EXPIRED);
         }
@@ -429,6 +370,18 @@ public class CreditRedeemCodeServiceImpl implements CreditRedeemCodeService {
         return code;
     }
 
+	/**
+	 * 记录一次兑换失败；达到阈值触发锁定时强制下线并落库锁定状态。
+	 *
+	 * @param userId 用户ID
+	 */
+    private void recordRedeemFailure(Long userId) {
+        if (bruteForceGuard.recordFailure(BruteForceGuard.SCENE_REDEEM, userId)) {
+            forceOfflineAndClearCache(userId);
+            persistUserTempLock(userId);
+        }
+    }
+
 	/**
 	 * 强制下线并清理权限缓存（安全触发）。
 	 *
@@ -447,7 +400,7 @@ public class CreditRedeemCodeServiceImpl implements CreditRedeemCodeService {
 	 */
     private void persistUserTempLock(Long userId) {
         try {
-            int lockMin = systemConfigService.getConfigValueAsInt(SystemConfigKeys.USER_OPERATION_LOCK_DURATION_MINUTES, 30);
+            int lockMin = (int) bruteForceGuard.policyOf(BruteForceGuard.SCENE_REDEEM).lockDuration.toMinutes();
             User u = userMapper.selectById(userId);
             if (u != null) {
                 u.setLoginLock(lockMin);
@@ -34,10 +34,6 @@ import org.springframework.transaction.support.TransactionSynchronizationManager
 import org.springframework.util.StringUtils;
 
 import com.okbug.platform.service.permission.PermissionService;
-import com.okbug.platform.mapper.credit.CreditTransactionMapper;
-import java.time.LocalDateTime;
-
-import com.okbug.platform.entity.credit.CreditTransaction;
 
 import java.util.List;
 
@@ -49,8 +45,8 @@ public class CreditScenarioServiceImpl implements CreditScenarioService {
     private final CreditUsageScenarioMapper creditScenarioMapper;
     private final CreditTypeMapper creditTypeMapper;
     private final PermissionService permissionService;
-    private final CreditTransactionMapper creditTransactionMapper;
     private final com.okbug.platform.manager.credit.CreditScenarioManager creditScenarioManager;
+    private final com.okbug.platform.manager.credit.CreditDailyLimitManager creditDailyLimitManager;
     
     @Override
     public IPage<CreditUsageScenario> getScenarioPage(Page<CreditUsageScenario> page, String keyword, String creditTypeCode, Integer status) {
@@ -446,25 +442,13 @@ public class CreditScenarioServiceImpl implements CreditScenarioService {
         }
         
         // 获取使用场景信息
-        LambdaQueryWrapper<CreditUsageScenario> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.eq(CreditUsageScenario::getScenarioCode, scenarioCode);
-        CreditUsageScenario scenario = creditScenarioMapper.selectOne(queryWrapper);
+        CreditUsageScenario scenario = creditScenarioManager.findScenario(scenarioCode);
         if (scenario == null || !scenario.isEnabled() || !scenario.hasDailyLimit()) {
             return false;
         }
         
-        // 查询用户今日使用该场景的次数
-        LocalDateTime today = LocalDateTime.now().withHour(0).withMinute(0).withSecond(0);
-        LocalDateTime tomorrow = today.plusDays(1);
-        
-        LambdaQueryWrapper<CreditTransaction> transactionQueryWrapper = new LambdaQueryWrapper<>();
-        transactionQueryWrapper.eq(CreditTransaction::getUserId, userId);
-        transactionQueryWrapper.eq(CreditTransaction::getScenarioCode, scenarioCode);
-        transactionQueryWrapper.between(CreditTransaction::getCreateTime, today, tomorrow);
-        
-        Long todayUsageCount = creditTransactionMapper.selectCount(transactionQueryWrapper);
-        
-        return todayUsageCount >= scenario.getDailyLimit();
+        // 读取用户今日使用该场景的计数
+        return creditDailyLimitManager.isExceeded(userId, scenario);
     }
     
     // ================ 私有方法 ================
@@ -548,14 +532,14 @@ public class CreditScenarioServiceImpl implements CreditScenarioService {
                 @Override
                 public void afterCommit() {
                     try {
-                        creditScenarioManager.refreshCache();
+                        creditScenarioManager.refreshAndBroadcast();
                     } catch (Exception e) {
                         log.error("事务提交后刷新积分场景缓存失败", e);
                     }
                 }
             });
         } else {
-            creditScenarioManager.refreshCache();
+            creditScenarioManager.refreshAndBroadcast();
         }
     }
 } 
\ No newline at end of file
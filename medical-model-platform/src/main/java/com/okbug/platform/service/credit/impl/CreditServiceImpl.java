@@ -19,7 +19,10 @@ import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.okbug.platform.common.base.ErrorCode;
 import com.okbug.platform.common.base.ServiceException;
+import com.okbug.platform.dto.credit.request.CreditChargeBatchRequest;
 import com.okbug.platform.dto.credit.response.CreditBalanceResponse;
+import com.okbug.platform.dto.credit.response.CreditChargeBatchResponse;
+import com.okbug.platform.dto.credit.response.CreditHoldResponse;
 import com.okbug.platform.dto.credit.response.UserCreditsSummaryResponse;
 import com.okbug.platform.entity.auth.User;
 import com.okbug.platform.entity.credit.CreditTransaction;
@@ -29,26 +32,45 @@ import com.okbug.platform.common.enums.credit.CreditTransactionType;
 import com.okbug.platform.entity.credit.CreditType;
 import com.okbug.platform.entity.credit.CreditUsageScenario;
 import com.okbug.platform.entity.credit.UserCredit;
+import com.okbug.platform.manager.credit.CreditChargeIdempotencyManager;
+import com.okbug.platform.manager.credit.CreditDailyLimitManager;
+import com.okbug.platform.manager.credit.CreditDebitCoalescer;
+import com.okbug.platform.manager.credit.CreditDebitManager;
+import com.okbug.platform.manager.credit.CreditHoldManager;
+import com.okbug.platform.manager.credit.CreditRollupManager;
+import com.okbug.platform.manager.credit.CreditScenarioManager;
 import com.okbug.platform.mapper.credit.CreditTransactionMapper;
 import com.okbug.platform.mapper.credit.CreditTypeMapper;
 import com.okbug.platform.mapper.credit.CreditUsageScenarioMapper;
 import com.okbug.platform.mapper.credit.UserCreditMapper;
 import com.okbug.platform.mapper.auth.UserMapper;
 import com.okbug.platform.service.credit.CreditService;
+import com.okbug.platform.service.security.DataScopeService;
+import com.okbug.platform.common.cache.UserSnapshotCache;
 import com.okbug.platform.service.system.message.NotificationFacade;
  
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 import cn.dev33.satoken.stp.StpUtil;
 import org.springframework.dao.DuplicateKeyException;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
 
 @Slf4j
 @Service
@@ -62,6 +84,16 @@ public class CreditServiceImpl implements CreditService {
     private final CreditUsageScenarioMapper creditScenarioMapper;
     private final CreditTransactionMapper creditTransactionMapper;
     private final UserMapper userMapper;
+    private final UserSnapshotCache userSnapshotCache;
+    private final DataScopeService dataScopeService;
+    private final CreditDebitManager creditDebitManager;
+    private final CreditDebitCoalescer creditDebitCoalescer;
+    private final CreditHoldManager creditHoldManager;
+    private final CreditScenarioManager creditScenarioManager;
+    private final CreditDailyLimitManager creditDailyLimitManager;
+    private final CreditRollupManager creditRollupManager;
+    private final CreditChargeIdempotencyManager creditChargeIdempotencyManager;
+    private final PlatformTransactionManager transactionManager;
     
     private final NotificationFacade notificationFacade;
     
@@ -76,18 +108,14 @@ public class CreditServiceImpl implements CreditService {
         }
         
         // 获取使用场景信息
-        LambdaQueryWrapper<CreditUsageScenario> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.eq(CreditUsageScenario::getScenarioCode, scenarioCode);
-        CreditUsageScenario scenario = creditScenarioMapper.selectOne(queryWrapper);
+        CreditUsageScenario scenario = creditScenarioManager.findScenario(scenarioCode);
         if (scenario == null || !scenario.isEnabled()) {
             log.warn("使用场景不存在或已禁用，场景编码: {}", scenarioCode);
             return false;
         }
         
         // 校验积分类型启用状态
-        LambdaQueryWrapper<CreditType> typeQuery = new LambdaQueryWrapper<>();
-        typeQuery.eq(CreditType::getTypeCode, scenario.getCreditTypeCode());
-        CreditType creditType = creditTypeMapper.selectOne(typeQuery);
+        CreditType creditType = creditScenarioManager.findCreditType(scenario.getCreditTypeCode());
         if (creditType == null || !creditType.isEnabled()) {
             log.warn("积分类型不存在或已禁用，类型编码: {}", scenario.getCreditTypeCode());
             return false;
@@ -100,8 +128,9 @@ public class CreditServiceImpl implements CreditService {
             return false;
         }
         
-        // 验证余额是否足够
-        return userCredit.hasSufficientBalance(amount);
+        // 验证余额是否足够（排除预授权占用）
+        return userCredit.hasSufficientBalance(amount,
+                creditDebitManager.reservedBalance(userId, scenario.getCreditTypeCode()));
     }
     
     @Override
@@ -115,18 +144,20 @@ public class CreditServiceImpl implements CreditService {
             throw new ServiceException(ErrorCode.PARAM_INVALID, "场景编码不能为空，积分数必须大于0");
         }
         
+        // 幂等快速路径：同一订单号的重复请求直接返回首次扣费结果（单次Redis调用）
+        CreditChargeIdempotencyManager.Claim claim = creditChargeIdempotencyManager.claim(userId, orderId);
+        if (claim.isReplayed()) {
+            return claim.getReplayed();
+        }
+        
         // 获取使用场景信息
-        LambdaQueryWrapper<CreditUsageScenario> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.eq(CreditUsageScenario::getScenarioCode, scenarioCode);
-        CreditUsageScenario scenario = creditScenarioMapper.selectOne(queryWrapper);
+        CreditUsageScenario scenario = creditScenarioManager.findScenario(scenarioCode);
         if (scenario == null || !scenario.isEnabled()) {
             throw new ServiceException(ErrorCode.CREDIT_SCENARIO_DISABLED, "使用场景不存在或已禁用");
         }
         
         // 校验积分类型启用状态
-        LambdaQueryWrapper<CreditType> typeQuery = new LambdaQueryWrapper<>();
-        typeQuery.eq(CreditType::getTypeCode, scenario.getCreditTypeCode());
-        CreditType creditType = creditTypeMapper.selectOne(typeQuery);
+        CreditType creditType = creditScenarioManager.findCreditType(scenario.getCreditTypeCode());
         if (creditType == null || !creditType.isEnabled()) {
             throw new ServiceException(ErrorCode.CREDIT_TYPE_DISABLED);
         }
@@ -141,57 +172,126 @@ public class CreditServiceImpl implements CreditService {
             throw new ServiceException(ErrorCode.CREDIT_USER_ROLE_NOT_ALLOWED);
         }
         
-        // 检查每日使用限制
-        if (isDailyLimitExceeded(scenarioCode)) {
-            throw new ServiceException(ErrorCode.CREDIT_DAILY_LIMIT_EXCEEDED);
-        }
-        
         // 获取用户积分账户
         UserCredit userCredit = getUserCreditByUserIdAndType(userId, scenario.getCreditTypeCode());
         if (userCredit == null) {
             throw new ServiceException(ErrorCode.USER_CREDIT_ACCOUNT_NOT_FOUND);
         }
         
-        // 幂等性：如提供订单号，且已有同用户相同订单的消费交易，则直接返回账户快照
-        if (StringUtils.hasText(orderId)) {
-            LambdaQueryWrapper<CreditTransaction> idemQuery = new LambdaQueryWrapper<>();
-            idemQuery.eq(CreditTransaction::getUserId, userId)
-                     .eq(CreditTransaction::getRelatedOrderId, orderId)
-                     .eq(CreditTransaction::getTransactionType, CreditTransactionType.SPEND.getCode())
-                     .eq(CreditTransaction::getIsDeleted, 0);
-            Long existed = creditTransactionMapper.selectCount(idemQuery);
-            if (existed != null && existed > 0) {
-                log.info("积分消费幂等命中，直接返回账户快照，userId={}, scenarioCode={}, orderId={}", userId, scenarioCode, orderId);
-                return userCredit;
-            }
+        // 每日限次：原子校验并占用计数，事务回滚（含扣减失败）时自动归还
+        CreditDailyLimitManager.Reservation dailyUsage = creditDailyLimitManager.tryAcquire(userId, scenario);
+        if (dailyUsage == null) {
+            throw new ServiceException(ErrorCode.CREDIT_DAILY_LIMIT_EXCEEDED);
         }
 
-        // 验证余额是否足够（初次检查）
-        if (!userCredit.hasSufficientBalance(amount)) {
+        // 验证余额是否足够（初次检查，排除预授权占用）
+        if (!userCredit.hasSufficientBalance(amount,
+                creditDebitManager.reservedBalance(userId, scenario.getCreditTypeCode()))) {
             throw new ServiceException(ErrorCode.INSUFFICIENT_CREDIT_BALANCE);
         }
 
-        // 扣减积分（使用乐观锁，带有限次重试）
-        BigDecimal balanceBefore = userCredit.getAvailableBalance();
-        BigDecimal balanceAfter = balanceBefore;
+        // 构造消费交易记录（余额字段在扣减后填充）
+        CreditTransaction transaction = new CreditTransaction();
+        transaction.setUserSubject(userId);
+        transaction.setCreditTypeCode(scenario.getCreditTypeCode());
+        transaction.setTransactionType(CreditTransactionType.SPEND.getCode());
+        transaction.setAmount(amount.negate()); // 消费为负数
+        transaction.setRelatedOrderId(orderId);
+        transaction.setScenarioCode(scenarioCode);
+        String costUnit = creditType.getUnitName() == null ? "" : creditType.getUnitName();
+        String costTypeName = creditType.getTypeName() == null ? scenario.getCreditTypeCode() : creditType.getTypeName();
+        String costText = amount.stripTrailingZeros().toPlainString();
+        transaction.setDescription("消费 " + costText + " " + costUnit + "（类型=" + costTypeName + ", code=" + scenario.getCreditTypeCode() + "）"
+                + "，使用场景: " + scenario.getScenarioName());
+
+        BigDecimal balanceBefore;
+        BigDecimal balanceAfter;
+        if (creditDebitCoalescer.isCoalesced(userId, scenario.getCreditTypeCode())) {
+            // 热点账户合并扣减：账本由合并批次统一写入
+            CreditDebitManager.DebitResult debit;
+            try {
+                debit = creditDebitCoalescer.debit(userId, scenario.getCreditTypeCode(), transaction);
+            } catch (DuplicateKeyException dup) {
+                // 幂等重复的请求不会产生扣减，且批次内其他请求共享本事务，不可回滚
+                log.info("积分消费交易幂等唯一键冲突（合并扣减），视为成功，userId={}, orderId={}, scenario={}", userId, orderId, scenarioCode);
+                dailyUsage.release();
+                UserCredit original = creditChargeIdempotencyManager.resolveDuplicate(userId, orderId, userCredit);
+                claim.complete(original);
+                return original;
+            }
+            userCredit = debit.getAccount();
+            balanceBefore = debit.getBalanceBefore();
+            balanceAfter = debit.getBalanceAfter();
+        } else {
+            if (creditDebitManager.isAtomicDebitEnabled(scenario.getCreditTypeCode())) {
+                // 原子条件扣减：单语句完成余额校验与扣减，与账本写入处于同一事务
+                CreditDebitManager.DebitResult debit = creditDebitManager.debit(userId, scenario.getCreditTypeCode(), amount);
+                userCredit = debit.getAccount();
+                balanceBefore = debit.getBalanceBefore();
+                balanceAfter = debit.getBalanceAfter();
+            } else {
+                userCredit = consumeWithOptimisticLock(userCredit, userId, scenario.getCreditTypeCode(), amount);
+                balanceAfter = userCredit.getAvailableBalance();
+                balanceBefore = balanceAfter.add(amount);
+            }
+            transaction.setBalanceBefore(balanceBefore);
+            transaction.setBalanceAfter(balanceAfter);
+
+            try {
+                int insertResult = creditTransactionMapper.insert(transaction);
+                if (insertResult <= 0) {
+                    throw new ServiceException(ErrorCode.CREDIT_TRANSACTION_FAILED);
+                }
+            } catch (DuplicateKeyException dup) {
+                // 命中DB层幂等唯一键，视为幂等成功：回滚本次扣减，返回首次扣费结果，避免重复扣费
+                TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+                log.info("积分消费交易幂等唯一键冲突，视为成功，userId={}, orderId={}, scenario={}", userId, orderId, scenarioCode);
+                userCredit.setBalance(balanceBefore);
+                userCredit.setTotalConsumed(userCredit.getTotalConsumedAmount().subtract(amount));
+                UserCredit original = creditChargeIdempotencyManager.resolveDuplicate(userId, orderId, userCredit);
+                claim.completeDuplicate(original);
+                return original;
+            }
+        }
+        
+        log.info("积分消费成功，用户ID: {}, 场景: {}, 消费积分数: {}, 余额: {} -> {}", 
+                userId, scenarioCode, amount, balanceBefore, balanceAfter);
+        claim.complete(userCredit);
+
+        // 发送消息通知（不影响主流程）
+        try {
+            String typeName = creditType.getTypeName() == null ? scenario.getCreditTypeCode() : creditType.getTypeName();
+            String unitName = creditType.getUnitName() == null ? "" : creditType.getUnitName();
+            String scenarioName = scenario.getScenarioName();
+            notificationFacade.notifyCreditSpent(userId, scenarioName, typeName, unitName, amount, orderId, balanceBefore, balanceAfter);
+        } catch (Exception e) {
+            log.warn("发送积分消费消息失败，不影响业务，userId={}, scenarioCode={}, error={}", userId, scenarioCode, e.getMessage());
+        }
+        
+        return userCredit;
+    }
+    
+    /**
+     * 乐观锁扣减（带有限次重试），用于未启用原子扣减的积分类型
+     */
+    private UserCredit consumeWithOptimisticLock(UserCredit userCredit, Long userId, String creditTypeCode, BigDecimal amount) {
         int updateResult = 0;
         int retryCount = 0;
         while (updateResult <= 0 && retryCount < MAX_CONSUME_RETRIES) {
             if (retryCount > 0) {
                 // 重新获取最新账户并再次校验余额
-                UserCredit latest = getUserCreditByUserIdAndType(userId, scenario.getCreditTypeCode());
+                UserCredit latest = getUserCreditByUserIdAndType(userId, creditTypeCode);
                 if (latest == null) {
                     throw new ServiceException(ErrorCode.USER_CREDIT_ACCOUNT_NOT_FOUND);
                 }
                 userCredit = latest;
-                if (!userCredit.hasSufficientBalance(amount)) {
+                if (!userCredit.hasSufficientBalance(amount, creditDebitManager.reservedBalance(userId, creditTypeCode))) {
                     throw new ServiceException(ErrorCode.INSUFFICIENT_CREDIT_BALANCE);
                 }
-                balanceBefore = userCredit.getAvailableBalance();
             }
 
             userCredit.subtractBalance(amount);
-            balanceAfter = userCredit.getAvailableBalance();
+            creditDebitManager.recordOptimisticAttempt();
 
             try {
                 updateResult = userCreditMapper.updateById(userCredit);
@@ -200,10 +300,11 @@ public class CreditServiceImpl implements CreditService {
             }
 
             if (updateResult <= 0) {
+                creditDebitManager.recordOptimisticConflict();
                 retryCount++;
                 if (retryCount < MAX_CONSUME_RETRIES) {
                     log.info("消费积分乐观锁冲突，准备重试，第{}次，userId={}, creditType={}",
-                            retryCount, userId, scenario.getCreditTypeCode());
+                            retryCount, userId, creditTypeCode);
                     try {
                         Thread.sleep(50L * retryCount);
                     } catch (InterruptedException ie) {
@@ -215,50 +316,11 @@ public class CreditServiceImpl implements CreditService {
         }
 
         if (updateResult <= 0) {
+            creditDebitManager.recordOptimisticExhausted();
             log.error("积分消费失败，重试{}次后仍失败，userId={}, creditType={}",
-                    MAX_CONSUME_RETRIES, userId, scenario.getCreditTypeCode());
+                    MAX_CONSUME_RETRIES, userId, creditTypeCode);
             throw new ServiceException(ErrorCode.CREDIT_SYSTEM_BESSY);
         }
-        
-        // 记录用户交易
-        CreditTransaction transaction = new CreditTransaction();
-        transaction.setUserSubject(userId);
-        transaction.setCreditTypeCode(scenario.getCreditTypeCode());
-        transaction.setTransactionType(CreditTransactionType.SPEND.getCode());
-        transaction.setAmount(amount.negate()); // 消费为负数
-        transaction.setBalanceBefore(balanceBefore);
-        transaction.setBalanceAfter(balanceAfter);
-        transaction.setRelatedOrderId(orderId);
-        transaction.setScenarioCode(scenarioCode);
-        String costUnit = creditType.getUnitName() == null ? "" : creditType.getUnitName();
-        String costTypeName = creditType.getTypeName() == null ? scenario.getCreditTypeCode() : creditType.getTypeName();
-        String costText = amount.stripTrailingZeros().toPlainString();
-        transaction.setDescription("消费 " + costText + " " + costUnit + "（类型=" + costTypeName + ", code=" + scenario.getCreditTypeCode() + "）"
-                + "，使用场景: " + scenario.getScenarioName());
-        
-        try {
-            int insertResult = creditTransactionMapper.insert(transaction);
-            if (insertResult <= 0) {
-                throw new ServiceException(ErrorCode.CREDIT_TRANSACTION_FAILED);
-            }
-        } catch (DuplicateKeyException dup) {
-            // 命中DB层幂等唯一键，视为幂等成功
-            log.info("积分消费交易幂等唯一键冲突，视为成功，userId={}, orderId={}, scenario={}", userId, orderId, scenarioCode);
-        }
-        
-        log.info("积分消费成功，用户ID: {}, 场景: {}, 消费积分数: {}, 余额: {} -> {}", 
-                userId, scenarioCode, amount, balanceBefore, balanceAfter);
-
-        // 发送消息通知（不影响主流程）
-        try {
-            String typeName = creditType.getTypeName() == null ? scenario.getCreditTypeCode() : creditType.getTypeName();
-            String unitName = creditType.getUnitName() == null ? "" : creditType.getUnitName();
-            String scenarioName = scenario.getScenarioName();
-            notificationFacade.notifyCreditSpent(userId, scenarioName, typeName, unitName, amount, orderId, balanceBefore, balanceAfter);
-        } catch (Exception e) {
-            log.warn("发送积分消费消息失败，不影响业务，userId={}, scenarioCode={}, error={}", userId, scenarioCode, e.getMessage());
-        }
-        
         return userCredit;
     }
     
@@ -304,15 +366,13 @@ public class CreditServiceImpl implements CreditService {
         }
         
         // 获取奖励场景信息
-        CreditUsageScenario scenario = creditScenarioMapper.selectByScenarioCode(rewardType);
+        CreditUsageScenario scenario = creditScenarioManager.findScenario(rewardType);
         if (scenario == null || !scenario.isEnabled()) {
             throw new ServiceException(ErrorCode.CREDIT_SCENARIO_DISABLED, "奖励场景不存在或已禁用");
         }
         
         // 校验积分类型启用状态
-        LambdaQueryWrapper<CreditType> typeQuery = new LambdaQueryWrapper<>();
-        typeQuery.eq(CreditType::getTypeCode, scenario.getCreditTypeCode());
-        CreditType creditType = creditTypeMapper.selectOne(typeQuery);
+        CreditType creditType = creditScenarioManager.findCreditType(scenario.getCreditTypeCode());
         if (creditType == null || !creditType.isEnabled()) {
             throw new ServiceException(ErrorCode.CREDIT_TYPE_DISABLED);
         }
@@ -527,8 +587,7 @@ public class CreditServiceImpl implements CreditService {
         try {
             String typeName = consumeTransaction.getCreditTypeCode();
             // 查询类型名称与单位
-            CreditType creditType2 = creditTypeMapper.selectOne(new LambdaQueryWrapper<CreditType>()
-                    .eq(CreditType::getTypeCode, consumeTransaction.getCreditTypeCode()));
+            CreditType creditType2 = creditScenarioManager.findCreditType(consumeTransaction.getCreditTypeCode());
             String unitName = creditType2 == null || creditType2.getUnitName() == null ? "" : creditType2.getUnitName();
             String typeNameResolved = creditType2 == null || creditType2.getTypeName() == null ? typeName : creditType2.getTypeName();
             notificationFacade.notifyCreditRefunded(userId, orderId, typeNameResolved, unitName, amount, balanceBefore, balanceAfter);
@@ -608,9 +667,7 @@ public class CreditServiceImpl implements CreditService {
         }
         
         // 验证积分类型是否支持转账
-        LambdaQueryWrapper<CreditType> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.eq(CreditType::getTypeCode, creditTypeCode);
-        CreditType creditType = creditTypeMapper.selectOne(queryWrapper);
+        CreditType creditType = creditScenarioManager.findCreditType(creditTypeCode);
         if (creditType == null || !creditType.isEnabled() || !creditType.isTransferable()) {
             throw new ServiceException(ErrorCode.CREDIT_TRANSFER_NOT_ALLOWED);
         }
@@ -621,8 +678,8 @@ public class CreditServiceImpl implements CreditService {
             throw new ServiceException(ErrorCode.USER_CREDIT_ACCOUNT_NOT_FOUND);
         }
         
-        // 验证余额是否足够
-        if (!fromUserCredit.hasSufficientBalance(amount)) {
+        // 验证余额是否足够（排除预授权占用）
+        if (!fromUserCredit.hasSufficientBalance(amount, creditDebitManager.reservedBalance(fromUserId, creditTypeCode))) {
             throw new ServiceException(ErrorCode.CREDIT_TRANSFER_INSUFFICIENT_BALANCE);
         }
         
@@ -756,9 +813,7 @@ public class CreditServiceImpl implements CreditService {
         }
         
         // 验证积分类型是否存在
-        LambdaQueryWrapper<CreditType> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.eq(CreditType::getTypeCode, creditTypeCode);
-        CreditType creditType = creditTypeMapper.selectOne(queryWrapper);
+        CreditType creditType = creditScenarioManager.findCreditType(creditTypeCode);
         if (creditType == null || !creditType.isEnabled()) {
             throw new ServiceException(ErrorCode.CREDIT_TYPE_DISABLED, "积分类型不存在或已禁用");
         }
@@ -768,7 +823,7 @@ public class CreditServiceImpl implements CreditService {
         if (allocatorCredit == null) {
             throw new ServiceException(ErrorCode.USER_CREDIT_ACCOUNT_NOT_FOUND, "分配方积分账户不存在");
         }
-        if (!allocatorCredit.hasSufficientBalance(amount)) {
+        if (!allocatorCredit.hasSufficientBalance(amount, creditDebitManager.reservedBalance(userId, creditTypeCode))) {
             throw new ServiceException(ErrorCode.INSUFFICIENT_CREDIT_BALANCE, "分配方积分余额不足");
         }
 
@@ -930,17 +985,13 @@ public class CreditServiceImpl implements CreditService {
             return null;
         }
         
-        LambdaQueryWrapper<CreditUsageScenario> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.eq(CreditUsageScenario::getScenarioCode, scenarioCode);
-        CreditUsageScenario scenario = creditScenarioMapper.selectOne(queryWrapper);
+        CreditUsageScenario scenario = creditScenarioManager.findScenario(scenarioCode);
         if (scenario == null || !scenario.isEnabled()) {
             return null;
         }
         
         // 校验积分类型启用状态
-        LambdaQueryWrapper<CreditType> typeQuery = new LambdaQueryWrapper<>();
-        typeQuery.eq(CreditType::getTypeCode, scenario.getCreditTypeCode());
-        CreditType creditType = creditTypeMapper.selectOne(typeQuery);
+        CreditType creditType = creditScenarioManager.findCreditType(scenario.getCreditTypeCode());
         if (creditType == null || !creditType.isEnabled()) {
             return null;
         }
@@ -963,17 +1014,13 @@ public class CreditServiceImpl implements CreditService {
             return null;
         }
         
-        LambdaQueryWrapper<CreditUsageScenario> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.eq(CreditUsageScenario::getScenarioCode, rewardType);
-        CreditUsageScenario scenario = creditScenarioMapper.selectOne(queryWrapper);
+        CreditUsageScenario scenario = creditScenarioManager.findScenario(rewardType);
         if (scenario == null || !scenario.isEnabled()) {
             return null;
         }
         
         // 校验积分类型启用状态
-        LambdaQueryWrapper<CreditType> typeQuery = new LambdaQueryWrapper<>();
-        typeQuery.eq(CreditType::getTypeCode, scenario.getCreditTypeCode());
-        CreditType creditType = creditTypeMapper.selectOne(typeQuery);
+        CreditType creditType = creditScenarioManager.findCreditType(scenario.getCreditTypeCode());
         if (creditType == null || !creditType.isEnabled()) {
             return null;
         }
@@ -994,9 +1041,7 @@ public class CreditServiceImpl implements CreditService {
             return false;
         }
         
-        LambdaQueryWrapper<CreditType> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.eq(CreditType::getTypeCode, creditTypeCode);
-        CreditType creditType = creditTypeMapper.selectOne(queryWrapper);
+        CreditType creditType = creditScenarioManager.findCreditType(creditTypeCode);
         return creditType != null && creditType.isEnabled();
     }
     
@@ -1006,17 +1051,13 @@ public class CreditServiceImpl implements CreditService {
             return false;
         }
         
-        LambdaQueryWrapper<CreditUsageScenario> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.eq(CreditUsageScenario::getScenarioCode, scenarioCode);
-        CreditUsageScenario scenario = creditScenarioMapper.selectOne(queryWrapper);
+        CreditUsageScenario scenario = creditScenarioManager.findScenario(scenarioCode);
         if (scenario == null || !scenario.isEnabled()) {
             return false;
         }
         
         // 校验积分类型启用状态
-        LambdaQueryWrapper<CreditType> typeQuery = new LambdaQueryWrapper<>();
-        typeQuery.eq(CreditType::getTypeCode, scenario.getCreditTypeCode());
-        CreditType creditType = creditTypeMapper.selectOne(typeQuery);
+        CreditType creditType = creditScenarioManager.findCreditType(scenario.getCreditTypeCode());
         return creditType != null && creditType.isEnabled();
     }
     
@@ -1030,38 +1071,37 @@ public class CreditServiceImpl implements CreditService {
         }
         
         // 获取场景信息
-        LambdaQueryWrapper<CreditUsageScenario> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.eq(CreditUsageScenario::getScenarioCode, scenarioCode);
-        CreditUsageScenario scenario = creditScenarioMapper.selectOne(queryWrapper);
+        CreditUsageScenario scenario = creditScenarioManager.findScenario(scenarioCode);
         if (scenario == null || !scenario.isEnabled()) {
             return false;
         }
         
         // 校验积分类型启用状态
-        LambdaQueryWrapper<CreditType> typeQuery = new LambdaQueryWrapper<>();
-        typeQuery.eq(CreditType::getTypeCode, scenario.getCreditTypeCode());
-        CreditType creditType = creditTypeMapper.selectOne(typeQuery);
+        CreditType creditType = creditScenarioManager.findCreditType(scenario.getCreditTypeCode());
         if (creditType == null || !creditType.isEnabled()) {
             return false;
         }
         
         // 检查用户角色权限
-        if (StringUtils.hasText(scenario.getUserRoles())) {
-            String[] allowedRoles = scenario.getUserRoles().split(",");
-            String userRole = getUserRole(userId);
-            if (userRole == null) {
-                return false;
-            }
-            for (String role : allowedRoles) {
-                if (role != null && role.trim().equalsIgnoreCase(userRole)) {
-                    return true;
-                }
-            }
+        return isRoleAllowed(scenario, getUserRole(userId));
+    }
+    
+    /**
+     * 场景角色限制校验：未配置角色限制时允许所有用户使用
+     */
+    private boolean isRoleAllowed(CreditUsageScenario scenario, String userRole) {
+        if (!StringUtils.hasText(scenario.getUserRoles())) {
+            return true;
+        }
+        if (userRole == null) {
             return false;
         }
-        
-        // 如果没有角色限制，默认允许所有用户使用
-        return true;
+        for (String role : scenario.getUserRoles().split(",")) {
+            if (role != null && role.trim().equalsIgnoreCase(userRole)) {
+                return true;
+            }
+        }
+        return false;
     }
     
     @Override
@@ -1074,31 +1114,16 @@ public class CreditServiceImpl implements CreditService {
         }
         
         // 获取场景信息
-        LambdaQueryWrapper<CreditUsageScenario> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.eq(CreditUsageScenario::getScenarioCode, scenarioCode);
-        CreditUsageScenario scenario = creditScenarioMapper.selectOne(queryWrapper);
+        CreditUsageScenario scenario = creditScenarioManager.findScenario(scenarioCode);
         if (scenario == null || !scenario.isEnabled() || scenario.getDailyLimit() == null) {
             return false; // 没有限制或场景不存在
         }
         
-        // 查询今日使用次数
-        LocalDateTime todayStart = LocalDateTime.now().withHour(0).withMinute(0).withSecond(0).withNano(0);
-        LocalDateTime todayEnd = todayStart.plusDays(1);
-        
-        LambdaQueryWrapper<CreditTransaction> transactionQuery = new LambdaQueryWrapper<>();
-        transactionQuery.eq(CreditTransaction::getUserId, userId);
-        transactionQuery.eq(CreditTransaction::getScenarioCode, scenarioCode);
-        transactionQuery.eq(CreditTransaction::getTransactionType, CreditTransactionType.SPEND.getCode());
-        transactionQuery.ge(CreditTransaction::getCreateTime, todayStart);
-        transactionQuery.lt(CreditTransaction::getCreateTime, todayEnd);
-        transactionQuery.eq(CreditTransaction::getIsDeleted, 0);
-        
-        Long todayUsageCount = creditTransactionMapper.selectCount(transactionQuery);
-        
-        boolean exceeded = todayUsageCount >= scenario.getDailyLimit();
+        // 读取今日使用计数（计数器由扣减路径原子维护）
+        boolean exceeded = creditDailyLimitManager.isExceeded(userId, scenario);
         if (exceeded) {
-            log.warn("用户每日使用限制已超，用户ID: {}, 场景: {}, 今日使用: {}, 限制: {}", 
-                    userId, scenarioCode, todayUsageCount, scenario.getDailyLimit());
+            log.warn("用户每日使用限制已超，用户ID: {}, 场景: {}, 限制: {}", 
+                    userId, scenarioCode, scenario.getDailyLimit());
         }
         
         return exceeded;
@@ -1115,9 +1140,7 @@ public class CreditServiceImpl implements CreditService {
         }
 
         // 读取场景配置并校验启用、类型状态
-        LambdaQueryWrapper<CreditUsageScenario> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.eq(CreditUsageScenario::getScenarioCode, scenarioCode);
-        CreditUsageScenario scenario = creditScenarioMapper.selectOne(queryWrapper);
+        CreditUsageScenario scenario = creditScenarioManager.findScenario(scenarioCode);
         if (scenario == null) {
             throw new ServiceException(ErrorCode.CREDIT_SCENARIO_NOT_FOUND, "使用场景不存在");
         }
@@ -1125,9 +1148,7 @@ public class CreditServiceImpl implements CreditService {
             throw new ServiceException(ErrorCode.CREDIT_SCENARIO_DISABLED, "使用场景已禁用");
         }
 
-        LambdaQueryWrapper<CreditType> typeQuery = new LambdaQueryWrapper<>();
-        typeQuery.eq(CreditType::getTypeCode, scenario.getCreditTypeCode());
-        CreditType creditType = creditTypeMapper.selectOne(typeQuery);
+        CreditType creditType = creditScenarioManager.findCreditType(scenario.getCreditTypeCode());
         if (creditType == null || !creditType.isEnabled()) {
             throw new ServiceException(ErrorCode.CREDIT_TYPE_DISABLED, "积分类型不存在或已禁用");
         }
@@ -1152,28 +1173,323 @@ public class CreditServiceImpl implements CreditService {
             return rewardCredits(userId, scenarioCode, rewardAmount, relatedUserId);
         }
 
-        // 消费：正数 -> 前置扣费；支持订单号防重复
+        // 消费：正数 -> 前置扣费；订单号防重复由 consumeCredits 的幂等登记处理
         BigDecimal consumeAmount = costPerUse;
 
-        // 幂等：若传了订单号，检查是否已有消费交易
-        if (StringUtils.hasText(relatedOrderId)) {
-            LambdaQueryWrapper<CreditTransaction> txQuery = new LambdaQueryWrapper<>();
-            txQuery.eq(CreditTransaction::getUserId, userId)
-                   .eq(CreditTransaction::getRelatedOrderId, relatedOrderId)
-                   .eq(CreditTransaction::getTransactionType, CreditTransactionType.SPEND.getCode());
-            Long exist = creditTransactionMapper.selectCount(txQuery);
-            if (exist != null && exist > 0) {
-                // 已扣过费，直接返回账户快照
-                UserCredit userCredit = getUserCreditByUserIdAndType(userId, scenario.getCreditTypeCode());
-                if (userCredit == null) {
-                    throw new ServiceException(ErrorCode.USER_CREDIT_ACCOUNT_NOT_FOUND);
+        // 权限校验（每日限次由 consumeCredits 原子占用）
+        if (!canUserUseScenario(scenarioCode)) {
+            throw new ServiceException(ErrorCode.CREDIT_USER_ROLE_NOT_ALLOWED);
+        }
+
+        // 简化：统一走用户账户扣减
+        return consumeCredits(scenarioCode, consumeAmount, relatedOrderId);
+    }
+
+    @Override
+    public CreditChargeBatchResponse applyScenarioBatch(List<CreditChargeBatchRequest.Item> items) {
+        if (items == null || items.isEmpty()) {
+            throw new ServiceException(ErrorCode.PARAM_MISSING, "扣费明细不能为空");
+        }
+        log.info("批量计量扣费，明细数: {}", items.size());
+
+        int size = items.size();
+        List<CreditChargeBatchResponse.ItemResult> results = new ArrayList<>(size);
+        CreditUsageScenario[] scenarios = new CreditUsageScenario[size];
+        CreditTransaction[] ledgers = new CreditTransaction[size];
+        // 通过校验、待占用每日限次的明细下标
+        List<Integer> candidates = new ArrayList<>(size);
+        // 分组键：userId#creditTypeCode -> 明细下标（保持上报顺序）
+        Map<String, List<Integer>> groups = new LinkedHashMap<>();
+        Map<Long, String> roleCache = new HashMap<>();
+        // 数据域校验：仅允许为操作人可查看的用户扣费（整批去重后一次 IN 查询）
+        Long operatorId = StpUtil.getLoginIdAsLong();
+        Set<Long> visibleUserIds = resolveVisibleUsers(operatorId, items);
+
+        for (int i = 0; i < size; i++) {
+            CreditChargeBatchRequest.Item item = items.get(i);
+            CreditChargeBatchResponse.ItemResult result = new CreditChargeBatchResponse.ItemResult();
+            result.setIndex(i);
+            result.setUserId(item.getUserId());
+            result.setScenarioCode(item.getScenarioCode());
+            result.setOrderId(item.getOrderId());
+            results.add(result);
+
+            if (!visibleUserIds.contains(item.getUserId())) {
+                rejectChargeItem(result, ErrorCode.PERMISSION_DENIED, "无权为该用户扣费");
+                continue;
+            }
+
+            CreditUsageScenario scenario = creditScenarioManager.findScenario(item.getScenarioCode());
+            if (scenario == null || !scenario.isEnabled()) {
+                rejectChargeItem(result, ErrorCode.CREDIT_SCENARIO_DISABLED, null);
+                continue;
+            }
+            CreditType creditType = creditScenarioManager.findCreditType(scenario.getCreditTypeCode());
+            if (creditType == null || !creditType.isEnabled()) {
+                rejectChargeItem(result, ErrorCode.CREDIT_TYPE_DISABLED, null);
+                continue;
+            }
+            if (scenario.getCostPerUse() == null || scenario.getCostPerUse().compareTo(BigDecimal.ZERO) <= 0) {
+                rejectChargeItem(result, ErrorCode.BUSINESS_RULE_VIOLATION, "批量扣费仅支持消费场景");
+                continue;
+            }
+            String userRole = roleCache.computeIfAbsent(item.getUserId(), this::getUserRole);
+            if (!isRoleAllowed(scenario, userRole)) {
+                rejectChargeItem(result, ErrorCode.CREDIT_USER_ROLE_NOT_ALLOWED, null);
+                continue;
+            }
+
+            int quantity = item.getQuantity() == null ? 1 : item.getQuantity();
+            BigDecimal amount = scenario.getCostPerUse().multiply(BigDecimal.valueOf(quantity));
+            result.setAmount(amount);
+
+            CreditTransaction transaction = new CreditTransaction();
+            transaction.setUserSubject(item.getUserId());
+            transaction.setCreditTypeCode(scenario.getCreditTypeCode());
+            transaction.setTransactionType(CreditTransactionType.SPEND.getCode());
+            transaction.setAmount(amount.negate());
+            transaction.setRelatedOrderId(item.getOrderId());
+            transaction.setScenarioCode(scenario.getScenarioCode());
+            String costUnit = creditType.getUnitName() == null ? "" : creditType.getUnitName();
+            String costTypeName = creditType.getTypeName() == null ? scenario.getCreditTypeCode() : creditType.getTypeName();
+            transaction.setDescription("消费 " + amount.stripTrailingZeros().toPlainString() + " " + costUnit
+                    + "（类型=" + costTypeName + ", code=" + scenario.getCreditTypeCode() + "）"
+                    + "，使用场景: " + scenario.getScenarioName()
+                    + (quantity > 1 ? "，用量: " + quantity : ""));
+
+            scenarios[i] = scenario;
+            ledgers[i] = transaction;
+            candidates.add(i);
+        }
+
+        // 每日限次：整批一次Lua调用占用，未达上限的明细再按账户分组
+        CreditDailyLimitManager.Reservation[] dailyUsages = acquireDailyUsages(items, scenarios, candidates);
+        for (Integer i : candidates) {
+            if (dailyUsages[i] == null) {
+                rejectChargeItem(results.get(i), ErrorCode.CREDIT_DAILY_LIMIT_EXCEEDED, null);
+                continue;
+            }
+            groups.computeIfAbsent(items.get(i).getUserId() + "#" + scenarios[i].getCreditTypeCode(), k -> new ArrayList<>()).add(i);
+        }
+
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        for (List<Integer> indices : groups.values()) {
+            Long userId = items.get(indices.get(0)).getUserId();
+            String creditTypeCode = ledgers[indices.get(0)].getCreditTypeCode();
+            try {
+                template.executeWithoutResult(status ->
+                        chargeAccount(userId, creditTypeCode, indices, dailyUsages, ledgers, results));
+            } catch (ServiceException e) {
+                // 账户级失败（如账户不存在）：整组回滚，组内明细均未扣费，归还限次占用
+                for (Integer index : indices) {
+                    dailyUsages[index].release();
+                    rejectChargeItem(results.get(index), e.getCode(), e.getMessage());
                 }
-                log.info("积分消费幂等检查通过，用户ID: {}, 订单号: {}, 场景: {}", userId, relatedOrderId, scenarioCode);
-                return userCredit;
+            } catch (Exception e) {
+                log.error("批量计量扣费账户处理失败，userId={}, creditTypeCode={}", userId, creditTypeCode, e);
+                for (Integer index : indices) {
+                    dailyUsages[index].release();
+                    rejectChargeItem(results.get(index), ErrorCode.CREDIT_SYSTEM_BESSY, null);
+                }
+            }
+        }
+
+        CreditChargeBatchResponse response = new CreditChargeBatchResponse();
+        int applied = 0;
+        int duplicated = 0;
+        BigDecimal totalAmount = BigDecimal.ZERO;
+        for (CreditChargeBatchResponse.ItemResult result : results) {
+            if (CreditChargeBatchResponse.STATUS_APPLIED.equals(result.getStatus())) {
+                applied++;
+                totalAmount = totalAmount.add(result.getAmount());
+            } else if (CreditChargeBatchResponse.STATUS_DUPLICATE.equals(result.getStatus())) {
+                duplicated++;
             }
         }
+        response.setTotal(size);
+        response.setApplied(applied);
+        response.setDuplicated(duplicated);
+        response.setFailed(size - applied - duplicated);
+        response.setTotalAmount(totalAmount);
+        response.setResults(results);
+        log.info("批量计量扣费完成，明细数: {}, 账户数: {}, 成功: {}, 重复: {}, 失败: {}, 扣费合计: {}",
+                size, groups.size(), applied, duplicated, response.getFailed(), totalAmount);
+        return response;
+    }
+
+    /**
+     * 数据域批量校验：去重后的目标用户一次 IN 查询（操作人自身始终可见）
+     */
+    private Set<Long> resolveVisibleUsers(Long operatorId, List<CreditChargeBatchRequest.Item> items) {
+        Set<Long> targetUserIds = new HashSet<>();
+        for (CreditChargeBatchRequest.Item item : items) {
+            if (item.getUserId() != null && !item.getUserId().equals(operatorId)) {
+                targetUserIds.add(item.getUserId());
+            }
+        }
+        Set<Long> visible = new HashSet<>(dataScopeService.filterContained(
+                dataScopeService.visibleUserScope(operatorId, getUserRole(operatorId)), targetUserIds));
+        visible.add(operatorId);
+        return visible;
+    }
+
+    /**
+     * 整批占用每日限次（一次Lua调用），返回按明细下标对应的占用凭证，已达上限为null
+     */
+    private CreditDailyLimitManager.Reservation[] acquireDailyUsages(List<CreditChargeBatchRequest.Item> items,
+                                                                     CreditUsageScenario[] scenarios, List<Integer> candidates) {
+        CreditDailyLimitManager.Reservation[] dailyUsages = new CreditDailyLimitManager.Reservation[scenarios.length];
+        if (candidates.isEmpty()) {
+            return dailyUsages;
+        }
+        List<Long> userIds = new ArrayList<>(candidates.size());
+        List<CreditUsageScenario> candidateScenarios = new ArrayList<>(candidates.size());
+        for (Integer i : candidates) {
+            userIds.add(items.get(i).getUserId());
+            candidateScenarios.add(scenarios[i]);
+        }
+        List<CreditDailyLimitManager.Reservation> acquired = creditDailyLimitManager.tryAcquireAll(userIds, candidateScenarios);
+        for (int k = 0; k < candidates.size(); k++) {
+            dailyUsages[candidates.get(k)] = acquired.get(k);
+        }
+        return dailyUsages;
+    }
+
+    /**
+     * 单账户批量扣费（在调用方事务内执行）：一次性扣减并写入账本，未扣费的明细归还每日限次占用
+     */
+    private void chargeAccount(Long userId, String creditTypeCode, List<Integer> indices,
+                               CreditDailyLimitManager.Reservation[] dailyUsages, CreditTransaction[] ledgers,
+                               List<CreditChargeBatchResponse.ItemResult> results) {
+        List<CreditTransaction> batch = new ArrayList<>(indices.size());
+        for (Integer index : indices) {
+            batch.add(ledgers[index]);
+        }
+
+        CreditDebitManager.BatchDebitResult debit = creditDebitManager.debitBatch(userId, creditTypeCode, batch);
+        for (int i = 0; i < indices.size(); i++) {
+            CreditChargeBatchResponse.ItemResult result = results.get(indices.get(i));
+            switch (debit.getOutcomes().get(i)) {
+                case APPLIED:
+                    result.setStatus(CreditChargeBatchResponse.STATUS_APPLIED);
+                    result.setBalanceAfter(debit.getResults().get(i).getBalanceAfter());
+                    result.setTransactionId(batch.get(i).getId());
+                    break;
+                case DUPLICATE:
+                    dailyUsages[indices.get(i)].release();
+                    result.setStatus(CreditChargeBatchResponse.STATUS_DUPLICATE);
+                    break;
+                default:
+                    dailyUsages[indices.get(i)].release();
+                    result.setStatus(CreditChargeBatchResponse.STATUS_INSUFFICIENT);
+                    result.setErrorCode(ErrorCode.INSUFFICIENT_CREDIT_BALANCE.getCode());
+                    result.setErrorMessage(ErrorCode.INSUFFICIENT_CREDIT_BALANCE.getMessage());
+                    break;
+            }
+        }
+    }
+
+    private void rejectChargeItem(CreditChargeBatchResponse.ItemResult result, ErrorCode errorCode, String message) {
+        rejectChargeItem(result, errorCode.getCode(), message != null ? message : errorCode.getMessage());
+    }
+
+    private void rejectChargeItem(CreditChargeBatchResponse.ItemResult result, Integer code, String message) {
+        result.setStatus(CreditChargeBatchResponse.STATUS_REJECTED);
+        result.setBalanceAfter(null);
+        result.setTransactionId(null);
+        result.setErrorCode(code);
+        result.setErrorMessage(message);
+    }
+
+    @Override
+    public Map<String, Object> getCreditStatistics(String type, LocalDateTime startTime, LocalDateTime endTime, Long teamId) {
+        String statType = StringUtils.hasText(type) ? type.trim().toUpperCase() : "DAILY";
+        LocalDateTime end = endTime != null ? endTime : LocalDateTime.now();
+        LocalDateTime start = startTime;
+        if (start == null) {
+            LocalDateTime todayStart = end.toLocalDate().atStartOfDay();
+            switch (statType) {
+                case "WEEKLY":
+                    start = todayStart.minusDays(6);
+                    break;
+                case "MONTHLY":
+                    start = todayStart.minusDays(29);
+                    break;
+                default:
+                    start = todayStart;
+                    break;
+            }
+        }
+        if (start.isAfter(end)) {
+            throw new ServiceException(ErrorCode.PARAM_INVALID, "开始时间不能晚于结束时间");
+        }
+        log.info("积分系统统计，类型: {}, 时间范围: {} - {}, 团队ID: {}", statType, start, end, teamId);
+
+        // 账户汇总：按积分类型 GROUP BY
+        List<Map<String, Object>> accounts = new ArrayList<>();
+        for (Map<String, Object> row : userCreditMapper.selectTotalsGroupByCreditType()) {
+            String creditTypeCode = (String) row.get("credit_type_code");
+            CreditType creditType = creditScenarioManager.findCreditType(creditTypeCode);
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("creditTypeCode", creditTypeCode);
+            item.put("creditTypeName", creditType != null ? creditType.getTypeName() : creditTypeCode);
+            item.put("accountCount", toDecimal(row.get("account_count")).longValue());
+            item.put("totalBalance", toDecimal(row.get("total_balance")));
+            item.put("totalEarned", toDecimal(row.get("total_earned")));
+            item.put("totalConsumed", toDecimal(row.get("total_consumed")));
+            accounts.add(item);
+        }
+
+        // 交易汇总：按积分类型、交易类型 GROUP BY（create_time 为秒级精度，结束时间按秒换算为开区间）
+        LocalDateTime endExclusive = end.truncatedTo(ChronoUnit.SECONDS).plusSeconds(1);
+        List<Map<String, Object>> transactions = new ArrayList<>();
+        for (Map<String, Object> row : creditRollupManager.summarizeByType(start, endExclusive, teamId)) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("creditTypeCode", row.get("credit_type_code"));
+            item.put("transactionType", row.get("transaction_type"));
+            item.put("count", toDecimal(row.get("tx_count")).longValue());
+            item.put("totalAmount", toDecimal(row.get("total_amount")));
+            transactions.add(item);
+        }
+
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("type", statType);
+        statistics.put("startTime", start);
+        statistics.put("endTime", end);
+        statistics.put("teamId", teamId);
+        statistics.put("accounts", accounts);
+        statistics.put("transactions", transactions);
+        return statistics;
+    }
+
+    private BigDecimal toDecimal(Object value) {
+        return value == null ? BigDecimal.ZERO : new BigDecimal(value.toString());
+    }
+
+    @Override
+    public CreditHoldResponse holdCredits(String scenarioCode, BigDecimal amount, String orderId, Integer ttlSeconds) {
+        Long userId = StpUtil.getLoginIdAsLong();
+        log.info("积分预授权，用户ID: {}, 场景编码: {}, 积分数: {}, 订单号: {}", userId, scenarioCode, amount, orderId);
+
+        if (!StringUtils.hasText(scenarioCode)) {
+            throw new ServiceException(ErrorCode.PARAM_MISSING, "使用场景编码不能为空");
+        }
+
+        CreditUsageScenario scenario = creditScenarioManager.findScenario(scenarioCode);
+        if (scenario == null || !scenario.isEnabled()) {
+            throw new ServiceException(ErrorCode.CREDIT_SCENARIO_DISABLED, "使用场景不存在或已禁用");
+        }
+
+        CreditType creditType = creditScenarioManager.findCreditType(scenario.getCreditTypeCode());
+        if (creditType == null || !creditType.isEnabled()) {
+            throw new ServiceException(ErrorCode.CREDIT_TYPE_DISABLED);
+        }
+
+        BigDecimal holdAmount = amount != null ? amount : scenario.getCostPerUse();
+        if (holdAmount == null || holdAmount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new ServiceException(ErrorCode.PARAM_INVALID, "预授权积分数必须大于0");
+        }
 
-        // 权限与每日限次
         if (!canUserUseScenario(scenarioCode)) {
             throw new ServiceException(ErrorCode.CREDIT_USER_ROLE_NOT_ALLOWED);
         }
@@ -1181,8 +1497,68 @@ public class CreditServiceImpl implements CreditService {
             throw new ServiceException(ErrorCode.CREDIT_DAILY_LIMIT_EXCEEDED);
         }
 
-        // 简化：统一走用户账户扣减
-        return consumeCredits(scenarioCode, consumeAmount, relatedOrderId);
+        UserCredit userCredit = getUserCreditByUserIdAndType(userId, scenario.getCreditTypeCode());
+        if (userCredit == null) {
+            throw new ServiceException(ErrorCode.USER_CREDIT_ACCOUNT_NOT_FOUND);
+        }
+
+        CreditHoldResponse hold = creditHoldManager.hold(userId, scenario.getCreditTypeCode(), scenarioCode, orderId,
+                holdAmount, userCredit.getAvailableBalance(), ttlSeconds);
+        log.info("积分预授权成功，用户ID: {}, 预授权ID: {}, 积分数: {}", userId, hold.getHoldId(), hold.getAmount());
+        return hold;
+    }
+
+    @Override
+    public CreditHoldResponse captureHold(String holdId, BigDecimal amount) {
+        CreditHoldResponse hold = getHold(holdId);
+        BigDecimal captureAmount = amount != null ? amount : hold.getAmount();
+        if (captureAmount.compareTo(BigDecimal.ZERO) < 0) {
+            throw new ServiceException(ErrorCode.PARAM_INVALID, "结算积分不能为负数");
+        }
+        if (captureAmount.compareTo(hold.getAmount()) > 0) {
+            throw new ServiceException(ErrorCode.CREDIT_HOLD_CAPTURE_EXCEEDED);
+        }
+
+        String scenarioName = hold.getScenarioCode();
+        if (StringUtils.hasText(hold.getScenarioCode())) {
+            CreditUsageScenario scenario = creditScenarioManager.findScenario(hold.getScenarioCode());
+            if (scenario != null) {
+                scenarioName = scenario.getScenarioName();
+            }
+        }
+        String description = "预授权结算 " + captureAmount.stripTrailingZeros().toPlainString()
+                + "（预授权 " + hold.getAmount().stripTrailingZeros().toPlainString() + ", code=" + hold.getCreditTypeCode() + "）"
+                + "，使用场景: " + scenarioName;
+
+        CreditHoldResponse captured = creditHoldManager.capture(hold, captureAmount, description);
+        if (captureAmount.compareTo(BigDecimal.ZERO) > 0 && StringUtils.hasText(hold.getScenarioCode())) {
+            // 结算产生消费流水，计入当日使用次数
+            creditDailyLimitManager.record(hold.getUserId(), hold.getScenarioCode());
+        }
+        log.info("积分预授权结算成功，用户ID: {}, 预授权ID: {}, 结算积分: {}", hold.getUserId(), holdId, captureAmount);
+        return captured;
+    }
+
+    @Override
+    public CreditHoldResponse releaseHold(String holdId) {
+        CreditHoldResponse hold = getHold(holdId);
+        CreditHoldResponse released = creditHoldManager.release(hold);
+        log.info("积分预授权已释放，用户ID: {}, 预授权ID: {}", hold.getUserId(), holdId);
+        return released;
+    }
+
+    @Override
+    public CreditHoldResponse getHold(String holdId) {
+        Long userId = StpUtil.getLoginIdAsLong();
+        if (!StringUtils.hasText(holdId)) {
+            throw new ServiceException(ErrorCode.PARAM_MISSING, "预授权ID不能为空");
+        }
+        CreditHoldResponse hold = creditHoldManager.getHold(holdId);
+        // 非本人预授权按不存在处理，避免泄露
+        if (hold == null || !userId.equals(hold.getUserId())) {
+            throw new ServiceException(ErrorCode.CREDIT_HOLD_NOT_FOUND);
+        }
+        return hold;
     }
 
     @Override
@@ -1202,26 +1578,23 @@ public class CreditServiceImpl implements CreditService {
                     .or().eq(User::getId, tryParseLong(keyword))
             );
         }
-        // 数据域：USER仅自己；ADMIN仅自己+子账号；SUPER_ADMIN所有
-        if (!User.ROLE_SUPER_ADMIN.equals(role)) {
-            java.util.Set<Long> visibleUserIds = new java.util.HashSet<>();
-            visibleUserIds.add(currentUserId);
-            if (User.ROLE_ADMIN.equals(role)) {
-                visibleUserIds.addAll(getAllSubUserIds(currentUserId));
-            }
-            if (visibleUserIds.isEmpty()) {
-                // 确保不会查到任何记录
-                userQuery.eq(User::getId, -1L);
-            } else {
-                userQuery.in(User::getId, visibleUserIds);
-            }
-        }
+        // 数据域：USER仅自己；ADMIN仅自己+子账号；SUPER_ADMIN所有（闭包表子查询内联到分页SQL）
+        dataScopeService.visibleUserScope(currentUserId, role).applyTo(userQuery, User::getId);
         IPage<User> userPage = userMapper.selectPage(page, userQuery);
 
-        // 组装响应
+        // 组装响应：本页用户的积分账户一次 IN 查询取回，积分类型读配置快照
         List<User> users = userPage.getRecords();
         List<UserCreditsSummaryResponse> records = new ArrayList<>();
         if (users != null && !users.isEmpty()) {
+            List<Long> userIds = new ArrayList<>(users.size());
+            for (User user : users) {
+                userIds.add(user.getId());
+            }
+            Map<Long, List<UserCredit>> creditsByUser = new HashMap<>();
+            for (UserCredit uc : userCreditMapper.selectByUserIds(userIds)) {
+                creditsByUser.computeIfAbsent(uc.getUserId(), k -> new ArrayList<>()).add(uc);
+            }
+
             for (User user : users) {
                 UserCreditsSummaryResponse summary = new UserCreditsSummaryResponse();
                 summary.setUserId(user.getId());
@@ -1229,8 +1602,7 @@ public class CreditServiceImpl implements CreditService {
                 summary.setNickname(user.getNickname());
                 summary.setRole(user.getRole());
 
-                // 查询该用户的积分账户列表
-                List<UserCredit> userCredits = userCreditMapper.selectByUserId(user.getId());
+                List<UserCredit> userCredits = creditsByUser.getOrDefault(user.getId(), Collections.emptyList());
                 List<CreditBalanceResponse.CreditAccountInfo> accounts = new ArrayList<>();
                 BigDecimal totalConsumedSum = BigDecimal.ZERO;
                 for (UserCredit uc : userCredits) {
@@ -1242,8 +1614,7 @@ public class CreditServiceImpl implements CreditService {
                     totalConsumedSum = totalConsumedSum.add(uc.getTotalConsumedAmount());
 
                     // 附加类型显示信息
-                    CreditType creditType = creditTypeMapper.selectOne(new LambdaQueryWrapper<CreditType>()
-                            .eq(CreditType::getTypeCode, uc.getCreditTypeCode()));
+                    CreditType creditType = creditScenarioManager.findCreditType(uc.getCreditTypeCode());
                     if (creditType != null) {
                         info.setCreditTypeName(creditType.getTypeName());
                         info.setUnitName(creditType.getUnitName());
@@ -1276,46 +1647,12 @@ public class CreditServiceImpl implements CreditService {
         }
     }
     
-    /**
-     * 递归/迭代获取当前管理员的所有子用户ID
-     */
-    private java.util.Set<Long> getAllSubUserIds(Long adminUserId) {
-        java.util.Set<Long> result = new java.util.HashSet<>();
-        java.util.Deque<Long> queue = new java.util.ArrayDeque<>();
-        java.util.Set<Long> visited = new java.util.HashSet<>();
-        queue.add(adminUserId);
-        visited.add(adminUserId);
-        int safety = 0;
-        while (!queue.isEmpty() && safety < 10000) {
-            Long parentId = queue.poll();
-            safety++;
-            List<User> children = userMapper.selectList(new LambdaQueryWrapper<User>()
-                    .eq(User::getParentUserId, parentId)
-                    .eq(User::getIsDeleted, 0));
-            if (children == null || children.isEmpty()) {
-                continue;
-            }
-            for (User child : children) {
-                if (child == null || child.getId() == null) continue;
-                if (visited.add(child.getId())) {
-                    result.add(child.getId());
-                    queue.add(child.getId());
-                }
-            }
-        }
-        return result;
-    }
-
     /**
      * 获取当前用户角色（单主角色）
      */
     private String getUserRole(Long userId) {
         try {
-            java.util.List<String> roles = cn.dev33.satoken.stp.StpUtil.getRoleList(userId);
-            if (roles == null || roles.isEmpty()) {
-                return User.ROLE_USER;
-            }
-            String role = roles.get(0);
+            String role = userSnapshotCache.getRole(userId);
             if (User.ROLE_SUPER_ADMIN.equalsIgnoreCase(role)) return User.ROLE_SUPER_ADMIN;
             if (User.ROLE_ADMIN.equalsIgnoreCase(role)) return User.ROLE_ADMIN;
             return User.ROLE_USER;
@@ -1334,15 +1671,7 @@ public class CreditServiceImpl implements CreditService {
             return "-";
         }
         try {
-            User u = userMapper.selectById(userId);
-            if (u == null) {
-                return String.valueOf(userId);
-            }
-            String name = u.getNickname();
-            if (!org.springframework.util.StringUtils.hasText(name)) {
-                name = u.getUsername();
-            }
-            return org.springframework.util.StringUtils.hasText(name) ? name : String.valueOf(userId);
+            return userSnapshotCache.getDisplayName(userId);
         } catch (Exception e) {
             return String.valueOf(userId);
         }
@@ -1405,13 +1734,9 @@ public class CreditServiceImpl implements CreditService {
         if (currentUserId == null || targetUserId == null) {
             return false;
         }
-        if (User.ROLE_SUPER_ADMIN.equals(role)) {
+        if (currentUserId.equals(targetUserId)) {
             return true;
         }
-        if (User.ROLE_ADMIN.equals(role)) {
-            if (currentUserId.equals(targetUserId)) return true;
-            return getAllSubUserIds(currentUserId).contains(targetUserId);
-        }
-        return currentUserId.equals(targetUserId);
+        return dataScopeService.contains(dataScopeService.visibleUserScope(currentUserId, role), targetUserId);
     }
 } 
\ No newline at end of file
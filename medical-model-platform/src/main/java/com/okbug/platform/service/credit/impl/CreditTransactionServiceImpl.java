@@ -253,34 +253,8 @@ public class CreditTransactionServiceImpl implements CreditTransactionService {
             queryWrapper.le(CreditTransaction::getCreateTime, endTime);
         }
         
-        List<CreditTransaction> transactions = creditTransactionMapper.selectList(queryWrapper);
-        
-        // 计算统计信息
-        TransactionStatistics statistics = new TransactionStatistics();
-        statistics.setTotalTransactions((long) transactions.size());
-        
-        BigDecimal totalIncome = BigDecimal.ZERO;
-        BigDecimal totalExpense = BigDecimal.ZERO;
-        long incomeCount = 0;
-        long expenseCount = 0;
-        
-        for (CreditTransaction transaction : transactions) {
-            if (transaction.getAmount().compareTo(BigDecimal.ZERO) > 0) {
-                totalIncome = totalIncome.add(transaction.getAmount());
-                incomeCount++;
-            } else {
-                totalExpense = totalExpense.add(transaction.getAmount().abs());
-                expenseCount++;
-            }
-        }
-        
-        statistics.setTotalIncome(totalIncome);
-        statistics.setTotalExpense(totalExpense);
-        statistics.setNetChange(totalIncome.subtract(totalExpense));
-        statistics.setIncomeCount(incomeCount);
-        statistics.setExpenseCount(expenseCount);
-        
-        return statistics;
+        // 数据库侧聚合，不加载交易行
+        return toStatistics(creditTransactionMapper.selectAmountSummary(queryWrapper));
     }
 
     @Override
@@ -300,38 +274,32 @@ public class CreditTransactionServiceImpl implements CreditTransactionService {
         // 权限验证和用户ID处理
         Long queryUserId = validateAndGetQueryUserId(request.getUserId());
 
-        // 构建与分页相同的查询条件
-        LambdaQueryWrapper<CreditTransaction> queryWrapper = buildQueryWrapper(request, queryUserId);
-
-        List<CreditTransaction> transactions = creditTransactionMapper.selectList(queryWrapper);
+        // 与分页相同的查询条件（不含排序），数据库侧聚合
+        LambdaQueryWrapper<CreditTransaction> queryWrapper = buildConditionWrapper(request, queryUserId);
+        return toStatistics(creditTransactionMapper.selectAmountSummary(queryWrapper));
+    }
 
+    /**
+     * 将聚合结果转换为交易统计
+     */
+    private TransactionStatistics toStatistics(Map<String, Object> summary) {
         TransactionStatistics statistics = new TransactionStatistics();
-        statistics.setTotalTransactions((long) transactions.size());
-
-        BigDecimal totalIncome = BigDecimal.ZERO;
-        BigDecimal totalExpense = BigDecimal.ZERO;
-        long incomeCount = 0;
-        long expenseCount = 0;
-
-        for (CreditTransaction transaction : transactions) {
-            if (transaction.getAmount().compareTo(BigDecimal.ZERO) > 0) {
-                totalIncome = totalIncome.add(transaction.getAmount());
-                incomeCount++;
-            } else {
-                totalExpense = totalExpense.add(transaction.getAmount().abs());
-                expenseCount++;
-            }
-        }
-
+        BigDecimal totalIncome = toDecimal(summary, "total_income");
+        BigDecimal totalExpense = toDecimal(summary, "total_expense");
+        statistics.setTotalTransactions(toDecimal(summary, "total_transactions").longValue());
         statistics.setTotalIncome(totalIncome);
         statistics.setTotalExpense(totalExpense);
         statistics.setNetChange(totalIncome.subtract(totalExpense));
-        statistics.setIncomeCount(incomeCount);
-        statistics.setExpenseCount(expenseCount);
-
+        statistics.setIncomeCount(toDecimal(summary, "income_count").longValue());
+        statistics.setExpenseCount(toDecimal(summary, "expense_count").longValue());
         return statistics;
     }
 
+    private BigDecimal toDecimal(Map<String, Object> summary, String column) {
+        Object value = summary == null ? null : summary.get(column);
+        return value == null ? BigDecimal.ZERO : new BigDecimal(value.toString());
+    }
+
     /**
      * 权限验证和用户ID处理
      * - 普通用户只能查询自己的记录
@@ -426,6 +394,18 @@ public class CreditTransactionServiceImpl implements CreditTransactionService {
      * 构建查询条件
      */
     private LambdaQueryWrapper<CreditTransaction> buildQueryWrapper(TransactionQueryRequest request, Long queryUserId) {
+        LambdaQueryWrapper<CreditTransaction> queryWrapper = buildConditionWrapper(request, queryUserId);
+        
+        // 排序
+        queryWrapper.orderByDesc(CreditTransaction::getCreateTime);
+        
+        return queryWrapper;
+    }
+
+    /**
+     * 构建查询条件（不含排序，可用于聚合统计）
+     */
+    private LambdaQueryWrapper<CreditTransaction> buildConditionWrapper(TransactionQueryRequest request, Long queryUserId) {
         LambdaQueryWrapper<CreditTransaction> queryWrapper = new LambdaQueryWrapper<>();
         
         // 基础条件
@@ -475,9 +455,6 @@ public class CreditTransactionServiceImpl implements CreditTransactionService {
             queryWrapper.like(CreditTransaction::getDescription, request.getKeyword());
         }
         
-        // 排序
-        queryWrapper.orderByDesc(CreditTransaction::getCreateTime);
-        
         return queryWrapper;
     }
 
@@ -167,6 +167,8 @@ public class CreditTypeServiceImpl implements CreditTypeService {
         // 为所有启用用户初始化该积分类型账户
         initializeUserCreditsForType(creditType.getTypeCode());
         
+        refreshConfigSnapshotAfterCommit();
+        
         return creditType;
     }
     
@@ -258,6 +260,8 @@ public class CreditTypeServiceImpl implements CreditTypeService {
         
         log.info("积分类型更新成功，ID: {}, 编码: {}", existingCreditType.getId(), existingCreditType.getTypeCode());
         
+        refreshConfigSnapshotAfterCommit();
+        
         return existingCreditType;
     }
     
@@ -294,6 +298,8 @@ public class CreditTypeServiceImpl implements CreditTypeService {
         
         log.info("积分类型删除成功，ID: {}, 编码: {}", creditType.getId(), creditType.getTypeCode());
         
+        refreshConfigSnapshotAfterCommit();
+        
         return true;
     }
     
@@ -345,26 +351,7 @@ public class CreditTypeServiceImpl implements CreditTypeService {
         }
 
         // 事务提交后刷新场景缓存，确保内存与数据库一致
-        if (TransactionSynchronizationManager.isActualTransactionActive()) {
-            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
-                @Override
-                public void afterCommit() {
-                    try {
-                        creditScenarioManager.refreshCache();
-                        log.info("已在事务提交后刷新积分场景缓存");
-                    } catch (Exception e) {
-                        log.warn("刷新积分场景缓存失败: {}", e.getMessage());
-                    }
-                }
-            });
-        } else {
-            // 非事务环境，直接刷新
-            try {
-                creditScenarioManager.refreshCache();
-            } catch (Exception e) {
-                log.warn("刷新积分场景缓存失败: {}", e.getMessage());
-            }
-        }
+        refreshConfigSnapshotAfterCommit();
         
         return true;
     }
@@ -394,6 +381,10 @@ public class CreditTypeServiceImpl implements CreditTypeService {
         
         log.info("积分类型排序更新完成，成功更新数量: {}", count);
         
+        if (count > 0) {
+            refreshConfigSnapshotAfterCommit();
+        }
+        
         return count;
     }
     
@@ -558,4 +549,29 @@ public class CreditTypeServiceImpl implements CreditTypeService {
                 .eq("credit_type_code", creditTypeCode)
                 .eq("is_deleted", 0));
     }
-} 
\ No newline at end of file
+    
+    /**
+     * 事务提交后刷新积分配置快照并通知其他节点；非事务环境直接刷新
+     */
+    private void refreshConfigSnapshotAfterCommit() {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    try {
+                        creditScenarioManager.refreshAndBroadcast();
+                        log.info("已在事务提交后刷新积分场景缓存");
+                    } catch (Exception e) {
+                        log.warn("刷新积分场景缓存失败: {}", e.getMessage());
+                    }
+                }
+            });
+        } else {
+            try {
+                creditScenarioManager.refreshAndBroadcast();
+            } catch (Exception e) {
+                log.warn("刷新积分场景缓存失败: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -23,6 +23,8 @@ import com.okbug.platform.mapper.auth.OperationLogMapper;
 // import com.okbug.platform.mapper.auth.UserLoginLogMapper;
 import com.okbug.platform.mapper.auth.UserMapper;
 import com.okbug.platform.service.log.UserLogService;
+import com.okbug.platform.service.security.DataScope;
+import com.okbug.platform.service.security.DataScopeService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Async;
@@ -44,6 +46,7 @@ public class UserLogServiceImpl implements UserLogService {
     
     private final OperationLogMapper operationLogMapper;
     private final UserMapper userMapper;
+    private final DataScopeService dataScopeService;
     
     @Override
     /**
@@ -110,16 +113,14 @@ public class UserLogServiceImpl implements UserLogService {
      */
     public int cleanExpiredLogs(LocalDateTime expireTime) {
         Long currentUserId = StpUtil.getLoginIdAsLong();
-        List<Long> accessibleUserIds = computeAccessibleUserIds(currentUserId);
+        DataScope scope = computeDataScope(currentUserId);
         int deletedOperationLogs;
-        if (accessibleUserIds == null) {
+        if (scope.isUnrestricted()) {
             // 超级管理员：不限用户范围，清理所有过期日志
             deletedOperationLogs = operationLogMapper.deleteExpiredLogs(expireTime);
-        } else if (accessibleUserIds.isEmpty()) {
-            deletedOperationLogs = 0;
         } else {
             // 普通用户或管理员：仅清理可见用户范围内的过期日志
-            deletedOperationLogs = operationLogMapper.deleteExpiredLogsByUserIds(expireTime, accessibleUserIds);
+            deletedOperationLogs = operationLogMapper.deleteExpiredLogsInScope(expireTime, scope.getUserIdSql());
         }
         log.info("清理过期日志完成: 操作日志{}条", deletedOperationLogs);
         return deletedOperationLogs;
@@ -143,7 +144,7 @@ public class UserLogServiceImpl implements UserLogService {
         List<OperationLog> records;
         try {
             Long currentUserId = safeGetCurrentUserId();
-            List<Long> accessibleUserIds = computeAccessibleUserIds(currentUserId);
+            String scopeSql = computeDataScope(currentUserId).getUserIdSql();
 
             // 基于查询条件加载全部（加上合理上限）
             Page<OperationLog> page = new Page<>(1, MAX_EXPORT);
@@ -159,18 +160,8 @@ public class UserLogServiceImpl implements UserLogService {
                 matchedUserIds = userCandidates.isEmpty() ? Collections.singletonList(-1L)
                         : userCandidates.stream().map(User::getId).collect(Collectors.toList());
             }
-            if (accessibleUserIds != null) {
-                if (matchedUserIds != null) {
-                    matchedUserIds = matchedUserIds.stream().filter(accessibleUserIds::contains).collect(Collectors.toList());
-                    if (matchedUserIds.isEmpty() && org.springframework.util.StringUtils.hasText(request.getUsername())) {
-                        matchedUserIds = Collections.singletonList(-1L);
-                    }
-                } else {
-                    matchedUserIds = new ArrayList<>(accessibleUserIds);
-                }
-                matchedUsernames = null;
-                needUserFilter = true;
-            } else if (matchedUserIds != null) {
+            // 数据域以子查询与用户匹配条件同时生效（AND），无需在内存中求交集
+            if (scopeSql != null || matchedUserIds != null) {
                 needUserFilter = true;
             }
 
@@ -179,6 +170,7 @@ public class UserLogServiceImpl implements UserLogService {
                     page,
                     matchedUserIds,
                     matchedUsernames,
+                    scopeSql,
                     request.getOperationModule(),
                     request.getStatus(),
                     request.getKeyword(),
@@ -316,7 +308,7 @@ public class UserLogServiceImpl implements UserLogService {
 
         // 计算数据范围（超级管理员=不限制；管理员=自己+子用户；普通用户=自己）
         Long currentUserId = safeGetCurrentUserId();
-        List<Long> accessibleUserIds = computeAccessibleUserIds(currentUserId);
+        String scopeSql = computeDataScope(currentUserId).getUserIdSql();
 
         // 处理基于用户名/关键字的用户匹配
         List<Long> matchedUserIds = null;
@@ -336,33 +328,17 @@ public class UserLogServiceImpl implements UserLogService {
         // 若仍希望通过关键字联动用户模糊匹配，可保留以下逻辑与日志内容关键字并行
         // 这里不设置 matchedUsernames，以统一通过 userIds 过滤避免越权
 
-        // 应用数据范围到匹配用户集合
-        if (accessibleUserIds != null) {
-            if (matchedUserIds != null) {
-                matchedUserIds = matchedUserIds.stream().filter(accessibleUserIds::contains).collect(Collectors.toList());
-                // 若因越权过滤后无可见用户，并且前端指定了用户名筛选，则强制返回空集
-                if (matchedUserIds.isEmpty() && StringUtils.hasText(request.getUsername())) {
-                    matchedUserIds = Collections.singletonList(-1L);
-                }
-            } else {
-                // 未指定用户筛选，但有范围限制，则范围即为过滤集合
-                matchedUserIds = new ArrayList<>(accessibleUserIds);
-            }
-            matchedUsernames = null; // 统一用ID进行过滤，避免越权
-        }
-
+        // 数据范围以子查询与用户匹配条件同时生效（AND），越权的用户匹配自然返回空集
         IPage<OperationLog> operationLogPage;
-        boolean needUserFilter = (accessibleUserIds != null) ||
+        boolean needUserFilter = (scopeSql != null) ||
                 (matchedUserIds != null && !matchedUserIds.isEmpty()) ||
                 (matchedUsernames != null && !matchedUsernames.isEmpty());
         if (needUserFilter) {
-            // 如果无匹配但需要范围限制，用范围ID作为过滤
-            List<Long> userIdsForFilter = matchedUserIds;
-            // accessibleUserIds 已经合并进 matchedUserIds
             operationLogPage = operationLogMapper.selectPageWithUserFilters(
                 page,
-                userIdsForFilter,
+                matchedUserIds,
                 matchedUsernames,
+                scopeSql,
                 request.getOperationModule(),
                 request.getStatus(),
                 request.getKeyword(),
@@ -409,27 +385,14 @@ public class UserLogServiceImpl implements UserLogService {
         }
     }
 
-    private List<Long> computeAccessibleUserIds(Long currentUserId) {
+    /**
+     * 计算日志数据范围：未登录不限制（通常网关会拦截），其余按数据域服务解析
+     */
+    private DataScope computeDataScope(Long currentUserId) {
         if (currentUserId == null) {
-            return null; // 匿名或未登录情况下不作范围限制（通常网关会拦截）
-        }
-        User currentUser = userMapper.selectById(currentUserId);
-        if (currentUser == null) {
-            return Collections.singletonList(-1L); // 不会匹配任何记录
-        }
-        if (currentUser.isSuperAdmin()) {
-            return null; // 不限制
-        }
-        if (currentUser.hasAdminRole()) {
-            List<User> subs = userMapper.selectList(new LambdaQueryWrapper<User>().eq(User::getParentUserId, currentUserId));
-            List<Long> ids = new ArrayList<>();
-            ids.add(currentUserId);
-            if (subs != null && !subs.isEmpty()) {
-                ids.addAll(subs.stream().map(User::getId).collect(Collectors.toList()));
-            }
-            return ids;
+            return DataScope.unrestricted();
         }
-        return Collections.singletonList(currentUserId);
+        return dataScopeService.visibleUserScope(currentUserId);
     }
 
     private String buildOrderBy(LogQueryRequest request) {
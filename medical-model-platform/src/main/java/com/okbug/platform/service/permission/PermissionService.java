@@ -13,6 +13,7 @@
  */
 package com.okbug.platform.service.permission;
 
+import com.okbug.platform.common.cache.MenuJsonCache;
 import com.okbug.platform.dto.auth.response.UserPermissionResponse;
 import com.okbug.platform.dto.auth.response.MenuResponse;
 import com.okbug.platform.dto.auth.response.LoginPermissionInfo;
@@ -34,6 +35,13 @@ public interface PermissionService {
      */
     List<MenuResponse> getCurrentUserMenus();
     
+    /**
+     * 获取当前用户菜单权限的预序列化响应（含 ETag，可按需 gzip），供菜单接口直接写出
+     * 
+     * @return 预序列化的菜单响应
+     */
+    MenuJsonCache.Payload getCurrentUserMenuPayload();
+    
     /**
      * 检查当前用户是否拥有指定权限
      * 
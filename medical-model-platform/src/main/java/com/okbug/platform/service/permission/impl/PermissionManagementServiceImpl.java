@@ -31,7 +31,9 @@ import com.okbug.platform.mapper.auth.RolePermissionMapper;
 import com.okbug.platform.service.permission.PermissionManagementService;
 import com.okbug.platform.service.security.TeamAccessService;
 import com.okbug.platform.service.permission.PermissionService;
+import com.okbug.platform.common.cache.MenuJsonCache;
 import com.okbug.platform.common.cache.PermissionCacheService;
+import com.okbug.platform.common.cache.PermissionBitsetRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -53,6 +55,8 @@ public class PermissionManagementServiceImpl implements PermissionManagementServ
     private final PermissionMapper permissionMapper;
     private final RolePermissionMapper rolePermissionMapper;
     private final PermissionCacheService permissionCacheService;
+    private final PermissionBitsetRegistry permissionBitsetRegistry;
+    private final MenuJsonCache menuJsonCache;
     private final UserPermissionMapper userPermissionMapper;
     private final UserMapper userMapper;
     private final PermissionService permissionService;
@@ -193,6 +197,8 @@ public class PermissionManagementServiceImpl implements PermissionManagementServ
         int result = permissionMapper.insert(permission);
         if (result > 0) {
             log.info("权限创建成功，权限ID: {}, 权限编码: {}", permission.getId(), request.getPermissionCode());
+            refreshPermissionRegistryAfterCommit();
+            clearPermissionDefinitionCaches();
             return permission.getId();
         } else {
             throw new ServiceException(ErrorCode.OPERATION_NOT_ALLOWED, "权限创建失败");
@@ -236,6 +242,8 @@ public class PermissionManagementServiceImpl implements PermissionManagementServ
         int result = permissionMapper.updateById(permission);
         if (result > 0) {
             log.info("权限更新成功，权限ID: {}, 权限编码: {}", id, request.getPermissionCode());
+            refreshPermissionRegistryAfterCommit();
+            clearPermissionDefinitionCaches();
             return true;
         } else {
             throw new ServiceException(ErrorCode.OPERATION_NOT_ALLOWED, "权限更新失败");
@@ -267,6 +275,8 @@ public class PermissionManagementServiceImpl implements PermissionManagementServ
         int result = permissionMapper.deleteById(id);
         if (result > 0) {
             log.info("权限删除成功，权限ID: {}, 权限编码: {}", id, permission.getPermissionCode());
+            refreshPermissionRegistryAfterCommit();
+            clearPermissionDefinitionCaches();
             return true;
         } else {
             throw new ServiceException(ErrorCode.OPERATION_NOT_ALLOWED, "权限删除失败");
@@ -296,6 +306,8 @@ public class PermissionManagementServiceImpl implements PermissionManagementServ
         int result = permissionMapper.deleteBatchIds(ids);
         if (result > 0) {
             log.info("批量删除权限成功，权限ID列表: {}, 删除数量: {}", ids, result);
+            refreshPermissionRegistryAfterCommit();
+            clearPermissionDefinitionCaches();
             return true;
         } else {
             throw new ServiceException(ErrorCode.OPERATION_NOT_ALLOWED, "批量删除权限失败");
@@ -315,6 +327,7 @@ public class PermissionManagementServiceImpl implements PermissionManagementServ
             int result = permissionMapper.updateById(permission);
             if (result > 0) {
                 log.info("权限状态更新成功，权限ID: {}, 状态: {}", id, status);
+                clearPermissionDefinitionCaches();
                 return true;
             } else {
                 throw new ServiceException(ErrorCode.OPERATION_NOT_ALLOWED, "权限状态更新失败");
@@ -697,11 +710,36 @@ public class PermissionManagementServiceImpl implements PermissionManagementServ
     public void refreshAllPermissionCache() {
         // 刷新所有权限缓存
         permissionCacheService.refreshAllPermissionCache();
+        menuJsonCache.invalidateAll();
         log.info("权限缓存刷新完成");
     }
     
     // ================ 私有方法 ================
     
+    /**
+     * 权限定义变更后清除依赖权限名称、层级、状态的缓存：权限树与菜单物化响应
+     */
+    private void clearPermissionDefinitionCaches() {
+        permissionCacheService.clearAllPermissionTrees();
+        menuJsonCache.invalidateAll();
+    }
+    
+    /**
+     * 事务提交后重建权限位集注册表并通知其他节点（权限编码集合变化会改变位编号）
+     */
+    private void refreshPermissionRegistryAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    permissionBitsetRegistry.refreshAndBroadcast();
+                }
+            });
+        } else {
+            permissionBitsetRegistry.refreshAndBroadcast();
+        }
+    }
+    
     /**
      * 获取角色的权限ID列表
      */
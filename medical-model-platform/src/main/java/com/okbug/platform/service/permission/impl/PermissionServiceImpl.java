@@ -15,6 +15,7 @@ package com.okbug.platform.service.permission.impl;
 
 import cn.dev33.satoken.stp.StpUtil;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.okbug.platform.common.base.ApiResult;
 import com.okbug.platform.common.base.ErrorCode;
 import com.okbug.platform.common.base.ServiceException;
 import com.okbug.platform.dto.auth.response.MenuResponse;
@@ -27,7 +28,11 @@ import com.okbug.platform.mapper.auth.PermissionMapper;
 import com.okbug.platform.mapper.auth.RolePermissionMapper;
 import com.okbug.platform.mapper.auth.UserPermissionMapper;
 import com.okbug.platform.mapper.auth.UserMapper;
+import com.okbug.platform.common.cache.MenuJsonCache;
 import com.okbug.platform.common.cache.PermissionCacheService;
+import com.okbug.platform.common.cache.UserSnapshotCache;
+import com.okbug.platform.common.cache.PermissionBitsetRegistry;
+import com.okbug.platform.common.cache.PermissionSet;
 import com.okbug.platform.service.permission.PermissionService;
 import org.springframework.dao.DuplicateKeyException;
 import lombok.RequiredArgsConstructor;
@@ -47,6 +52,9 @@ public class PermissionServiceImpl implements PermissionService {
     private final RolePermissionMapper rolePermissionMapper;
     private final UserPermissionMapper userPermissionMapper;
     private final PermissionCacheService permissionCacheService;
+    private final PermissionBitsetRegistry permissionBitsetRegistry;
+    private final MenuJsonCache menuJsonCache;
+    private final UserSnapshotCache userSnapshotCache;
     private final com.okbug.platform.service.system.SystemConfigService systemConfigService;
     private final com.okbug.platform.mapper.auth.UserPermissionContribMapper userPermissionContribMapper;
     
@@ -110,25 +118,35 @@ public class PermissionServiceImpl implements PermissionService {
             return new ArrayList<>();
         }
         
-        // 查询菜单权限
-        List<Permission> menuPermissions = new ArrayList<>();
-        if (!effectiveCodes.isEmpty()) {
-            LambdaQueryWrapper<Permission> query = new LambdaQueryWrapper<>();
-            query.in(Permission::getPermissionCode, effectiveCodes)
-                 .eq(Permission::getPermissionType, Permission.TYPE_MENU)
-                 .eq(Permission::getStatus, Permission.STATUS_ENABLED)
-                 .orderByAsc(Permission::getSort);
-            
-            menuPermissions = permissionMapper.selectList(query);
-        }
-        
-        // 构建菜单树
-        List<MenuResponse> menuTree = buildMenuTree(menuPermissions);
+        List<MenuResponse> menuTree = loadMenuTree(effectiveCodes);
         
         log.info("获取用户菜单成功，用户ID: {}, 菜单数量: {}", currentUserId, menuTree.size());
         return menuTree;
     }
     
+    @Override
+    /**
+     * 获取当前登录用户菜单树的预序列化响应。
+     *
+     * 说明：按生效权限集合命中物化缓存，命中时不查询权限表、不构建菜单树、不序列化。
+     *
+     * @return 预序列化的菜单响应（ApiResult 包装）
+     * @throws com.okbug.platform.common.base.ServiceException 当用户不存在时抛出
+     */
+    public MenuJsonCache.Payload getCurrentUserMenuPayload() {
+        Long currentUserId = StpUtil.getLoginIdAsLong();
+        if (userSnapshotCache.get(currentUserId) == null) {
+            throw new ServiceException(ErrorCode.USER_NOT_FOUND);
+        }
+        
+        List<String> effectiveCodes = getEffectivePermissionCodes(currentUserId);
+        return menuJsonCache.get(effectiveCodes, () -> {
+            List<MenuResponse> menuTree = loadMenuTree(effectiveCodes);
+            log.info("物化菜单响应，用户ID: {}, 权限数量: {}, 菜单数量: {}", currentUserId, effectiveCodes.size(), menuTree.size());
+            return ApiResult.success(menuTree);
+        });
+    }
+    
     @Override
     /**
      * 判断当前登录用户是否拥有指定权限编码。
@@ -437,7 +455,7 @@ public class PermissionServiceImpl implements PermissionService {
                     permQuery.in(Permission::getId, combinedIds)
                              .eq(Permission::getStatus, Permission.STATUS_ENABLED);
                     List<Permission> permissions = permissionMapper.selectList(permQuery);
-                    result = permissions.stream().map(Permission::getPermissionCode).collect(Collectors.toList());
+                    result = toPermissionSet(permissions.stream().map(Permission::getPermissionCode).collect(Collectors.toList()));
                     permissionCacheService.setUserPermissions(userId, result);
                     return result;
                 }
@@ -459,9 +477,18 @@ public class PermissionServiceImpl implements PermissionService {
         }
 
         // 缓存写入：由缓存层对空列表采用短TTL，避免长时间缓存空结果
+        result = toPermissionSet(result);
         permissionCacheService.setUserPermissions(userId, result);
         return result;
     }
+
+    /**
+     * 编译为权限位集（contains 为位测试）；存在注册表未收录的编码时保留原列表
+     */
+    private List<String> toPermissionSet(List<String> permissionCodes) {
+        PermissionSet set = permissionBitsetRegistry.compile(permissionCodes);
+        return set != null ? set : permissionCodes;
+    }
     // 删除旧的角色并集/覆盖计算方法（改为仅基于用户-权限关联）
     
     // ================ 私有方法 ================
@@ -484,6 +511,21 @@ public class PermissionServiceImpl implements PermissionService {
      */
     // （移除）
     
+    /**
+     * 按生效权限编码查询启用的菜单权限并构建菜单树
+     */
+    private List<MenuResponse> loadMenuTree(List<String> effectiveCodes) {
+        if (effectiveCodes.isEmpty()) {
+            return new ArrayList<>();
+        }
+        LambdaQueryWrapper<Permission> query = new LambdaQueryWrapper<>();
+        query.in(Permission::getPermissionCode, effectiveCodes)
+             .eq(Permission::getPermissionType, Permission.TYPE_MENU)
+             .eq(Permission::getStatus, Permission.STATUS_ENABLED)
+             .orderByAsc(Permission::getSort);
+        return buildMenuTree(permissionMapper.selectList(query));
+    }
+    
     /**
      * 构建菜单树
      */
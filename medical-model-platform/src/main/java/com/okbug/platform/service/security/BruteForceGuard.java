@@ -1,63 +1,203 @@
 package com.okbug.platform.service.security;
 
-import cn.dev33.satoken.stp.StpUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.okbug.platform.common.constants.SystemConfigKeys;
+import com.okbug.platform.service.system.SystemConfigService;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.Message;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
- * 防暴力尝试保护：统计失败次数并在阈值后临时锁定，必要时强制下线。
+ * 防暴力尝试保护：统计失败次数并在阈值后临时锁定。
  * 适用于兑换码、登录、短信验证码等需要限制错误重试的功能。
+ *
+ * 失败计数与锁定由一个 Lua 脚本原子完成；锁定状态在本地短暂缓存（未锁定2秒，已锁定至多到期或60秒），
+ * 大量重复尝试不会逐次访问 Redis。各场景策略由系统配置解析一次，配置变更广播后重新解析。
  */
+@Slf4j
 @Component
 public class BruteForceGuard {
 
     private static final String KEY_PREFIX = "sec:bf:"; // base key
 
+    /** 兑换码（按用户） */
+    public static final String SCENE_REDEEM = "redeem";
+    /** 登录（按账号，锁定状态落库于用户表，此处仅提供策略） */
+    public static final String SCENE_LOGIN = "login";
+    /** 登录（按客户端IP，抵御跨账号的密码喷洒） */
+    public static final String SCENE_LOGIN_IP = "login-ip";
+
+    /**
+     * 未锁定状态的本地缓存时长：其他节点刚触发的锁定最长在该时长后生效
+     */
+    private static final long UNLOCKED_LOCAL_NANOS = TimeUnit.SECONDS.toNanos(2);
+    private static final long LOCKED_LOCAL_MAX_NANOS = TimeUnit.SECONDS.toNanos(60);
+    private static final long LOCAL_MAX_SIZE = 100_000L;
+
+    /**
+     * 已锁定返回 {-1, 剩余毫秒}；否则计数加一（首次设置窗口过期），达到阈值时写入锁定并清除计数，返回 {计数, 锁定毫秒}
+     */
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> RECORD_FAILURE_SCRIPT = new DefaultRedisScript<>(
+            "local ttl = redis.call('PTTL', KEYS[2]) " +
+            "if ttl > 0 then return {-1, ttl} end " +
+            "local c = redis.call('INCR', KEYS[1]) " +
+            "if c == 1 or redis.call('PTTL', KEYS[1]) < 0 then redis.call('PEXPIRE', KEYS[1], ARGV[2]) end " +
+            "if c >= tonumber(ARGV[1]) then " +
+            "  redis.call('SET', KEYS[2], '1', 'PX', ARGV[3]) " +
+            "  redis.call('DEL', KEYS[1]) " +
+            "  return {c, tonumber(ARGV[3])} " +
+            "end " +
+            "return {c, 0}", List.class);
+
     @Autowired
     private StringRedisTemplate stringRedisTemplate;
 
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Autowired
+    private SystemConfigService systemConfigService;
+
+    private volatile Map<String, Policy> policies = new HashMap<>();
+
+    /**
+     * 锁定状态本地缓存：值为锁定截止时间（System.nanoTime），0 表示未锁定
+     */
+    private final Cache<String, Long> lockStates = Caffeine.newBuilder()
+            .maximumSize(LOCAL_MAX_SIZE)
+            .expireAfter(new Expiry<String, Long>() {
+                @Override
+                public long expireAfterCreate(String key, Long lockedUntil, long currentTime) {
+                    return lockedUntil == 0L ? UNLOCKED_LOCAL_NANOS
+                            : Math.max(0L, Math.min(lockedUntil - System.nanoTime(), LOCKED_LOCAL_MAX_NANOS));
+                }
+
+                @Override
+                public long expireAfterUpdate(String key, Long lockedUntil, long currentTime, long currentDuration) {
+                    return expireAfterCreate(key, lockedUntil, currentTime);
+                }
+
+                @Override
+                public long expireAfterRead(String key, Long lockedUntil, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .build();
+
     public static class Policy {
         public final int maxFailures;              // 最大失败次数
         public final Duration failureTtl;          // 失败计数过期时间窗口
         public final Duration lockDuration;        // 锁定时长
-        public final boolean kickoutOnLock;        // 锁定时是否强制下线
 
-        public Policy(int maxFailures, Duration failureTtl, Duration lockDuration, boolean kickoutOnLock) {
-            this.maxFailures = maxFailures;
-            this.failureTtl = failureTtl;
-            this.lockDuration = lockDuration;
-            this.kickoutOnLock = kickoutOnLock;
+        public Policy(int maxFailures, Duration failureTtl, Duration lockDuration) {
+            this.maxFailures = Math.max(1, maxFailures);
+            this.failureTtl = failureTtl.isNegative() || failureTtl.isZero() ? Duration.ofMinutes(1) : failureTtl;
+            this.lockDuration = lockDuration.isNegative() || lockDuration.isZero() ? Duration.ofMinutes(1) : lockDuration;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        reloadPolicies();
+        try {
+            redisMessageListenerContainer.addMessageListener(this::onConfigChanged,
+                    new ChannelTopic(SystemConfigService.CONFIG_CHANGED_CHANNEL));
+        } catch (Exception e) {
+            log.warn("订阅系统配置变更通知失败，防暴力策略需重启后生效: {}", e.getMessage());
         }
     }
 
+    /**
+     * 获取场景策略（启动时及配置变更后解析，热路径不读配置）
+     */
+    public Policy policyOf(String scene) {
+        Policy policy = policies.get(scene);
+        return policy != null ? policy : policies.get(SCENE_REDEEM);
+    }
+
     /**
      * 检查是否被锁定
      */
     public boolean isLocked(String scene, long userId) {
-        String lockKey = lockKey(scene, userId);
-        String v = stringRedisTemplate.opsForValue().get(lockKey);
-        return v != null;
+        return isLocked(scene, String.valueOf(userId));
     }
 
     /**
-     * 记录一次失败，并在达到阈值时锁定
+     * 检查是否被锁定（主体可为用户ID、IP等）
      */
-    public void recordFailure(String scene, long userId, Policy policy) {
-        String key = failKey(scene, userId);
-        Long count = stringRedisTemplate.opsForValue().increment(key);
-        if (count != null && count == 1) {
-            stringRedisTemplate.expire(key, policy.failureTtl);
+    public boolean isLocked(String scene, String subject) {
+        String lockKey = lockKey(scene, subject);
+        Long lockedUntil = lockStates.getIfPresent(lockKey);
+        if (lockedUntil != null) {
+            return lockedUntil != 0L && System.nanoTime() < lockedUntil;
+        }
+        try {
+            Long ttl = stringRedisTemplate.getExpire(lockKey, TimeUnit.MILLISECONDS);
+            boolean locked = ttl != null && ttl > 0;
+            lockStates.put(lockKey, locked ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ttl) : 0L);
+            return locked;
+        } catch (Exception e) {
+            log.warn("读取锁定状态失败，按未锁定处理，场景: {}, 错误: {}", scene, e.getMessage());
+            return false;
         }
-        if (count != null && count >= policy.maxFailures) {
-            // 锁定
-            String lockKey = lockKey(scene, userId);
-            stringRedisTemplate.opsForValue().set(lockKey, "1", policy.lockDuration);
-            if (policy.kickoutOnLock) {
-                try { StpUtil.logout(userId); } catch (Exception ignored) {}
+    }
+
+    /**
+     * 记录一次失败，并在达到阈值时锁定
+     *
+     * @return 是否处于锁定状态（本次触发或此前已锁定）
+     */
+    public boolean recordFailure(String scene, long userId) {
+        return recordFailure(scene, String.valueOf(userId));
+    }
+
+    /**
+     * 记录一次失败（主体可为用户ID、IP等），并在达到阈值时锁定
+     *
+     * @return 是否处于锁定状态（本次触发或此前已锁定）
+     */
+    @SuppressWarnings("rawtypes")
+    public boolean recordFailure(String scene, String subject) {
+        Policy policy = policyOf(scene);
+        String lockKey = lockKey(scene, subject);
+        try {
+            List result = stringRedisTemplate.execute(RECORD_FAILURE_SCRIPT,
+                    Arrays.asList(failKey(scene, subject), lockKey),
+                    String.valueOf(policy.maxFailures),
+                    String.valueOf(policy.failureTtl.toMillis()),
+                    String.valueOf(policy.lockDuration.toMillis()));
+            long lockMillis = result != null && result.size() > 1 ? ((Number) result.get(1)).longValue() : 0L;
+            if (lockMillis > 0) {
+                lockStates.put(lockKey, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lockMillis));
+                if (((Number) result.get(0)).longValue() > 0) {
+                    log.warn("失败次数达到阈值，已临时锁定，场景: {}, 主体: {}, 锁定: {}分钟",
+                            scene, subject, policy.lockDuration.toMinutes());
+                }
+                return true;
             }
+            // 本次未锁定：直接缓存未锁定状态，后续 isLocked 不必再访问 Redis
+            lockStates.put(lockKey, 0L);
+            return false;
+        } catch (Exception e) {
+            log.warn("记录失败次数失败，场景: {}, 错误: {}", scene, e.getMessage());
+            return false;
         }
     }
 
@@ -65,17 +205,57 @@ public class BruteForceGuard {
      * 重置失败计数（成功后调用）
      */
     public void reset(String scene, long userId) {
-        stringRedisTemplate.delete(failKey(scene, userId));
+        reset(scene, String.valueOf(userId));
+    }
+
+    /**
+     * 重置失败计数（成功后调用）
+     */
+    public void reset(String scene, String subject) {
+        try {
+            stringRedisTemplate.delete(failKey(scene, subject));
+        } catch (Exception e) {
+            log.warn("重置失败次数失败，场景: {}, 错误: {}", scene, e.getMessage());
+        }
         // 不主动删除锁定，等待过期
     }
 
-    private String failKey(String scene, long userId) {
-        return KEY_PREFIX + scene + ":fail:" + userId;
+    private void onConfigChanged(Message message, byte[] pattern) {
+        String configKey = new String(message.getBody(), StandardCharsets.UTF_8);
+        if ("*".equals(configKey) || configKey.startsWith("user.operation.") || configKey.startsWith("user.login.")) {
+            reloadPolicies();
+        }
     }
 
-    private String lockKey(String scene, long userId) {
-        return KEY_PREFIX + scene + ":lock:" + userId;
+    private void reloadPolicies() {
+        try {
+            int max = systemConfigService.getConfigValueAsInt(SystemConfigKeys.USER_OPERATION_FAIL_MAX_COUNT, 5);
+            int lockMin = systemConfigService.getConfigValueAsInt(SystemConfigKeys.USER_OPERATION_LOCK_DURATION_MINUTES, 30);
+            int windowMin = systemConfigService.getConfigValueAsInt(SystemConfigKeys.USER_OPERATION_FAIL_WINDOW_MINUTES, 10);
+            int ipMax = systemConfigService.getConfigValueAsInt(SystemConfigKeys.USER_LOGIN_IP_FAIL_MAX_COUNT, 20);
+            Map<String, Policy> next = new HashMap<>();
+            next.put(SCENE_REDEEM, new Policy(max, Duration.ofMinutes(windowMin), Duration.ofMinutes(lockMin)));
+            next.put(SCENE_LOGIN, new Policy(max, Duration.ofMinutes(windowMin), Duration.ofMinutes(lockMin)));
+            next.put(SCENE_LOGIN_IP, new Policy(ipMax, Duration.ofMinutes(windowMin), Duration.ofMinutes(lockMin)));
+            policies = next;
+            log.info("防暴力尝试策略已加载，最大失败: {}, 登录IP最大失败: {}, 窗口: {}分钟, 锁定: {}分钟", max, ipMax, windowMin, lockMin);
+        } catch (Exception e) {
+            log.warn("加载防暴力尝试策略失败，沿用上次策略: {}", e.getMessage());
+            if (policies.isEmpty()) {
+                Map<String, Policy> defaults = new HashMap<>();
+                defaults.put(SCENE_REDEEM, new Policy(5, Duration.ofMinutes(10), Duration.ofMinutes(30)));
+                defaults.put(SCENE_LOGIN, new Policy(5, Duration.ofMinutes(10), Duration.ofMinutes(30)));
+                defaults.put(SCENE_LOGIN_IP, new Policy(20, Duration.ofMinutes(10), Duration.ofMinutes(30)));
+                policies = defaults;
+            }
+        }
     }
-}
 
+    private String failKey(String scene, String subject) {
+        return KEY_PREFIX + scene + ":fail:" + subject;
+    }
 
+    private String lockKey(String scene, String subject) {
+        return KEY_PREFIX + scene + ":lock:" + subject;
+    }
+}
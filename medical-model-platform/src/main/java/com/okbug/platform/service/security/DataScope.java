@@ -0,0 +1,99 @@
+package com.okbug.platform.service.security;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.support.SFunction;
+
+/**
+ * 数据域：以用户ID子查询表达可见用户范围，供 IN (子查询) 内联到业务SQL，避免拼接大 IN 列表
+ *
+ * 约定：
+ * - 子查询只由本类的工厂方法以数值ID拼装，调用方不可传入任意SQL
+ * - 不受限（超级管理员）时 {@link #getUserIdSql()} 为 null，调用方不追加过滤
+ */
+public final class DataScope {
+
+    private static final DataScope UNRESTRICTED = new DataScope(null);
+    private static final DataScope NONE = new DataScope("SELECT -1");
+
+    private final String userIdSql;
+
+    private DataScope(String userIdSql) {
+        this.userIdSql = userIdSql;
+    }
+
+    /**
+     * 不受限
+     */
+    public static DataScope unrestricted() {
+        return UNRESTRICTED;
+    }
+
+    /**
+     * 空范围（不匹配任何用户）
+     */
+    public static DataScope none() {
+        return NONE;
+    }
+
+    /**
+     * 仅自己
+     */
+    public static DataScope self(Long userId) {
+        return userId == null ? NONE : new DataScope("SELECT " + userId.longValue());
+    }
+
+    /**
+     * 子账号树中的全部未删除后代（不含自己）
+     */
+    public static DataScope descendants(Long userId) {
+        return userId == null ? NONE : new DataScope(descendantsSql(userId));
+    }
+
+    /**
+     * 自己 + 子账号树中的全部未删除后代
+     *
+     * UNION 包在派生表内：IN (UNION) 无法走半连接/物化，会按外层每行重新执行子查询
+     */
+    public static DataScope selfAndDescendants(Long userId) {
+        return userId == null ? NONE : new DataScope("SELECT s.id FROM (SELECT " + userId.longValue() + " AS id UNION ALL "
+                + descendantsSql(userId) + ") s");
+    }
+
+    /**
+     * 团队内启用成员
+     */
+    public static DataScope teamMembers(Long teamId) {
+        return teamId == null ? NONE
+                : new DataScope("SELECT user_id FROM team_members WHERE team_id = " + teamId.longValue() + " AND status = 1 AND is_deleted = 0");
+    }
+
+    public boolean isUnrestricted() {
+        return userIdSql == null;
+    }
+
+    /**
+     * 可见用户ID子查询；不受限时为 null
+     */
+    public String getUserIdSql() {
+        return userIdSql;
+    }
+
+    /**
+     * 将数据域追加到查询条件：column IN (子查询)
+     *
+     * @param wrapper 查询条件
+     * @param column 用户ID列
+     * @return 原查询条件
+     */
+    public <T> LambdaQueryWrapper<T> applyTo(LambdaQueryWrapper<T> wrapper, SFunction<T, ?> column) {
+        if (userIdSql != null) {
+            wrapper.inSql(column, userIdSql);
+        }
+        return wrapper;
+    }
+
+    private static String descendantsSql(Long userId) {
+        return "SELECT c.descendant_id FROM user_hierarchy_closure c JOIN users u ON u.id = c.descendant_id "
+                + "WHERE c.ancestor_id = " + userId.longValue() + " AND u.is_deleted = 0";
+    }
+}
@@ -0,0 +1,62 @@
+package com.okbug.platform.service.security;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * 数据域服务：统一解析“可见用户”范围，基于用户层级闭包表与团队成员表以子查询形式返回
+ *
+ * 约定：
+ * - SUPER_ADMIN 不受限
+ * - ADMIN 可见自己 + 子账号树全部后代
+ * - 普通用户仅自己
+ *
+ * 层级闭包维护：
+ * - 新建子账号、删除用户时由 onSubUserCreated / onUserDeleted 在同一事务内增量维护
+ * - 业务接口不支持变更已有用户的 parent_user_id；直接修改库中父用户后，由启动时的
+ *   UserHierarchyClosureInitializer 调用 rebuildHierarchy 对账重建（也可在运维时手动调用）
+ */
+public interface DataScopeService {
+
+    /**
+     * 用户可见的用户范围（按用户当前角色）
+     */
+    DataScope visibleUserScope(Long userId);
+
+    /**
+     * 用户可见的用户范围（调用方已知角色时避免重复查询用户）
+     */
+    DataScope visibleUserScope(Long userId, String role);
+
+    /**
+     * 团队管理范围：SUPER_ADMIN 不受限；团队内返回同团队启用成员；不在团队仅自己
+     */
+    DataScope managedUserScope(Long operatorUserId);
+
+    /**
+     * 目标用户是否在数据域内
+     */
+    boolean contains(DataScope scope, Long targetUserId);
+
+    /**
+     * 批量判定：返回目标用户中位于数据域内的部分（单条 IN 查询）
+     */
+    Set<Long> filterContained(DataScope scope, Collection<Long> targetUserIds);
+
+    /**
+     * 新建子账号后登记层级关系（与用户写入处于同一事务）
+     */
+    void onSubUserCreated(Long parentUserId, Long userId);
+
+    /**
+     * 删除用户后移除其层级关系（与用户删除处于同一事务）
+     */
+    void onUserDeleted(Long userId);
+
+    /**
+     * 按 users.parent_user_id 对账层级闭包（幂等）：清除无法推导的关系并补齐缺失关系
+     *
+     * @return 新增与删除的关系行数之和
+     */
+    int rebuildHierarchy();
+}
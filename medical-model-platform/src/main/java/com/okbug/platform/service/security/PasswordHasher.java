@@ -0,0 +1,235 @@
+package com.okbug.platform.service.security;
+
+import cn.hutool.crypto.digest.BCrypt;
+import com.okbug.platform.common.base.ErrorCode;
+import com.okbug.platform.common.base.ServiceException;
+import com.okbug.platform.common.constants.SystemConfigKeys;
+import com.okbug.platform.common.utils.PasswordUtils;
+import com.okbug.platform.service.system.SystemConfigService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 密码哈希执行器：BCrypt 加密与校验在专用的有界线程池中执行，登录高峰不再占满 Tomcat 线程的 CPU 时间。
+ *
+ * 线程数等于 CPU 核数，队列满或等待超时立即返回"系统繁忙"，避免请求在队列中堆积；
+ * 加密强度（cost）由系统配置解析，低于当前强度的旧哈希在登录成功时升级。
+ * 线程池不注册为 Spring Bean，避免影响未指定执行器的 @Async 默认执行器选择。
+ */
+@Slf4j
+@Component
+public class PasswordHasher {
+
+    private static final int MIN_COST = 4;
+    private static final int MAX_COST = 16;
+    private static final int DEFAULT_COST = 10;
+
+    /**
+     * 等待队列上限：超过后新的哈希请求直接拒绝
+     */
+    private static final int QUEUE_CAPACITY = 128;
+
+    /**
+     * 调用方等待结果的最长时间
+     */
+    private static final long WAIT_TIMEOUT_MILLIS = 3000L;
+
+    @Autowired
+    private SystemConfigService systemConfigService;
+
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    private volatile int cost = DEFAULT_COST;
+
+    private ThreadPoolExecutor executor;
+
+    private final LongAdder verifications = new LongAdder();
+    private final LongAdder verifyNanos = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder upgraded = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        AtomicInteger seq = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), r -> {
+                    Thread t = new Thread(r, "pwd-hash-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        reloadCost();
+        try {
+            redisMessageListenerContainer.addMessageListener(this::onConfigChanged,
+                    new ChannelTopic(SystemConfigService.CONFIG_CHANGED_CHANNEL));
+        } catch (Exception e) {
+            log.warn("订阅系统配置变更通知失败，密码加密强度需重启后生效: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * 以当前加密强度加密密码
+     *
+     * @throws ServiceException 哈希线程池繁忙时抛出 PASSWORD_HASH_BUSY
+     */
+    public String encode(String rawPassword) {
+        if (rawPassword == null || rawPassword.trim().isEmpty()) {
+            throw new ServiceException(ErrorCode.PARAM_MISSING, "密码不能为空");
+        }
+        int currentCost = cost;
+        return submit(() -> BCrypt.hashpw(rawPassword, BCrypt.gensalt(currentCost)));
+    }
+
+    /**
+     * 校验密码
+     *
+     * @throws ServiceException 哈希线程池繁忙时抛出 PASSWORD_HASH_BUSY
+     */
+    public boolean matches(String rawPassword, String encodedPassword) {
+        if (rawPassword == null || encodedPassword == null) {
+            return false;
+        }
+        return submit(() -> {
+            long start = System.nanoTime();
+            try {
+                return PasswordUtils.matches(rawPassword, encodedPassword);
+            } finally {
+                verifications.increment();
+                verifyNanos.add(System.nanoTime() - start);
+            }
+        });
+    }
+
+    /**
+     * 已校验通过的哈希是否低于当前加密强度（需要升级）
+     */
+    public boolean needsUpgrade(String encodedPassword) {
+        int stored = costOf(encodedPassword);
+        return stored > 0 && stored < cost;
+    }
+
+    /**
+     * 以当前加密强度重新加密已校验通过的密码；线程池繁忙时返回null，下次登录再升级
+     */
+    public String upgrade(String rawPassword) {
+        try {
+            String hashed = encode(rawPassword);
+            upgraded.increment();
+            return hashed;
+        } catch (ServiceException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 获取哈希线程池与校验耗时统计
+     */
+    public Map<String, Object> getHashStats() {
+        long count = verifications.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("cost", cost);
+        stats.put("threads", executor.getMaximumPoolSize());
+        stats.put("active", executor.getActiveCount());
+        stats.put("queued", executor.getQueue().size());
+        stats.put("verifications", count);
+        stats.put("avgVerifyMillis", count == 0 ? 0 : verifyNanos.sum() / count / 1_000_000.0);
+        stats.put("rejected", rejected.sum());
+        stats.put("upgraded", upgraded.sum());
+        return stats;
+    }
+
+    private <T> T submit(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            log.warn("密码哈希线程池已满，拒绝请求，排队数: {}", executor.getQueue().size());
+            throw new ServiceException(ErrorCode.PASSWORD_HASH_BUSY);
+        }
+        try {
+            return future.get(WAIT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejected.increment();
+            log.warn("密码哈希等待超时，排队数: {}", executor.getQueue().size());
+            throw new ServiceException(ErrorCode.PASSWORD_HASH_BUSY);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new ServiceException(ErrorCode.PASSWORD_HASH_BUSY);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new ServiceException(ErrorCode.INTERNAL_ERROR, cause);
+        }
+    }
+
+    private void onConfigChanged(Message message, byte[] pattern) {
+        String configKey = new String(message.getBody(), StandardCharsets.UTF_8);
+        if ("*".equals(configKey) || SystemConfigKeys.USER_PASSWORD_HASH_COST.equals(configKey)) {
+            reloadCost();
+        }
+    }
+
+    private void reloadCost() {
+        try {
+            int configured = systemConfigService.getConfigValueAsInt(SystemConfigKeys.USER_PASSWORD_HASH_COST, DEFAULT_COST);
+            int next = Math.min(MAX_COST, Math.max(MIN_COST, configured));
+            if (next != cost) {
+                log.info("密码加密强度调整: {} -> {}", cost, next);
+            }
+            cost = next;
+        } catch (Exception e) {
+            log.warn("读取密码加密强度失败，沿用当前强度 {}: {}", cost, e.getMessage());
+        }
+    }
+
+    /**
+     * 解析 BCrypt 哈希中的强度（$2a$10$...），无法解析时返回-1
+     */
+    private static int costOf(String encodedPassword) {
+        if (encodedPassword == null || encodedPassword.length() < 7 || encodedPassword.charAt(0) != '$') {
+            return -1;
+        }
+        int sep = encodedPassword.indexOf('$', 1);
+        if (sep < 0 || sep + 3 > encodedPassword.length()) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(encodedPassword.substring(sep + 1, sep + 3));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.okbug.platform.service.security;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * 团队访问边界校验服务：统一判定团队域范围与管理权限
@@ -35,9 +36,16 @@ public interface TeamAccessService {
 
     /**
      * 返回操作人可管理的用户ID集合（包含自己）。
-     * 注意：集合可能较大，调用方需谨慎用于 IN 过滤。
+     * 注意：集合可能较大，用于过滤时应改用 {@link DataScopeService#managedUserScope(Long)} 的子查询。
      */
     List<Long> listManagedUserIds(Long operatorUserId);
+
+    /**
+     * 批量判断操作人是否可以管理目标用户（列表页整页鉴权）
+     *
+     * @return 目标用户ID → 是否可管理
+     */
+    Map<Long, Boolean> canManageUsers(Long operatorUserId, List<Long> targetUserIds);
 }
 
 
@@ -0,0 +1,138 @@
+package com.okbug.platform.service.security.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.okbug.platform.common.cache.TeamMembershipCache;
+import com.okbug.platform.common.cache.UserSnapshot;
+import com.okbug.platform.common.cache.UserSnapshotCache;
+import com.okbug.platform.entity.auth.User;
+import com.okbug.platform.mapper.auth.UserHierarchyClosureMapper;
+import com.okbug.platform.mapper.auth.UserMapper;
+import com.okbug.platform.service.security.DataScope;
+import com.okbug.platform.service.security.DataScopeService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 数据域服务实现
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DataScopeServiceImpl implements DataScopeService {
+
+    /**
+     * 闭包补齐的最大层级，防止 parent_user_id 成环时无限递归
+     */
+    private static final int MAX_HIERARCHY_DEPTH = 32;
+
+    private final UserMapper userMapper;
+    private final TeamMembershipCache teamMembershipCache;
+    private final UserHierarchyClosureMapper userHierarchyClosureMapper;
+    private final UserSnapshotCache userSnapshotCache;
+
+    @Override
+    public DataScope visibleUserScope(Long userId) {
+        if (userId == null) {
+            return DataScope.none();
+        }
+        UserSnapshot user = userSnapshotCache.get(userId);
+        if (user == null) {
+            return DataScope.none();
+        }
+        return visibleUserScope(userId, user.getRole());
+    }
+
+    @Override
+    public DataScope visibleUserScope(Long userId, String role) {
+        if (userId == null) {
+            return DataScope.none();
+        }
+        if (User.ROLE_SUPER_ADMIN.equals(role)) {
+            return DataScope.unrestricted();
+        }
+        if (User.ROLE_ADMIN.equals(role)) {
+            return DataScope.selfAndDescendants(userId);
+        }
+        return DataScope.self(userId);
+    }
+
+    @Override
+    public DataScope managedUserScope(Long operatorUserId) {
+        if (operatorUserId == null) {
+            return DataScope.none();
+        }
+        UserSnapshot operator = userSnapshotCache.get(operatorUserId);
+        if (operator != null && operator.isSuperAdmin()) {
+            return DataScope.unrestricted();
+        }
+        Long teamId = teamMembershipCache.getMembership(operatorUserId).getTeamId();
+        if (teamId == null) {
+            return DataScope.self(operatorUserId);
+        }
+        return DataScope.teamMembers(teamId);
+    }
+
+    @Override
+    public boolean contains(DataScope scope, Long targetUserId) {
+        if (scope == null || targetUserId == null) {
+            return false;
+        }
+        if (scope.isUnrestricted()) {
+            return true;
+        }
+        return userMapper.selectCount(scope.applyTo(new LambdaQueryWrapper<User>()
+                .eq(User::getId, targetUserId), User::getId)) > 0;
+    }
+
+    @Override
+    public Set<Long> filterContained(DataScope scope, Collection<Long> targetUserIds) {
+        if (scope == null || targetUserIds == null || targetUserIds.isEmpty()) {
+            return Collections.emptySet();
+        }
+        if (scope.isUnrestricted()) {
+            return new HashSet<>(targetUserIds);
+        }
+        List<Object> ids = userMapper.selectObjs(scope.applyTo(new LambdaQueryWrapper<User>()
+                .select(User::getId)
+                .in(User::getId, targetUserIds), User::getId));
+        Set<Long> contained = new HashSet<>(ids.size() * 2);
+        for (Object id : ids) {
+            contained.add(((Number) id).longValue());
+        }
+        return contained;
+    }
+
+    @Override
+    public void onSubUserCreated(Long parentUserId, Long userId) {
+        if (parentUserId == null || userId == null || Objects.equals(parentUserId, userId)) {
+            return;
+        }
+        userHierarchyClosureMapper.insertUnderParent(parentUserId, userId);
+        log.debug("登记用户层级关系，parentUserId={}, userId={}", parentUserId, userId);
+    }
+
+    @Override
+    public void onUserDeleted(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        int deleted = userHierarchyClosureMapper.deleteByUser(userId);
+        log.debug("移除用户层级关系，userId={}, rows={}", userId, deleted);
+    }
+
+    @Override
+    public int rebuildHierarchy() {
+        int deleted = userHierarchyClosureMapper.deleteStale(MAX_HIERARCHY_DEPTH);
+        int inserted = userHierarchyClosureMapper.insertMissingFromUsers(MAX_HIERARCHY_DEPTH);
+        log.info("用户层级闭包对账完成，删除关系: {}, 新增关系: {}", deleted, inserted);
+        return deleted + inserted;
+    }
+}
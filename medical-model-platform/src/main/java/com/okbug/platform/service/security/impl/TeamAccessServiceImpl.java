@@ -1,24 +1,28 @@
 package com.okbug.platform.service.security.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.okbug.platform.common.cache.TeamMembershipCache;
+import com.okbug.platform.common.cache.UserSnapshot;
+import com.okbug.platform.common.cache.UserSnapshotCache;
 import com.okbug.platform.entity.auth.User;
-import com.okbug.platform.entity.team.Team;
 import com.okbug.platform.entity.team.TeamMember;
 import com.okbug.platform.mapper.auth.UserMapper;
-import com.okbug.platform.mapper.team.TeamMemberMapper;
-import com.okbug.platform.mapper.team.TeamMapper;
+import com.okbug.platform.service.security.DataScope;
+import com.okbug.platform.service.security.DataScopeService;
 import com.okbug.platform.service.security.TeamAccessService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
 
 /**
- * 团队访问边界校验实现
+ * 团队访问边界校验实现（成员关系与团队状态读取 TeamMembershipCache）
  */
 @Slf4j
 @Service
@@ -26,8 +30,9 @@ import java.util.stream.Collectors;
 public class TeamAccessServiceImpl implements TeamAccessService {
 
     private final UserMapper userMapper;
-    private final TeamMemberMapper teamMemberMapper;
-    private final TeamMapper teamMapper;
+    private final TeamMembershipCache teamMembershipCache;
+    private final DataScopeService dataScopeService;
+    private final UserSnapshotCache userSnapshotCache;
 
     /**
      * 判断操作者是否可以管理目标用户。
@@ -47,7 +52,7 @@ public class TeamAccessServiceImpl implements TeamAccessService {
             log.debug("canManageUser: same user, allow");
             return true;
         }
-        User operator = userMapper.selectById(operatorUserId);
+        UserSnapshot operator = userSnapshotCache.get(operatorUserId);
         if (operator != null && operator.isSuperAdmin()) {
             log.debug("canManageUser: operator is SUPER_ADMIN, allow");
             return true;
@@ -84,7 +89,7 @@ public class TeamAccessServiceImpl implements TeamAccessService {
         if (operatorUserId == null || teamId == null) {
             return false;
         }
-        User operator = userMapper.selectById(operatorUserId);
+        UserSnapshot operator = userSnapshotCache.get(operatorUserId);
         if (operator != null && operator.isSuperAdmin()) {
             log.debug("canManageTeam: operator is SUPER_ADMIN, allow");
             return true;
@@ -114,7 +119,7 @@ public class TeamAccessServiceImpl implements TeamAccessService {
         if (operatorUserId == null || teamId == null) {
             return false;
         }
-        User operator = userMapper.selectById(operatorUserId);
+        UserSnapshot operator = userSnapshotCache.get(operatorUserId);
         if (operator != null && operator.isSuperAdmin()) {
             log.debug("canViewTeamForManagement: operator is SUPER_ADMIN, allow");
             return true;
@@ -147,7 +152,7 @@ public class TeamAccessServiceImpl implements TeamAccessService {
 
     /**
      * 返回操作者可管理的用户ID集合（包含自己）。
-     * 规则：SUPER_ADMIN 返回全量用户ID；否则返回同团队启用成员ID集合，若不在团队仅返回自己。
+     * 范围由 DataScopeService 解析，仅按子查询取回用户ID列，不再加载整行用户数据。
      *
      * @param operatorUserId 操作人用户ID
      * @return 可管理的用户ID集合
@@ -158,61 +163,75 @@ public class TeamAccessServiceImpl implements TeamAccessService {
         if (operatorUserId == null) {
             return Collections.emptyList();
         }
-        User operator = userMapper.selectById(operatorUserId);
-        if (operator != null && operator.isSuperAdmin()) {
-            // 超级管理员返回全量用户ID（谨慎：用于管理范围查询时建议改为不限制）
-            List<Long> allIds = userMapper.selectList(null).stream().map(User::getId).collect(Collectors.toList());
-            log.debug("listManagedUserIds: SUPER_ADMIN, size={}", allIds.size());
-            return allIds;
-        }
-        Long teamId = getActiveTeamId(operatorUserId);
-        if (teamId == null) {
-            log.debug("listManagedUserIds: no active team, return self");
-            return Collections.singletonList(operatorUserId);
-        }
-        // 团队内全部用户ID
-        LambdaQueryWrapper<TeamMember> q = new LambdaQueryWrapper<>();
-        q.eq(TeamMember::getTeamId, teamId).eq(TeamMember::getStatus, TeamMember.STATUS_ENABLED);
-        List<TeamMember> members = teamMemberMapper.selectList(q);
-        if (members == null || members.isEmpty()) {
-            log.debug("listManagedUserIds: team has no enabled members, return self");
+        DataScope scope = dataScopeService.managedUserScope(operatorUserId);
+        LambdaQueryWrapper<User> q = scope.applyTo(new LambdaQueryWrapper<User>().select(User::getId), User::getId);
+        List<Long> ids = userMapper.selectObjs(q).stream()
+                .map(id -> ((Number) id).longValue())
+                .collect(Collectors.toList());
+        if (ids.isEmpty()) {
+            log.debug("listManagedUserIds: empty scope, return self");
             return Collections.singletonList(operatorUserId);
         }
-        List<Long> ids = members.stream().map(TeamMember::getUserId).distinct().collect(Collectors.toList());
-        log.debug("listManagedUserIds: teamId={}, size={}", teamId, ids.size());
+        log.debug("listManagedUserIds: size={}", ids.size());
         return ids;
     }
 
+    /**
+     * 批量判断操作者可管理的目标用户，列表页整页鉴权一次完成。
+     * 规则与 {@link #canManageUser(Long, Long)} 一致；成员关系批量读取缓存，未命中部分一次查询回源。
+     *
+     * @param operatorUserId 操作人用户ID
+     * @param targetUserIds 目标用户ID列表
+     * @return 目标用户ID → 是否可管理
+     */
+    @Override
+    public Map<Long, Boolean> canManageUsers(Long operatorUserId, List<Long> targetUserIds) {
+        Map<Long, Boolean> result = new HashMap<>();
+        if (targetUserIds == null || targetUserIds.isEmpty()) {
+            return result;
+        }
+        if (operatorUserId == null) {
+            targetUserIds.forEach(id -> result.put(id, false));
+            return result;
+        }
+        UserSnapshot operator = userSnapshotCache.get(operatorUserId);
+        boolean superAdmin = operator != null && operator.isSuperAdmin();
+        TeamMembershipCache.Membership operatorMembership = teamMembershipCache.getMembership(operatorUserId);
+        Long operatorTeamId = operatorMembership.getTeamId();
+        boolean teamManager = operatorTeamId != null
+                && operatorMembership.isManagerOf(operatorTeamId)
+                && teamMembershipCache.getTeam(operatorTeamId).isEnabled();
+        Map<Long, TeamMembershipCache.Membership> targets = (superAdmin || !teamManager)
+                ? Collections.emptyMap() : teamMembershipCache.getMemberships(targetUserIds);
+        for (Long targetUserId : targetUserIds) {
+            if (targetUserId == null) {
+                continue;
+            }
+            boolean allow = superAdmin || Objects.equals(operatorUserId, targetUserId);
+            if (!allow && teamManager) {
+                TeamMembershipCache.Membership target = targets.get(targetUserId);
+                allow = target != null && Objects.equals(operatorTeamId, target.getTeamId());
+            }
+            result.put(targetUserId, allow);
+        }
+        log.debug("canManageUsers: operatorUserId={}, targets={}, superAdmin={}, teamManager={}",
+                operatorUserId, targetUserIds.size(), superAdmin, teamManager);
+        return result;
+    }
+
     private Long getActiveTeamId(Long userId) {
-        LambdaQueryWrapper<TeamMember> q = new LambdaQueryWrapper<>();
-        q.eq(TeamMember::getUserId, userId)
-         .eq(TeamMember::getStatus, TeamMember.STATUS_ENABLED)
-         .last("limit 1");
-        TeamMember m = teamMemberMapper.selectOne(q);
-        return m == null ? null : m.getTeamId();
+        return teamMembershipCache.getMembership(userId).getTeamId();
     }
 
     private String getTeamRole(Long teamId, Long userId) {
-        LambdaQueryWrapper<TeamMember> q = new LambdaQueryWrapper<>();
-        q.eq(TeamMember::getTeamId, teamId)
-         .eq(TeamMember::getUserId, userId)
-         .eq(TeamMember::getStatus, TeamMember.STATUS_ENABLED)
-         .last("limit 1");
-        TeamMember m = teamMemberMapper.selectOne(q);
-        return m == null ? null : m.getTeamRole();
+        TeamMembershipCache.Membership m = teamMembershipCache.getMembership(userId);
+        return Objects.equals(teamId, m.getTeamId()) ? m.getTeamRole() : null;
     }
 
     private boolean isTeamEnabled(Long teamId) {
         if (teamId == null) {
             return false;
         }
-        Team t = teamMapper.selectById(teamId);
-        if (t == null) {
-            return false;
-        }
-        Integer status = t.getStatus();
-        return status != null && status == Team.STATUS_ENABLED;
+        return teamMembershipCache.getTeam(teamId).isEnabled();
     }
 }
-
-
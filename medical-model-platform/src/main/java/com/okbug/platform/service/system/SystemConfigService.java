@@ -31,6 +31,12 @@ import java.util.List;
  */
 public interface SystemConfigService {
     
+    /**
+     * 配置变更广播频道，消息内容为变更的配置键，整体刷新时为 *
+     * 依赖配置的本地策略订阅该频道后重新解析
+     */
+    String CONFIG_CHANGED_CHANNEL = "system:config:changed";
+    
     /**
      * 分页查询配置列表
      * 
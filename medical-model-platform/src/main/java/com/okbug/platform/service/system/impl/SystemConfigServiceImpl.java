@@ -21,6 +21,8 @@ import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.okbug.platform.common.base.ErrorCode;
 import com.okbug.platform.common.base.ServiceException;
+import com.okbug.platform.common.cache.CacheNamespace;
+import com.okbug.platform.common.cache.CacheNamespaceManager;
 import com.okbug.platform.dto.system.SystemConfigDTO;
 import com.okbug.platform.dto.system.SystemConfigQueryDTO;
 import com.okbug.platform.dto.system.SystemConfigCreateDTO;
@@ -38,7 +40,6 @@ import org.springframework.util.StringUtils;
 
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -63,10 +64,13 @@ public class SystemConfigServiceImpl implements SystemConfigService {
     @Autowired
     private ConfigAuditService configAuditService;
     
+    @Autowired
+    private CacheNamespaceManager cacheNamespaceManager;
+    
     /**
-     * Redis缓存配置
+     * Redis缓存命名空间（键格式：system:config:v{版本号}:{配置键}）
      */
-    private static final String CONFIG_CACHE_PREFIX = "system:config:";
+    private static final String CONFIG_CACHE_NS = "system:config";
     
     @Override
     public IPage<SystemConfigDTO> getConfigs(SystemConfigQueryDTO queryDto) {
@@ -214,6 +218,7 @@ public class SystemConfigServiceImpl implements SystemConfigService {
         
         // 更新缓存
         updateConfigCache(config.getConfigKey(), config.getConfigValue());
+        publishConfigChanged(config.getConfigKey());
         
         // 记录审计日志
         configAuditService.logConfigCreate(config.getId(), config.getConfigKey(), config.getConfigValue(), 
@@ -262,6 +267,7 @@ public class SystemConfigServiceImpl implements SystemConfigService {
         
         // 更新缓存
         updateConfigCache(config.getConfigKey(), config.getConfigValue());
+        publishConfigChanged(config.getConfigKey());
         
         // 记录审计日志
         configAuditService.logConfigUpdate(config.getId(), config.getConfigKey(), oldValue, config.getConfigValue(),
@@ -391,7 +397,7 @@ public class SystemConfigServiceImpl implements SystemConfigService {
     @Override
     public String getConfigValue(String configKey, String defaultValue) {
         // 先从缓存获取
-        String cachedValue = redisTemplate.opsForValue().get(CONFIG_CACHE_PREFIX + configKey);
+        String cachedValue = redisTemplate.opsForValue().get(configCache().key(configKey));
         if (cachedValue != null) {
             log.debug("从缓存获取配置值，配置键: {}, 值: {}", configKey, cachedValue);
             return cachedValue;
@@ -529,22 +535,18 @@ public class SystemConfigServiceImpl implements SystemConfigService {
     public void refreshConfigCache() {
         log.info("开始刷新系统配置缓存");
         
-        // 清除所有配置相关的Redis缓存
-        Set<String> keys = redisTemplate.keys(CONFIG_CACHE_PREFIX + "*");
-        if (keys != null && !keys.isEmpty()) {
-            redisTemplate.delete(keys);
-            log.info("系统配置缓存刷新完成，清除 {} 个缓存键", keys.size());
-        } else {
-            log.info("系统配置缓存刷新完成，无缓存需要清除");
-        }
+        // 递增命名空间版本，旧版本的键由TTL自然过期
+        configCache().invalidateAll();
+        publishConfigChanged("*");
+        log.info("系统配置缓存刷新完成");
     }
     
     @Override
     public void clearConfigCache(String configKey) {
         if (configKey != null) {
             // 清除指定配置的缓存
-            String cacheKey = CONFIG_CACHE_PREFIX + configKey;
-            redisTemplate.delete(cacheKey);
+            configCache().evict(configKey);
+            publishConfigChanged(configKey);
             log.debug("清除配置缓存，配置键: {}", configKey);
         } else {
             // 清除所有配置缓存
@@ -560,7 +562,7 @@ public class SystemConfigServiceImpl implements SystemConfigService {
      */
     private void updateConfigCache(String configKey, String configValue) {
         try {
-            String cacheKey = CONFIG_CACHE_PREFIX + configKey;
+            String cacheKey = configCache().key(configKey);
             // 使用默认缓存TTL 1小时，避免循环依赖
             int cacheTtl = 3600;
             redisTemplate.opsForValue().set(cacheKey, configValue, cacheTtl, TimeUnit.SECONDS);
@@ -570,6 +572,23 @@ public class SystemConfigServiceImpl implements SystemConfigService {
         }
     }
     
+    /**
+     * 广播配置变更，各节点依赖该配置的本地策略据此重新解析
+     *
+     * @param configKey 配置键，整体刷新时为 *
+     */
+    private void publishConfigChanged(String configKey) {
+        try {
+            redisTemplate.convertAndSend(CONFIG_CHANGED_CHANNEL, configKey);
+        } catch (Exception e) {
+            log.warn("发布配置变更通知失败，配置键: {}, 错误: {}", configKey, e.getMessage());
+        }
+    }
+    
+    private CacheNamespace configCache() {
+        return cacheNamespaceManager.namespace(CONFIG_CACHE_NS);
+    }
+    
     /**
      * 实体转 DTO（私有方法）。
      *
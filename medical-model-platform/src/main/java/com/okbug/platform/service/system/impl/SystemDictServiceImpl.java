@@ -21,6 +21,8 @@ import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.okbug.platform.common.base.ErrorCode;
 import com.okbug.platform.common.base.ServiceException;
+import com.okbug.platform.common.cache.CacheNamespace;
+import com.okbug.platform.common.cache.CacheNamespaceManager;
 import com.okbug.platform.dto.system.SystemDictDTO;
 import com.okbug.platform.dto.system.SystemDictQueryDTO;
 import com.okbug.platform.dto.system.SystemDictCreateDTO;
@@ -65,10 +67,13 @@ public class SystemDictServiceImpl implements SystemDictService {
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
     
+    @Autowired
+    private CacheNamespaceManager cacheNamespaceManager;
+    
     /**
-     * Redis缓存配置
+     * Redis缓存命名空间（键格式：system:dict:v{版本号}:{标识}）
      */
-    private static final String DICT_CACHE_PREFIX = "system:dict:";
+    private static final String DICT_CACHE_NS = "system:dict";
     private static final int CACHE_TTL = 3600; // 1小时
     
     @Override
@@ -459,25 +464,17 @@ public class SystemDictServiceImpl implements SystemDictService {
     public void refreshDictCache() {
         log.info("开始刷新系统字典缓存");
         
-        // 清除所有字典相关的Redis缓存
-        Set<String> keys = redisTemplate.keys(DICT_CACHE_PREFIX + "*");
-        if (keys != null && !keys.isEmpty()) {
-            redisTemplate.delete(keys);
-            log.info("系统字典缓存刷新完成，清除 {} 个缓存键", keys.size());
-        } else {
-            log.info("系统字典缓存刷新完成，无缓存需要清除");
-        }
+        // 递增命名空间版本，旧版本的键由TTL自然过期
+        dictCache().invalidateAll();
+        log.info("系统字典缓存刷新完成");
     }
     
     @Override
     public void clearDictCache(String dictCode) {
         if (dictCode != null) {
-            // 清除指定字典的缓存
-            Set<String> keys = redisTemplate.keys(DICT_CACHE_PREFIX + "*" + dictCode + "*");
-            if (keys != null && !keys.isEmpty()) {
-                redisTemplate.delete(keys);
-                log.debug("清除字典缓存，字典编码: {}, 清除 {} 个缓存键", dictCode, keys.size());
-            }
+            // 字典项会出现在父级、类型、树等多个缓存条目中，按编码逐键定位需要通配扫描；字典变更低频，直接整体失效
+            dictCache().invalidateAll();
+            log.debug("清除字典缓存，字典编码: {}", dictCode);
         } else {
             // 清除所有字典缓存
             refreshDictCache();
@@ -751,10 +748,11 @@ public class SystemDictServiceImpl implements SystemDictService {
     /**
      * 更新字典缓存
      * 
-     * @param cacheKey 缓存键
+     * @param id 缓存条目标识（写入当前命名空间版本下）
      * @param data 缓存数据
      */
-    private void updateDictCache(String cacheKey, Object data) {
+    private void updateDictCache(String id, Object data) {
+        String cacheKey = dictCache().key(id);
         try {
             redisTemplate.opsForValue().set(cacheKey, data, CACHE_TTL, TimeUnit.SECONDS);
             log.debug("更新字典缓存成功，缓存键: {}, TTL: {}秒", cacheKey, CACHE_TTL);
@@ -763,6 +761,10 @@ public class SystemDictServiceImpl implements SystemDictService {
         }
     }
     
+    private CacheNamespace dictCache() {
+        return cacheNamespaceManager.namespace(DICT_CACHE_NS);
+    }
+    
     /**
      * 将SystemDict实体转换为SystemDictDTO
      * 
@@ -53,6 +53,9 @@ public interface AnnouncementService {
     /** 用户端未读且可见公告列表（按优先级倒序） */
     Page<AnnouncementVO> pageVisibleUnread(Long userId, long pageNum, long pageSize);
 
+    /** 用户端未读且可见公告数量（未读角标，缓存命中时不访问数据库） */
+    long countVisibleUnread(Long userId);
+
     /** 根据ID获取公告详情 */
     AnnouncementVO getById(Long id);
 
@@ -0,0 +1,23 @@
+package com.okbug.platform.service.system.message;
+
+import com.okbug.platform.domain.notify.MessageType;
+
+import java.util.Collection;
+
+/**
+ * 消息批量扇出服务：同一内容发送给大量用户（系统通知、群发等）
+ */
+public interface MessageFanoutService {
+
+    /**
+     * 向一组用户发送同一条消息：分片多行写入、整片解析渠道偏好、按渠道异步投递、状态批量回写
+     *
+     * @param userIds    接收用户ID（自动去重、忽略空值）
+     * @param type       消息类型，为空时按系统消息处理
+     * @param title      消息标题
+     * @param content    消息内容
+     * @param operatorId 操作人ID，可为空
+     * @return 实际写入的消息条数
+     */
+    int fanout(Collection<Long> userIds, MessageType type, String title, String content, Long operatorId);
+}
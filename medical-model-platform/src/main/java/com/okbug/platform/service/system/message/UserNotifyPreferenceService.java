@@ -3,7 +3,10 @@ package com.okbug.platform.service.system.message;
 import com.okbug.platform.entity.system.message.UserNotifyChannelPref;
 import com.okbug.platform.entity.system.message.UserNotifyTypePref;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * 新版用户通知偏好服务（按渠道、按类型细粒度）
@@ -27,6 +30,10 @@ public interface UserNotifyPreferenceService {
 
     /** 查询单个类型开关（不存在则返回默认 true；营销等可默认 false 视业务而定） */
     boolean isTypeEnabled(Long userId, String typeCode);
-}
 
+    /** 批量查询：在给定用户中显式关闭了该类型的用户ID（一次查询；system 恒开启返回空集） */
+    Set<Long> findTypeDisabledUserIds(Collection<Long> userIds, String typeCode);
 
+    /** 批量查询：给定用户各自显式关闭的渠道（一次查询；inbox 恒开启不会出现在结果中） */
+    Map<Long, Set<String>> findDisabledChannels(Collection<Long> userIds);
+}
@@ -0,0 +1,93 @@
+package com.okbug.platform.service.system.message.counter;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.okbug.platform.common.cache.AnnouncementWindowCache;
+import com.okbug.platform.entity.system.message.Announcement;
+import com.okbug.platform.entity.system.message.AnnouncementPublishSeq;
+import com.okbug.platform.mapper.system.message.AnnouncementMapper;
+import com.okbug.platform.mapper.system.message.AnnouncementPublishSeqMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 公告可见序号分配：公告进入生效窗口（立即发布或到点推送）时分配序号并标记已推送。
+ *
+ * 序号取自单行计数表，分配时对计数行加行锁并持有至公告更新所在事务提交，因此序号按提交顺序递增：
+ * 任一序号可见时，更小的序号均已提交。已读水位线据此推进，不会越过尚未提交的公告；
+ * 序号与节点时钟无关（不使用 IdWorker 等提交前生成的ID）。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AnnouncementPublishSequencer {
+
+    private static final int SEQ_ROW_ID = 1;
+
+    private final AnnouncementMapper announcementMapper;
+    private final AnnouncementPublishSeqMapper announcementPublishSeqMapper;
+    private final AnnouncementWindowCache announcementWindowCache;
+
+    /**
+     * 分配可见序号并标记公告已推送（加入调用方事务；无事务时独立提交）
+     *
+     * @param announcementId 公告ID
+     * @param now 推送时间
+     * @param operatorId 操作人（到点推送为 null）
+     * @return 分配的可见序号
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public long markVisible(Long announcementId, LocalDateTime now, Long operatorId) {
+        long seq = next();
+        Announcement upd = new Announcement();
+        upd.setId(announcementId);
+        upd.setNotified(1);
+        upd.setFirstPushTime(now);
+        upd.setPublishSeq(seq);
+        upd.setUpdateTime(now);
+        upd.setUpdateBy(operatorId);
+        announcementMapper.updateById(upd);
+        announcementWindowCache.invalidate();
+        return seq;
+    }
+
+    /**
+     * 递增计数行（行锁持有至事务提交）并读取新序号
+     */
+    private long next() {
+        if (increment() == 0) {
+            initialize();
+            increment();
+        }
+        return announcementPublishSeqMapper.selectById(SEQ_ROW_ID).getLastSeq();
+    }
+
+    private int increment() {
+        return announcementPublishSeqMapper.update(null, new LambdaUpdateWrapper<AnnouncementPublishSeq>()
+                .setSql("last_seq = last_seq + 1")
+                .eq(AnnouncementPublishSeq::getId, SEQ_ROW_ID));
+    }
+
+    /**
+     * 计数行不存在（历史库）时以现有最大序号初始化，新序号不小于历史序号
+     */
+    private void initialize() {
+        List<Object> max = announcementMapper.selectObjs(new QueryWrapper<Announcement>()
+                .select("COALESCE(MAX(publish_seq), 0)"));
+        AnnouncementPublishSeq row = new AnnouncementPublishSeq();
+        row.setId(SEQ_ROW_ID);
+        row.setLastSeq(max == null || max.isEmpty() || max.get(0) == null ? 0L : Long.parseLong(max.get(0).toString()));
+        try {
+            announcementPublishSeqMapper.insert(row);
+            log.info("初始化公告可见序号计数: lastSeq={}", row.getLastSeq());
+        } catch (DuplicateKeyException e) {
+            log.debug("公告可见序号计数已由其他节点初始化");
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package com.okbug.platform.service.system.message.counter;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.okbug.platform.entity.system.message.Message;
+import com.okbug.platform.entity.system.message.MessageRead;
+import com.okbug.platform.mapper.system.message.MessageMapper;
+import com.okbug.platform.mapper.system.message.MessageReadMapper;
+import com.okbug.platform.ws.RealtimeWebSocketHandler;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 站内消息未读计数器：每个用户一个 Redis 计数，消息创建时递增、标记已读时递减、全部已读时归零，
+ * 角标查询命中时不访问数据库；计数不存在（首次访问、过期或 Redis 数据丢失）时以 MySQL 统计重建。
+ *
+ * 计数只在已存在时调整（不存在时等待下次查询重建），避免未初始化的计数从0开始累加；
+ * 重建时先写入带令牌的重建标记再统计数据库，任何调整都会删除该标记，写回计数时标记已变化则放弃本次结果重新统计，
+ * 统计期间提交的变更不会丢失；全部已读与定期校准同样走该流程，不会以过期的统计覆盖并发调整。
+ * 计数变化经 Redis 广播到所有节点，由用户连接所在节点通过 WebSocket 推送最新未读数，客户端无需轮询。
+ * 所有变更在事务提交后执行，回滚的写入不会影响计数；本节点调整过的用户定期与 MySQL 校准，修正 Redis 故障等造成的偏差。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class InboxUnreadCounter {
+
+    /**
+     * 未读数变更广播频道，消息格式：{nodeId}|{userId}|{count}
+     */
+    public static final String CHANGED_CHANNEL = "notify:unread:changed";
+    private static final String KEY_PREFIX = "notify:unread:";
+    private static final String REBUILD_KEY_PREFIX = "notify:unread:rebuild:";
+    private static final Duration EXPIRE_TIME = Duration.ofDays(1);
+
+    /**
+     * 重建标记有效期（覆盖一次数据库统计的耗时）与单次查询的最多重建次数
+     */
+    private static final Duration REBUILD_MARK_TTL = Duration.ofSeconds(10);
+    private static final int MAX_REBUILD_ATTEMPTS = 3;
+
+    /**
+     * 单轮校准的最多用户数（剩余用户留到下一轮）与等待校准用户的上限（大批量扇出时超出部分依赖过期重建）
+     */
+    private static final int RECONCILE_BATCH_SIZE = 200;
+    private static final int MAX_RECONCILE_PENDING = 10_000;
+
+    /**
+     * 作废进行中的重建（删除重建标记）；计数存在时按增量调整（不低于0）并返回新值，计数不存在时返回 -1
+     */
+    private static final byte[] ADJUST_SCRIPT = (
+            "redis.call('DEL', KEYS[2]) " +
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return -1 end " +
+            "local v = redis.call('INCRBY', KEYS[1], ARGV[1]) " +
+            "if v < 0 then redis.call('INCRBY', KEYS[1], -v) v = 0 end " +
+            "return v").getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * 写回重建结果：重建标记仍为本次令牌（统计期间无调整）时写入计数并返回 1，否则返回 0
+     */
+    private static final DefaultRedisScript<Long> COMMIT_REBUILD_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[2]) ~= ARGV[1] then return 0 end " +
+            "redis.call('SET', KEYS[1], ARGV[2], 'EX', ARGV[3]) " +
+            "redis.call('DEL', KEYS[2]) " +
+            "return 1", Long.class);
+
+    private final MessageMapper messageMapper;
+    private final MessageReadMapper messageReadMapper;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisMessageListenerContainer redisMessageListenerContainer;
+    private final RealtimeWebSocketHandler webSocketHandler;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    /**
+     * 本节点调整过、等待校准的用户
+     */
+    private final Set<Long> reconcilePending = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void subscribe() {
+        try {
+            redisMessageListenerContainer.addMessageListener((message, pattern) -> onChanged(message.getBody()),
+                    new ChannelTopic(CHANGED_CHANNEL));
+        } catch (Exception e) {
+            log.warn("订阅未读数变更广播失败，仅推送本节点在线用户: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 获取用户未读数；计数不存在或 Redis 不可用时以数据库统计为准
+     */
+    public long get(Long userId) {
+        String key = KEY_PREFIX + userId;
+        try {
+            String cached = stringRedisTemplate.opsForValue().get(key);
+            if (cached != null) {
+                return Long.parseLong(cached);
+            }
+        } catch (Exception e) {
+            log.warn("读取未读计数失败，回源数据库，userId: {}, 错误: {}", userId, e.getMessage());
+            return countFromDatabase(userId);
+        }
+        return rebuild(userId);
+    }
+
+    /**
+     * 新消息：未读数 +1
+     */
+    public void increment(Long userId) {
+        if (userId != null) {
+            runAfterCommit(() -> adjust(List.of(userId), 1));
+        }
+    }
+
+    /**
+     * 批量新消息（扇出）：每个接收人未读数 +1，一次管道提交
+     */
+    public void incrementAll(Collection<Long> userIds) {
+        List<Long> ids = userIds.stream().filter(Objects::nonNull).toList();
+        if (!ids.isEmpty()) {
+            runAfterCommit(() -> adjust(ids, 1));
+        }
+    }
+
+    /**
+     * 标记单条已读：未读数 -1
+     */
+    public void decrement(Long userId) {
+        if (userId != null) {
+            runAfterCommit(() -> adjust(List.of(userId), -1));
+        }
+    }
+
+    /**
+     * 全部已读：按数据库重建计数（提交后其他事务可能已写入新消息，不能直接置0）
+     */
+    public void reset(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        runAfterCommit(() -> {
+            Map<Long, Long> counts = new LinkedHashMap<>();
+            counts.put(userId, rebuild(userId));
+            broadcast(counts);
+        });
+    }
+
+    /**
+     * 定期校准：本节点调整过的用户按数据库重建计数，结果变化时推送
+     */
+    @Scheduled(fixedDelay = 300_000, initialDelay = 300_000)
+    public void reconcile() {
+        int processed = 0;
+        int corrected = 0;
+        Iterator<Long> it = reconcilePending.iterator();
+        while (it.hasNext() && processed < RECONCILE_BATCH_SIZE) {
+            Long userId = it.next();
+            it.remove();
+            processed++;
+            try {
+                String before = stringRedisTemplate.opsForValue().get(KEY_PREFIX + userId);
+                long count = rebuild(userId);
+                if (before != null && Long.parseLong(before) != count) {
+                    corrected++;
+                    Map<Long, Long> counts = new LinkedHashMap<>();
+                    counts.put(userId, count);
+                    broadcast(counts);
+                }
+            } catch (Exception e) {
+                log.warn("校准未读计数失败，userId: {}, 错误: {}", userId, e.getMessage());
+            }
+        }
+        if (corrected > 0) {
+            log.info("未读计数校准完成: processed={}, corrected={}, remaining={}", processed, corrected, reconcilePending.size());
+        }
+    }
+
+    /**
+     * 以数据库统计重建计数：写入重建标记后统计，统计期间有调整（标记被删除）则重新统计；
+     * 多次重试仍被打断或 Redis 不可用时返回数据库统计结果，不写入计数
+     */
+    private long rebuild(Long userId) {
+        String key = KEY_PREFIX + userId;
+        String markKey = REBUILD_KEY_PREFIX + userId;
+        long count = 0L;
+        for (int attempt = 0; attempt < MAX_REBUILD_ATTEMPTS; attempt++) {
+            String token = UUID.randomUUID().toString();
+            try {
+                stringRedisTemplate.opsForValue().set(markKey, token, REBUILD_MARK_TTL);
+            } catch (Exception e) {
+                log.warn("写入未读计数重建标记失败，回源数据库，userId: {}, 错误: {}", userId, e.getMessage());
+                return countFromDatabase(userId);
+            }
+            count = countFromDatabase(userId);
+            try {
+                Long committed = stringRedisTemplate.execute(COMMIT_REBUILD_SCRIPT, List.of(key, markKey),
+                        token, String.valueOf(count), String.valueOf(EXPIRE_TIME.toSeconds()));
+                if (committed != null && committed == 1L) {
+                    return count;
+                }
+            } catch (Exception e) {
+                log.warn("写入未读计数失败，userId: {}, 错误: {}", userId, e.getMessage());
+                return count;
+            }
+        }
+        log.debug("未读计数重建多次被并发调整打断，本次不写入，userId: {}", userId);
+        return count;
+    }
+
+    private void adjust(List<Long> userIds, long delta) {
+        for (Long userId : userIds) {
+            if (reconcilePending.size() >= MAX_RECONCILE_PENDING) {
+                break;
+            }
+            reconcilePending.add(userId);
+        }
+        List<Object> results;
+        try {
+            byte[] deltaArg = String.valueOf(delta).getBytes(StandardCharsets.UTF_8);
+            results = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (Long userId : userIds) {
+                    connection.scriptingCommands().eval(ADJUST_SCRIPT, ReturnType.INTEGER, 2,
+                            (KEY_PREFIX + userId).getBytes(StandardCharsets.UTF_8),
+                            (REBUILD_KEY_PREFIX + userId).getBytes(StandardCharsets.UTF_8), deltaArg);
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("调整未读计数失败，删除计数等待重建，users: {}, 错误: {}", userIds.size(), e.getMessage());
+            userIds.forEach(this::evict);
+            return;
+        }
+        Map<Long, Long> counts = new LinkedHashMap<>();
+        for (int i = 0; i < userIds.size() && i < results.size(); i++) {
+            if (results.get(i) instanceof Long count && count >= 0) {
+                counts.put(userIds.get(i), count);
+            }
+        }
+        broadcast(counts);
+    }
+
+    /**
+     * 本节点直接推送，其他节点经广播推送
+     */
+    private void broadcast(Map<Long, Long> counts) {
+        if (counts.isEmpty()) {
+            return;
+        }
+        counts.forEach(this::pushLocal);
+        try {
+            List<byte[]> payloads = new ArrayList<>(counts.size());
+            counts.forEach((userId, count) ->
+                    payloads.add((nodeId + "|" + userId + "|" + count).getBytes(StandardCharsets.UTF_8)));
+            byte[] channel = CHANGED_CHANNEL.getBytes(StandardCharsets.UTF_8);
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (byte[] payload : payloads) {
+                    connection.publish(channel, payload);
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("广播未读数变更失败: {}", e.getMessage());
+        }
+    }
+
+    private void onChanged(byte[] body) {
+        String[] parts = new String(body, StandardCharsets.UTF_8).split("\\|", 3);
+        if (parts.length < 3 || nodeId.equals(parts[0])) {
+            return;
+        }
+        try {
+            pushLocal(Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+        } catch (NumberFormatException e) {
+            log.debug("忽略无法解析的未读数广播: {}", e.getMessage());
+        }
+    }
+
+    private void pushLocal(Long userId, Long count) {
+        try {
+            webSocketHandler.sendUnreadCount(userId, count);
+        } catch (Exception e) {
+            log.debug("推送未读数失败: userId={}, error={}", userId, e.getMessage());
+        }
+    }
+
+    private void evict(Long userId) {
+        try {
+            stringRedisTemplate.delete(List.of(KEY_PREFIX + userId, REBUILD_KEY_PREFIX + userId));
+        } catch (Exception e) {
+            log.debug("删除未读计数失败，userId: {}, 错误: {}", userId, e.getMessage());
+        }
+    }
+
+    /**
+     * 数据库统计：消息总数 - 已读数（计数重建的唯一依据）
+     */
+    private long countFromDatabase(Long userId) {
+        long totalCount = messageMapper.selectCount(new LambdaQueryWrapper<Message>()
+                .eq(Message::getUserId, userId));
+        if (totalCount == 0L) {
+            return 0L;
+        }
+        long readCount = messageReadMapper.selectCount(new LambdaQueryWrapper<MessageRead>()
+                .eq(MessageRead::getUserId, userId));
+        return Math.max(0L, totalCount - readCount);
+    }
+
+    private static void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
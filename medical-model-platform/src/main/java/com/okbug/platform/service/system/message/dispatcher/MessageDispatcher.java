@@ -1,5 +1,6 @@
 package com.okbug.platform.service.system.message.dispatcher;
 
+import com.okbug.platform.domain.notify.MessageChannel;
 import com.okbug.platform.entity.system.message.Message;
 
 /**
@@ -14,6 +15,15 @@ public interface MessageDispatcher {
      * @return 是否至少一个渠道分发成功
      */
     boolean dispatch(Message message);
+
+    /**
+     * 将消息下发到单个渠道（渠道已由调用方按偏好解析），异常在内部记录
+     *
+     * @param message 已持久化的消息实体
+     * @param channel 目标渠道
+     * @return 该渠道是否下发成功
+     */
+    boolean deliver(Message message, MessageChannel channel);
 }
 
 
@@ -0,0 +1,115 @@
+package com.okbug.platform.service.system.message.dispatcher;
+
+import com.okbug.platform.mapper.system.message.MessageMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 消息状态回写缓冲：分发完成的消息ID连同租约持有者先入队，按持有者分组以 IN 列表回写最终状态并结束租约。
+ *
+ * 定时调度与批量扇出共用；每秒刷新一次，调用方也可在批次结束时主动刷新。
+ * 回写以租约持有者为条件，租约过期后已被其他节点重新领取的消息不会被旧持有者覆盖；
+ * 回写失败的ID放回队列下一轮重试，进程退出前未回写的消息由租约过期后重新领取兜底。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MessageStatusBuffer {
+
+    private static final int STATUS_DONE = 2;
+    private static final int STATUS_FAILED = 4;
+    private static final int STATUS_UPDATE_CHUNK = 500;
+
+    private final MessageMapper messageMapper;
+
+    private final ConcurrentLinkedQueue<Completion> succeeded = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Completion> failed = new ConcurrentLinkedQueue<>();
+
+    private record Completion(Long messageId, String leaseOwner) {
+    }
+
+    /**
+     * 记录分发结果（至少一个渠道成功为已完成，否则为失败）
+     *
+     * @param messageId  消息ID
+     * @param leaseOwner 分发时持有的租约（回写条件）
+     * @param success    是否成功
+     */
+    public void complete(Long messageId, String leaseOwner, boolean success) {
+        if (messageId != null && leaseOwner != null) {
+            (success ? succeeded : failed).add(new Completion(messageId, leaseOwner));
+        }
+    }
+
+    /**
+     * 待回写数量
+     */
+    public int pendingCount() {
+        return succeeded.size() + failed.size();
+    }
+
+    /**
+     * 批量回写已记录的分发结果
+     */
+    @Scheduled(fixedDelay = 1000)
+    public void flush() {
+        flush(succeeded, STATUS_DONE);
+        flush(failed, STATUS_FAILED);
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private void flush(ConcurrentLinkedQueue<Completion> queue, int status) {
+        // 按持有者分组（同一领取批次共用一个持有者，分组数通常很少）
+        Map<String, List<Long>> chunks = new LinkedHashMap<>();
+        Completion c;
+        while ((c = queue.poll()) != null) {
+            List<Long> chunk = chunks.computeIfAbsent(c.leaseOwner(), k -> new ArrayList<>());
+            chunk.add(c.messageId());
+            if (chunk.size() >= STATUS_UPDATE_CHUNK) {
+                chunks.remove(c.leaseOwner());
+                if (!completeChunk(c.leaseOwner(), chunk, queue, status)) {
+                    requeue(chunks, queue);
+                    return;
+                }
+            }
+        }
+        boolean healthy = true;
+        for (Map.Entry<String, List<Long>> e : chunks.entrySet()) {
+            if (!healthy) {
+                // 数据库异常时不再逐组重试，剩余分组原样放回队列
+                e.getValue().forEach(id -> queue.add(new Completion(id, e.getKey())));
+            } else {
+                healthy = completeChunk(e.getKey(), e.getValue(), queue, status);
+            }
+        }
+    }
+
+    private boolean completeChunk(String leaseOwner, List<Long> ids,
+                                  ConcurrentLinkedQueue<Completion> queue, int status) {
+        try {
+            messageMapper.completeLeased(ids, leaseOwner, status);
+            return true;
+        } catch (Exception e) {
+            log.warn("[MessageStatus] 批量更新状态失败: count={}, status={}, error={}", ids.size(), status, e.getMessage());
+            ids.forEach(id -> queue.add(new Completion(id, leaseOwner)));
+            return false;
+        }
+    }
+
+    private static void requeue(Map<String, List<Long>> chunks, ConcurrentLinkedQueue<Completion> queue) {
+        chunks.forEach((owner, ids) -> ids.forEach(id -> queue.add(new Completion(id, owner))));
+    }
+}
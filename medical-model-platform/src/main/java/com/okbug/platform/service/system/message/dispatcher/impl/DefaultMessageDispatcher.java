@@ -53,42 +53,53 @@ public class DefaultMessageDispatcher implements MessageDispatcher {
 
         boolean anySuccess = false;
         for (String channel : effective) {
-            try {
-                MessageChannel ch = MessageChannel.fromCode(channel);
-                if (ch == null) {
-                    log.warn("[Dispatcher] 未识别渠道: {}", channel);
-                    continue;
-                }
-                switch (ch) {
-                    case INBOX:
-                        // 站内：仅通知前端刷新，由前端再拉取列表
-                        websocketHandler.sendNewMessageNotification(message.getUserId());
-                        log.info("[Dispatcher] inbox 推送成功: userId={}, messageId={}", message.getUserId(), message.getId());
-                        anySuccess = true;
-                        break;
-                    case EMAIL:
-                        // 邮件发送
-                        try {
-                            emailSenderService.sendMessageEmail(message);
-                            log.info("[Dispatcher] email 发送成功: userId={}, messageId={}", message.getUserId(), message.getId());
-                            anySuccess = true;
-                        } catch (Exception e) {
-                            log.warn("[Dispatcher] email 发送失败: userId={}, messageId={}, error={}", message.getUserId(), message.getId(), e.getMessage());
-                        }
-                        break;
-                    case SMS:
-                        // 短信模拟：日志输出
-                        log.info("[Dispatcher] sms 模拟发送: userId={}, content={}", message.getUserId(), message.getContent());
-                        anySuccess = true;
-                        break;
-                }
-            } catch (Exception e) {
-                log.warn("[Dispatcher] 渠道推送失败: channel={}, userId={}, messageId={}, error={}", channel, message.getUserId(), message.getId(), e.getMessage());
+            MessageChannel ch = MessageChannel.fromCode(channel);
+            if (ch == null) {
+                log.warn("[Dispatcher] 未识别渠道: {}", channel);
+                continue;
             }
+            anySuccess |= deliver(message, ch);
         }
 
         return anySuccess;
     }
-}
-
 
+    @Override
+    /**
+     * 下发到单个渠道：站内仅通知前端刷新，邮件同步发送，短信为日志模拟。
+     *
+     * @param message 待分发消息
+     * @param channel 目标渠道
+     * @return 该渠道是否下发成功
+     */
+    public boolean deliver(Message message, MessageChannel channel) {
+        try {
+            switch (channel) {
+                case INBOX:
+                    // 站内：仅通知前端刷新，由前端再拉取列表
+                    websocketHandler.sendNewMessageNotification(message.getUserId());
+                    log.debug("[Dispatcher] inbox 推送成功: userId={}, messageId={}", message.getUserId(), message.getId());
+                    return true;
+                case EMAIL:
+                    // 邮件发送
+                    try {
+                        emailSenderService.sendMessageEmail(message);
+                        log.info("[Dispatcher] email 发送成功: userId={}, messageId={}", message.getUserId(), message.getId());
+                        return true;
+                    } catch (Exception e) {
+                        log.warn("[Dispatcher] email 发送失败: userId={}, messageId={}, error={}", message.getUserId(), message.getId(), e.getMessage());
+                        return false;
+                    }
+                case SMS:
+                    // 短信模拟：日志输出
+                    log.info("[Dispatcher] sms 模拟发送: userId={}, content={}", message.getUserId(), message.getContent());
+                    return true;
+                default:
+                    return false;
+            }
+        } catch (Exception e) {
+            log.warn("[Dispatcher] 渠道推送失败: channel={}, userId={}, messageId={}, error={}", channel.code(), message.getUserId(), message.getId(), e.getMessage());
+            return false;
+        }
+    }
+}
\ No newline at end of file
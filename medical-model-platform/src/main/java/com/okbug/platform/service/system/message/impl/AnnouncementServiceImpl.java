@@ -1,29 +1,43 @@
 package com.okbug.platform.service.system.message.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.okbug.platform.common.base.ErrorCode;
 import com.okbug.platform.common.base.ServiceException;
+import com.okbug.platform.common.cache.AnnouncementReadStateCache;
+import com.okbug.platform.common.cache.AnnouncementWindowCache;
 import com.okbug.platform.dto.system.message.request.AnnouncementCreateRequest;
 import com.okbug.platform.dto.system.message.request.AnnouncementQueryRequest;
 import com.okbug.platform.dto.system.message.request.AnnouncementUpdateRequest;
 import com.okbug.platform.dto.system.message.response.AnnouncementVO;
 import com.okbug.platform.entity.system.message.Announcement;
 import com.okbug.platform.mapper.system.message.AnnouncementMapper;
+import com.okbug.platform.mapper.system.message.AnnouncementReadCursorMapper;
 import com.okbug.platform.mapper.system.message.AnnouncementReadMapper;
 import com.okbug.platform.service.system.message.AnnouncementService;
+import com.okbug.platform.service.system.message.counter.AnnouncementPublishSequencer;
 import com.okbug.platform.domain.event.publisher.DomainEventPublisher;
 import com.okbug.platform.domain.event.events.AnnouncementPublishedEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import com.okbug.platform.entity.system.message.AnnouncementRead;
+import com.okbug.platform.entity.system.message.AnnouncementReadCursor;
 import org.springframework.amqp.core.MessageDeliveryMode;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import java.time.Duration;
@@ -33,6 +47,9 @@ import static com.okbug.platform.config.RabbitAnnouncementConfig.*;
 
 /**
  * 公告服务实现：系统/消息模块
+ *
+ * 已读模型：公告进入生效窗口时按提交顺序分配可见序号（见 AnnouncementPublishSequencer），每个用户一条已读水位线（序号不大于水位线的公告视为已读），
+ * 乱序阅读的公告记入例外表；未读列表与未读数在本地窗口快照上计算，复杂度与窗口内公告数相关，与用户数无关。
  */
 @Slf4j
 @Service
@@ -43,6 +60,10 @@ public class AnnouncementServiceImpl implements AnnouncementService {
     private final AnnouncementReadMapper announcementReadMapper;
     private final DomainEventPublisher domainEventPublisher;
     private final RabbitTemplate rabbitTemplate;
+    private final AnnouncementReadCursorMapper announcementReadCursorMapper;
+    private final AnnouncementWindowCache announcementWindowCache;
+    private final AnnouncementReadStateCache announcementReadStateCache;
+    private final AnnouncementPublishSequencer announcementPublishSequencer;
 
     @Override
     @Transactional(rollbackFor = Exception.class)
@@ -117,13 +138,7 @@ public class AnnouncementServiceImpl implements AnnouncementService {
             // 立即触发领域事件，由订阅者负责 WS 推送
             domainEventPublisher.publish(new AnnouncementPublishedEvent(db.getId(), db.getTitle()));
             log.info("已发布公告并触发领域事件: id={}", db.getId());
-            Announcement upd = new Announcement();
-            upd.setId(db.getId());
-            upd.setNotified(1);
-            upd.setFirstPushTime(now);
-            upd.setUpdateTime(now);
-            upd.setUpdateBy(operatorId);
-            announcementMapper.updateById(upd);
+            announcementPublishSequencer.markVisible(db.getId(), now, operatorId);
         } else {
             long delayMs = Math.max(0, Duration.between(now, db.getActiveFrom()).toMillis());
             Map<String, Object> payload = new HashMap<>();
@@ -137,6 +152,7 @@ public class AnnouncementServiceImpl implements AnnouncementService {
             });
             log.info("已投递延时推送: id={}, delayMs={}", db.getId(), delayMs);
         }
+        announcementWindowCache.invalidate();
     }
 
     @Override
@@ -154,6 +170,7 @@ public class AnnouncementServiceImpl implements AnnouncementService {
         db.setUpdateTime(LocalDateTime.now());
         db.setUpdateBy(operatorId);
         announcementMapper.updateById(db);
+        announcementWindowCache.invalidate();
         log.info("[Announcement] offline success, id={}", id);
     }
 
@@ -207,21 +224,25 @@ public class AnnouncementServiceImpl implements AnnouncementService {
     @Override
     public Page<AnnouncementVO> pageVisibleUnread(Long userId, long pageNum, long pageSize) {
         log.info("[Announcement] page visible unread, userId={}", userId);
-        Page<Announcement> page = new Page<>(pageNum, pageSize);
-        LocalDateTime now = LocalDateTime.now();
-        LambdaQueryWrapper<Announcement> qw = new LambdaQueryWrapper<>();
-        qw.eq(Announcement::getStatus, 1)
-          .and(w -> w.isNull(Announcement::getActiveFrom).or().le(Announcement::getActiveFrom, now))
-          .and(w -> w.isNull(Announcement::getActiveTo).or().ge(Announcement::getActiveTo, now))
-          .notExists("select 1 from announcement_reads ar where ar.announcement_id = announcements.id and ar.user_id = {0}", userId)
-          .orderByDesc(Announcement::getPriority)
-          .orderByDesc(Announcement::getCreateTime);
-        Page<Announcement> entityPage = announcementMapper.selectPage(page, qw);
-        Page<AnnouncementVO> voPage = new Page<>(pageNum, pageSize, entityPage.getTotal());
-        voPage.setRecords(entityPage.getRecords().stream().map(this::toVO).collect(Collectors.toList()));
+        List<Long> unreadIds = unreadIds(userId);
+        Page<AnnouncementVO> voPage = new Page<>(pageNum, pageSize, unreadIds.size());
+        long from = (Math.max(pageNum, 1) - 1) * pageSize;
+        if (pageSize <= 0 || from >= unreadIds.size()) {
+            voPage.setRecords(new ArrayList<>());
+            return voPage;
+        }
+        List<Long> pageIds = unreadIds.subList((int) from, (int) Math.min(from + pageSize, unreadIds.size()));
+        Map<Long, Announcement> byId = announcementMapper.selectBatchIds(pageIds).stream()
+                .collect(Collectors.toMap(Announcement::getId, Function.identity()));
+        voPage.setRecords(pageIds.stream().map(byId::get).filter(Objects::nonNull).map(this::toVO).collect(Collectors.toList()));
         return voPage;
     }
 
+    @Override
+    public long countVisibleUnread(Long userId) {
+        return unreadIds(userId).size();
+    }
+
     @Override
     @Transactional(rollbackFor = Exception.class)
     public void read(Long announcementId, Long userId) {
@@ -232,24 +253,119 @@ public class AnnouncementServiceImpl implements AnnouncementService {
         if (userId == null) {
             throw new ServiceException(ErrorCode.PARAM_MISSING, "用户未登录");
         }
-        Announcement a = announcementMapper.selectById(announcementId);
-        if (a == null) {
-            throw new ServiceException(ErrorCode.NOTIFY_ANNOUNCEMENT_NOT_FOUND);
+        List<AnnouncementWindowCache.Entry> window = announcementWindowCache.visible(LocalDateTime.now());
+        AnnouncementWindowCache.Entry target = window.stream()
+                .filter(e -> announcementId.equals(e.getId()))
+                .findFirst()
+                .orElse(null);
+        if (target == null) {
+            if (announcementMapper.selectById(announcementId) == null) {
+                throw new ServiceException(ErrorCode.NOTIFY_ANNOUNCEMENT_NOT_FOUND);
+            }
+            // 不在生效窗口内的公告不计入未读，无需记录
+            log.info("[Announcement] read ignored (not visible), announcementId={}, userId={}", announcementId, userId);
+            return;
+        }
+        // 以数据库中的状态为准（幂等：已读则直接返回）
+        AnnouncementReadStateCache.ReadState state = loadReadState(userId, window);
+        if (state.isRead(target.getId(), target.getPublishSeq())) {
+            return;
+        }
+
+        // 按可见序号升序推进水位线：本次阅读与例外集合能连续覆盖的公告都并入水位线
+        long watermark = state.getWatermark();
+        List<AnnouncementWindowCache.Entry> pending = window.stream()
+                .filter(e -> e.getPublishSeq() != null && e.getPublishSeq() > state.getWatermark())
+                .sorted(Comparator.comparing(AnnouncementWindowCache.Entry::getPublishSeq))
+                .toList();
+        for (AnnouncementWindowCache.Entry e : pending) {
+            if (!e.getId().equals(announcementId) && !state.getExceptions().contains(e.getId())) {
+                break;
+            }
+            watermark = e.getPublishSeq();
         }
-        // 幂等写入：若不存在则插入
-        LambdaQueryWrapper<AnnouncementRead> qw = new LambdaQueryWrapper<>();
-        qw.eq(AnnouncementRead::getAnnouncementId, announcementId)
-          .eq(AnnouncementRead::getUserId, userId);
-        AnnouncementRead exist = announcementReadMapper.selectOne(qw);
-        if (exist == null) {
+        if (watermark > state.getWatermark()) {
+            advanceWatermark(userId, watermark);
+        }
+        // 未被水位线覆盖（存在更早的未读公告或尚无可见序号）时记为例外
+        if (target.getPublishSeq() == null || target.getPublishSeq() > watermark) {
+            LocalDateTime now = LocalDateTime.now();
             AnnouncementRead ar = new AnnouncementRead();
             ar.setAnnouncementId(announcementId);
             ar.setUserId(userId);
-            ar.setReadAt(LocalDateTime.now());
-            ar.setCreateTime(LocalDateTime.now());
-            ar.setUpdateTime(LocalDateTime.now());
-            announcementReadMapper.insert(ar);
-            log.info("[Announcement] read recorded, announcementId={}, userId={}", announcementId, userId);
+            ar.setReadAt(now);
+            ar.setCreateTime(now);
+            ar.setUpdateTime(now);
+            try {
+                announcementReadMapper.insert(ar);
+            } catch (DuplicateKeyException e) {
+                log.debug("[Announcement] read exception exists, announcementId={}, userId={}", announcementId, userId);
+            }
+        }
+        announcementReadStateCache.evict(userId);
+        log.info("[Announcement] read recorded, announcementId={}, userId={}, watermark={}", announcementId, userId, watermark);
+    }
+
+    /**
+     * 用户当前可见且未读的公告ID（按优先级倒序、创建时间倒序）；窗口来自本地快照，已读状态来自 Redis
+     */
+    private List<Long> unreadIds(Long userId) {
+        List<AnnouncementWindowCache.Entry> window = announcementWindowCache.visible(LocalDateTime.now());
+        if (window.isEmpty()) {
+            return new ArrayList<>();
+        }
+        AnnouncementReadStateCache.ReadState state = announcementReadStateCache.get(userId, () -> loadReadState(userId, window));
+        List<Long> ids = new ArrayList<>();
+        for (AnnouncementWindowCache.Entry e : window) {
+            if (!state.isRead(e.getId(), e.getPublishSeq())) {
+                ids.add(e.getId());
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * 从数据库加载已读状态：水位线 + 窗口内高于水位线的例外（仅查询窗口内公告，与历史阅读量无关）
+     */
+    private AnnouncementReadStateCache.ReadState loadReadState(Long userId, List<AnnouncementWindowCache.Entry> window) {
+        AnnouncementReadCursor cursor = announcementReadCursorMapper.selectById(userId);
+        long watermark = cursor == null || cursor.getWatermarkSeq() == null ? 0L : cursor.getWatermarkSeq();
+        List<Long> candidates = window.stream()
+                .filter(e -> e.getPublishSeq() == null || e.getPublishSeq() > watermark)
+                .map(AnnouncementWindowCache.Entry::getId)
+                .toList();
+        Set<Long> exceptions = new HashSet<>();
+        if (!candidates.isEmpty()) {
+            LambdaQueryWrapper<AnnouncementRead> qw = new LambdaQueryWrapper<>();
+            qw.select(AnnouncementRead::getAnnouncementId)
+              .eq(AnnouncementRead::getUserId, userId)
+              .in(AnnouncementRead::getAnnouncementId, candidates);
+            announcementReadMapper.selectList(qw).forEach(r -> exceptions.add(r.getAnnouncementId()));
+        }
+        return new AnnouncementReadStateCache.ReadState(watermark, exceptions);
+    }
+
+    /**
+     * 推进用户水位线（只增不减，并发推进时保留较大值）
+     */
+    private void advanceWatermark(Long userId, long watermark) {
+        LocalDateTime now = LocalDateTime.now();
+        LambdaUpdateWrapper<AnnouncementReadCursor> uw = new LambdaUpdateWrapper<AnnouncementReadCursor>()
+                .set(AnnouncementReadCursor::getWatermarkSeq, watermark)
+                .set(AnnouncementReadCursor::getUpdateTime, now)
+                .eq(AnnouncementReadCursor::getUserId, userId)
+                .lt(AnnouncementReadCursor::getWatermarkSeq, watermark);
+        if (announcementReadCursorMapper.update(null, uw) > 0 || announcementReadCursorMapper.selectById(userId) != null) {
+            return;
+        }
+        AnnouncementReadCursor cursor = new AnnouncementReadCursor();
+        cursor.setUserId(userId);
+        cursor.setWatermarkSeq(watermark);
+        cursor.setUpdateTime(now);
+        try {
+            announcementReadCursorMapper.insert(cursor);
+        } catch (DuplicateKeyException e) {
+            announcementReadCursorMapper.update(null, uw);
         }
     }
 
@@ -0,0 +1,196 @@
+package com.okbug.platform.service.system.message.impl;
+
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
+import com.okbug.platform.domain.notify.MessageChannel;
+import com.okbug.platform.domain.notify.MessageType;
+import com.okbug.platform.domain.notify.NotificationRouter;
+import com.okbug.platform.domain.notify.NotifyDictionary;
+import com.okbug.platform.entity.system.message.Message;
+import com.okbug.platform.mapper.system.message.MessageMapper;
+import com.okbug.platform.service.system.message.MessageFanoutService;
+import com.okbug.platform.service.system.message.counter.InboxUnreadCounter;
+import com.okbug.platform.service.system.message.dispatcher.MessageDispatcher;
+import com.okbug.platform.service.system.message.dispatcher.MessageStatusBuffer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 批量扇出实现：
+ * - 接收人按片处理，每片一次多行 INSERT，并以两次 IN 查询解析整片用户的类型与渠道偏好
+ * - 各渠道独立的有界线程池投递（邮件慢不拖累站内推送），队列满时由扇出线程执行以形成背压
+ * - 消息以"已入队 + 租约"写入，全部渠道结束后经 MessageStatusBuffer 批量回写；
+ *   进程中断导致未完成的消息在租约过期后由定时调度器重新领取投递
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MessageFanoutServiceImpl implements MessageFanoutService {
+
+    private static final int CHUNK_SIZE = 500;
+    private static final Duration FANOUT_LEASE = Duration.ofMinutes(30);
+    private static final int STATUS_QUEUED = 1;
+
+    private final MessageMapper messageMapper;
+    private final MessageDispatcher messageDispatcher;
+    private final MessageStatusBuffer messageStatusBuffer;
+    private final NotificationRouter notificationRouter;
+    private final NotifyDictionary notifyDictionary;
+    private final InboxUnreadCounter inboxUnreadCounter;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final AtomicLong fanoutSeq = new AtomicLong();
+
+    private final Map<MessageChannel, ThreadPoolExecutor> channelExecutors = new EnumMap<>(MessageChannel.class);
+
+    /**
+     * 单条消息的投递进度：全部渠道结束后按是否至少一个渠道成功回写状态
+     */
+    private static final class Delivery {
+
+        final Message message;
+        final AtomicInteger remaining;
+        volatile boolean anySuccess;
+
+        Delivery(Message message, int channels) {
+            this.message = message;
+            this.remaining = new AtomicInteger(channels);
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        channelExecutors.put(MessageChannel.INBOX, newChannelExecutor(MessageChannel.INBOX, 2, 10_000));
+        channelExecutors.put(MessageChannel.EMAIL, newChannelExecutor(MessageChannel.EMAIL, 4, 2_000));
+        channelExecutors.put(MessageChannel.SMS, newChannelExecutor(MessageChannel.SMS, 1, 2_000));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        channelExecutors.values().forEach(ThreadPoolExecutor::shutdown);
+        for (ThreadPoolExecutor executor : channelExecutors.values()) {
+            try {
+                executor.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    @Override
+    public int fanout(Collection<Long> userIds, MessageType type, String title, String content, Long operatorId) {
+        if (userIds == null || userIds.isEmpty()) {
+            return 0;
+        }
+        List<Long> recipients = userIds.stream().filter(Objects::nonNull).distinct().toList();
+        if (recipients.isEmpty()) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        String typeCode = (type == null ? MessageType.SYSTEM : type).code();
+        String allowedChannels = notifyDictionary.channelCodesCsv();
+        String leaseOwner = "fanout:" + nodeId + ":" + fanoutSeq.incrementAndGet();
+
+        int staged = 0;
+        for (int from = 0; from < recipients.size(); from += CHUNK_SIZE) {
+            List<Long> chunk = recipients.subList(from, Math.min(from + CHUNK_SIZE, recipients.size()));
+            try {
+                staged += stageChunk(chunk, typeCode, title, content, operatorId, allowedChannels, leaseOwner);
+            } catch (Exception e) {
+                log.warn("[Fanout] 分片处理失败: from={}, size={}, title={}, error={}", from, chunk.size(), title, e.getMessage());
+            }
+        }
+
+        long elapsedMillis = Math.max(1L, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        log.info("[Fanout] 扇出写入完成: recipients={}, staged={}, elapsedMs={}, rate={}/s, type={}, title={}",
+                recipients.size(), staged, elapsedMillis, staged * 1000L / elapsedMillis, typeCode, title);
+        return staged;
+    }
+
+    private int stageChunk(List<Long> chunk, String typeCode, String title, String content, Long operatorId,
+                           String allowedChannels, String leaseOwner) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Message> rows = new ArrayList<>(chunk.size());
+        for (Long userId : chunk) {
+            Message m = new Message();
+            m.setId(IdWorker.getId());
+            m.setUserId(userId);
+            m.setMessageType(typeCode);
+            m.setTitle(title);
+            m.setContent(content);
+            m.setStatus(STATUS_QUEUED);
+            m.setLeaseOwner(leaseOwner);
+            m.setLeaseUntil(now.plus(FANOUT_LEASE));
+            m.setCreateTime(now);
+            m.setUpdateTime(now);
+            m.setCreateBy(operatorId);
+            m.setUpdateBy(operatorId);
+            rows.add(m);
+        }
+        messageMapper.insertBatch(rows);
+        inboxUnreadCounter.incrementAll(chunk);
+
+        Map<Long, Set<String>> channelsByUser = notificationRouter.resolveEffectiveChannels(chunk, allowedChannels, typeCode);
+        for (Message m : rows) {
+            List<MessageChannel> targets = new ArrayList<>(3);
+            for (String code : channelsByUser.getOrDefault(m.getUserId(), Collections.emptySet())) {
+                MessageChannel ch = MessageChannel.fromCode(code);
+                if (ch != null) {
+                    targets.add(ch);
+                }
+            }
+            if (targets.isEmpty()) {
+                // 与单条分发一致：无可用渠道视为已处理
+                messageStatusBuffer.complete(m.getId(), m.getLeaseOwner(), true);
+                continue;
+            }
+            Delivery delivery = new Delivery(m, targets.size());
+            for (MessageChannel ch : targets) {
+                channelExecutors.get(ch).execute(() -> deliver(delivery, ch));
+            }
+        }
+        return rows.size();
+    }
+
+    private void deliver(Delivery delivery, MessageChannel channel) {
+        try {
+            if (messageDispatcher.deliver(delivery.message, channel)) {
+                delivery.anySuccess = true;
+            }
+        } finally {
+            if (delivery.remaining.decrementAndGet() == 0) {
+                messageStatusBuffer.complete(delivery.message.getId(), delivery.message.getLeaseOwner(), delivery.anySuccess);
+            }
+        }
+    }
+
+    private static ThreadPoolExecutor newChannelExecutor(MessageChannel channel, int threads, int queueCapacity) {
+        AtomicInteger seq = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread t = new Thread(r, "msg-" + channel.code() + "-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+}
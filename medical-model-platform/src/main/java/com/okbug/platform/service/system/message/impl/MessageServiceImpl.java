@@ -15,6 +15,7 @@ import com.okbug.platform.service.system.message.MessageService;
 import com.okbug.platform.service.system.SystemDictService;
 import com.okbug.platform.dto.system.DictDataDTO;
 import com.okbug.platform.service.system.message.dispatcher.MessageDispatcher;
+import com.okbug.platform.service.system.message.counter.InboxUnreadCounter;
  
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -38,6 +39,7 @@ public class MessageServiceImpl implements MessageService {
     private final MessageReadMapper messageReadMapper;
     private final MessageDispatcher messageDispatcher;
     private final SystemDictService systemDictService;
+    private final InboxUnreadCounter inboxUnreadCounter;
 
     @Override
     @Transactional(rollbackFor = Exception.class)
@@ -67,6 +69,7 @@ public class MessageServiceImpl implements MessageService {
         msg.setCreateBy(operatorId);
         msg.setUpdateBy(operatorId);
         messageMapper.insert(msg);
+        inboxUnreadCounter.increment(msg.getUserId());
         log.info("消息创建成功: id={}, userId={}", msg.getId(), msg.getUserId());
 
         // 立即发送：由分发器统一进行多渠道路由与推送；延迟发送交由调度器
@@ -178,16 +181,8 @@ public class MessageServiceImpl implements MessageService {
         if (userId == null) {
             throw new ServiceException(ErrorCode.PARAM_INVALID, "用户ID不能为空");
         }
-        // 总消息数
-        long totalCount = messageMapper.selectCount(new LambdaQueryWrapper<Message>()
-                .eq(Message::getUserId, userId));
-        if (totalCount == 0L) {
-            return 0L;
-        }
-        // 已读数量（按用户统计）
-        long readCount = messageReadMapper.selectCount(new LambdaQueryWrapper<com.okbug.platform.entity.system.message.MessageRead>()
-                .eq(com.okbug.platform.entity.system.message.MessageRead::getUserId, userId));
-        return Math.max(0L, totalCount - readCount);
+        // Redis 未读计数，缺失时以数据库统计重建
+        return inboxUnreadCounter.get(userId);
     }
 
     /**
@@ -260,36 +255,16 @@ public class MessageServiceImpl implements MessageService {
             read.setCreateTime(LocalDateTime.now());
             read.setUpdateTime(LocalDateTime.now());
             messageReadMapper.insert(read);
+            inboxUnreadCounter.decrement(userId);
         }
     }
 
     @Override
     @Transactional(rollbackFor = Exception.class)
     public void markAllRead(Long userId) {
-        // 查询该用户未读消息ID集合
-        List<Long> myMessageIds = messageMapper.selectList(new LambdaQueryWrapper<Message>()
-                .eq(Message::getUserId, userId)
-        ).stream().map(Message::getId).collect(Collectors.toList());
-        if (myMessageIds.isEmpty()) {
-            return;
-        }
-        Set<Long> alreadyRead = messageReadMapper.selectList(new LambdaQueryWrapper<com.okbug.platform.entity.system.message.MessageRead>()
-                .eq(com.okbug.platform.entity.system.message.MessageRead::getUserId, userId)
-                .in(com.okbug.platform.entity.system.message.MessageRead::getMessageId, myMessageIds))
-            .stream().map(com.okbug.platform.entity.system.message.MessageRead::getMessageId).collect(Collectors.toSet());
-        LocalDateTime now = LocalDateTime.now();
-        for (Long mid : myMessageIds) {
-            if (!alreadyRead.contains(mid)) {
-                com.okbug.platform.entity.system.message.MessageRead read = new com.okbug.platform.entity.system.message.MessageRead();
-                read.setMessageId(mid);
-                read.setUserId(userId);
-                read.setReadAt(now);
-                read.setCreateTime(now);
-                read.setUpdateTime(now);
-                messageReadMapper.insert(read);
-            }
-        }
+        // 按批补齐全部阅读记录（与单条标记已读并发时由唯一约束去重），提交后未读计数归零
+        int inserted = messageReadMapper.insertAllUnread(userId, LocalDateTime.now());
+        log.info("全部标记已读: userId={}, inserted={}", userId, inserted);
+        inboxUnreadCounter.reset(userId);
     }
 }
-
-
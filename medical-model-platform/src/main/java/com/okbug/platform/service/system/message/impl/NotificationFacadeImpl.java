@@ -77,8 +77,8 @@ public class NotificationFacadeImpl implements NotificationFacade {
 	 * 适用场景：同一业务事件需要通知多个用户（如群体通知/团队管理员群发）。
 	 *
 	 * 行为描述：
-	 * - 对目标ID列表进行空值/空集合校验后，逐个调用单发接口
-	 * - 单个发送失败不影响其它用户的发送
+	 * - 对目标ID列表进行空值/空集合校验后，发布一次批量事件，提交后由扇出服务分片写入与投递
+	 * - 单个分片或渠道失败不影响其它用户的发送
 	 *
 	 * @param targetUserIds  接收用户ID列表，空或无元素将被忽略
 	 * @param title          消息标题
@@ -18,8 +18,13 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
  
 import java.util.stream.Collectors;
 
@@ -214,6 +219,47 @@ public class UserNotifyPreferenceServiceImpl implements UserNotifyPreferenceServ
         return p.getEnabled() == 1;
     }
 
+    @Override
+    /**
+     * 批量查询显式关闭该类型的用户；与 isTypeEnabled 语义一致（未配置或 enabled 为空视为开启）。
+     */
+    public Set<Long> findTypeDisabledUserIds(Collection<Long> userIds, String typeCode) {
+        if (userIds == null || userIds.isEmpty() || typeCode == null
+                || MessageType.SYSTEM.code().equalsIgnoreCase(typeCode)) {
+            return Collections.emptySet();
+        }
+        LambdaQueryWrapper<UserNotifyTypePref> qw = new LambdaQueryWrapper<>();
+        qw.select(UserNotifyTypePref::getUserId)
+          .in(UserNotifyTypePref::getUserId, userIds)
+          .eq(UserNotifyTypePref::getTypeCode, typeCode)
+          .ne(UserNotifyTypePref::getEnabled, 1);
+        return typeMapper.selectList(qw).stream()
+                .map(UserNotifyTypePref::getUserId)
+                .collect(Collectors.toSet());
+    }
+
+    @Override
+    /**
+     * 批量查询各用户显式关闭的渠道；与 isChannelEnabled 语义一致（inbox 恒开启，未配置视为开启）。
+     */
+    public Map<Long, Set<String>> findDisabledChannels(Collection<Long> userIds) {
+        if (userIds == null || userIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        LambdaQueryWrapper<UserNotifyChannelPref> qw = new LambdaQueryWrapper<>();
+        qw.select(UserNotifyChannelPref::getUserId, UserNotifyChannelPref::getChannelCode)
+          .in(UserNotifyChannelPref::getUserId, userIds)
+          .ne(UserNotifyChannelPref::getEnabled, 1);
+        Map<Long, Set<String>> result = new HashMap<>();
+        for (UserNotifyChannelPref p : channelMapper.selectList(qw)) {
+            if (p.getChannelCode() == null) continue;
+            String code = p.getChannelCode().toLowerCase();
+            if (MessageChannel.INBOX.code().equals(code)) continue;
+            result.computeIfAbsent(p.getUserId(), k -> new HashSet<>()).add(code);
+        }
+        return result;
+    }
+
     /**
      * 查询单条渠道偏好记录（私有方法）。
      */
@@ -4,56 +4,282 @@ import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.okbug.platform.entity.system.message.Message;
 import com.okbug.platform.mapper.system.message.MessageMapper;
 import com.okbug.platform.service.system.message.dispatcher.MessageDispatcher;
+import com.okbug.platform.service.system.message.dispatcher.MessageStatusBuffer;
+import io.netty.util.HashedWheelTimer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * 定时消息调度器：按租约分批领取到期消息，在有界线程池中并行分发，状态经 MessageStatusBuffer 批量回写。
+ *
+ * 每秒领取一次本节点分片内计划时间在预取时长内的消息（单条 UPDATE 原子领取，多节点不重复发送），
+ * 尚未到点的消息放入时间轮按计划时间精确触发；节点宕机时租约过期后由其他节点重新领取（至少一次）。
+ * 分片按 Redis 中存活节点列表计算，节点列表不可用时退化为单分片，仍由领取语句保证不重复。
+ * 在途消息排队或同步发送可能耗时较长，分发前租约剩余不足安全余量时先续租，续租失败（租约已被重新领取）则放弃本次发送，
+ * 结果回写以租约持有者为条件，避免同一消息被两个节点重复发送后互相覆盖状态。
+ */
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class MessageScheduler {
 
+    /**
+     * 存活节点有序集合（成员为节点ID，分数为最近心跳毫秒）
+     */
+    private static final String NODES_KEY = "message:scheduler:nodes";
+    private static final long NODE_TTL_MILLIS = 15_000L;
+    private static final long HEARTBEAT_INTERVAL_MILLIS = 5_000L;
+
+    /**
+     * 单批领取上限与本节点在途（已领取未完成）上限，在途达到上限后暂停领取
+     */
+    private static final int CLAIM_BATCH_SIZE = 200;
+    private static final int MAX_IN_FLIGHT = 2_000;
+
+    /**
+     * 预取时长：领取计划时间在此范围内的消息放入时间轮，到点即发不等下一轮扫描
+     */
+    private static final long LOOKAHEAD_MILLIS = 2_000L;
+    private static final Duration LEASE_DURATION = Duration.ofMinutes(5);
+
+    /**
+     * 续租安全余量：分发前租约剩余不足该时长时先续租，覆盖单条消息的最长发送耗时（含同步 SMTP）
+     */
+    private static final Duration LEASE_RENEW_MARGIN = Duration.ofMinutes(1);
+
     private final MessageMapper messageMapper;
     private final MessageDispatcher dispatcher;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final MessageStatusBuffer messageStatusBuffer;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final AtomicLong claimSeq = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile int shardCount = 1;
+    private volatile int shardIndex = 0;
+    private volatile long lastHeartbeatAt;
+
+    private ThreadPoolExecutor executor;
+    private HashedWheelTimer wheel;
+
+    private final LongAdder claimed = new LongAdder();
+    private final LongAdder dispatched = new LongAdder();
+    private final LongAdder dispatchFailed = new LongAdder();
+    private final LongAdder leaseRenewed = new LongAdder();
+    private final LongAdder leaseLost = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        int threads = Math.min(16, Math.max(4, Runtime.getRuntime().availableProcessors() * 2));
+        AtomicInteger seq = new AtomicInteger();
+        // 队列容量等于在途上限：领取数量受在途上限约束，提交不会被拒绝
+        executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(MAX_IN_FLIGHT), r -> {
+                    Thread t = new Thread(r, "msg-dispatch-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        wheel = new HashedWheelTimer(r -> {
+            Thread t = new Thread(r, "msg-wheel");
+            t.setDaemon(true);
+            return t;
+        }, 100, TimeUnit.MILLISECONDS, 512);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // 时间轮中尚未触发的消息保持已入队状态，租约过期后由其他节点重新领取
+        wheel.stop();
+        executor.shutdown();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        messageStatusBuffer.flush();
+        try {
+            stringRedisTemplate.opsForZSet().remove(NODES_KEY, nodeId);
+        } catch (Exception e) {
+            log.debug("[MessageScheduler] 注销调度节点失败: {}", e.getMessage());
+        }
+    }
 
-    // 每30秒扫描一次待推送消息
-    @Scheduled(fixedDelay = 30000)
+    // 每秒领取一批到期消息（分发结果由 MessageStatusBuffer 批量回写）
+    @Scheduled(fixedDelay = 1000)
     public void scanAndDispatch() {
         try {
-            LambdaQueryWrapper<Message> qw = new LambdaQueryWrapper<>();
-            qw.eq(Message::getStatus, 0)
-              .isNotNull(Message::getScheduleTime)
-              .le(Message::getScheduleTime, LocalDateTime.now());
+            refreshShard();
+            claimAndSchedule();
+        } catch (Exception e) {
+            log.error("[MessageScheduler] 调度执行异常", e);
+        }
+    }
+
+    /**
+     * 获取调度统计
+     */
+    public Map<String, Object> getSchedulerStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("shardIndex", shardIndex);
+        stats.put("shardCount", shardCount);
+        stats.put("inFlight", inFlight.get());
+        stats.put("wheelPending", wheel.pendingTimeouts());
+        stats.put("claimed", claimed.sum());
+        stats.put("dispatched", dispatched.sum());
+        stats.put("failed", dispatchFailed.sum());
+        stats.put("leaseRenewed", leaseRenewed.sum());
+        stats.put("leaseLost", leaseLost.sum());
+        stats.put("statusPending", messageStatusBuffer.pendingCount());
+        return stats;
+    }
 
-            List<Message> dueList = messageMapper.selectList(qw);
-            if (dueList == null || dueList.isEmpty()) {
+    private void claimAndSchedule() {
+        while (true) {
+            int capacity = Math.min(CLAIM_BATCH_SIZE, MAX_IN_FLIGHT - inFlight.get());
+            if (capacity <= 0) {
+                log.debug("[MessageScheduler] 在途消息达到上限，暂停领取: {}", inFlight.get());
                 return;
             }
-
-            log.info("[MessageScheduler] 待触达消息: {} 条", dueList.size());
-            for (Message m : dueList) {
-                boolean ok = false;
-                try {
-                    ok = dispatcher.dispatch(m);
-                } catch (Exception e) {
-                    log.warn("[MessageScheduler] 分发失败: id={}, userId={}, error={}", m.getId(), m.getUserId(), e.getMessage());
-                }
-                m.setStatus(ok ? 2 : 4);
-                m.setUpdateTime(LocalDateTime.now());
-                try {
-                    messageMapper.updateById(m);
-                } catch (Exception e) {
-                    log.warn("[MessageScheduler] 更新状态失败: id={}, error={}", m.getId(), e.getMessage());
-                }
+            LocalDateTime now = LocalDateTime.now();
+            String leaseOwner = nodeId + ":" + claimSeq.incrementAndGet();
+            int count = messageMapper.claimDue(leaseOwner, now.plus(LEASE_DURATION),
+                    now.plus(Duration.ofMillis(LOOKAHEAD_MILLIS)), now,
+                    shardCount, shardIndex, capacity);
+            if (count <= 0) {
+                return;
             }
+            List<Message> batch = messageMapper.selectList(new LambdaQueryWrapper<Message>()
+                    .eq(Message::getLeaseOwner, leaseOwner)
+                    .eq(Message::getStatus, 1));
+            claimed.add(batch.size());
+            log.info("[MessageScheduler] 领取待触达消息: {} 条, 分片: {}/{}", batch.size(), shardIndex, shardCount);
+            for (Message m : batch) {
+                schedule(m, now);
+            }
+            if (count < capacity) {
+                return;
+            }
+        }
+    }
+
+    private void schedule(Message m, LocalDateTime now) {
+        inFlight.incrementAndGet();
+        long delayMillis = m.getScheduleTime() == null ? 0L : Duration.between(now, m.getScheduleTime()).toMillis();
+        if (delayMillis <= 0L) {
+            submit(m);
+            return;
+        }
+        try {
+            wheel.newTimeout(timeout -> submit(m), delayMillis, TimeUnit.MILLISECONDS);
+        } catch (IllegalStateException e) {
+            // 时间轮已停止（应用关闭中）：保留租约，过期后重新领取
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private void submit(Message m) {
+        try {
+            executor.execute(() -> dispatchOne(m));
+        } catch (RejectedExecutionException e) {
+            inFlight.decrementAndGet();
+            log.warn("[MessageScheduler] 分发线程池拒绝任务，租约过期后重试: id={}", m.getId());
+        }
+    }
+
+    private void dispatchOne(Message m) {
+        if (!ensureLease(m)) {
+            leaseLost.increment();
+            inFlight.decrementAndGet();
+            log.warn("[MessageScheduler] 租约已失效，放弃本次分发: id={}, leaseOwner={}", m.getId(), m.getLeaseOwner());
+            return;
+        }
+        boolean ok = false;
+        try {
+            ok = dispatcher.dispatch(m);
         } catch (Exception e) {
-            log.error("[MessageScheduler] 调度执行异常", e);
+            log.warn("[MessageScheduler] 分发失败: id={}, userId={}, error={}", m.getId(), m.getUserId(), e.getMessage());
+        } finally {
+            (ok ? dispatched : dispatchFailed).increment();
+            messageStatusBuffer.complete(m.getId(), m.getLeaseOwner(), ok);
+            inFlight.decrementAndGet();
         }
     }
-}
 
+    /**
+     * 分发前确认租约：剩余时长充足直接发送，不足安全余量时续租；租约已过期或已被其他节点重新领取时返回 false
+     */
+    private boolean ensureLease(Message m) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime leaseUntil = m.getLeaseUntil();
+        if (leaseUntil != null && leaseUntil.isAfter(now.plus(LEASE_RENEW_MARGIN))) {
+            return true;
+        }
+        try {
+            LocalDateTime renewed = now.plus(LEASE_DURATION);
+            if (messageMapper.renewLease(m.getId(), m.getLeaseOwner(), renewed, now) <= 0) {
+                return false;
+            }
+            m.setLeaseUntil(renewed);
+            leaseRenewed.increment();
+            return true;
+        } catch (Exception e) {
+            log.warn("[MessageScheduler] 续租失败，放弃本次分发: id={}, error={}", m.getId(), e.getMessage());
+            return false;
+        }
+    }
 
+    /**
+     * 心跳并按存活节点列表（按节点ID排序）计算本节点分片；Redis 不可用时退化为单分片
+     */
+    private void refreshShard() {
+        long nowMillis = System.currentTimeMillis();
+        if (nowMillis - lastHeartbeatAt < HEARTBEAT_INTERVAL_MILLIS) {
+            return;
+        }
+        lastHeartbeatAt = nowMillis;
+        try {
+            stringRedisTemplate.opsForZSet().add(NODES_KEY, nodeId, nowMillis);
+            stringRedisTemplate.opsForZSet().removeRangeByScore(NODES_KEY, 0, nowMillis - NODE_TTL_MILLIS);
+            Set<String> members = stringRedisTemplate.opsForZSet().range(NODES_KEY, 0, -1);
+            List<String> nodes = members == null ? new ArrayList<>() : new ArrayList<>(members);
+            nodes.sort(null);
+            int index = nodes.indexOf(nodeId);
+            if (index < 0) {
+                shardCount = 1;
+                shardIndex = 0;
+                return;
+            }
+            if (shardCount != nodes.size() || shardIndex != index) {
+                log.info("[MessageScheduler] 调度分片变更: {}/{} -> {}/{}", shardIndex, shardCount, index, nodes.size());
+            }
+            shardCount = nodes.size();
+            shardIndex = index;
+        } catch (Exception e) {
+            log.warn("[MessageScheduler] 刷新调度节点失败，退化为单分片: {}", e.getMessage());
+            shardCount = 1;
+            shardIndex = 0;
+        }
+    }
+}
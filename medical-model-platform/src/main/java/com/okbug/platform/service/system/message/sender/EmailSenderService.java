@@ -1,8 +1,8 @@
 package com.okbug.platform.service.system.message.sender;
 
-import com.okbug.platform.entity.auth.User;
+import com.okbug.platform.common.cache.UserSnapshot;
+import com.okbug.platform.common.cache.UserSnapshotCache;
 import com.okbug.platform.entity.system.message.Message;
-import com.okbug.platform.mapper.auth.UserMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -19,7 +19,7 @@ import org.springframework.stereotype.Service;
 public class EmailSenderService {
 
     private final JavaMailSender mailSender;
-    private final UserMapper userMapper;
+    private final UserSnapshotCache userSnapshotCache;
 
     @Value("${spring.mail.username:}")
     private String fromAddress;
@@ -32,7 +32,7 @@ public class EmailSenderService {
             log.warn("[EmailSender] 消息或用户为空，跳过发送");
             return;
         }
-        User user = userMapper.selectById(message.getUserId());
+        UserSnapshot user = userSnapshotCache.get(message.getUserId());
         if (user == null || user.getEmail() == null || user.getEmail().trim().isEmpty()) {
             log.info("[EmailSender] 用户邮箱不存在，跳过: userId={}", message.getUserId());
             return;
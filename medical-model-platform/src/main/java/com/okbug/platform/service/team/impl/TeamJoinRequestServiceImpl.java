@@ -14,6 +14,7 @@ import com.okbug.platform.mapper.team.TeamMapper;
 import com.okbug.platform.mapper.auth.UserMapper;
 import com.okbug.platform.common.base.ErrorCode;
 import com.okbug.platform.common.base.ServiceException;
+import com.okbug.platform.common.cache.TeamMembershipCache;
 import com.okbug.platform.common.limiter.RateLimitService;
 import com.okbug.platform.common.limiter.IdempotencyService;
 import com.okbug.platform.service.system.SystemConfigService;
@@ -49,6 +50,7 @@ public class TeamJoinRequestServiceImpl implements TeamJoinRequestService {
     private final UserMapper userMapper;
     
     private final NotificationFacade notificationFacade;
+    private final TeamMembershipCache teamMembershipCache;
 
     /**
      * 查询是否存在用户对某团队的待处理加入申请
@@ -160,6 +162,7 @@ public class TeamJoinRequestServiceImpl implements TeamJoinRequestService {
                          .set(TeamMember::getJoinedAt, LocalDateTime.now());
                 teamMemberMapper.update(null, memberUpd);
             }
+            teamMembershipCache.evictUser(r.getUserId());
         } else {
             // 拒绝已归档，无需额外更新
         }
@@ -183,9 +186,9 @@ public class TeamJoinRequestServiceImpl implements TeamJoinRequestService {
     @Override
     @Transactional(rollbackFor = Exception.class)
     public void submitJoinRequest(Long userId, JoinRequestSubmit request) {
-        // 限流
+        // 限流（限流器状态为 Hash，键与旧版计数器的字符串键 rl:team:join:{userId} 分开，避免滚动升级期间 WRONGTYPE）
         int limit = systemConfigService.getConfigValueAsInt(SystemConfigKeys.TEAM_JOIN_RATE_LIMIT_PER_MINUTE, 6);
-        if (!rateLimitService.allow("rl:team:join:" + userId, limit, java.time.Duration.ofMinutes(1))) {
+        if (!rateLimitService.allow("rl:team:join:u:" + userId, limit, java.time.Duration.ofMinutes(1))) {
             throw new ServiceException(ErrorCode.TEAM_RATE_LIMITED);
         }
         // 幂等
@@ -21,6 +21,7 @@ import com.okbug.platform.service.security.TeamAccessService;
 import com.okbug.platform.common.base.ErrorCode;
 import com.okbug.platform.common.base.ServiceException;
 import com.okbug.platform.common.cache.PermissionCacheService;
+import com.okbug.platform.common.cache.TeamMembershipCache;
 import com.okbug.platform.entity.auth.Permission;
 import com.okbug.platform.entity.auth.UserPermission;
 import lombok.RequiredArgsConstructor;
@@ -54,6 +55,7 @@ public class TeamServiceImpl implements TeamService {
     
     private final NotificationFacade notificationFacade;
     private final PermissionCacheService permissionCacheService;
+    private final TeamMembershipCache teamMembershipCache;
     
 
     @Override
@@ -131,6 +133,7 @@ public class TeamServiceImpl implements TeamService {
         owner.setTeamRole(TeamMember.ROLE_OWNER);
         owner.setStatus(TeamMember.STATUS_ENABLED);
         teamMemberMapper.insert(owner);
+        teamMembershipCache.evictUser(ownerUserId);
         // 推送：通知创建者创建成功
         try {
             notificationFacade.notifyTeamCreated(ownerUserId, team.getTeamName());
@@ -212,6 +215,7 @@ public class TeamServiceImpl implements TeamService {
             // 仅允许切换状态
             team.setStatus(status);
             teamMapper.updateById(team);
+            teamMembershipCache.evictTeam(teamId);
             log.info("团队状态已切换（禁用期间仅允许切换状态），teamId={}，status={}", teamId, status);
             return;
         }
@@ -225,6 +229,7 @@ public class TeamServiceImpl implements TeamService {
             team.setStatus(status);
         }
         teamMapper.updateById(team);
+        teamMembershipCache.evictTeam(teamId);
         log.info("团队更新完成，teamId={}", teamId);
         // 推送：通知所有启用成员团队信息更新
         try {
@@ -253,6 +258,7 @@ public class TeamServiceImpl implements TeamService {
         if (affected == 0) {
             throw new ServiceException(ErrorCode.TEAM_NOT_FOUND);
         }
+        teamMembershipCache.evictTeam(teamId);
     }
 
     @Override
@@ -332,6 +338,7 @@ public class TeamServiceImpl implements TeamService {
             existing.setStatus(TeamMember.STATUS_ENABLED);
             teamMemberMapper.updateById(existing);
         }
+        teamMembershipCache.evictUser(userId);
         log.info("添加成员完成，teamId={}，userId={}，role={}", teamId, userId, teamRole);
         // 推送：通知被添加成员
         try {
@@ -432,6 +439,7 @@ public class TeamServiceImpl implements TeamService {
             m.setStatus(status);
         }
         teamMemberMapper.updateById(m);
+        teamMembershipCache.evictUser(userId);
         log.info("更新成员完成，teamId={}，userId={}，role={}，status={}", teamId, userId, m.getTeamRole(), m.getStatus());
     }
 
@@ -496,6 +504,7 @@ public class TeamServiceImpl implements TeamService {
            .set(TeamMember::getIsDeleted, 1)
            .set(TeamMember::getStatus, TeamMember.STATUS_DISABLED);
         teamMemberMapper.update(null, del);
+        teamMembershipCache.evictUser(userId);
         log.info("成员已逻辑删除，teamId={}，userId={}", teamId, userId);
         // 推送：通知被移除成员
         try {
@@ -558,6 +567,9 @@ public class TeamServiceImpl implements TeamService {
         from.setTeamRole(TeamMember.ROLE_ADMIN);
         from.setStatus(TeamMember.STATUS_ENABLED);
         teamMemberMapper.updateById(from);
+        teamMembershipCache.evictTeam(teamId);
+        teamMembershipCache.evictUser(toUserId);
+        teamMembershipCache.evictUser(fromOwnerUserId);
         log.info("拥有者转移完成，teamId={}，newOwner={}", teamId, toUserId);
         // 推送：通知新旧拥有者
         try {
@@ -776,10 +788,13 @@ public class TeamServiceImpl implements TeamService {
                 userMap.put(u.getId(), u);
             }
         }
+        // 整页一次性判定可管理性，避免逐行查询成员关系
+        java.util.Map<Long, Boolean> manageable = teamAccessService.canManageUsers(operatorUserId, new java.util.ArrayList<>(userIds));
         java.util.List<TeamMemberVO> voRecords = new java.util.ArrayList<>();
         for (TeamMember tm : records) {
             TeamMemberVO vo = new TeamMemberVO();
             vo.setUserId(tm.getUserId());
+            vo.setManageable(Boolean.TRUE.equals(manageable.get(tm.getUserId())));
             vo.setTeamRole(tm.getTeamRole());
             vo.setStatus(tm.getStatus());
             vo.setJoinedAt(tm.getJoinedAt());
@@ -940,6 +955,7 @@ public class TeamServiceImpl implements TeamService {
            .set(TeamMember::getIsDeleted, 1)
            .set(TeamMember::getStatus, TeamMember.STATUS_DISABLED);
         teamMemberMapper.update(null, del);
+        teamMembershipCache.evictUser(operatorUserId);
         // 推送：通知团队拥有者和管理员有成员退出
         try {
             Team t = teamMapper.selectById(teamId);
@@ -986,6 +1002,7 @@ public class TeamServiceImpl implements TeamService {
               .set(TeamMember::getIsDeleted, 1)
               .set(TeamMember::getStatus, TeamMember.STATUS_DISABLED);
         teamMemberMapper.update(null, delAll);
+        teamMembershipCache.evictTeam(teamId);
         // 推送：通知原团队所有成员团队已解散
         try {
             String teamName = team.getTeamName() != null ? team.getTeamName() : ("ID=" + teamId);
@@ -1030,6 +1047,7 @@ public class TeamServiceImpl implements TeamService {
         Integer oldStatus = team.getStatus();
         team.setStatus(status);
         teamMapper.updateById(team);
+        teamMembershipCache.evictTeam(teamId);
         // 根据状态切换方向通知团队拥有者
         try {
             String teamName = team.getTeamName() != null ? team.getTeamName() : ("ID=" + teamId);
@@ -33,6 +33,9 @@ import com.okbug.platform.mapper.auth.UserPermissionMapper;
 import com.okbug.platform.mapper.credit.UserCreditMapper;
 import com.okbug.platform.service.credit.CreditService;
 import com.okbug.platform.service.user.UserService;
+import com.okbug.platform.service.security.DataScopeService;
+import com.okbug.platform.service.security.PasswordHasher;
+import com.okbug.platform.common.cache.UserSnapshotCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -51,6 +54,9 @@ public class UserServiceImpl implements UserService {
     private final RolePermissionMapper rolePermissionMapper;
     private final PermissionMapper permissionMapper;
     private final UserCreditMapper userCreditMapper;
+    private final DataScopeService dataScopeService;
+    private final UserSnapshotCache userSnapshotCache;
+    private final PasswordHasher passwordHasher;
     
     @Override
     /**
@@ -116,6 +122,7 @@ public class UserServiceImpl implements UserService {
         }
         
         userMapper.updateById(user);
+        userSnapshotCache.evict(user.getId());
         
         // 重新查询更新后的用户信息
         User updatedUser = userMapper.selectById(currentUserId);
@@ -145,7 +152,7 @@ public class UserServiceImpl implements UserService {
         }
         
         // 验证旧密码
-        if (!PasswordUtils.matches(request.getOldPassword(), user.getPassword())) {
+        if (!passwordHasher.matches(request.getOldPassword(), user.getPassword())) {
             throw new ServiceException(ErrorCode.OLD_PASSWORD_WRONG);
         }
         
@@ -155,7 +162,7 @@ public class UserServiceImpl implements UserService {
         }
         
         // 更新密码
-        String encodedPassword = PasswordUtils.encodePassword(request.getNewPassword());
+        String encodedPassword = passwordHasher.encode(request.getNewPassword());
         user.setPassword(encodedPassword);
         userMapper.updateById(user);
         
@@ -244,7 +251,7 @@ public class UserServiceImpl implements UserService {
         subUser.setUsername(request.getUsername());
         subUser.setEmail(request.getEmail());
         subUser.setPhone(request.getPhone());
-        subUser.setPassword(PasswordUtils.encodePassword(request.getPassword()));
+        subUser.setPassword(passwordHasher.encode(request.getPassword()));
         subUser.setNickname(request.getUsername()); // 默认昵称为用户名
         subUser.setStatus(User.STATUS_ENABLED);
         subUser.setRole(User.ROLE_USER); // 子账号默认为普通用户
@@ -256,6 +263,8 @@ public class UserServiceImpl implements UserService {
         if (result <= 0) {
             throw new ServiceException(ErrorCode.OPERATION_NOT_ALLOWED, "子账号创建失败");
         }
+        // 登记层级关系（数据域闭包表）
+        dataScopeService.onSubUserCreated(currentUserId, subUser.getId());
         // 初始化子账号的权限（按默认角色复制到用户-权限表）
         try {
             seedInitialUserPermissions(subUser.getId(), subUser.getRole());
@@ -326,6 +335,7 @@ public class UserServiceImpl implements UserService {
         }
 
         userMapper.updateById(target);
+        userSnapshotCache.evict(userId);
 
         User updated = userMapper.selectById(userId);
         if (updated != null) {
@@ -376,6 +386,8 @@ public class UserServiceImpl implements UserService {
         if (affected <= 0) {
             throw new ServiceException(ErrorCode.OPERATION_NOT_ALLOWED, "删除用户失败");
         }
+        dataScopeService.onUserDeleted(userId);
+        userSnapshotCache.evict(userId);
     }
 
     @Override
@@ -413,6 +425,7 @@ public class UserServiceImpl implements UserService {
         // 更新用户状态
         target.setStatus(status);
         userMapper.updateById(target);
+        userSnapshotCache.evict(target.getId());
         
         // 如果是禁用用户，需要强制下线并清除会话缓存
         if (Integer.valueOf(User.STATUS_DISABLED).equals(status) && Integer.valueOf(User.STATUS_ENABLED).equals(originalStatus)) {
@@ -456,7 +469,7 @@ public class UserServiceImpl implements UserService {
         if (StrUtil.isBlank(defaultPassword) || !PasswordUtils.isStrongPassword(defaultPassword)) {
             throw new ServiceException(ErrorCode.PASSWORD_TOO_WEAK, "系统默认密码不符合强度要求");
         }
-        String encoded = PasswordUtils.encodePassword(defaultPassword);
+        String encoded = passwordHasher.encode(defaultPassword);
         target.setPassword(encoded);
         userMapper.updateById(target);
         return defaultPassword;
@@ -44,6 +44,9 @@ public class TeamMemberVO {
 
     @Schema(description = "用户ID（冗余字段，等同于id）")
     private Long userId;
+
+    @Schema(description = "当前操作者是否可管理该成员")
+    private Boolean manageable;
 }
 
 
@@ -4,15 +4,19 @@ import cn.hutool.log.Log;
 import cn.hutool.log.LogFactory;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.okbug.platform.common.constants.SystemConfigKeys;
+import com.okbug.platform.service.system.SystemConfigService;
 import com.okbug.platform.ws.dto.NewAnnouncementEvent;
 import com.okbug.platform.ws.dto.NewMessageEvent;
 import com.okbug.platform.ws.dto.RoleChangedEvent;
 import com.okbug.platform.ws.dto.TeamInvitationEvent;
 import com.okbug.platform.ws.dto.TeamJoinRequestEvent;
 import com.okbug.platform.ws.dto.TeamMemberChangedEvent;
+import com.okbug.platform.ws.dto.UnreadCountEvent;
 import com.okbug.platform.ws.dto.UserAnnouncementEvent;
 import com.okbug.platform.ws.dto.UserChangedEvent;
 import com.okbug.platform.ws.dto.UserMessageEvent;
+import jakarta.annotation.PreDestroy;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.CloseStatus;
@@ -20,38 +24,78 @@ import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 
-import java.io.IOException;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * 通用实时 WebSocket 处理器
  * 管理多个 topic 的会话集合并提供通用推送能力
+ *
+ * 推送不阻塞调用方（事务提交回调、MQ 监听等）：每个会话包装为有界发送队列，负载只序列化一次并共享同一个 TextMessage，
+ * 推送时仅入队，由虚拟线程逐会话发送；慢客户端只影响自身队列（按配置的溢出策略丢弃或关闭），不拖慢其他会话。
  */
 @Component
 public class RealtimeWebSocketHandler extends TextWebSocketHandler {
     private static final Log logger = LogFactory.get();
 
+    private static final int DEFAULT_SEND_BUFFER_LIMIT = 1000;
+    private static final int DEFAULT_SEND_TIME_LIMIT_MILLIS = 10_000;
+
     // 维护 topic -> sessions 的映射
-    private static final Map<String, Set<WebSocketSession>> topicSessions = new ConcurrentHashMap<>();
+    private static final Map<String, Set<WebSocketSessionSender>> topicSessions = new ConcurrentHashMap<>();
     // 维护 userId -> sessions 的映射（用于定向推送）
-    private static final Map<String, Set<WebSocketSession>> userSessions = new ConcurrentHashMap<>();
+    private static final Map<String, Set<WebSocketSessionSender>> userSessions = new ConcurrentHashMap<>();
+    // 维护 sessionId -> 发送队列 的映射
+    private static final Map<String, WebSocketSessionSender> senders = new ConcurrentHashMap<>();
 
     private final ObjectMapper objectMapper;
-    public RealtimeWebSocketHandler(ObjectMapper objectMapper) {
+    private final SystemConfigService systemConfigService;
+    private final ExecutorService sendExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("ws-send-", 0).factory());
+    private final WebSocketSessionSender.Metrics sendMetrics = new WebSocketSessionSender.Metrics();
+
+    public RealtimeWebSocketHandler(ObjectMapper objectMapper, SystemConfigService systemConfigService) {
         this.objectMapper = objectMapper;
+        this.systemConfigService = systemConfigService;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sendExecutor.shutdownNow();
     }
 
-    private static Set<WebSocketSession> getTopicSet(String topic) {
+    private static Set<WebSocketSessionSender> getTopicSet(String topic) {
         return topicSessions.computeIfAbsent(topic, k -> new CopyOnWriteArraySet<>());
     }
 
-    private static Set<WebSocketSession> getUserSet(String userId) {
+    private static Set<WebSocketSessionSender> getUserSet(String userId) {
         return userSessions.computeIfAbsent(userId, k -> new CopyOnWriteArraySet<>());
     }
 
+    /**
+     * 为会话创建发送队列（队列上限、发送时限与溢出策略在建立连接时读取）
+     */
+    private WebSocketSessionSender register(WebSocketSession session) {
+        return senders.computeIfAbsent(session.getId(), id -> {
+            int bufferLimit = DEFAULT_SEND_BUFFER_LIMIT;
+            int sendTimeLimit = DEFAULT_SEND_TIME_LIMIT_MILLIS;
+            WebSocketSessionSender.OverflowStrategy strategy = WebSocketSessionSender.OverflowStrategy.DROP_OLDEST;
+            try {
+                bufferLimit = systemConfigService.getConfigValueAsInt(SystemConfigKeys.WEBSOCKET_SEND_BUFFER_MAX_COUNT, DEFAULT_SEND_BUFFER_LIMIT);
+                sendTimeLimit = systemConfigService.getConfigValueAsInt(SystemConfigKeys.WEBSOCKET_SEND_TIMEOUT_DURATION_MILLIS, DEFAULT_SEND_TIME_LIMIT_MILLIS);
+                strategy = WebSocketSessionSender.OverflowStrategy.parse(
+                        systemConfigService.getConfigValue(SystemConfigKeys.WEBSOCKET_SEND_OVERFLOW_STRATEGY, strategy.name()));
+            } catch (Exception e) {
+                logger.warn("读取 WebSocket 发送配置失败，使用默认值: {}", e.getMessage());
+            }
+            return new WebSocketSessionSender(session, bufferLimit, sendTimeLimit, strategy, sendExecutor, sendMetrics);
+        });
+    }
+
     private static String getQueryParam(java.net.URI uri, String key) {
         if (uri == null) return null;
         String query = uri.getQuery();
@@ -75,15 +119,15 @@ public class RealtimeWebSocketHandler extends TextWebSocketHandler {
         // 解析 userId（如果客户端在连接时拼接了 ?userId=xxx）
         String userId = getQueryParam(uri, "userId");
         if (path.endsWith(WebSocketTopics.TOPIC_ROLE_CHANGED)) {
-            getTopicSet(WebSocketTopics.TOPIC_ROLE_CHANGED).add(session);
+            getTopicSet(WebSocketTopics.TOPIC_ROLE_CHANGED).add(register(session));
             logger.info("WS 连接: topic=ROLE_CHANGED, session={}", session.getId());
         } else if (path.endsWith(WebSocketTopics.TOPIC_USER_CHANGED)) {
-            getTopicSet(WebSocketTopics.TOPIC_USER_CHANGED).add(session);
+            getTopicSet(WebSocketTopics.TOPIC_USER_CHANGED).add(register(session));
             logger.info("WS 连接: topic=USER_CHANGED, session={}", session.getId());
         } else if (path.endsWith(WebSocketTopics.TOPIC_USER_MESSAGE)) {
             // 用户消息必须携带 userId，拒绝无 userId 的连接
             if (userId != null && !userId.isEmpty()) {
-                getUserSet(userId).add(session);
+                getUserSet(userId).add(register(session));
                 logger.info("WS 连接: USER_MESSAGE, userId={}, session={}", userId, session.getId());
             } else {
                 logger.warn("WS 拒绝连接: USER_MESSAGE 需要 userId, session={}", session.getId());
@@ -91,32 +135,36 @@ public class RealtimeWebSocketHandler extends TextWebSocketHandler {
             }
         } else if (path.endsWith(WebSocketTopics.TOPIC_USER_ANNOUNCEMENT)) {
             // 公告允许全局主题连接，同时可选地将带有 userId 的会话加入 user 映射
-            getTopicSet(WebSocketTopics.TOPIC_USER_ANNOUNCEMENT).add(session);
+            getTopicSet(WebSocketTopics.TOPIC_USER_ANNOUNCEMENT).add(register(session));
             logger.info("WS 连接: topic=USER_ANNOUNCEMENT, session={}", session.getId());
             if (userId != null && !userId.isEmpty()) {
-                getUserSet(userId).add(session);
+                getUserSet(userId).add(register(session));
             }
         } else if (path.endsWith(WebSocketTopics.TOPIC_TEAM_MEMBER_CHANGED)) {
-            getTopicSet(WebSocketTopics.TOPIC_TEAM_MEMBER_CHANGED).add(session);
+            getTopicSet(WebSocketTopics.TOPIC_TEAM_MEMBER_CHANGED).add(register(session));
             logger.info("WS 连接: topic=TEAM_MEMBER_CHANGED, session={}", session.getId());
         } else if (path.endsWith(WebSocketTopics.TOPIC_TEAM_INVITATION_CHANGED)) {
-            getTopicSet(WebSocketTopics.TOPIC_TEAM_INVITATION_CHANGED).add(session);
+            getTopicSet(WebSocketTopics.TOPIC_TEAM_INVITATION_CHANGED).add(register(session));
             logger.info("WS 连接: topic=TEAM_INVITATION_CHANGED, session={}", session.getId());
         } else if (path.endsWith(WebSocketTopics.TOPIC_TEAM_JOIN_REQUEST_CHANGED)) {
-            getTopicSet(WebSocketTopics.TOPIC_TEAM_JOIN_REQUEST_CHANGED).add(session);
+            getTopicSet(WebSocketTopics.TOPIC_TEAM_JOIN_REQUEST_CHANGED).add(register(session));
             logger.info("WS 连接: topic=TEAM_JOIN_REQUEST_CHANGED, session={}", session.getId());
         }
     }
 
     @Override
     public void afterConnectionClosed(@NonNull WebSocketSession session, @NonNull CloseStatus status) {
-        // 从所有 topic 集合中移除该会话
-        for (Set<WebSocketSession> set : topicSessions.values()) {
-            set.remove(session);
-        }
-        // 从所有 user 集合中移除该会话
-        for (Set<WebSocketSession> set : userSessions.values()) {
-            set.remove(session);
+        WebSocketSessionSender sender = senders.remove(session.getId());
+        if (sender != null) {
+            // 从所有 topic 集合中移除该会话
+            for (Set<WebSocketSessionSender> set : topicSessions.values()) {
+                set.remove(sender);
+            }
+            // 从所有 user 集合中移除该会话
+            for (Set<WebSocketSessionSender> set : userSessions.values()) {
+                set.remove(sender);
+            }
+            sender.close();
         }
         logger.info("WebSocket 断开: {}", session.getId());
     }
@@ -150,6 +198,22 @@ public class RealtimeWebSocketHandler extends TextWebSocketHandler {
         sendEventToUserOrTopic(WebSocketTopics.TOPIC_USER_MESSAGE, String.valueOf(userId), event);
     }
 
+    /**
+     * 推送站内消息未读数：仅推送给本节点上该用户的在线会话（用户不在本节点时静默跳过，由所在节点推送）
+     */
+    public void sendUnreadCount(Long userId, long count) {
+        String uid = String.valueOf(userId);
+        Set<WebSocketSessionSender> sessions = userSessions.get(uid);
+        if (sessions == null || sessions.isEmpty()) {
+            return;
+        }
+        try {
+            sendMessageToSessions(sessions, objectMapper.writeValueAsString(new UnreadCountEvent(uid, count)));
+        } catch (JsonProcessingException e) {
+            logger.error("WS 事件序列化失败: {}", e.getMessage());
+        }
+    }
+
     public void sendNewAnnouncementNotification(Long userId, Long announcementId, String title, String content) {
         NewAnnouncementEvent event = new NewAnnouncementEvent(String.valueOf(userId), String.valueOf(announcementId), title, content);
         sendEventToUserOrTopic(WebSocketTopics.TOPIC_USER_ANNOUNCEMENT, String.valueOf(userId), event);
@@ -184,7 +248,7 @@ public class RealtimeWebSocketHandler extends TextWebSocketHandler {
     private void sendEventToUserOrTopic(String topic, String userId, Object event) {
         try {
             String payload = objectMapper.writeValueAsString(event);
-            Set<WebSocketSession> sessions = userSessions.get(userId);
+            Set<WebSocketSessionSender> sessions = userSessions.get(userId);
             if (sessions != null && !sessions.isEmpty()) {
                 logger.info("WS 定向推送: userId={}, topic={}, payload={}", userId, topic, payload);
                 sendMessageToSessions(sessions, payload);
@@ -204,15 +268,37 @@ public class RealtimeWebSocketHandler extends TextWebSocketHandler {
     }
 
     /**
-     * 发送消息到指定会话集合
+     * 获取推送统计：会话数、队列深度、发送/丢弃/失败/关闭计数与发送耗时
      */
-    private void sendMessageToSessions(Set<WebSocketSession> sessions, String message) {
-        for (WebSocketSession session : sessions) {
-            try {
-                session.sendMessage(new TextMessage(message));
-            } catch (IOException e) {
-                logger.error("WebSocket 消息发送失败: {}", e.getMessage());
-            }
+    public Map<String, Object> getSendStats() {
+        int queued = 0;
+        int maxQueueDepth = 0;
+        for (WebSocketSessionSender sender : senders.values()) {
+            int depth = sender.getBufferSize();
+            queued += depth;
+            maxQueueDepth = Math.max(maxQueueDepth, depth);
+        }
+        long sent = sendMetrics.sent.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("sessions", senders.size());
+        stats.put("queued", queued);
+        stats.put("maxQueueDepth", maxQueueDepth);
+        stats.put("sent", sent);
+        stats.put("dropped", sendMetrics.dropped.sum());
+        stats.put("failed", sendMetrics.failed.sum());
+        stats.put("terminated", sendMetrics.terminated.sum());
+        stats.put("avgSendMillis", sent == 0 ? 0.0 : sendMetrics.latencyNanos.sum() / 1_000_000.0 / sent);
+        stats.put("maxSendMillis", sendMetrics.maxLatencyNanos.get() / 1_000_000.0);
+        return stats;
+    }
+
+    /**
+     * 发送消息到指定会话集合：共享同一个 TextMessage，仅入队各会话的发送队列，由虚拟线程异步发送
+     */
+    private void sendMessageToSessions(Set<WebSocketSessionSender> sessions, String message) {
+        TextMessage textMessage = new TextMessage(message);
+        for (WebSocketSessionSender sender : sessions) {
+            sender.offer(textMessage);
         }
     }
 }
@@ -0,0 +1,196 @@
+package com.okbug.platform.ws;
+
+import cn.hutool.log.Log;
+import cn.hutool.log.LogFactory;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个 WebSocket 会话的有界发送队列（参照 ConcurrentWebSocketSessionDecorator 的缓冲、时限与溢出策略）
+ * - 推送方只入队，不做网络 I/O；同一会话同一时刻只有一个虚拟线程在发送，保证消息顺序且原始会话不被并发写
+ * - 队列达到上限时按溢出策略丢弃最早/最新消息或关闭会话
+ * - 单次发送超过时限（客户端长时间不读取）后，新消息到达时关闭该会话，客户端重连后恢复
+ */
+class WebSocketSessionSender {
+    private static final Log logger = LogFactory.get();
+
+    /**
+     * 发送队列溢出策略
+     */
+    enum OverflowStrategy {
+        DROP_OLDEST,
+        DROP_NEWEST,
+        TERMINATE;
+
+        static OverflowStrategy parse(String value) {
+            if (value == null || value.isBlank()) {
+                return DROP_OLDEST;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                return DROP_OLDEST;
+            }
+        }
+    }
+
+    /**
+     * 所有会话共享的发送统计
+     */
+    static final class Metrics {
+        final LongAdder sent = new LongAdder();
+        final LongAdder dropped = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        final LongAdder terminated = new LongAdder();
+        final LongAdder latencyNanos = new LongAdder();
+        final AtomicLong maxLatencyNanos = new AtomicLong();
+
+        void recordSent(long nanos) {
+            sent.increment();
+            latencyNanos.add(nanos);
+            maxLatencyNanos.accumulateAndGet(nanos, Math::max);
+        }
+    }
+
+    private final WebSocketSession session;
+    private final int bufferLimit;
+    private final long sendTimeLimitMillis;
+    private final OverflowStrategy overflowStrategy;
+    private final Executor executor;
+    private final Metrics metrics;
+
+    private final ConcurrentLinkedQueue<TextMessage> buffer = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger bufferSize = new AtomicInteger();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private volatile long sendStartedAt;
+    private volatile boolean closed;
+
+    WebSocketSessionSender(WebSocketSession session, int bufferLimit, long sendTimeLimitMillis,
+                           OverflowStrategy overflowStrategy, Executor executor, Metrics metrics) {
+        this.session = session;
+        this.bufferLimit = Math.max(1, bufferLimit);
+        this.sendTimeLimitMillis = Math.max(1L, sendTimeLimitMillis);
+        this.overflowStrategy = overflowStrategy;
+        this.executor = executor;
+        this.metrics = metrics;
+    }
+
+    int getBufferSize() {
+        return bufferSize.get();
+    }
+
+    /**
+     * 入队待发送消息（不阻塞调用方）
+     */
+    void offer(TextMessage message) {
+        if (closed) {
+            return;
+        }
+        long started = sendStartedAt;
+        if (started > 0 && System.currentTimeMillis() - started > sendTimeLimitMillis) {
+            terminate("发送超时");
+            return;
+        }
+        if (bufferSize.get() >= bufferLimit) {
+            switch (overflowStrategy) {
+                case DROP_NEWEST -> {
+                    metrics.dropped.increment();
+                    return;
+                }
+                case TERMINATE -> {
+                    terminate("发送队列已满");
+                    return;
+                }
+                default -> {
+                    if (buffer.poll() != null) {
+                        bufferSize.decrementAndGet();
+                        metrics.dropped.increment();
+                    }
+                }
+            }
+        }
+        buffer.add(message);
+        bufferSize.incrementAndGet();
+        scheduleDrain();
+    }
+
+    /**
+     * 连接关闭后丢弃未发送的消息
+     */
+    void close() {
+        closed = true;
+        buffer.clear();
+        bufferSize.set(0);
+    }
+
+    private void scheduleDrain() {
+        if (!draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            // 应用关闭中
+            draining.set(false);
+        }
+    }
+
+    private void drain() {
+        try {
+            TextMessage message;
+            while (!closed && (message = buffer.poll()) != null) {
+                bufferSize.decrementAndGet();
+                long start = System.nanoTime();
+                sendStartedAt = System.currentTimeMillis();
+                try {
+                    session.sendMessage(message);
+                    metrics.recordSent(System.nanoTime() - start);
+                } catch (Exception e) {
+                    metrics.failed.increment();
+                    logger.error("WebSocket 消息发送失败: session={}, error={}", session.getId(), e.getMessage());
+                } finally {
+                    sendStartedAt = 0L;
+                }
+            }
+        } finally {
+            draining.set(false);
+            // 退出前有新消息入队但未抢到发送权时，重新调度
+            if (!closed && !buffer.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+    }
+
+    private void terminate(String reason) {
+        if (closed) {
+            return;
+        }
+        int discarded = bufferSize.get();
+        close();
+        metrics.terminated.increment();
+        metrics.dropped.add(discarded);
+        logger.warn("WebSocket 慢客户端会话关闭: session={}, reason={}, discarded={}, sendTimeLimitMs={}",
+                session.getId(), reason, discarded, sendTimeLimitMillis);
+        try {
+            // 关闭可能因底层写阻塞而等待，放到发送线程执行
+            executor.execute(() -> {
+                try {
+                    session.close(CloseStatus.SESSION_NOT_RELIABLE);
+                } catch (Exception e) {
+                    logger.debug("WebSocket 关闭会话失败: session={}, error={}", session.getId(), e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException ignore) {
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.okbug.platform.ws.dto;
+
+/**
+ * WebSocket 事件：站内消息未读数变化
+ */
+public class UnreadCountEvent {
+    public final String event = "UNREAD_COUNT";
+    public String userId;
+    public long count;
+
+    public UnreadCountEvent() {
+    }
+
+    public UnreadCountEvent(String userId, long count) {
+        this.userId = userId;
+        this.count = count;
+    }
+}
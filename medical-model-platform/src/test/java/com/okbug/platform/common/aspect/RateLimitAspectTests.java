@@ -0,0 +1,52 @@
+package com.okbug.platform.common.aspect;
+
+import com.okbug.platform.common.annotation.RateLimit;
+import com.okbug.platform.common.limiter.RateLimitService;
+import com.okbug.platform.service.system.SystemConfigService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 限流切面测试：IP维度的限流键使用可信连接地址，伪造的代理头不能轮换限流键
+ */
+class RateLimitAspectTests {
+
+    private final RateLimitService rateLimitService = mock(RateLimitService.class);
+    private final RateLimitAspect aspect = new RateLimitAspect(rateLimitService, mock(SystemConfigService.class),
+            mock(RedisMessageListenerContainer.class));
+
+    @AfterEach
+    void clearRequest() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void ipDimensionKeysOnTrustedRemoteAddressNotSpoofedHeaders() throws NoSuchMethodException {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr("203.0.113.9");
+        request.addHeader("X-Forwarded-For", "198.51.100.77");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        RateLimitService.Decision allowed = mock(RateLimitService.Decision.class);
+        when(allowed.isAllowed()).thenReturn(true);
+        when(rateLimitService.tryAcquire(any(), any(), anyInt(), any(), any(), any())).thenReturn(allowed);
+
+        aspect.checkRateLimit(RateLimitAspectTests.class.getDeclaredMethod("limitedByIp").getAnnotation(RateLimit.class));
+
+        verify(rateLimitService).tryAcquire(eq("rl:sms"), eq("rl:sms:ip:203.0.113.9"), anyInt(), any(), any(), any());
+    }
+
+    @RateLimit(name = "sms", dimension = RateLimit.Dimension.IP)
+    private void limitedByIp() {
+    }
+}
@@ -0,0 +1,111 @@
+package com.okbug.platform.common.cache;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.okbug.platform.entity.auth.Permission;
+import com.okbug.platform.mapper.auth.PermissionMapper;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * 权限位集注册表测试：位测试与列表判断结果一致，未收录编码与过期指纹安全降级
+ */
+class PermissionBitsetRegistryTests {
+
+    private final PermissionBitsetRegistry registry = registry(codes(0, 300));
+
+    @Test
+    void bitTestAgreesWithListContains() {
+        List<String> held = new ArrayList<>();
+        for (int i = 0; i < 300; i += 3) {
+            held.add(code(i));
+        }
+        PermissionSet set = registry.compile(held);
+
+        assertNotNull(set);
+        assertEquals(held.size(), set.size());
+        for (int i = 0; i < 320; i++) {
+            assertEquals(held.contains(code(i)), set.has(code(i)), code(i));
+            assertEquals(held.contains(code(i)), set.contains(code(i)), code(i));
+        }
+        assertFalse(set.has(null));
+        assertFalse(set.hasWildcard());
+    }
+
+    @Test
+    void encodedSetRoundTripsUntilRegistryChanges() {
+        PermissionSet set = registry.compile(List.of(code(1), code(64), code(299)));
+        String encoded = registry.encode(set);
+
+        PermissionSet decoded = registry.decode(encoded);
+        assertNotNull(decoded);
+        assertEquals(List.of(code(1), code(64), code(299)), decoded);
+        assertTrue(decoded.isCurrent(registry.current()));
+
+        PermissionBitsetRegistry changed = registry(codes(0, 301));
+        assertNull(changed.decode(encoded), "指纹不一致的位集不得按新注册表解码");
+        assertNull(registry.decode("garbage"));
+    }
+
+    @Test
+    void unknownCodeIsNotEncoded() {
+        assertNull(registry.compile(List.of(code(1), "unregistered:code")));
+    }
+
+    @Test
+    void wildcardCodeIsFlaggedForVagueMatch() {
+        PermissionBitsetRegistry withWildcard = registry(List.of("user:*", "user:view"));
+
+        PermissionSet set = withWildcard.compile(List.of("user:*"));
+        assertTrue(set.hasWildcard());
+        assertFalse(set.has("user:view"), "位测试不做通配匹配，需由 StpLogic 回退默认匹配");
+    }
+
+    static String code(int i) {
+        return "module" + (i % 40) + ":resource" + i + ":" + (i % 2 == 0 ? "view" : "edit");
+    }
+
+    static List<String> codes(int from, int to) {
+        List<String> codes = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            codes.add(code(i));
+        }
+        return codes;
+    }
+
+    static PermissionBitsetRegistry registry(List<String> codes) {
+        // LambdaQueryWrapper.select 需要实体的列缓存
+        if (TableInfoHelper.getTableInfo(Permission.class) == null) {
+            TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), Permission.class);
+        }
+        List<Permission> permissions = new ArrayList<>(codes.size());
+        for (int i = 0; i < codes.size(); i++) {
+            Permission permission = new Permission();
+            permission.setId((long) i + 1);
+            permission.setPermissionCode(codes.get(i));
+            permissions.add(permission);
+        }
+        PermissionMapper permissionMapper = mock(PermissionMapper.class, withSettings().stubOnly());
+        when(permissionMapper.selectList(any())).thenAnswer(inv -> new ArrayList<>(permissions));
+        PermissionBitsetRegistry registry = new PermissionBitsetRegistry(permissionMapper,
+                mock(StringRedisTemplate.class, withSettings().stubOnly()),
+                mock(RedisMessageListenerContainer.class, withSettings().stubOnly()));
+        registry.refresh();
+        return registry;
+    }
+}
@@ -0,0 +1,99 @@
+package com.okbug.platform.common.cache;
+
+import cn.dev33.satoken.stp.StpLogic;
+import cn.dev33.satoken.stp.StpUtil;
+import com.okbug.platform.config.SaTokenConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 权限判断基准：持有数百个权限的用户，单次判断在列表与位集上的耗时
+ *
+ * saTokenDefaultMatch 为改造前路径（Sa-Token 默认 hasElement，逐个编码做通配匹配）；
+ * bitsetStpLogic 经 SaTokenConfig 的自定义 StpLogic 走位测试。探测编码半数命中、半数为注册表内未持有的编码
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class PermissionCheckBenchmark {
+
+    private static final int REGISTRY_SIZE = 2_000;
+    private static final int PROBES = 256;
+
+    @Param({"50", "200", "500"})
+    public int held;
+
+    private List<String> heldList;
+    private PermissionSet heldSet;
+    private String[] probes;
+    private StpLogic defaultLogic;
+    private StpLogic bitsetLogic;
+
+    @Setup
+    public void setUp() {
+        PermissionBitsetRegistry registry = PermissionBitsetRegistryTests.registry(
+                PermissionBitsetRegistryTests.codes(0, REGISTRY_SIZE));
+        Random random = new Random(42);
+        heldList = new ArrayList<>(held);
+        for (int i = 0; i < held; i++) {
+            heldList.add(PermissionBitsetRegistryTests.code(i * (REGISTRY_SIZE / held)));
+        }
+        heldSet = registry.compile(heldList);
+        probes = new String[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            probes[i] = i % 2 == 0
+                    ? heldList.get(random.nextInt(held))
+                    : PermissionBitsetRegistryTests.code(random.nextInt(REGISTRY_SIZE));
+        }
+        defaultLogic = new StpLogic(StpUtil.TYPE);
+        bitsetLogic = new SaTokenConfig(null).stpLogic();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PROBES)
+    public int listContains() {
+        int granted = 0;
+        for (String probe : probes) {
+            granted += heldList.contains(probe) ? 1 : 0;
+        }
+        return granted;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PROBES)
+    public int saTokenDefaultMatch() {
+        int granted = 0;
+        for (String probe : probes) {
+            granted += defaultLogic.hasElement(heldList, probe) ? 1 : 0;
+        }
+        return granted;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PROBES)
+    public int bitsetStpLogic() {
+        int granted = 0;
+        for (String probe : probes) {
+            granted += bitsetLogic.hasElement(heldSet, probe) ? 1 : 0;
+        }
+        return granted;
+    }
+}
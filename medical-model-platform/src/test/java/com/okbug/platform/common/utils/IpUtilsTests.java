@@ -0,0 +1,32 @@
+package com.okbug.platform.common.utils;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * IP工具测试：安全判定使用的客户端地址不受客户端自带代理头影响
+ */
+class IpUtilsTests {
+
+    @Test
+    void trustedClientIpIgnoresSpoofedForwardedHeaders() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr("203.0.113.9");
+        request.addHeader("X-Forwarded-For", "198.51.100.1, 203.0.113.9");
+        request.addHeader("X-Real-IP", "198.51.100.2");
+
+        assertEquals("198.51.100.1", IpUtils.getClientIp(request));
+        assertEquals("203.0.113.9", IpUtils.getTrustedClientIp(request));
+    }
+
+    @Test
+    void trustedClientIpNormalizesLoopbackAndMissingRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr("0:0:0:0:0:0:0:1");
+
+        assertEquals("127.0.0.1", IpUtils.getTrustedClientIp(request));
+        assertEquals("127.0.0.1", IpUtils.getTrustedClientIp(null));
+    }
+}
@@ -0,0 +1,127 @@
+package com.okbug.platform.config;
+
+import cn.dev33.satoken.stp.StpUtil;
+import com.okbug.platform.common.cache.TeamMembershipCache;
+import com.okbug.platform.common.cache.UserSnapshotCache;
+import com.okbug.platform.common.context.AuthContext;
+import com.okbug.platform.entity.auth.User;
+import com.okbug.platform.mapper.auth.UserHierarchyClosureMapper;
+import com.okbug.platform.mapper.auth.UserMapper;
+import com.okbug.platform.service.permission.PermissionService;
+import com.okbug.platform.service.security.impl.DataScopeServiceImpl;
+import com.okbug.platform.support.MapperTestDatabase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+
+/**
+ * 请求级鉴权上下文测试：一次请求内角色、展示名称、数据域等读取合计最多查询一次用户表
+ */
+class SaTokenInterceptorTests {
+
+    private static final long USER_ID = 7L;
+
+    private static MapperTestDatabase db;
+
+    private UserSnapshotCache userSnapshotCache;
+    private SaTokenInterceptor interceptor;
+    private StpInterfaceImpl stpInterface;
+    private DataScopeServiceImpl dataScopeService;
+    private MockedStatic<StpUtil> stp;
+
+    @BeforeAll
+    static void setUpDatabase() {
+        db = MapperTestDatabase.inMemory("auth_context", UserMapper.class);
+        db.execute("INSERT INTO users (id, username, password, nickname, role) VALUES (7, 'alice', 'x', 'Alice', 'ADMIN')");
+    }
+
+    @BeforeEach
+    void setUp() {
+        UserMapper userMapper = db.mapper(UserMapper.class);
+        userSnapshotCache = new UserSnapshotCache(userMapper, mock(StringRedisTemplate.class),
+                mock(RedisMessageListenerContainer.class));
+        PermissionService permissionService = mock(PermissionService.class);
+        interceptor = new SaTokenInterceptor(permissionService, userSnapshotCache);
+        stpInterface = new StpInterfaceImpl(permissionService, userSnapshotCache);
+        dataScopeService = new DataScopeServiceImpl(userMapper, mock(TeamMembershipCache.class),
+                mock(UserHierarchyClosureMapper.class), userSnapshotCache);
+        stp = mockStatic(StpUtil.class);
+        stp.when(StpUtil::isLogin).thenReturn(true);
+        stp.when(StpUtil::getLoginIdAsLong).thenReturn(USER_ID);
+        db.resetQueryCount();
+    }
+
+    @AfterEach
+    void tearDown() {
+        stp.close();
+        AuthContext.clear();
+        db.execute("UPDATE users SET role = 'ADMIN' WHERE id = 7");
+    }
+
+    @Test
+    void coldRequestReadsUserRowOnce() throws Exception {
+        handleRequest(() -> {
+            assertEquals(USER_ID, AuthContext.current().getId());
+            for (int i = 0; i < 5; i++) {
+                assertEquals(List.of(User.ROLE_ADMIN), stpInterface.getRoleList(USER_ID, StpUtil.TYPE));
+                assertEquals(User.ROLE_ADMIN, userSnapshotCache.getRole(USER_ID));
+                assertEquals("Alice", userSnapshotCache.getDisplayName(USER_ID));
+                assertTrue(dataScopeService.visibleUserScope(USER_ID).getUserIdSql().contains("user_hierarchy_closure"));
+            }
+        });
+
+        assertEquals(1, db.queryCount(), () -> "sql=" + db.statements());
+        assertNull(AuthContext.current(), "请求结束后必须清除上下文");
+    }
+
+    @Test
+    void laterRequestsReuseSnapshotUntilEvicted() throws Exception {
+        handleRequest(() -> stpInterface.getRoleList(USER_ID, StpUtil.TYPE));
+        handleRequest(() -> stpInterface.getRoleList(USER_ID, StpUtil.TYPE));
+        assertEquals(1, db.queryCount());
+
+        db.execute("UPDATE users SET role = 'USER' WHERE id = 7");
+        handleRequest(() -> {
+            userSnapshotCache.evict(USER_ID);
+            assertNull(AuthContext.current(), "被修改用户的上下文快照应随失效丢弃");
+            assertEquals(List.of(User.ROLE_USER), stpInterface.getRoleList(USER_ID, StpUtil.TYPE));
+            assertEquals(User.ROLE_USER, userSnapshotCache.getRole(USER_ID));
+        });
+
+        assertEquals(2, db.queryCount(), () -> "sql=" + db.statements());
+    }
+
+    @Test
+    void anonymousRequestDoesNotTouchUserTable() throws Exception {
+        stp.when(StpUtil::isLogin).thenReturn(false);
+
+        handleRequest(() -> assertNull(AuthContext.current()));
+
+        assertEquals(0, db.queryCount());
+    }
+
+    private void handleRequest(Runnable handler) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/credits/summary");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertTrue(interceptor.preHandle(request, response, null));
+        try {
+            handler.run();
+        } finally {
+            interceptor.afterCompletion(request, response, null, null);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.okbug.platform.manager.credit;
+
+import com.okbug.platform.entity.credit.CreditUsageScenario;
+import com.okbug.platform.mapper.credit.CreditTransactionMapper;
+import com.okbug.platform.service.system.SystemConfigService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 每日限次批量占用测试：整批一次脚本调用，计数器缺失的项初始化后一次补占
+ */
+class CreditDailyLimitManagerTests {
+
+    private final StringRedisTemplate redis = mock(StringRedisTemplate.class);
+    private final CreditTransactionMapper creditTransactionMapper = mock(CreditTransactionMapper.class);
+    private final SystemConfigService systemConfigService = mock(SystemConfigService.class);
+    private final List<List<String>> scriptKeys = new ArrayList<>();
+
+    private CreditDailyLimitManager manager;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ValueOperations<String, String> valueOps = mock(ValueOperations.class);
+        when(redis.opsForValue()).thenReturn(valueOps);
+        when(valueOps.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(true);
+        when(systemConfigService.getConfigValue(anyString(), any())).thenReturn("Asia/Shanghai");
+        when(creditTransactionMapper.selectCount(any())).thenReturn(0L);
+        manager = new CreditDailyLimitManager(redis, creditTransactionMapper, systemConfigService);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void acquiresWholeBatchWithOneScriptCall() {
+        when(redis.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenAnswer(inv -> {
+            scriptKeys.add(new ArrayList<>(inv.<List<String>>getArgument(1)));
+            return Arrays.asList(1L, 0L, 1L);
+        });
+
+        List<CreditDailyLimitManager.Reservation> reservations = manager.tryAcquireAll(
+                List.of(1L, 2L, 3L, 4L), Arrays.asList(limited(5), limited(5), null, limited(5)));
+
+        assertEquals(1, scriptKeys.size());
+        // 无每日限次的项不进入脚本
+        assertEquals(3, scriptKeys.get(0).size());
+        assertNotNull(reservations.get(0));
+        assertNull(reservations.get(1));
+        assertNotNull(reservations.get(2));
+        assertNotNull(reservations.get(3));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void seedsMissingCountersThenRetriesThemInOneCall() {
+        when(redis.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenAnswer(inv -> {
+            List<String> keys = new ArrayList<>(inv.<List<String>>getArgument(1));
+            scriptKeys.add(keys);
+            // 首次：两项计数器均不存在（同一用户同一场景）
+            return scriptKeys.size() == 1 ? Arrays.asList(-1L, -1L) : Arrays.asList(1L, 1L);
+        });
+
+        List<CreditDailyLimitManager.Reservation> reservations = manager.tryAcquireAll(
+                List.of(9L, 9L), List.of(limited(5), limited(5)));
+
+        assertEquals(2, scriptKeys.size());
+        assertEquals(2, scriptKeys.get(1).size());
+        // 同键只按流水初始化一次
+        verify(creditTransactionMapper, times(1)).selectCount(any());
+        assertNotNull(reservations.get(0));
+        assertNotNull(reservations.get(1));
+    }
+
+    private static CreditUsageScenario limited(int dailyLimit) {
+        CreditUsageScenario scenario = new CreditUsageScenario();
+        scenario.setScenarioCode("AI_COMPUTE");
+        scenario.setDailyLimit(dailyLimit);
+        return scenario;
+    }
+}
@@ -0,0 +1,109 @@
+package com.okbug.platform.manager.credit;
+
+import com.okbug.platform.common.constants.SystemConfigKeys;
+import com.okbug.platform.entity.credit.CreditTransaction;
+import com.okbug.platform.service.system.SystemConfigService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * 热点账户扣减吞吐基准：单笔事务逐笔持有行锁 vs 合并器按批持有行锁
+ *
+ * 以一把锁模拟 user_credits 行锁，每个事务持锁 rowLockMicros（行锁 + 提交耗时），每笔账本追加 perRowMicros；
+ * 线程数由 BenchmarkThreadSweep 扫描（1/8/32/64），真实SQL下的对比见 CreditDebitSqlBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class CreditDebitCoalescerBenchmark {
+
+    private static final Long USER_ID = 7L;
+    private static final String TYPE = "POINTS";
+
+    @Param({"200", "1000"})
+    public long rowLockMicros;
+
+    @Param({"5"})
+    public long perRowMicros;
+
+    private final ReentrantLock row = new ReentrantLock();
+    private CreditDebitManager creditDebitManager;
+    private CreditDebitCoalescer coalescer;
+
+    @Setup
+    public void setUp() {
+        creditDebitManager = mock(CreditDebitManager.class, withSettings().stubOnly());
+        when(creditDebitManager.debitBatch(eq(USER_ID), eq(TYPE), anyList()))
+                .thenAnswer(inv -> debitUnderRowLock(inv.getArgument(2)));
+        SystemConfigService systemConfigService = mock(SystemConfigService.class, withSettings().stubOnly());
+        when(systemConfigService.getConfigValue(eq(SystemConfigKeys.CREDIT_DEBIT_COALESCE_ACCOUNTS), anyString()))
+                .thenReturn(String.valueOf(USER_ID));
+        when(systemConfigService.getConfigValueAsInt(eq(SystemConfigKeys.CREDIT_DEBIT_COALESCE_WINDOW_DURATION_MILLIS), any()))
+                .thenReturn(2);
+        when(systemConfigService.getConfigValueAsInt(eq(SystemConfigKeys.CREDIT_DEBIT_COALESCE_BATCH_MAX_COUNT), any()))
+                .thenReturn(32);
+        coalescer = new CreditDebitCoalescer(creditDebitManager, systemConfigService);
+        // 预热配置缓存
+        coalescer.isCoalesced(USER_ID, TYPE);
+    }
+
+    @Benchmark
+    public CreditDebitManager.BatchDebitResult singleTransactionPerDebit() {
+        return creditDebitManager.debitBatch(USER_ID, TYPE, Collections.singletonList(ledger()));
+    }
+
+    @Benchmark
+    public CreditDebitManager.DebitResult coalescedDebit() {
+        return coalescer.debit(USER_ID, TYPE, ledger());
+    }
+
+    private CreditDebitManager.BatchDebitResult debitUnderRowLock(List<CreditTransaction> ledgers) {
+        row.lock();
+        try {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(rowLockMicros + perRowMicros * ledgers.size()));
+        } finally {
+            row.unlock();
+        }
+        List<CreditDebitManager.DebitOutcome> outcomes = new ArrayList<>(ledgers.size());
+        List<CreditDebitManager.DebitResult> results = new ArrayList<>(ledgers.size());
+        for (int i = 0; i < ledgers.size(); i++) {
+            outcomes.add(CreditDebitManager.DebitOutcome.APPLIED);
+            results.add(new CreditDebitManager.DebitResult(null, BigDecimal.TEN, BigDecimal.ONE));
+        }
+        return new CreditDebitManager.BatchDebitResult(outcomes, results, BigDecimal.ONE);
+    }
+
+    private static CreditTransaction ledger() {
+        CreditTransaction ledger = new CreditTransaction();
+        ledger.setAmount(BigDecimal.ONE.negate());
+        return ledger;
+    }
+}
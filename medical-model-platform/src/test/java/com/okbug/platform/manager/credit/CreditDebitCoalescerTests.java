@@ -0,0 +1,286 @@
+package com.okbug.platform.manager.credit;
+
+import com.okbug.platform.common.base.ErrorCode;
+import com.okbug.platform.common.base.ServiceException;
+import com.okbug.platform.common.constants.SystemConfigKeys;
+import com.okbug.platform.entity.credit.CreditTransaction;
+import com.okbug.platform.entity.credit.UserCredit;
+import com.okbug.platform.service.system.SystemConfigService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.interceptor.MatchAlwaysTransactionAttributeSource;
+import org.springframework.transaction.interceptor.TransactionInterceptor;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 热点账户扣减合并器并发测试：批次领取、余额分配、领导者回滚退路与跟随者等待上限
+ */
+class CreditDebitCoalescerTests {
+
+    private static final Long USER_ID = 7L;
+    private static final String TYPE = "POINTS";
+
+    private final CreditDebitManager creditDebitManager = mock(CreditDebitManager.class);
+    private final SystemConfigService systemConfigService = mock(SystemConfigService.class);
+    private final List<List<CreditTransaction>> submittedBatches = Collections.synchronizedList(new ArrayList<>());
+
+    private ExecutorService pool;
+    private BigDecimal balance;
+    private CreditDebitCoalescer coalescer;
+
+    @BeforeEach
+    void setUp() {
+        pool = Executors.newCachedThreadPool();
+        balance = new BigDecimal("1000");
+        when(creditDebitManager.debitBatch(eq(USER_ID), eq(TYPE), anyList()))
+                .thenAnswer(inv -> allocate(inv.getArgument(2)));
+        coalescer = new CreditDebitCoalescer(creditDebitManager, systemConfigService);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void concurrentDebitsAreEachAppliedExactlyOnce() throws Exception {
+        configure(2, 8);
+        int threads = 64;
+        List<CreditTransaction> ledgers = ledgers(threads, "1");
+        List<Future<CreditDebitManager.DebitResult>> results = runConcurrently(ledgers, ledger -> () ->
+                coalescer.debit(USER_ID, TYPE, ledger));
+
+        for (Future<CreditDebitManager.DebitResult> result : results) {
+            assertNotNull(result.get(10, TimeUnit.SECONDS));
+        }
+        List<CreditTransaction> submitted = flatten();
+        assertEquals(threads, submitted.size());
+        assertEquals(threads, submitted.stream().distinct().count());
+        assertTrue(submittedBatches.stream().allMatch(b -> b.size() <= 8));
+        assertEquals(0, new BigDecimal("936").compareTo(balance));
+    }
+
+    @Test
+    void insufficientBalanceFailsOnlyOverdrawingDebits() throws Exception {
+        configure(2, 32);
+        balance = new BigDecimal("10");
+        List<CreditTransaction> ledgers = ledgers(20, "1");
+        List<Future<CreditDebitManager.DebitResult>> results = runConcurrently(ledgers, ledger -> () ->
+                coalescer.debit(USER_ID, TYPE, ledger));
+
+        int applied = 0;
+        int insufficient = 0;
+        for (Future<CreditDebitManager.DebitResult> result : results) {
+            try {
+                assertNotNull(result.get(10, TimeUnit.SECONDS));
+                applied++;
+            } catch (ExecutionException e) {
+                ServiceException se = (ServiceException) e.getCause();
+                assertEquals(ErrorCode.INSUFFICIENT_CREDIT_BALANCE.getCode(), se.getCode());
+                insufficient++;
+            }
+        }
+        assertEquals(10, applied);
+        assertEquals(10, insufficient);
+        assertEquals(0, BigDecimal.ZERO.compareTo(balance));
+    }
+
+    @Test
+    void followersFallBackToSingleDebitWhenLeaderRollsBack() throws Exception {
+        int threads = 6;
+        // 批次上限等于并发数且窗口足够长：全部请求进入同一批次
+        configure(5_000, threads);
+        List<CreditTransaction> ledgers = ledgers(threads, "1");
+        List<Future<CreditDebitManager.DebitResult>> results = runConcurrently(ledgers, ledger -> () ->
+                inTransaction(() -> coalescer.debit(USER_ID, TYPE, ledger), ledger));
+
+        for (Future<CreditDebitManager.DebitResult> result : results) {
+            assertNotNull(result.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(threads, submittedBatches.get(0).size());
+        CreditTransaction leader = submittedBatches.get(0).get(0);
+        // 领导者回滚后，每个跟随者在自身事务内单笔重试一次
+        assertEquals(threads, submittedBatches.size());
+        List<CreditTransaction> retried = flatten().subList(threads, threads * 2 - 1);
+        assertEquals(threads - 1, retried.stream().distinct().count());
+        assertFalse(retried.contains(leader));
+    }
+
+    @Test
+    void claimedFollowerWaitIsBounded() throws Exception {
+        configure(1_000, 2);
+        List<CreditTransaction> ledgers = ledgers(2, "1");
+        CountDownLatch followerDone = new CountDownLatch(1);
+        List<Future<CreditDebitManager.DebitResult>> results = runConcurrently(ledgers, ledger -> () -> {
+            TransactionSynchronizationManager.initSynchronization();
+            try {
+                CreditDebitManager.DebitResult result = coalescer.debit(USER_ID, TYPE, ledger);
+                // 领导者：等到跟随者超时后才结束事务
+                followerDone.await(10, TimeUnit.SECONDS);
+                completeSynchronizations(TransactionSynchronization.STATUS_ROLLED_BACK);
+                return result;
+            } catch (RuntimeException e) {
+                followerDone.countDown();
+                throw e;
+            } finally {
+                TransactionSynchronizationManager.clearSynchronization();
+            }
+        });
+
+        int timedOut = 0;
+        for (Future<CreditDebitManager.DebitResult> result : results) {
+            try {
+                result.get(15, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                ServiceException se = (ServiceException) e.getCause();
+                assertEquals(ErrorCode.CREDIT_SYSTEM_BESSY.getCode(), se.getCode());
+                timedOut++;
+            }
+        }
+        assertEquals(1, timedOut);
+        assertEquals(1, submittedBatches.size());
+    }
+
+    @Test
+    void onlyCallersOwningTheirTransactionAreCoalesced() {
+        configure(2, 32);
+        assertFalse(coalescer.isCoalesced(USER_ID, TYPE), "无事务时不合并");
+        assertTrue(probe(true).getAsBoolean(), "自身开启的事务可合并");
+        assertFalse(probe(false).getAsBoolean(), "加入外层事务时不合并");
+        assertFalse(coalescer.isCoalesced(8L, TYPE), "未配置的账户不合并");
+    }
+
+    // ================ 辅助方法 ================
+
+    private void configure(int windowMillis, int batchMaxCount) {
+        when(systemConfigService.getConfigValue(eq(SystemConfigKeys.CREDIT_DEBIT_COALESCE_ACCOUNTS), anyString()))
+                .thenReturn(String.valueOf(USER_ID));
+        when(systemConfigService.getConfigValueAsInt(eq(SystemConfigKeys.CREDIT_DEBIT_COALESCE_WINDOW_DURATION_MILLIS), any()))
+                .thenReturn(windowMillis);
+        when(systemConfigService.getConfigValueAsInt(eq(SystemConfigKeys.CREDIT_DEBIT_COALESCE_BATCH_MAX_COUNT), any()))
+                .thenReturn(batchMaxCount);
+        // 触发配置加载
+        coalescer.getCoalesceStats();
+    }
+
+    /**
+     * 模拟 CreditDebitManager#debitBatch：按顺序分配余额
+     */
+    private synchronized CreditDebitManager.BatchDebitResult allocate(List<CreditTransaction> ledgers) {
+        submittedBatches.add(new ArrayList<>(ledgers));
+        List<CreditDebitManager.DebitOutcome> outcomes = new ArrayList<>();
+        List<CreditDebitManager.DebitResult> results = new ArrayList<>();
+        BigDecimal total = BigDecimal.ZERO;
+        for (CreditTransaction ledger : ledgers) {
+            BigDecimal amount = ledger.getAmount().abs();
+            if (balance.compareTo(amount) < 0) {
+                outcomes.add(CreditDebitManager.DebitOutcome.INSUFFICIENT);
+                results.add(null);
+                continue;
+            }
+            BigDecimal before = balance;
+            balance = balance.subtract(amount);
+            total = total.add(amount);
+            outcomes.add(CreditDebitManager.DebitOutcome.APPLIED);
+            results.add(new CreditDebitManager.DebitResult(new UserCredit(), before, balance));
+        }
+        return new CreditDebitManager.BatchDebitResult(outcomes, results, total);
+    }
+
+    /**
+     * 模拟调用方事务：领导者（批次首笔）回滚，其余提交
+     */
+    private CreditDebitManager.DebitResult inTransaction(Callable<CreditDebitManager.DebitResult> body,
+                                                        CreditTransaction ledger) throws Exception {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            CreditDebitManager.DebitResult result = body.call();
+            boolean leader = !submittedBatches.isEmpty() && submittedBatches.get(0).get(0) == ledger;
+            completeSynchronizations(leader ? TransactionSynchronization.STATUS_ROLLED_BACK
+                    : TransactionSynchronization.STATUS_COMMITTED);
+            return result;
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static void completeSynchronizations(int status) {
+        for (TransactionSynchronization sync : TransactionSynchronizationManager.getSynchronizations()) {
+            sync.afterCompletion(status);
+        }
+    }
+
+    private BooleanSupplier probe(boolean newTransaction) {
+        PlatformTransactionManager tm = mock(PlatformTransactionManager.class);
+        when(tm.getTransaction(any())).thenReturn(new SimpleTransactionStatus(newTransaction));
+        ProxyFactory factory = new ProxyFactory();
+        factory.setInterfaces(BooleanSupplier.class);
+        factory.setTarget((BooleanSupplier) () -> coalescer.isCoalesced(USER_ID, TYPE));
+        factory.addAdvice(new TransactionInterceptor(tm, new MatchAlwaysTransactionAttributeSource()));
+        return (BooleanSupplier) factory.getProxy();
+    }
+
+    private static List<CreditTransaction> ledgers(int count, String amount) {
+        List<CreditTransaction> ledgers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            CreditTransaction ledger = new CreditTransaction();
+            ledger.setAmount(new BigDecimal(amount).negate());
+            ledger.setRelatedOrderId("order-" + i);
+            ledgers.add(ledger);
+        }
+        return ledgers;
+    }
+
+    private <T> List<Future<T>> runConcurrently(List<CreditTransaction> ledgers,
+                                                Function<CreditTransaction, Callable<T>> task) {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<T>> futures = new ArrayList<>(ledgers.size());
+        for (CreditTransaction ledger : ledgers) {
+            Callable<T> body = task.apply(ledger);
+            futures.add(pool.submit(() -> {
+                start.await();
+                return body.call();
+            }));
+        }
+        start.countDown();
+        return futures;
+    }
+
+    private List<CreditTransaction> flatten() {
+        List<CreditTransaction> all = new ArrayList<>();
+        synchronized (submittedBatches) {
+            submittedBatches.forEach(all::addAll);
+        }
+        return all;
+    }
+}
@@ -0,0 +1,105 @@
+package com.okbug.platform.manager.credit;
+
+import com.okbug.platform.common.base.ErrorCode;
+import com.okbug.platform.common.base.ServiceException;
+import com.okbug.platform.entity.credit.CreditTransaction;
+import com.okbug.platform.entity.credit.UserCredit;
+import com.okbug.platform.mapper.credit.CreditTransactionMapper;
+import com.okbug.platform.mapper.credit.UserCreditMapper;
+import com.okbug.platform.service.system.SystemConfigService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 积分扣减管理器测试：原子扣减与批量扣减均排除Redis中的预授权占用，Redis不可用时拒绝扣减
+ */
+class CreditDebitManagerTests {
+
+    private static final Long USER_ID = 7L;
+    private static final String TYPE = "NORMAL";
+
+    private final StringRedisTemplate redis = mock(StringRedisTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final HashOperations<String, Object, Object> hashOps = mock(HashOperations.class);
+    private final UserCreditMapper userCreditMapper = mock(UserCreditMapper.class);
+    private final CreditTransactionMapper creditTransactionMapper = mock(CreditTransactionMapper.class);
+
+    private CreditDebitManager manager;
+
+    @BeforeEach
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void setUp() {
+        when(redis.opsForHash()).thenReturn((HashOperations) hashOps);
+        manager = new CreditDebitManager(userCreditMapper, creditTransactionMapper,
+                mock(SystemConfigService.class), new CreditHoldReservations(redis));
+    }
+
+    @Test
+    void debitExcludesHeldAndCapturedCreditsFromRedis() {
+        when(hashOps.multiGet(eq("credit:hold:account:7:NORMAL"), anyList())).thenReturn(Arrays.asList("300", "200"));
+        when(userCreditMapper.debitIfSufficient(eq(USER_ID), eq(TYPE), any(), any())).thenReturn(1);
+        when(userCreditMapper.selectByUserIdAndCreditType(USER_ID, TYPE)).thenReturn(account("6.00"));
+
+        CreditDebitManager.DebitResult result = manager.debit(USER_ID, TYPE, new BigDecimal("4.00"));
+
+        verify(userCreditMapper).debitIfSufficient(USER_ID, TYPE, new BigDecimal("4.00"), new BigDecimal("5.00"));
+        assertEquals(new BigDecimal("10.00"), result.getBalanceBefore());
+    }
+
+    @Test
+    void debitIsRejectedWhenReservationsCannotBeRead() {
+        when(hashOps.multiGet(any(), anyList())).thenThrow(new RedisConnectionFailureException("down"));
+
+        ServiceException e = assertThrows(ServiceException.class,
+                () -> manager.debit(USER_ID, TYPE, new BigDecimal("1.00")));
+
+        assertEquals(ErrorCode.CREDIT_SYSTEM_BESSY.getCode(), e.getCode());
+        verify(userCreditMapper, never()).debitIfSufficient(any(), any(), any(), any());
+    }
+
+    @Test
+    void debitBatchAllocatesOnlyUnreservedBalance() {
+        when(hashOps.multiGet(any(), anyList())).thenReturn(Arrays.asList("500", null));
+        when(userCreditMapper.selectForUpdate(USER_ID, TYPE)).thenReturn(account("10.00"));
+        when(userCreditMapper.debitIfSufficient(eq(USER_ID), eq(TYPE), any(), any())).thenReturn(1);
+
+        CreditDebitManager.BatchDebitResult result = manager.debitBatch(USER_ID, TYPE,
+                List.of(ledger("3.00"), ledger("3.00")));
+
+        assertEquals(List.of(CreditDebitManager.DebitOutcome.APPLIED, CreditDebitManager.DebitOutcome.INSUFFICIENT),
+                result.getOutcomes());
+        verify(userCreditMapper).debitIfSufficient(USER_ID, TYPE, new BigDecimal("3.00"), new BigDecimal("5.00"));
+    }
+
+    private static UserCredit account(String balance) {
+        UserCredit account = new UserCredit();
+        account.setUserId(USER_ID);
+        account.setCreditTypeCode(TYPE);
+        account.setBalance(new BigDecimal(balance));
+        account.setTotalConsumed(BigDecimal.ZERO);
+        return account;
+    }
+
+    private static CreditTransaction ledger(String amount) {
+        CreditTransaction ledger = new CreditTransaction();
+        ledger.setAmount(new BigDecimal(amount).negate());
+        return ledger;
+    }
+}
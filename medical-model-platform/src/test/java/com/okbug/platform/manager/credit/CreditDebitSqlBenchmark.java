@@ -0,0 +1,145 @@
+package com.okbug.platform.manager.credit;
+
+import com.okbug.platform.common.constants.SystemConfigKeys;
+import com.okbug.platform.common.enums.credit.CreditTransactionType;
+import com.okbug.platform.entity.credit.CreditTransaction;
+import com.okbug.platform.mapper.credit.CreditTransactionMapper;
+import com.okbug.platform.mapper.credit.UserCreditMapper;
+import com.okbug.platform.service.system.SystemConfigService;
+import com.okbug.platform.support.MapperTestDatabase;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * 热点账户扣减吞吐基准（真实SQL）：CreditDebitManager#debitBatch 在 H2 上执行 SELECT ... FOR UPDATE、
+ * 多值 INSERT 账本与条件 UPDATE，对比每笔一个事务与合并器按批一个事务
+ *
+ * 每次调用在独立事务内完成（与服务层 @Transactional 一致），合并路径的跟随者结果在领导者事务提交后发布；
+ * 线程数由 BenchmarkThreadSweep 扫描（1/8/32/64），结束时校验账户余额与账本合计一致
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class CreditDebitSqlBenchmark {
+
+    private static final Long USER_ID = 7L;
+    private static final String TYPE = "POINTS";
+    private static final BigDecimal OPENING = new BigDecimal("99999999.00");
+    private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    private MapperTestDatabase db;
+    private TransactionTemplate transactionTemplate;
+    private CreditDebitManager creditDebitManager;
+    private CreditDebitCoalescer coalescer;
+
+    @Setup
+    public void setUp() {
+        db = MapperTestDatabase.inMemory("credit_debit_bench_" + DATABASES.incrementAndGet(),
+                UserCreditMapper.class, CreditTransactionMapper.class);
+        // 64 线程逐笔排队等行锁时，避免 H2 默认 1 秒锁等待超时
+        db.execute("SET DEFAULT_LOCK_TIMEOUT 60000",
+                "INSERT INTO user_credits (id, user_id, credit_type_code, balance) VALUES (1, " + USER_ID + ", '"
+                        + TYPE + "', " + OPENING.toPlainString() + ")");
+        transactionTemplate = db.transactionTemplate();
+
+        SystemConfigService systemConfigService = mock(SystemConfigService.class, withSettings().stubOnly());
+        when(systemConfigService.getConfigValue(eq(SystemConfigKeys.CREDIT_DEBIT_COALESCE_ACCOUNTS), anyString()))
+                .thenReturn(String.valueOf(USER_ID));
+        when(systemConfigService.getConfigValueAsInt(eq(SystemConfigKeys.CREDIT_DEBIT_COALESCE_WINDOW_DURATION_MILLIS), any()))
+                .thenReturn(2);
+        when(systemConfigService.getConfigValueAsInt(eq(SystemConfigKeys.CREDIT_DEBIT_COALESCE_BATCH_MAX_COUNT), any()))
+                .thenReturn(32);
+        creditDebitManager = new CreditDebitManager(db.mapper(UserCreditMapper.class),
+                db.mapper(CreditTransactionMapper.class), systemConfigService, new CreditHoldReservations(new NoHoldsRedis()));
+        coalescer = new CreditDebitCoalescer(creditDebitManager, systemConfigService);
+        // 预热配置缓存
+        coalescer.isCoalesced(USER_ID, TYPE);
+    }
+
+    @TearDown
+    public void verifyLedger() {
+        BigDecimal balance = db.mapper(UserCreditMapper.class).selectByUserIdAndCreditType(USER_ID, TYPE).getBalance();
+        long ledgers = db.mapper(CreditTransactionMapper.class).selectCount(null);
+        if (OPENING.subtract(AMOUNT.multiply(BigDecimal.valueOf(ledgers))).compareTo(balance) != 0) {
+            throw new IllegalStateException("余额与账本不一致: balance=" + balance + ", ledgers=" + ledgers);
+        }
+    }
+
+    @Benchmark
+    public CreditDebitManager.BatchDebitResult singleTransactionPerDebit() {
+        return transactionTemplate.execute(status ->
+                creditDebitManager.debitBatch(USER_ID, TYPE, Collections.singletonList(ledger())));
+    }
+
+    @Benchmark
+    public CreditDebitManager.DebitResult coalescedDebit() {
+        return transactionTemplate.execute(status -> coalescer.debit(USER_ID, TYPE, ledger()));
+    }
+
+    private static CreditTransaction ledger() {
+        CreditTransaction ledger = new CreditTransaction();
+        ledger.setUserId(USER_ID);
+        ledger.setCreditTypeCode(TYPE);
+        ledger.setTransactionType(CreditTransactionType.SPEND.getCode());
+        ledger.setAmount(AMOUNT.negate());
+        return ledger;
+    }
+
+    /**
+     * Redis 桩：账户无预授权，HMGET 每个字段均返回 null
+     */
+    private static final class NoHoldsRedis extends StringRedisTemplate {
+
+        @SuppressWarnings("unchecked")
+        private final HashOperations<String, Object, Object> hashOperations = (HashOperations<String, Object, Object>)
+                Proxy.newProxyInstance(HashOperations.class.getClassLoader(), new Class<?>[]{HashOperations.class},
+                        (proxy, method, args) -> {
+                            if (!"multiGet".equals(method.getName())) {
+                                throw new UnsupportedOperationException(method.getName());
+                            }
+                            List<Object> values = new ArrayList<>();
+                            for (int i = 0; i < ((Collection<?>) args[1]).size(); i++) {
+                                values.add(null);
+                            }
+                            return values;
+                        });
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <HK, HV> HashOperations<String, HK, HV> opsForHash() {
+            return (HashOperations<String, HK, HV>) (HashOperations<String, ?, ?>) hashOperations;
+        }
+    }
+}
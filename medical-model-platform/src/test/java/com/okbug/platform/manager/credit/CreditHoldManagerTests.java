@@ -0,0 +1,279 @@
+package com.okbug.platform.manager.credit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.okbug.platform.common.base.ErrorCode;
+import com.okbug.platform.common.base.ServiceException;
+import com.okbug.platform.dto.credit.response.CreditHoldResponse;
+import com.okbug.platform.service.system.SystemConfigService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.ListOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * 积分预授权测试：覆盖Redis预授权/结算/释放、单次入账扣减与批量入账的终态/重试处理
+ */
+class CreditHoldManagerTests {
+
+    private static final Long USER_ID = 7L;
+    private static final String TYPE = "NORMAL";
+    private static final String SETTLE_KEY = "credit:hold:settle";
+    private static final String SETTLE_FAILED_KEY = "credit:hold:settle:failed";
+
+    private final StringRedisTemplate redis = mock(StringRedisTemplate.class);
+    private final CreditDebitManager creditDebitManager = mock(CreditDebitManager.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final SystemConfigService systemConfigService = mock(SystemConfigService.class);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    @SuppressWarnings("unchecked")
+    private final ListOperations<String, String> listOps = mock(ListOperations.class);
+
+    /** 各类脚本的返回值与调用参数，按脚本内容区分 */
+    private final Map<String, Object> scriptResults = new HashMap<>();
+    private final List<String> scriptCalls = new ArrayList<>();
+    private final List<Object[]> scriptArgs = new ArrayList<>();
+    private final Map<Object, Object> holdFields = new HashMap<>();
+
+    private CreditHoldManager manager;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        HashOperations<String, Object, Object> hashOps = mock(HashOperations.class);
+        ValueOperations<String, String> valueOps = mock(ValueOperations.class);
+        when(redis.opsForHash()).thenReturn((HashOperations) hashOps);
+        when(redis.opsForValue()).thenReturn(valueOps);
+        when(redis.opsForList()).thenReturn(listOps);
+        when(redis.opsForZSet()).thenReturn(mock(ZSetOperations.class));
+        when(hashOps.entries(anyString())).thenAnswer(inv -> new HashMap<>(holdFields));
+        when(valueOps.setIfAbsent(anyString(), anyString(), anyLong(), any(TimeUnit.class))).thenReturn(true);
+        when(redis.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenAnswer(inv -> {
+            String name = scriptName(inv.<RedisScript<?>>getArgument(0).getScriptAsString());
+            Object[] args = new Object[inv.getArguments().length - 2];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = inv.getArgument(i + 2);
+            }
+            scriptCalls.add(name);
+            scriptArgs.add(args);
+            return scriptResults.get(name);
+        });
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus(true));
+        when(systemConfigService.getConfigValueAsInt(anyString(), any())).thenReturn(200);
+        when(creditDebitManager.reservedBalance(any(), any())).thenReturn(BigDecimal.ZERO);
+        manager = new CreditHoldManager(redis, objectMapper, creditDebitManager,
+                transactionManager, systemConfigService);
+
+        holdFields.put("userId", String.valueOf(USER_ID));
+        holdFields.put("creditTypeCode", TYPE);
+        holdFields.put("scenarioCode", "AI_COMPUTE");
+        holdFields.put("orderId", "");
+        holdFields.put("amount", "1000");
+        holdFields.put("captured", "0");
+        holdFields.put("status", CreditHoldManager.STATUS_HELD);
+        holdFields.put("expireAt", String.valueOf(System.currentTimeMillis() + 60_000L));
+    }
+
+    @Test
+    void holdReservesInRedisWithoutTouchingUserCredits() {
+        scriptResults.put("hold", "OK");
+
+        CreditHoldResponse hold = manager.hold(USER_ID, TYPE, "AI_COMPUTE", null,
+                new BigDecimal("10"), new BigDecimal("50"), 600);
+
+        assertEquals(new BigDecimal("10.00"), hold.getAmount());
+        assertEquals(List.of("hold"), scriptCalls);
+        // 余额与金额以分传入脚本
+        assertEquals("5000", scriptArgs.get(0)[0]);
+        assertEquals("1000", scriptArgs.get(0)[1]);
+        assertEquals(1L, manager.getHoldStats().get("placed"));
+        verifyNoInteractions(creditDebitManager);
+    }
+
+    @Test
+    void holdIsRejectedWhenRedisReportsInsufficient() {
+        scriptResults.put("hold", "INSUFFICIENT");
+
+        ServiceException e = assertThrows(ServiceException.class, () -> manager.hold(USER_ID, TYPE, null, null,
+                new BigDecimal("10"), new BigDecimal("5"), 600));
+
+        assertEquals(ErrorCode.INSUFFICIENT_CREDIT_BALANCE.getCode(), e.getCode());
+        assertEquals(1L, manager.getHoldStats().get("insufficient"));
+    }
+
+    @Test
+    void captureQueuesSettlementWithoutTouchingUserCredits() throws Exception {
+        scriptResults.put("capture", 1L);
+
+        manager.capture(currentHold(), new BigDecimal("4"), "推理扣费");
+
+        CreditHoldManager.SettleEntry entry =
+                objectMapper.readValue((String) scriptArgs.get(0)[2], CreditHoldManager.SettleEntry.class);
+        assertEquals(400L, entry.getAmountCents());
+        assertEquals("推理扣费", entry.getDescription());
+        assertEquals("400", scriptArgs.get(0)[0]);
+        verifyNoInteractions(creditDebitManager);
+    }
+
+    @Test
+    void captureRejectsOverLimitAndExpiredHolds() {
+        scriptResults.put("capture", -2L);
+        ServiceException exceeded = assertThrows(ServiceException.class,
+                () -> manager.capture(currentHold(), new BigDecimal("11"), null));
+        assertEquals(ErrorCode.CREDIT_HOLD_CAPTURE_EXCEEDED.getCode(), exceeded.getCode());
+
+        scriptResults.put("capture", -3L);
+        ServiceException expired = assertThrows(ServiceException.class,
+                () -> manager.capture(currentHold(), new BigDecimal("1"), null));
+        assertEquals(ErrorCode.CREDIT_HOLD_STATE_INVALID.getCode(), expired.getCode());
+    }
+
+    @Test
+    void releaseIsRedisOnlyAndRejectsSecondRelease() {
+        scriptResults.put("release", 1L);
+        manager.release(currentHold());
+        assertEquals(CreditHoldManager.STATUS_RELEASED, scriptArgs.get(0)[1]);
+
+        scriptResults.put("release", -1L);
+        assertThrows(ServiceException.class, () -> manager.release(currentHold()));
+        assertEquals(1L, manager.getHoldStats().get("released"));
+        verifyNoInteractions(creditDebitManager);
+    }
+
+    @Test
+    void reconcileSettlesGroupWithOneDebitExcludingOtherReservations() throws Exception {
+        scriptResults.put("settled", 1L);
+        List<String> raw = List.of(settleJson("h1", 300), settleJson("h2", 500));
+        when(listOps.range(eq(SETTLE_KEY), eq(0L), anyLong())).thenReturn(raw);
+        // 占用合计 20.00 中包含本组 8.00 待入账，其余 12.00 属于其他预授权
+        when(creditDebitManager.reservedBalance(USER_ID, TYPE)).thenReturn(new BigDecimal("20.00"));
+        when(creditDebitManager.debitBatch(eq(USER_ID), eq(TYPE), anyList(), any(BigDecimal.class))).thenReturn(
+                new CreditDebitManager.BatchDebitResult(Arrays.asList(
+                        CreditDebitManager.DebitOutcome.APPLIED, CreditDebitManager.DebitOutcome.INSUFFICIENT),
+                        Arrays.asList(null, null), new BigDecimal("3.00")));
+
+        manager.reconcileSettlements();
+
+        verify(creditDebitManager).debitBatch(eq(USER_ID), eq(TYPE), anyList(), eq(new BigDecimal("12.00")));
+        // 余额不足的单笔转入失败队列，两笔均扣回待入账合计
+        ArgumentCaptor<String> failed = ArgumentCaptor.forClass(String.class);
+        verify(listOps).rightPush(eq(SETTLE_FAILED_KEY), failed.capture());
+        assertTrue(failed.getValue().contains("\"holdId\":\"h2\""));
+        assertEquals(2, scriptCalls.stream().filter("settled"::equals).count());
+        verify(listOps).trim(SETTLE_KEY, 2, -1);
+        assertEquals(1L, manager.getHoldStats().get("settledEntries"));
+    }
+
+    @Test
+    void reconcileReleasesReservationForDuplicateSettlement() throws Exception {
+        scriptResults.put("settled", 1L);
+        when(listOps.range(eq(SETTLE_KEY), eq(0L), anyLong())).thenReturn(List.of(settleJson("h1", 300)));
+        when(creditDebitManager.reservedBalance(USER_ID, TYPE)).thenReturn(new BigDecimal("3.00"));
+        when(creditDebitManager.debitBatch(eq(USER_ID), eq(TYPE), anyList(), any(BigDecimal.class))).thenReturn(
+                new CreditDebitManager.BatchDebitResult(List.of(CreditDebitManager.DebitOutcome.DUPLICATE),
+                        Arrays.asList((CreditDebitManager.DebitResult) null), BigDecimal.ZERO));
+
+        manager.reconcileSettlements();
+
+        // 幂等重复为终态：扣回待入账合计释放占用，不进入失败队列
+        int settled = scriptCalls.indexOf("settled");
+        assertTrue(settled >= 0);
+        assertEquals("300", scriptArgs.get(settled)[0]);
+        verify(listOps, never()).rightPush(eq(SETTLE_FAILED_KEY), anyString());
+        verify(listOps, never()).rightPush(eq(SETTLE_KEY), anyString());
+        verify(creditDebitManager).debitBatch(eq(USER_ID), eq(TYPE), anyList(), eq(new BigDecimal("0.00")));
+    }
+
+    @Test
+    void reconcileRequeuesGroupWithBackoffOnTransientFailure() throws Exception {
+        when(listOps.range(eq(SETTLE_KEY), eq(0L), anyLong())).thenReturn(List.of(settleJson("h1", 300)));
+        when(creditDebitManager.debitBatch(any(), any(), anyList(), any())).thenThrow(new IllegalStateException("db down"));
+
+        long before = System.currentTimeMillis();
+        manager.reconcileSettlements();
+
+        ArgumentCaptor<String> requeued = ArgumentCaptor.forClass(String.class);
+        verify(listOps).rightPush(eq(SETTLE_KEY), requeued.capture());
+        CreditHoldManager.SettleEntry entry = objectMapper.readValue(requeued.getValue(), CreditHoldManager.SettleEntry.class);
+        assertEquals(1, entry.getAttempts());
+        assertTrue(entry.getRetryAt() >= before + 2_000L);
+        // 暂时性失败不扣回待入账合计，占用保留
+        assertTrue(scriptCalls.stream().noneMatch("settled"::equals));
+        verify(listOps).trim(SETTLE_KEY, 1, -1);
+    }
+
+    @Test
+    void reconcileMovesEntryToFailedQueueAfterMaxAttempts() throws Exception {
+        CreditHoldManager.SettleEntry exhausted = settleEntry("h1", 300);
+        exhausted.setAttempts(11);
+        when(listOps.range(eq(SETTLE_KEY), eq(0L), anyLong())).thenReturn(List.of(objectMapper.writeValueAsString(exhausted)));
+        when(creditDebitManager.debitBatch(any(), any(), anyList(), any())).thenThrow(new IllegalStateException("db down"));
+
+        manager.reconcileSettlements();
+
+        verify(listOps).rightPush(eq(SETTLE_FAILED_KEY), anyString());
+        verify(listOps, never()).rightPush(eq(SETTLE_KEY), anyString());
+        assertEquals(1L, manager.getHoldStats().get("settleFailures"));
+    }
+
+    private CreditHoldResponse currentHold() {
+        return manager.getHold("h1");
+    }
+
+    private String settleJson(String holdId, long cents) throws Exception {
+        return objectMapper.writeValueAsString(settleEntry(holdId, cents));
+    }
+
+    private static CreditHoldManager.SettleEntry settleEntry(String holdId, long cents) {
+        CreditHoldManager.SettleEntry entry = new CreditHoldManager.SettleEntry();
+        entry.setHoldId(holdId);
+        entry.setUserId(USER_ID);
+        entry.setCreditTypeCode(TYPE);
+        entry.setAmountCents(cents);
+        return entry;
+    }
+
+    private static String scriptName(String script) {
+        if (script.contains("INSUFFICIENT")) {
+            return "hold";
+        }
+        if (script.contains("RPUSH")) {
+            return "capture";
+        }
+        if (script.contains("'settled'")) {
+            return "settled";
+        }
+        if (script.contains("'status', ARGV[2]")) {
+            return "release";
+        }
+        return "unlock";
+    }
+}
@@ -0,0 +1,186 @@
+package com.okbug.platform.manager.credit;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.okbug.platform.common.constants.SystemConfigKeys;
+import com.okbug.platform.entity.credit.CreditRollupState;
+import com.okbug.platform.entity.credit.CreditTransactionRollup;
+import com.okbug.platform.mapper.credit.CreditRollupStateMapper;
+import com.okbug.platform.mapper.credit.CreditTransactionMapper;
+import com.okbug.platform.mapper.credit.CreditTransactionRollupMapper;
+import com.okbug.platform.service.system.SystemConfigService;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 积分交易汇总测试：覆盖时间点推进、重扫窗口、重建与汇总/明细区间拆分
+ */
+class CreditRollupManagerTests {
+
+    private static final int BATCH_SIZE = 2;
+    private static final long OVERLAP_SECONDS = 600L;
+
+    private final StringRedisTemplate redis = mock(StringRedisTemplate.class);
+    private final CreditTransactionMapper transactionMapper = mock(CreditTransactionMapper.class);
+    private final CreditTransactionRollupMapper rollupMapper = mock(CreditTransactionRollupMapper.class);
+    private final CreditRollupStateMapper stateMapper = mock(CreditRollupStateMapper.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final SystemConfigService systemConfigService = mock(SystemConfigService.class);
+    private final CreditRollupState state = new CreditRollupState();
+
+    private CreditRollupManager manager;
+
+    @BeforeAll
+    static void initTableInfo() {
+        // Lambda 条件构造器需要实体元数据
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), CreditRollupState.class);
+    }
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ValueOperations<String, String> ops = mock(ValueOperations.class);
+        when(redis.opsForValue()).thenReturn(ops);
+        when(ops.setIfAbsent(anyString(), anyString(), anyLong(), any(TimeUnit.class))).thenReturn(true);
+        when(redis.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(1L);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus(true));
+        when(systemConfigService.getConfigValueAsBoolean(eq(SystemConfigKeys.CREDIT_ROLLUP_ENABLED), any())).thenReturn(true);
+        when(systemConfigService.getConfigValueAsInt(eq(SystemConfigKeys.CREDIT_ROLLUP_BATCH_COUNT), any())).thenReturn(BATCH_SIZE);
+        when(systemConfigService.getConfigValueAsInt(eq(SystemConfigKeys.CREDIT_ROLLUP_SETTLE_DURATION_SECONDS), any())).thenReturn(60);
+        when(systemConfigService.getConfigValueAsInt(eq(SystemConfigKeys.CREDIT_ROLLUP_OVERLAP_DURATION_SECONDS), any()))
+                .thenReturn((int) OVERLAP_SECONDS);
+        state.setRollupName(CreditRollupManager.ROLLUP_NAME);
+        when(stateMapper.selectForUpdate(CreditRollupManager.ROLLUP_NAME)).thenReturn(state);
+        when(stateMapper.selectById(CreditRollupManager.ROLLUP_NAME)).thenReturn(state);
+        manager = new CreditRollupManager(redis, transactionMapper, rollupMapper, stateMapper,
+                transactionManager, systemConfigService);
+    }
+
+    @Test
+    void firstRunScansFromEpochAndAdvancesToCutoffOnceCaughtUp() {
+        LocalDateTime lastOfFirstBatch = LocalDateTime.of(2026, 10, 1, 8, 0);
+        when(rollupMapper.claimPending(anyLong(), any(), any(), eq(BATCH_SIZE))).thenReturn(BATCH_SIZE, 1);
+        when(rollupMapper.selectMaxCreateTime(anyLong())).thenReturn(lastOfFirstBatch, lastOfFirstBatch.plusMinutes(5));
+
+        LocalDateTime before = LocalDateTime.now().minusSeconds(61);
+        manager.rollupIncrementally();
+
+        ArgumentCaptor<LocalDateTime> from = ArgumentCaptor.forClass(LocalDateTime.class);
+        ArgumentCaptor<LocalDateTime> cutoff = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(rollupMapper, times(2)).claimPending(anyLong(), from.capture(), cutoff.capture(), eq(BATCH_SIZE));
+        assertEquals(LocalDateTime.of(1970, 1, 1, 0, 0), from.getAllValues().get(0));
+        // 未追平时只覆盖到本批最晚创建时间，下一批从该时间点减去重扫窗口开始
+        assertEquals(lastOfFirstBatch.minusSeconds(OVERLAP_SECONDS), from.getAllValues().get(1));
+        // 追平后覆盖到落定时间点
+        LocalDateTime lastCutoff = cutoff.getAllValues().get(1);
+        assertEquals(lastCutoff, state.getCoveredUntil());
+        assertTrue(lastCutoff.isAfter(before));
+        verify(rollupMapper).pruneApplied(eq(lastCutoff.minusSeconds(OVERLAP_SECONDS)), anyInt());
+        verify(rollupMapper, times(2)).upsertHourly(anyLong());
+        verify(rollupMapper, times(2)).upsertDaily(anyLong());
+    }
+
+    @Test
+    void coveredTimeNeverMovesBackwards() {
+        LocalDateTime covered = LocalDateTime.now().minusSeconds(30);
+        state.setCoveredUntil(covered);
+        // 重扫窗口内认领到的晚提交交易创建时间早于已覆盖时间点
+        when(rollupMapper.claimPending(anyLong(), any(), any(), eq(BATCH_SIZE))).thenReturn(BATCH_SIZE, 0);
+        when(rollupMapper.selectMaxCreateTime(anyLong())).thenReturn(covered.minusMinutes(3));
+
+        manager.rollupIncrementally();
+
+        assertEquals(covered, state.getCoveredUntil());
+        ArgumentCaptor<LocalDateTime> from = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(rollupMapper, times(2)).claimPending(anyLong(), from.capture(), any(), eq(BATCH_SIZE));
+        assertEquals(covered.minusSeconds(OVERLAP_SECONDS), from.getAllValues().get(0));
+        assertEquals(covered.minusSeconds(OVERLAP_SECONDS), from.getAllValues().get(1));
+    }
+
+    @Test
+    void emptyBatchStillAdvancesToCutoff() {
+        LocalDateTime covered = LocalDateTime.now().minusHours(1);
+        state.setCoveredUntil(covered);
+        when(rollupMapper.claimPending(anyLong(), any(), any(), eq(BATCH_SIZE))).thenReturn(0);
+
+        manager.rollupIncrementally();
+
+        assertTrue(state.getCoveredUntil().isAfter(covered));
+        verify(rollupMapper, never()).upsertHourly(anyLong());
+        verify(rollupMapper, never()).selectMaxCreateTime(anyLong());
+    }
+
+    @Test
+    void skippedWhenLockIsHeldElsewhere() {
+        when(redis.opsForValue().setIfAbsent(anyString(), anyString(), anyLong(), any(TimeUnit.class))).thenReturn(false);
+
+        manager.rollupIncrementally();
+
+        verify(rollupMapper, never()).claimPending(anyLong(), any(), any(), anyInt());
+    }
+
+    @Test
+    void rebuildResetsCoverageAndClearsDedupTable() {
+        state.setCoveredUntil(LocalDateTime.now());
+
+        manager.rebuild();
+
+        verify(stateMapper).update(eq(null), any());
+        verify(rollupMapper).truncate();
+        verify(rollupMapper).truncateApplied();
+    }
+
+    @Test
+    void summarizeReadsRollupOnlyForCoveredWholeHours() {
+        state.setCoveredUntil(LocalDateTime.of(2026, 10, 1, 10, 30));
+        LocalDateTime start = LocalDateTime.of(2026, 10, 1, 8, 15);
+        LocalDateTime end = LocalDateTime.of(2026, 10, 1, 12, 0);
+
+        manager.summarizeByType(start, end, 9L);
+
+        verify(transactionMapper).selectAmountGroupByType(start, LocalDateTime.of(2026, 10, 1, 9, 0), 9L);
+        verify(rollupMapper).selectAmountGroupByType(CreditTransactionRollup.BUCKET_HOUR,
+                LocalDateTime.of(2026, 10, 1, 9, 0), LocalDateTime.of(2026, 10, 1, 10, 0), 9L);
+        verify(transactionMapper).selectAmountGroupByType(LocalDateTime.of(2026, 10, 1, 10, 0), end, 9L);
+    }
+
+    @Test
+    void summarizeFallsBackToRawWhenNothingIsCovered() {
+        state.setCoveredUntil(null);
+        LocalDateTime start = LocalDateTime.of(2026, 10, 1, 0, 0);
+        LocalDateTime end = LocalDateTime.of(2026, 10, 3, 0, 0);
+
+        assertFalse(manager.summarizeByType(start, end, null).iterator().hasNext());
+
+        verify(transactionMapper).selectAmountGroupByType(start, end, null);
+        verify(rollupMapper, never()).selectAmountGroupByType(any(), any(), any(), any());
+        assertNull(state.getCoveredUntil());
+    }
+}
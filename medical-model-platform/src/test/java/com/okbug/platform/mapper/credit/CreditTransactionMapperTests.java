@@ -0,0 +1,110 @@
+package com.okbug.platform.mapper.credit;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.okbug.platform.entity.credit.CreditTransaction;
+import com.okbug.platform.support.CreditLedgerFixture.Expected;
+import com.okbug.platform.support.MapperTestDatabase;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static com.okbug.platform.support.CreditLedgerFixture.SEED_START;
+import static com.okbug.platform.support.CreditLedgerFixture.decimal;
+import static com.okbug.platform.support.CreditLedgerFixture.seedLedger;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 积分统计SQL聚合测试：与逐行累加结果一致，且每个统计只执行一条聚合SQL
+ */
+class CreditTransactionMapperTests {
+
+    private static final int ROWS = 3_000;
+
+    private static MapperTestDatabase db;
+    private static CreditTransactionMapper transactionMapper;
+    private static UserCreditMapper userCreditMapper;
+
+    @BeforeAll
+    static void setUpDatabase() {
+        db = MapperTestDatabase.inMemory("credit_stats", CreditTransactionMapper.class, UserCreditMapper.class);
+        transactionMapper = db.mapper(CreditTransactionMapper.class);
+        userCreditMapper = db.mapper(UserCreditMapper.class);
+        seedLedger(db, ROWS);
+        db.execute("INSERT INTO user_credits (id, user_id, credit_type_code, balance, total_earned, total_consumed) "
+                + "SELECT x, x, CASE WHEN MOD(x, 2) = 0 THEN 'NORMAL' ELSE 'BONUS' END, x, x * 2, x * 3 "
+                + "FROM " + MapperTestDatabase.range(1, 100));
+    }
+
+    @BeforeEach
+    void resetCount() {
+        db.resetQueryCount();
+    }
+
+    @Test
+    void amountSummaryMatchesRowByRowTotals() {
+        Map<String, Object> summary = transactionMapper.selectAmountSummary(new QueryWrapper<CreditTransaction>()
+                .ge("create_time", SEED_START)
+                .lt("create_time", SEED_START.plusDays(1)));
+
+        Expected expected = Expected.of(1, ROWS, x -> true);
+        assertEquals(ROWS, decimal(summary, "total_transactions").intValue());
+        assertEquals(0, expected.income().compareTo(decimal(summary, "total_income")));
+        assertEquals(0, expected.expense().compareTo(decimal(summary, "total_expense")));
+        assertEquals(expected.incomeCount(), decimal(summary, "income_count").longValue());
+        assertEquals(ROWS - expected.incomeCount(), decimal(summary, "expense_count").longValue());
+        assertEquals(1, db.queryCount());
+    }
+
+    @Test
+    void userIncomeAndExpenseAreSummedInSql() {
+        LocalDateTime end = SEED_START.plusDays(1);
+        BigDecimal income = transactionMapper.sumUserIncomeInTimeRange(3L, SEED_START, end);
+        BigDecimal expense = transactionMapper.sumUserExpenseInTimeRange(3L, SEED_START, end);
+
+        Expected expected = Expected.of(1, ROWS, x -> x % 10 == 3);
+        assertEquals(0, expected.income().compareTo(income));
+        assertEquals(0, expected.expense().compareTo(expense));
+        assertEquals(2, db.queryCount());
+    }
+
+    @Test
+    void emptyRangeSumsToZero() {
+        BigDecimal income = transactionMapper.sumUserIncomeInTimeRange(3L, SEED_START.minusDays(2), SEED_START.minusDays(1));
+
+        assertEquals(0, BigDecimal.ZERO.compareTo(income));
+    }
+
+    @Test
+    void groupByTypeReturnsOneRowPerGroup() {
+        List<Map<String, Object>> groups = transactionMapper.selectAmountGroupByType(SEED_START, SEED_START.plusDays(1), null);
+
+        assertEquals(4, groups.size());
+        long count = 0;
+        BigDecimal net = BigDecimal.ZERO;
+        for (Map<String, Object> group : groups) {
+            count += decimal(group, "tx_count").longValue();
+            net = net.add(decimal(group, "total_amount"));
+        }
+        Expected expected = Expected.of(1, ROWS, x -> true);
+        assertEquals(ROWS, count);
+        assertEquals(0, expected.income().subtract(expected.expense()).compareTo(net));
+        assertEquals(1, db.queryCount());
+    }
+
+    @Test
+    void accountTotalsAreAggregatedPerCreditType() {
+        // NORMAL 为偶数ID：2 + 4 + ... + 100 = 2550
+        assertEquals(0, new BigDecimal("2550").compareTo(userCreditMapper.selectTotalBalanceByCreditType("NORMAL")));
+        assertEquals(0, new BigDecimal("5100").compareTo(userCreditMapper.selectTotalEarnedByCreditType("NORMAL")));
+        assertEquals(0, new BigDecimal("7500").compareTo(userCreditMapper.selectTotalConsumedByCreditType("BONUS")));
+        List<Map<String, Object>> totals = userCreditMapper.selectTotalsGroupByCreditType();
+        assertEquals(2, totals.size());
+        assertEquals(50L, decimal(totals.get(0), "account_count").longValue());
+        assertEquals(4, db.queryCount());
+    }
+}
@@ -0,0 +1,83 @@
+package com.okbug.platform.mapper.system.message;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
+import com.okbug.platform.entity.system.message.MessageRead;
+import com.okbug.platform.support.MapperTestDatabase;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * 全部标记已读测试：阅读记录使用独立生成的ID，重复的 (message_id, user_id) 仅由唯一约束去重并保留原记录
+ */
+class MessageReadMapperTests {
+
+    private static final Long USER_ID = 5L;
+    private static final LocalDateTime EARLIER = LocalDateTime.of(2026, 10, 1, 8, 0);
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 10, 17, 9, 0);
+
+    private static MapperTestDatabase db;
+    private static MessageReadMapper mapper;
+
+    @BeforeAll
+    static void setUpDatabase() {
+        db = MapperTestDatabase.inMemory("message_reads", MessageReadMapper.class);
+        mapper = db.mapper(MessageReadMapper.class);
+    }
+
+    @BeforeEach
+    void seed() {
+        db.execute("DELETE FROM notify_message_reads", "DELETE FROM notify_messages",
+                "INSERT INTO notify_messages (id, user_id, content) SELECT x, CASE WHEN x <= 2500 THEN "
+                        + USER_ID + " ELSE 6 END, 'm' FROM " + MapperTestDatabase.range(1, 2600),
+                // 已由单条标记已读写入的记录
+                "INSERT INTO notify_message_reads (id, message_id, user_id, read_at) VALUES (900001, 7, " + USER_ID
+                        + ", '2026-10-01 08:00:00')");
+    }
+
+    @Test
+    void insertAllUnreadGeneratesReadIdsInsteadOfReusingMessageIds() {
+        int processed = mapper.insertAllUnread(USER_ID, NOW);
+
+        List<MessageRead> reads = mapper.selectList(new QueryWrapper<MessageRead>().eq("user_id", USER_ID));
+        assertEquals(2499, processed);
+        assertEquals(2500, reads.size());
+        for (MessageRead read : reads) {
+            assertFalse(read.getId().equals(read.getMessageId()), "阅读记录ID不应沿用消息ID: " + read.getId());
+        }
+        assertEquals(0L, mapper.selectCount(new QueryWrapper<MessageRead>().eq("user_id", 6L)));
+    }
+
+    @Test
+    void duplicateMessageUserPairKeepsExistingRead() {
+        MessageRead raced = read(7L);
+        MessageRead fresh = read(8L);
+
+        mapper.upsertBatch(List.of(raced, fresh));
+
+        List<MessageRead> reads = mapper.selectList(new QueryWrapper<MessageRead>().eq("user_id", USER_ID)
+                .orderByAsc("message_id"));
+        assertEquals(2, reads.size());
+        assertEquals(900001L, reads.get(0).getId());
+        assertEquals(EARLIER, reads.get(0).getReadAt());
+        assertEquals(fresh.getId(), reads.get(1).getId());
+    }
+
+    private static MessageRead read(Long messageId) {
+        MessageRead read = new MessageRead();
+        read.setId(IdWorker.getId());
+        read.setMessageId(messageId);
+        read.setUserId(USER_ID);
+        read.setReadAt(NOW);
+        read.setCreateTime(NOW);
+        read.setUpdateTime(NOW);
+        return read;
+    }
+}
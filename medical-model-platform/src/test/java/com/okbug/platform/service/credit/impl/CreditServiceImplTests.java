@@ -0,0 +1,291 @@
+package com.okbug.platform.service.credit.impl;
+
+import cn.dev33.satoken.stp.StpUtil;
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.okbug.platform.common.cache.TeamMembershipCache;
+import com.okbug.platform.common.cache.UserSnapshotCache;
+import com.okbug.platform.common.base.ErrorCode;
+import com.okbug.platform.dto.credit.request.CreditChargeBatchRequest;
+import com.okbug.platform.dto.credit.response.CreditChargeBatchResponse;
+import com.okbug.platform.dto.credit.response.UserCreditsSummaryResponse;
+import com.okbug.platform.entity.auth.User;
+import com.okbug.platform.entity.credit.CreditType;
+import com.okbug.platform.entity.credit.CreditUsageScenario;
+import com.okbug.platform.manager.credit.CreditChargeIdempotencyManager;
+import com.okbug.platform.manager.credit.CreditDailyLimitManager;
+import com.okbug.platform.manager.credit.CreditDebitCoalescer;
+import com.okbug.platform.manager.credit.CreditDebitManager;
+import com.okbug.platform.manager.credit.CreditHoldManager;
+import com.okbug.platform.manager.credit.CreditRollupManager;
+import com.okbug.platform.manager.credit.CreditScenarioManager;
+import com.okbug.platform.mapper.auth.UserHierarchyClosureMapper;
+import com.okbug.platform.mapper.auth.UserMapper;
+import com.okbug.platform.mapper.credit.CreditTransactionMapper;
+import com.okbug.platform.mapper.credit.CreditTypeMapper;
+import com.okbug.platform.mapper.credit.CreditUsageScenarioMapper;
+import com.okbug.platform.mapper.credit.UserCreditMapper;
+import com.okbug.platform.service.security.impl.DataScopeServiceImpl;
+import com.okbug.platform.service.system.message.NotificationFacade;
+import com.okbug.platform.support.MapperTestDatabase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 用户积分汇总分页与批量扣费测试：按数据域过滤，查询次数与页大小、子账号树深度、批内用户数无关
+ */
+class CreditServiceImplTests {
+
+    static final String[] CREDIT_TYPES = {"NORMAL", "BONUS", "GIFT", "TRIAL"};
+    private static final long ADMIN_ID = 1L;
+    private static final int SUB_USERS = 40;
+    private static final int OTHER_USERS = 25;
+
+    private static MapperTestDatabase db;
+
+    private final UserSnapshotCache userSnapshotCache = mock(UserSnapshotCache.class);
+    private final CreditScenarioManager creditScenarioManager = mock(CreditScenarioManager.class);
+    private MockedStatic<StpUtil> stp;
+    private CreditServiceImpl service;
+
+    @BeforeAll
+    static void setUpDatabase() {
+        db = MapperTestDatabase.inMemory("credit_summary", UserMapper.class, UserCreditMapper.class);
+        seedAdminTree(db, ADMIN_ID, SUB_USERS, 5);
+        seedUsers(db, 1_000, OTHER_USERS, null);
+    }
+
+    @BeforeEach
+    void setUp() {
+        stp = mockStatic(StpUtil.class);
+        when(creditScenarioManager.findCreditType(anyString())).thenAnswer(inv -> creditType(inv.getArgument(0)));
+        service = newService(db, userSnapshotCache, creditScenarioManager);
+        db.resetQueryCount();
+    }
+
+    @AfterEach
+    void tearDown() {
+        stp.close();
+    }
+
+    @Test
+    void adminPageIsBuiltWithThreeQueriesRegardlessOfPageSizeAndDepth() {
+        loginAs(ADMIN_ID, User.ROLE_ADMIN);
+        for (int size : new int[]{5, 20, 50}) {
+            db.resetQueryCount();
+            IPage<UserCreditsSummaryResponse> page = service.getUserCreditsSummaryPage(new Page<>(1, size), null);
+
+            // 分页计数 + 分页查询 + 一次积分账户 IN 查询
+            assertEquals(3, db.queryCount(), () -> "size=" + size + " sql=" + db.statements());
+            assertEquals(SUB_USERS + 1, page.getTotal());
+            assertEquals(Math.min(size, SUB_USERS + 1), page.getRecords().size());
+            for (UserCreditsSummaryResponse summary : page.getRecords()) {
+                assertEquals(CREDIT_TYPES.length, summary.getAccounts().size());
+                assertEquals("积分" + summary.getAccounts().get(0).getCreditTypeCode(),
+                        summary.getAccounts().get(0).getCreditTypeName());
+            }
+        }
+    }
+
+    @Test
+    void adminSeesOnlySelfAndDescendants() {
+        loginAs(ADMIN_ID, User.ROLE_ADMIN);
+
+        IPage<UserCreditsSummaryResponse> page = service.getUserCreditsSummaryPage(new Page<>(1, 100), null);
+
+        Set<Long> ids = new HashSet<>();
+        page.getRecords().forEach(r -> ids.add(r.getUserId()));
+        assertTrue(ids.contains(ADMIN_ID));
+        assertTrue(ids.stream().noneMatch(id -> id >= 1_000L), "不得包含子账号树外的用户");
+        assertEquals(SUB_USERS + 1, ids.size());
+    }
+
+    @Test
+    void superAdminSeesEveryUserAndUserSeesOnlySelf() {
+        loginAs(ADMIN_ID, User.ROLE_SUPER_ADMIN);
+        assertEquals(1 + SUB_USERS + OTHER_USERS, service.getUserCreditsSummaryPage(new Page<>(1, 10), null).getTotal());
+
+        loginAs(1_001L, User.ROLE_USER);
+        IPage<UserCreditsSummaryResponse> own = service.getUserCreditsSummaryPage(new Page<>(1, 10), null);
+        assertEquals(1, own.getTotal());
+        assertEquals(1_001L, own.getRecords().get(0).getUserId());
+        assertEquals(0, new BigDecimal("4.00").compareTo(own.getRecords().get(0).getTotalConsumed()));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void batchChargeChecksScopeWithOneQueryAndAcquiresDailyLimitsOnce() {
+        loginAs(ADMIN_ID, User.ROLE_ADMIN);
+        CreditDailyLimitManager dailyLimitManager = mock(CreditDailyLimitManager.class);
+        CreditDebitManager debitManager = mock(CreditDebitManager.class);
+        CreditUsageScenario scenario = new CreditUsageScenario();
+        scenario.setScenarioCode("AI_COMPUTE");
+        scenario.setScenarioName("推理");
+        scenario.setCreditTypeCode("NORMAL");
+        scenario.setCostPerUse(BigDecimal.ONE);
+        scenario.setDailyLimit(5);
+        scenario.setStatus(1);
+        when(creditScenarioManager.findScenario("AI_COMPUTE")).thenReturn(scenario);
+        // 第 2 项已达每日上限
+        when(dailyLimitManager.tryAcquireAll(anyList(), anyList())).thenAnswer(inv -> {
+            List<CreditDailyLimitManager.Reservation> acquired = new ArrayList<>();
+            for (int i = 0; i < inv.<List<Long>>getArgument(0).size(); i++) {
+                acquired.add(i == 1 ? null : mock(CreditDailyLimitManager.Reservation.class));
+            }
+            return acquired;
+        });
+        when(debitManager.debitBatch(any(), anyString(), anyList())).thenAnswer(inv -> {
+            int n = inv.<List<?>>getArgument(2).size();
+            List<CreditDebitManager.DebitOutcome> outcomes = new ArrayList<>();
+            List<CreditDebitManager.DebitResult> results = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                outcomes.add(CreditDebitManager.DebitOutcome.APPLIED);
+                results.add(new CreditDebitManager.DebitResult(null, BigDecimal.TEN, BigDecimal.ONE));
+            }
+            return new CreditDebitManager.BatchDebitResult(outcomes, results, BigDecimal.valueOf(n));
+        });
+        CreditServiceImpl batchService = newService(db, userSnapshotCache, creditScenarioManager, debitManager, dailyLimitManager);
+
+        List<CreditChargeBatchRequest.Item> items = new ArrayList<>();
+        for (long userId = ADMIN_ID + 1; userId <= ADMIN_ID + 20; userId++) {
+            items.add(chargeItem(userId));
+        }
+        items.add(chargeItem(1_000L));
+        items.add(chargeItem(1_001L));
+        db.resetQueryCount();
+
+        CreditChargeBatchResponse response = batchService.applyScenarioBatch(items);
+
+        // 数据域：22 个目标用户一次 IN 查询
+        assertEquals(1, db.queryCount(), () -> "sql=" + db.statements());
+        verify(dailyLimitManager, times(1)).tryAcquireAll(anyList(), anyList());
+        verify(dailyLimitManager, never()).tryAcquire(any(), any());
+        assertEquals(19, response.getApplied());
+        assertEquals(ErrorCode.CREDIT_DAILY_LIMIT_EXCEEDED.getCode(), response.getResults().get(1).getErrorCode());
+        assertEquals(ErrorCode.PERMISSION_DENIED.getCode(), response.getResults().get(20).getErrorCode());
+        assertEquals(ErrorCode.PERMISSION_DENIED.getCode(), response.getResults().get(21).getErrorCode());
+    }
+
+    private static CreditChargeBatchRequest.Item chargeItem(long userId) {
+        CreditChargeBatchRequest.Item item = new CreditChargeBatchRequest.Item();
+        item.setUserId(userId);
+        item.setScenarioCode("AI_COMPUTE");
+        item.setOrderId("ORD-" + userId);
+        return item;
+    }
+
+    private void loginAs(long userId, String role) {
+        stp.when(StpUtil::getLoginIdAsLong).thenReturn(userId);
+        when(userSnapshotCache.getRole(userId)).thenReturn(role);
+    }
+
+    static CreditServiceImpl newService(MapperTestDatabase db, UserSnapshotCache userSnapshotCache,
+                                        CreditScenarioManager creditScenarioManager) {
+        return newService(db, userSnapshotCache, creditScenarioManager,
+                mock(CreditDebitManager.class), mock(CreditDailyLimitManager.class));
+    }
+
+    static CreditServiceImpl newService(MapperTestDatabase db, UserSnapshotCache userSnapshotCache,
+                                        CreditScenarioManager creditScenarioManager,
+                                        CreditDebitManager creditDebitManager, CreditDailyLimitManager creditDailyLimitManager) {
+        UserMapper userMapper = db.mapper(UserMapper.class);
+        DataScopeServiceImpl dataScopeService = new DataScopeServiceImpl(userMapper, mock(TeamMembershipCache.class),
+                mock(UserHierarchyClosureMapper.class), userSnapshotCache);
+        return new CreditServiceImpl(db.mapper(UserCreditMapper.class), mock(CreditTypeMapper.class),
+                mock(CreditUsageScenarioMapper.class), mock(CreditTransactionMapper.class), userMapper,
+                userSnapshotCache, dataScopeService, creditDebitManager, mock(CreditDebitCoalescer.class),
+                mock(CreditHoldManager.class), creditScenarioManager, creditDailyLimitManager,
+                mock(CreditRollupManager.class), mock(CreditChargeIdempotencyManager.class),
+                mock(PlatformTransactionManager.class), mock(NotificationFacade.class));
+    }
+
+    static CreditType creditType(String code) {
+        CreditType type = new CreditType();
+        type.setTypeCode(code);
+        type.setTypeName("积分" + code);
+        type.setDecimalPlaces(2);
+        type.setTransferable(false);
+        type.setStatus(1);
+        return type;
+    }
+
+    /**
+     * 管理员及其子账号树：subUsers 个后代均匀分布在 depth 层，每层挂在上一层的节点下，并写入闭包表
+     */
+    static void seedAdminTree(MapperTestDatabase db, long adminId, int subUsers, int depth) {
+        seedUsers(db, adminId, 1, null);
+        List<long[]> closure = new ArrayList<>();
+        List<Long> previousLevel = List.of(adminId);
+        long[] parents = new long[subUsers];
+        long next = adminId + 1;
+        int perLevel = Math.max(1, (subUsers + depth - 1) / depth);
+        for (int created = 0; created < subUsers; ) {
+            List<Long> level = new ArrayList<>();
+            for (int i = 0; i < perLevel && created < subUsers; i++, created++) {
+                long id = next++;
+                long parent = previousLevel.get(i % previousLevel.size());
+                parents[(int) (id - adminId - 1)] = parent;
+                level.add(id);
+                // 父节点的全部祖先 + 父节点自身
+                closure.add(new long[]{parent, id, 1});
+                for (long[] row : new ArrayList<>(closure)) {
+                    if (row[1] == parent) {
+                        closure.add(new long[]{row[0], id, row[2] + 1});
+                    }
+                }
+            }
+            previousLevel = level;
+        }
+        seedUsers(db, adminId + 1, subUsers, null);
+        String[] links = new String[subUsers];
+        for (int i = 0; i < subUsers; i++) {
+            links[i] = "UPDATE users SET parent_user_id = " + parents[i] + " WHERE id = " + (adminId + 1 + i);
+        }
+        db.execute(links);
+        for (int from = 0; from < closure.size(); from += 1_000) {
+            StringBuilder sql = new StringBuilder("INSERT INTO user_hierarchy_closure (ancestor_id, descendant_id, depth) VALUES ");
+            for (int i = from; i < Math.min(closure.size(), from + 1_000); i++) {
+                long[] row = closure.get(i);
+                sql.append(i == from ? "" : ",").append('(').append(row[0]).append(',').append(row[1]).append(',').append(row[2]).append(')');
+            }
+            db.execute(sql.toString());
+        }
+    }
+
+    /**
+     * 写入 count 个启用用户（ID 自 firstId 起），每人每种积分类型一个账户，累计消费 1
+     */
+    static void seedUsers(MapperTestDatabase db, long firstId, int count, Long parentId) {
+        long last = firstId + count - 1;
+        db.execute("INSERT INTO users (id, username, password, nickname, role, parent_user_id) "
+                + "SELECT x, CONCAT('user', x), 'x', CONCAT('nick', x), 'USER', " + parentId + " FROM "
+                + MapperTestDatabase.range(firstId, last));
+        for (int t = 0; t < CREDIT_TYPES.length; t++) {
+            db.execute("INSERT INTO user_credits (id, user_id, credit_type_code, balance, total_earned, total_consumed) "
+                    + "SELECT x * 10 + " + t + ", x, '" + CREDIT_TYPES[t] + "', 10, 11, 1 FROM "
+                    + MapperTestDatabase.range(firstId, last));
+        }
+    }
+}
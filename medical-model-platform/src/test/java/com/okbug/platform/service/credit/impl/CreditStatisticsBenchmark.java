@@ -0,0 +1,188 @@
+package com.okbug.platform.service.credit.impl;
+
+import com.okbug.platform.common.cache.UserSnapshotCache;
+import com.okbug.platform.common.constants.SystemConfigKeys;
+import com.okbug.platform.entity.credit.CreditType;
+import com.okbug.platform.manager.credit.CreditChargeIdempotencyManager;
+import com.okbug.platform.manager.credit.CreditDailyLimitManager;
+import com.okbug.platform.manager.credit.CreditDebitCoalescer;
+import com.okbug.platform.manager.credit.CreditDebitManager;
+import com.okbug.platform.manager.credit.CreditHoldManager;
+import com.okbug.platform.manager.credit.CreditRollupManager;
+import com.okbug.platform.manager.credit.CreditScenarioManager;
+import com.okbug.platform.mapper.auth.UserMapper;
+import com.okbug.platform.mapper.credit.CreditRollupStateMapper;
+import com.okbug.platform.mapper.credit.CreditTransactionMapper;
+import com.okbug.platform.mapper.credit.CreditTransactionRollupMapper;
+import com.okbug.platform.mapper.credit.CreditTypeMapper;
+import com.okbug.platform.mapper.credit.CreditUsageScenarioMapper;
+import com.okbug.platform.mapper.credit.UserCreditMapper;
+import com.okbug.platform.service.security.DataScopeService;
+import com.okbug.platform.service.system.SystemConfigService;
+import com.okbug.platform.service.system.message.NotificationFacade;
+import com.okbug.platform.support.CreditLedgerFixture;
+import com.okbug.platform.support.MapperTestDatabase;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * 积分统计基准：CreditService#getCreditStatistics 在 10万/100万 条交易上的延迟与单次调用分配量
+ *
+ * 库由同进程 H2 TCP 服务执行（与 MySQL 一样在服务端线程扫描），交易表落盘且页缓存限定 16MB；汇总表关闭，
+ * 统计全部走交易表 GROUP BY。每次调用以 ThreadMXBean 统计调用线程的分配字节数，
+ * 正式迭代中任一调用超过 ALLOCATION_BOUND_BYTES 即失败：分配量与交易行数无关，只与分组数相关。
+ * 分叉限定 -Xmx96m，统计路径若按行加载交易即 OutOfMemoryError
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "-Xmx96m"})
+public class CreditStatisticsBenchmark {
+
+    /**
+     * 单次统计调用的分配上限：结果为 2 个账户分组 + 4 个交易分组，分配来自驱动解码、MyBatis 映射、日志与结果组装，
+     * 10万与100万行下实测均约 100KB/次
+     */
+    static final long ALLOCATION_BOUND_BYTES = 256 * 1024;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Param({"100000", "1000000"})
+    public int rows;
+
+    private Path dir;
+    private MapperTestDatabase db;
+    private CreditServiceImpl service;
+    private CreditLedgerFixture.Expected expected;
+    private long maxAllocated;
+    private long totalAllocated;
+    private long calls;
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("credit-stats-bench");
+        db = MapperTestDatabase.overTcp(dir, 16 * 1024, CreditTransactionMapper.class, UserCreditMapper.class);
+        CreditLedgerFixture.seedLedger(db, rows);
+        db.execute("INSERT INTO user_credits (id, user_id, credit_type_code, balance, total_earned, total_consumed) "
+                + "SELECT x, x, CASE WHEN MOD(x, 2) = 0 THEN 'NORMAL' ELSE 'BONUS' END, x, x * 2, x * 3 "
+                + "FROM " + MapperTestDatabase.range(1, 100));
+        expected = CreditLedgerFixture.Expected.of(1, rows, x -> true);
+
+        SystemConfigService rollupDisabled = (SystemConfigService) Proxy.newProxyInstance(
+                SystemConfigService.class.getClassLoader(), new Class<?>[]{SystemConfigService.class},
+                (proxy, method, args) -> {
+                    if ("getConfigValueAsBoolean".equals(method.getName())
+                            && SystemConfigKeys.CREDIT_ROLLUP_ENABLED.equals(args[0])) {
+                        return Boolean.FALSE;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        CreditRollupManager rollupManager = new CreditRollupManager(mock(StringRedisTemplate.class),
+                db.mapper(CreditTransactionMapper.class), mock(CreditTransactionRollupMapper.class),
+                mock(CreditRollupStateMapper.class), mock(PlatformTransactionManager.class), rollupDisabled);
+        CreditScenarioManager scenarioManager = new CreditScenarioManager() {
+            private final Map<String, CreditType> types = Map.of(
+                    "NORMAL", CreditServiceImplTests.creditType("NORMAL"),
+                    "BONUS", CreditServiceImplTests.creditType("BONUS"));
+
+            @Override
+            public CreditType findCreditType(String typeCode) {
+                return types.get(typeCode);
+            }
+        };
+        service = new CreditServiceImpl(db.mapper(UserCreditMapper.class), mock(CreditTypeMapper.class),
+                mock(CreditUsageScenarioMapper.class), db.mapper(CreditTransactionMapper.class), mock(UserMapper.class),
+                mock(UserSnapshotCache.class), mock(DataScopeService.class), mock(CreditDebitManager.class),
+                mock(CreditDebitCoalescer.class), mock(CreditHoldManager.class), scenarioManager,
+                mock(CreditDailyLimitManager.class), rollupManager, mock(CreditChargeIdempotencyManager.class),
+                mock(PlatformTransactionManager.class), mock(NotificationFacade.class));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        db.shutdown();
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void resetAllocation() {
+        maxAllocated = 0;
+        totalAllocated = 0;
+        calls = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void checkAllocation(IterationParams iteration) {
+        if (iteration.getType() != IterationType.MEASUREMENT || calls == 0) {
+            return;
+        }
+        System.out.printf("%n分配量: 平均 %d 字节/次, 最大 %d 字节/次, 上限 %d 字节/次%n",
+                totalAllocated / calls, maxAllocated, ALLOCATION_BOUND_BYTES);
+        if (maxAllocated > ALLOCATION_BOUND_BYTES) {
+            throw new IllegalStateException("单次积分统计分配 " + maxAllocated + " 字节，超过上限 " + ALLOCATION_BOUND_BYTES);
+        }
+    }
+
+    @Benchmark
+    public Map<String, Object> creditStatistics() {
+        long before = THREADS.getCurrentThreadAllocatedBytes();
+        Map<String, Object> statistics = service.getCreditStatistics("DAILY", CreditLedgerFixture.SEED_START,
+                CreditLedgerFixture.SEED_START.plusDays(1).minusSeconds(1), null);
+        long allocated = THREADS.getCurrentThreadAllocatedBytes() - before;
+        maxAllocated = Math.max(maxAllocated, allocated);
+        totalAllocated += allocated;
+        calls++;
+        verify(statistics);
+        return statistics;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void verify(Map<String, Object> statistics) {
+        long count = 0;
+        BigDecimal income = BigDecimal.ZERO;
+        for (Map<String, Object> item : (List<Map<String, Object>>) statistics.get("transactions")) {
+            count += (Long) item.get("count");
+            if ("EARN".equals(item.get("transactionType"))) {
+                income = income.add((BigDecimal) item.get("totalAmount"));
+            }
+        }
+        if (count != rows || income.compareTo(expected.income()) != 0) {
+            throw new IllegalStateException("统计结果与种子数据不一致: " + statistics);
+        }
+    }
+
+}
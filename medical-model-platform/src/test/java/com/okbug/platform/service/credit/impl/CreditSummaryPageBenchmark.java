@@ -0,0 +1,125 @@
+package com.okbug.platform.service.credit.impl;
+
+import cn.dev33.satoken.stp.StpUtil;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.okbug.platform.common.cache.UserSnapshotCache;
+import com.okbug.platform.dto.credit.response.UserCreditsSummaryResponse;
+import com.okbug.platform.entity.auth.User;
+import com.okbug.platform.entity.credit.UserCredit;
+import com.okbug.platform.manager.credit.CreditScenarioManager;
+import com.okbug.platform.mapper.auth.UserMapper;
+import com.okbug.platform.mapper.credit.UserCreditMapper;
+import com.okbug.platform.support.MapperTestDatabase;
+import org.mockito.MockedStatic;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * 用户积分汇总分页基准：延迟随页大小与子账号树深度的变化
+ *
+ * summaryPage 为当前实现（分页 + 一次 IN + 配置快照）；legacyPerUserQueries 复现改造前的查询形态
+ * （逐节点 BFS 查询子账号 + 逐用户查询积分账户），两者使用同一 H2 库与映射器
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class CreditSummaryPageBenchmark {
+
+    private static final long ADMIN_ID = 1L;
+    private static final int SUB_USERS = 2_000;
+
+    @Param({"20", "50", "200"})
+    public int pageSize;
+
+    @Param({"2", "8", "32"})
+    public int depth;
+
+    private MapperTestDatabase db;
+    private MockedStatic<StpUtil> stp;
+    private CreditServiceImpl service;
+    private UserMapper userMapper;
+    private UserCreditMapper userCreditMapper;
+
+    @Setup
+    public void setUp() {
+        db = MapperTestDatabase.inMemory("credit_summary_bench", UserMapper.class, UserCreditMapper.class);
+        CreditServiceImplTests.seedAdminTree(db, ADMIN_ID, SUB_USERS, depth);
+
+        stp = mockStatic(StpUtil.class);
+        stp.when(StpUtil::getLoginIdAsLong).thenReturn(ADMIN_ID);
+        UserSnapshotCache userSnapshotCache = mock(UserSnapshotCache.class, withSettings().stubOnly());
+        when(userSnapshotCache.getRole(ADMIN_ID)).thenReturn(User.ROLE_ADMIN);
+        CreditScenarioManager creditScenarioManager = mock(CreditScenarioManager.class, withSettings().stubOnly());
+        when(creditScenarioManager.findCreditType(anyString()))
+                .thenAnswer(inv -> CreditServiceImplTests.creditType(inv.getArgument(0)));
+        service = CreditServiceImplTests.newService(db, userSnapshotCache, creditScenarioManager);
+        userMapper = db.mapper(UserMapper.class);
+        userCreditMapper = db.mapper(UserCreditMapper.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        stp.close();
+    }
+
+    @Benchmark
+    public IPage<UserCreditsSummaryResponse> summaryPage() {
+        db.resetQueryCount();
+        return service.getUserCreditsSummaryPage(new Page<>(1, pageSize), null);
+    }
+
+    @Benchmark
+    public List<List<UserCredit>> legacyPerUserQueries() {
+        db.resetQueryCount();
+        Set<Long> visible = new HashSet<>();
+        visible.add(ADMIN_ID);
+        Deque<Long> queue = new ArrayDeque<>();
+        queue.add(ADMIN_ID);
+        while (!queue.isEmpty()) {
+            Long parentId = queue.poll();
+            for (User child : userMapper.selectList(new LambdaQueryWrapper<User>()
+                    .eq(User::getParentUserId, parentId)
+                    .eq(User::getIsDeleted, 0))) {
+                if (visible.add(child.getId())) {
+                    queue.add(child.getId());
+                }
+            }
+        }
+        IPage<User> users = userMapper.selectPage(new Page<>(1, pageSize),
+                new LambdaQueryWrapper<User>().eq(User::getIsDeleted, 0).in(User::getId, visible));
+        List<List<UserCredit>> credits = new ArrayList<>(users.getRecords().size());
+        for (User user : users.getRecords()) {
+            credits.add(userCreditMapper.selectByUserId(user.getId()));
+        }
+        return credits;
+    }
+}
@@ -0,0 +1,64 @@
+package com.okbug.platform.service.security;
+
+import com.okbug.platform.service.system.SystemConfigService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 防暴力尝试保护测试：失败记录后直接缓存锁定/未锁定状态，随后的锁定检查不访问 Redis
+ */
+class BruteForceGuardTests {
+
+    private static final String IP = "203.0.113.9";
+
+    private final StringRedisTemplate redis = mock(StringRedisTemplate.class);
+    private final SystemConfigService systemConfigService = mock(SystemConfigService.class);
+    private final BruteForceGuard guard = new BruteForceGuard();
+
+    @BeforeEach
+    void setUp() {
+        when(systemConfigService.getConfigValueAsInt(anyString(), anyInt())).thenAnswer(inv -> inv.getArgument(1));
+        ReflectionTestUtils.setField(guard, "stringRedisTemplate", redis);
+        ReflectionTestUtils.setField(guard, "systemConfigService", systemConfigService);
+        ReflectionTestUtils.invokeMethod(guard, "reloadPolicies");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void nonLockingFailureCachesUnlockedState() {
+        when(redis.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(List.of(1L, 0L));
+
+        assertFalse(guard.recordFailure(BruteForceGuard.SCENE_LOGIN_IP, IP));
+        assertFalse(guard.isLocked(BruteForceGuard.SCENE_LOGIN_IP, IP));
+
+        verify(redis, never()).getExpire(anyString(), any(TimeUnit.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void lockingFailureCachesLockedState() {
+        when(redis.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(List.of(20L, 60_000L));
+
+        assertTrue(guard.recordFailure(BruteForceGuard.SCENE_LOGIN_IP, IP));
+        assertTrue(guard.isLocked(BruteForceGuard.SCENE_LOGIN_IP, IP));
+
+        verify(redis, never()).getExpire(anyString(), any(TimeUnit.class));
+    }
+}
@@ -0,0 +1,107 @@
+package com.okbug.platform.service.security;
+
+import cn.hutool.crypto.digest.BCrypt;
+import com.okbug.platform.common.base.ServiceException;
+import com.okbug.platform.common.constants.SystemConfigKeys;
+import com.okbug.platform.common.utils.PasswordUtils;
+import com.okbug.platform.service.system.SystemConfigService;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * 密码校验基准：各加密强度下单次校验耗时分布（含 p99），用于对照登录 p99 目标选取 cost
+ *
+ * verify 为单线程校验；loginBurst* 以 32 个请求线程模拟登录高峰：callerThread 为改造前在请求线程上直接校验，
+ * pooled 经 PasswordHasher 的有界线程池校验，繁忙拒绝单独计数（busy），不计入成功校验
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class PasswordHashBenchmark {
+
+    private static final String PASSWORD = "Secret#123";
+    private static final int BURST_THREADS = 32;
+
+    @Param({"8", "10", "12"})
+    public int cost;
+
+    private String hashed;
+    private PasswordHasher hasher;
+
+    @Setup
+    public void setUp() {
+        hashed = BCrypt.hashpw(PASSWORD, BCrypt.gensalt(cost));
+        SystemConfigService systemConfigService = mock(SystemConfigService.class, withSettings().stubOnly());
+        when(systemConfigService.getConfigValueAsInt(eq(SystemConfigKeys.USER_PASSWORD_HASH_COST), any()))
+                .thenReturn(cost);
+        hasher = PasswordHasherTests.newHasher(systemConfigService,
+                mock(RedisMessageListenerContainer.class, withSettings().stubOnly()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        hasher.shutdown();
+    }
+
+    /**
+     * 拒绝计数：繁忙返回的请求
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Rejections {
+
+        public long busy;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            busy = 0;
+        }
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return PasswordUtils.matches(PASSWORD, hashed);
+    }
+
+    @Benchmark
+    @Threads(BURST_THREADS)
+    public boolean loginBurstCallerThread() {
+        return PasswordUtils.matches(PASSWORD, hashed);
+    }
+
+    @Benchmark
+    @Threads(BURST_THREADS)
+    public boolean loginBurstPooled(Rejections rejections) {
+        try {
+            return hasher.matches(PASSWORD, hashed);
+        } catch (ServiceException e) {
+            rejections.busy++;
+            return false;
+        }
+    }
+}
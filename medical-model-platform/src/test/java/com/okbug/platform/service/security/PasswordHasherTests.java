@@ -0,0 +1,141 @@
+package com.okbug.platform.service.security;
+
+import cn.hutool.crypto.digest.BCrypt;
+import com.okbug.platform.common.base.ErrorCode;
+import com.okbug.platform.common.base.ServiceException;
+import com.okbug.platform.common.constants.SystemConfigKeys;
+import com.okbug.platform.service.system.SystemConfigService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.listener.Topic;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 密码哈希执行器测试：配置强度、旧哈希升级、线程池满时快速返回繁忙
+ */
+class PasswordHasherTests {
+
+    private final SystemConfigService systemConfigService = mock(SystemConfigService.class);
+    private final RedisMessageListenerContainer listenerContainer = mock(RedisMessageListenerContainer.class);
+    private PasswordHasher hasher;
+
+    @BeforeEach
+    void setUp() {
+        configureCost(5);
+        hasher = newHasher(systemConfigService, listenerContainer);
+    }
+
+    @AfterEach
+    void tearDown() {
+        hasher.shutdown();
+    }
+
+    @Test
+    void encodesWithConfiguredCostAndVerifies() {
+        String hashed = hasher.encode("Secret#123");
+
+        assertTrue(hashed.startsWith("$2a$05$"), hashed);
+        assertTrue(hasher.matches("Secret#123", hashed));
+        assertFalse(hasher.matches("secret#123", hashed));
+        assertFalse(hasher.matches("Secret#123", null));
+        assertEquals(2L, hasher.getHashStats().get("verifications"));
+    }
+
+    @Test
+    void costIsClampedToSupportedRange() {
+        configureCost(1);
+        PasswordHasher clamped = newHasher(systemConfigService, listenerContainer);
+        try {
+            assertEquals(4, clamped.getHashStats().get("cost"));
+        } finally {
+            clamped.shutdown();
+        }
+    }
+
+    @Test
+    void weakerHashIsUpgradedAfterCostIsRaised() {
+        String old = BCrypt.hashpw("Secret#123", BCrypt.gensalt(4));
+        assertTrue(hasher.needsUpgrade(old));
+
+        String upgraded = hasher.upgrade("Secret#123");
+
+        assertTrue(upgraded.startsWith("$2a$05$"), upgraded);
+        assertFalse(hasher.needsUpgrade(upgraded));
+        assertFalse(hasher.needsUpgrade("not-a-bcrypt-hash"));
+        assertEquals(1L, hasher.getHashStats().get("upgraded"));
+    }
+
+    @Test
+    void costChangeBroadcastReloadsCost() {
+        ArgumentCaptor<MessageListener> listener = ArgumentCaptor.forClass(MessageListener.class);
+        verify(listenerContainer).addMessageListener(listener.capture(), any(Topic.class));
+
+        configureCost(6);
+        listener.getValue().onMessage(new DefaultMessage(new byte[0],
+                SystemConfigKeys.USER_PASSWORD_HASH_COST.getBytes(StandardCharsets.UTF_8)), null);
+
+        assertEquals(6, hasher.getHashStats().get("cost"));
+        assertTrue(hasher.encode("Secret#123").startsWith("$2a$06$"));
+    }
+
+    @Test
+    void saturatedPoolRejectsImmediatelyWithBusy() throws Exception {
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) ReflectionTestUtils.getField(hasher, "executor");
+        CountDownLatch release = new CountDownLatch(1);
+        int capacity = executor.getMaximumPoolSize() + executor.getQueue().remainingCapacity();
+        for (int i = 0; i < capacity; i++) {
+            executor.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        try {
+            long start = System.nanoTime();
+            ServiceException busy = assertThrows(ServiceException.class, () -> hasher.matches("a", "$2a$05$x"));
+
+            assertEquals(ErrorCode.PASSWORD_HASH_BUSY.getCode(), busy.getCode());
+            assertTrue(System.nanoTime() - start < 500_000_000L, "队列已满时不得等待");
+            assertEquals(1L, hasher.getHashStats().get("rejected"));
+            assertNull(hasher.upgrade("Secret#123"), "繁忙时跳过升级，下次登录再试");
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private void configureCost(int cost) {
+        when(systemConfigService.getConfigValueAsInt(eq(SystemConfigKeys.USER_PASSWORD_HASH_COST), any()))
+                .thenReturn(cost);
+    }
+
+    static PasswordHasher newHasher(SystemConfigService systemConfigService,
+                                    RedisMessageListenerContainer listenerContainer) {
+        PasswordHasher hasher = new PasswordHasher();
+        ReflectionTestUtils.setField(hasher, "systemConfigService", systemConfigService);
+        ReflectionTestUtils.setField(hasher, "redisMessageListenerContainer", listenerContainer);
+        hasher.init();
+        return hasher;
+    }
+}
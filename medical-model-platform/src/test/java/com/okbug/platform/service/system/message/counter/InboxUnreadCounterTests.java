@@ -0,0 +1,220 @@
+package com.okbug.platform.service.system.message.counter;
+
+import com.okbug.platform.mapper.system.message.MessageMapper;
+import com.okbug.platform.mapper.system.message.MessageReadMapper;
+import com.okbug.platform.ws.RealtimeWebSocketHandler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisScriptingCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 未读计数器测试：重建标记与并发调整、全部已读与定期校准
+ *
+ * Redis 以内存 Map 模拟，脚本语义与 InboxUnreadCounter 中的 Lua 脚本一致
+ */
+class InboxUnreadCounterTests {
+
+    private static final Long USER_ID = 42L;
+    private static final String KEY = "notify:unread:" + USER_ID;
+    private static final String MARK_KEY = "notify:unread:rebuild:" + USER_ID;
+
+    private final MessageMapper messageMapper = mock(MessageMapper.class);
+    private final MessageReadMapper messageReadMapper = mock(MessageReadMapper.class);
+    private final StringRedisTemplate redis = mock(StringRedisTemplate.class);
+    private final RealtimeWebSocketHandler webSocketHandler = mock(RealtimeWebSocketHandler.class);
+    private final Map<String, String> store = new ConcurrentHashMap<>();
+    private final AtomicLong databaseCount = new AtomicLong();
+    private final AtomicInteger databaseQueries = new AtomicInteger();
+
+    private Runnable duringCount = () -> { };
+    private InboxUnreadCounter counter;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws Exception {
+        ValueOperations<String, String> ops = mock(ValueOperations.class);
+        when(redis.opsForValue()).thenReturn(ops);
+        when(ops.get(anyString())).thenAnswer(inv -> store.get(inv.<String>getArgument(0)));
+        doAnswer(inv -> {
+            store.put(inv.getArgument(0), inv.getArgument(1));
+            return null;
+        }).when(ops).set(anyString(), anyString(), any(Duration.class));
+        when(redis.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenAnswer(inv -> {
+            // 展开后的参数：脚本、键列表、令牌、计数、过期秒数
+            List<String> keys = inv.getArgument(1);
+            return commitRebuild(keys.get(0), keys.get(1), inv.getArgument(2), inv.getArgument(3));
+        });
+        when(redis.delete(any(Collection.class))).thenAnswer(inv -> {
+            Collection<String> keys = inv.getArgument(0);
+            keys.forEach(store::remove);
+            return (long) keys.size();
+        });
+        when(redis.executePipelined(any(RedisCallback.class))).thenAnswer(inv -> pipeline(inv.getArgument(0)));
+
+        when(messageMapper.selectCount(any())).thenAnswer(inv -> {
+            databaseQueries.incrementAndGet();
+            duringCount.run();
+            return databaseCount.get();
+        });
+        when(messageReadMapper.selectCount(any())).thenReturn(0L);
+
+        counter = new InboxUnreadCounter(messageMapper, messageReadMapper, redis,
+                mock(RedisMessageListenerContainer.class), webSocketHandler);
+    }
+
+    @Test
+    void missingCounterIsRebuiltFromDatabase() {
+        databaseCount.set(4L);
+
+        assertEquals(4L, counter.get(USER_ID));
+        assertEquals("4", store.get(KEY));
+        assertNull(store.get(MARK_KEY));
+        assertEquals(4L, counter.get(USER_ID));
+        assertEquals(1, databaseQueries.get());
+    }
+
+    @Test
+    void incrementDuringRebuildIsNotLost() {
+        databaseCount.set(5L);
+        AtomicInteger round = new AtomicInteger();
+        duringCount = () -> {
+            if (round.incrementAndGet() == 1) {
+                // 统计完成前新消息提交：计数不存在时调整被丢弃，但会作废本次重建
+                databaseCount.set(6L);
+                counter.increment(USER_ID);
+            }
+        };
+
+        assertEquals(6L, counter.get(USER_ID));
+        assertEquals("6", store.get(KEY));
+        assertEquals(2, databaseQueries.get());
+    }
+
+    @Test
+    void rebuildIsNotCachedWhenRepeatedlyInterrupted() {
+        databaseCount.set(3L);
+        duringCount = () -> counter.increment(USER_ID);
+
+        assertEquals(3L, counter.get(USER_ID));
+        assertNull(store.get(KEY));
+        assertEquals(3, databaseQueries.get());
+    }
+
+    @Test
+    void adjustOnExistingCounterIsPushed() {
+        store.put(KEY, "2");
+
+        counter.increment(USER_ID);
+        counter.decrement(USER_ID);
+        counter.decrement(USER_ID);
+        counter.decrement(USER_ID);
+
+        assertEquals("0", store.get(KEY));
+        verify(webSocketHandler).sendUnreadCount(USER_ID, 3L);
+        verify(webSocketHandler).sendUnreadCount(USER_ID, 2L);
+        verify(webSocketHandler).sendUnreadCount(USER_ID, 1L);
+        verify(webSocketHandler).sendUnreadCount(USER_ID, 0L);
+        assertEquals(0, databaseQueries.get());
+    }
+
+    @Test
+    void resetRebuildsInsteadOfWritingZero() {
+        store.put(KEY, "3");
+        // 全部已读提交后又有一条新消息
+        databaseCount.set(1L);
+
+        counter.reset(USER_ID);
+
+        assertEquals("1", store.get(KEY));
+        verify(webSocketHandler).sendUnreadCount(USER_ID, 1L);
+        verify(webSocketHandler, never()).sendUnreadCount(USER_ID, 0L);
+    }
+
+    @Test
+    void reconcileCorrectsDriftedCounters() {
+        store.put(KEY, "2");
+        counter.increment(USER_ID);
+        // 模拟 Redis 侧偏差
+        store.put(KEY, "10");
+        databaseCount.set(3L);
+
+        counter.reconcile();
+
+        assertEquals("3", store.get(KEY));
+        verify(webSocketHandler, times(2)).sendUnreadCount(USER_ID, 3L);
+
+        // 已校准的用户不会在下一轮重复统计
+        int queries = databaseQueries.get();
+        counter.reconcile();
+        assertEquals(queries, databaseQueries.get());
+    }
+
+    // ================ Redis 模拟 ================
+
+    private Long commitRebuild(String key, String markKey, String token, String count) {
+        if (!token.equals(store.get(markKey))) {
+            return 0L;
+        }
+        store.put(key, count);
+        store.remove(markKey);
+        return 1L;
+    }
+
+    private List<Object> pipeline(RedisCallback<?> callback) throws Exception {
+        List<Object> results = new ArrayList<>();
+        RedisConnection connection = mock(RedisConnection.class);
+        RedisScriptingCommands scripting = mock(RedisScriptingCommands.class);
+        when(connection.scriptingCommands()).thenReturn(scripting);
+        when(scripting.eval(any(byte[].class), any(), anyInt(), any(byte[][].class))).thenAnswer(inv -> {
+            // 展开后的参数：脚本、返回类型、键数量、计数键、重建标记键、增量
+            String key = new String(inv.<byte[]>getArgument(3), StandardCharsets.UTF_8);
+            String markKey = new String(inv.<byte[]>getArgument(4), StandardCharsets.UTF_8);
+            long delta = Long.parseLong(new String(inv.<byte[]>getArgument(5), StandardCharsets.UTF_8));
+            results.add(adjust(key, markKey, delta));
+            return null;
+        });
+        when(connection.publish(any(byte[].class), any(byte[].class))).thenReturn(0L);
+        callback.doInRedis(connection);
+        return results;
+    }
+
+    private long adjust(String key, String markKey, long delta) {
+        store.remove(markKey);
+        String current = store.get(key);
+        if (current == null) {
+            return -1L;
+        }
+        long v = Math.max(0L, Long.parseLong(current) + delta);
+        store.put(key, String.valueOf(v));
+        return v;
+    }
+}
@@ -0,0 +1,64 @@
+package com.okbug.platform.service.system.message.dispatcher;
+
+import com.okbug.platform.mapper.system.message.MessageMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * 状态回写缓冲测试：按租约持有者分组回写，失败时整体放回队列
+ */
+class MessageStatusBufferTests {
+
+    private final MessageMapper messageMapper = mock(MessageMapper.class);
+    private final MessageStatusBuffer buffer = new MessageStatusBuffer(messageMapper);
+
+    @Test
+    void flushCompletesEachLeaseOwnerSeparately() {
+        buffer.complete(1L, "node-a:1", true);
+        buffer.complete(2L, "node-b:7", true);
+        buffer.complete(3L, "node-a:1", true);
+        buffer.complete(4L, "node-a:1", false);
+
+        buffer.flush();
+
+        verify(messageMapper).completeLeased(List.of(1L, 3L), "node-a:1", 2);
+        verify(messageMapper).completeLeased(List.of(2L), "node-b:7", 2);
+        verify(messageMapper).completeLeased(List.of(4L), "node-a:1", 4);
+        verifyNoMoreInteractions(messageMapper);
+        assertEquals(0, buffer.pendingCount());
+    }
+
+    @Test
+    void completionWithoutLeaseOwnerIsIgnored() {
+        buffer.complete(1L, null, true);
+        buffer.complete(null, "node-a:1", true);
+        assertEquals(0, buffer.pendingCount());
+    }
+
+    @Test
+    void failedFlushKeepsEveryCompletionQueued() {
+        when(messageMapper.completeLeased(anyCollection(), anyString(), anyInt()))
+                .thenThrow(new IllegalStateException("db down"));
+        buffer.complete(1L, "node-a:1", true);
+        buffer.complete(2L, "node-b:7", true);
+        buffer.complete(3L, "node-c:2", true);
+
+        buffer.flush();
+
+        assertEquals(3, buffer.pendingCount());
+        // 首组失败后不再逐组重试
+        verify(messageMapper, times(1)).completeLeased(anyCollection(), anyString(), eq(2));
+    }
+}
@@ -0,0 +1,201 @@
+package com.okbug.platform.service.system.message.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.okbug.platform.domain.notify.MessageChannel;
+import com.okbug.platform.domain.notify.MessageType;
+import com.okbug.platform.domain.notify.NotificationRouter;
+import com.okbug.platform.domain.notify.NotifyDictionary;
+import com.okbug.platform.entity.system.message.Message;
+import com.okbug.platform.mapper.system.message.MessageMapper;
+import com.okbug.platform.service.system.message.counter.InboxUnreadCounter;
+import com.okbug.platform.service.system.message.dispatcher.MessageDispatcher;
+import com.okbug.platform.service.system.message.dispatcher.MessageStatusBuffer;
+import com.okbug.platform.support.MapperTestDatabase;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * 批量扇出基准：1万 / 10万 / 100万接收人从写入到全部状态回写完成的耗时
+ *
+ * pipeline 为当前实现（分片多行写入 + 渠道线程池 + 状态批量回写）；legacyPerRecipient 复现改造前
+ * 逐人"写入一行 → 同步投递 → 回写一行"的形态。两者共用落盘的 H2 库，渠道偏好为桩；
+ * 投递为桩并按 deliverMicros 模拟每个渠道的下发延迟（0 时只比较写库与调度开销）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 2)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "-Xmx2g"})
+public class MessageFanoutBenchmark {
+
+    private static final String CHANNELS = "inbox,email";
+    private static final Set<String> ALL_CHANNELS = Set.of("inbox", "email");
+    private static final int STATUS_DONE = 2;
+
+    @Param({"10000", "100000", "1000000"})
+    public int recipients;
+
+    @Param({"0", "200"})
+    public long deliverMicros;
+
+    private Path dir;
+    private MapperTestDatabase db;
+    private MessageMapper messageMapper;
+    private MessageDispatcher messageDispatcher;
+    private NotificationRouter notificationRouter;
+    private MessageStatusBuffer messageStatusBuffer;
+    private MessageFanoutServiceImpl service;
+    private final LongAdder completed = new LongAdder();
+    private List<Long> userIds;
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("fanout-bench");
+        db = MapperTestDatabase.onDisk(dir, 64 * 1024, MessageMapper.class);
+        messageMapper = db.mapper(MessageMapper.class);
+
+        // 逐条调用的桩不用 Mockito：其每次调用记录调用栈，开销会淹没被测路径
+        messageDispatcher = new MessageDispatcher() {
+            @Override
+            public boolean dispatch(Message message) {
+                return true;
+            }
+
+            @Override
+            public boolean deliver(Message message, MessageChannel channel) {
+                if (deliverMicros > 0) {
+                    LockSupport.parkNanos(deliverMicros * 1_000L);
+                }
+                return true;
+            }
+        };
+        notificationRouter = new NotificationRouter(null, null) {
+            @Override
+            public Set<String> resolveEffectiveChannels(Long userId, String allowedChannels, String typeCode) {
+                return ALL_CHANNELS;
+            }
+
+            @Override
+            public Map<Long, Set<String>> resolveEffectiveChannels(Collection<Long> userIds, String allowedChannels,
+                                                                   String typeCode) {
+                Map<Long, Set<String>> channels = new HashMap<>(userIds.size() * 2);
+                userIds.forEach(id -> channels.put(id, ALL_CHANNELS));
+                return channels;
+            }
+        };
+        NotifyDictionary notifyDictionary = mock(NotifyDictionary.class, withSettings().stubOnly());
+        when(notifyDictionary.channelCodesCsv()).thenReturn(CHANNELS);
+
+        messageStatusBuffer = new MessageStatusBuffer(messageMapper) {
+            @Override
+            public void complete(Long messageId, String leaseOwner, boolean success) {
+                super.complete(messageId, leaseOwner, success);
+                completed.increment();
+            }
+        };
+        service = new MessageFanoutServiceImpl(messageMapper, messageDispatcher, messageStatusBuffer,
+                notificationRouter, notifyDictionary, mock(InboxUnreadCounter.class, withSettings().stubOnly()));
+        service.init();
+
+        userIds = new ArrayList<>(recipients);
+        for (long id = 1; id <= recipients; id++) {
+            userIds.add(id);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void truncate() {
+        db.execute("TRUNCATE TABLE notify_messages");
+        completed.reset();
+    }
+
+    @TearDown(Level.Iteration)
+    public void verifyDelivered() {
+        long done = messageMapper.selectCount(new LambdaQueryWrapper<Message>().eq(Message::getStatus, STATUS_DONE));
+        if (done != recipients) {
+            throw new IllegalStateException("已完成消息数与接收人数不一致: " + done + " != " + recipients);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        service.shutdown();
+        db.shutdown();
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public long pipeline() throws InterruptedException {
+        int staged = service.fanout(userIds, MessageType.SYSTEM, "维护通知", "系统将于今晚维护", 1L);
+        // 渠道线程池异步投递，等待全部消息结束后回写剩余状态（生产中由每秒一次的定时回写完成）
+        while (completed.sum() < staged) {
+            messageStatusBuffer.flush();
+            Thread.sleep(1);
+        }
+        messageStatusBuffer.flush();
+        return staged;
+    }
+
+    @Benchmark
+    public long legacyPerRecipient() {
+        long delivered = 0;
+        for (Long userId : userIds) {
+            LocalDateTime now = LocalDateTime.now();
+            Message m = new Message();
+            m.setUserId(userId);
+            m.setMessageType(MessageType.SYSTEM.code());
+            m.setTitle("维护通知");
+            m.setContent("系统将于今晚维护");
+            m.setStatus(0);
+            m.setCreateTime(now);
+            m.setUpdateTime(now);
+            m.setCreateBy(1L);
+            messageMapper.insert(m);
+            boolean anySuccess = false;
+            for (String code : notificationRouter.resolveEffectiveChannels(userId, CHANNELS, MessageType.SYSTEM.code())) {
+                anySuccess |= messageDispatcher.deliver(m, MessageChannel.fromCode(code));
+            }
+            Message update = new Message();
+            update.setId(m.getId());
+            update.setStatus(anySuccess ? STATUS_DONE : 4);
+            update.setUpdateTime(LocalDateTime.now());
+            messageMapper.updateById(update);
+            delivered++;
+        }
+        return delivered;
+    }
+}
@@ -0,0 +1,118 @@
+package com.okbug.platform.service.system.message.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.okbug.platform.domain.notify.MessageChannel;
+import com.okbug.platform.domain.notify.MessageType;
+import com.okbug.platform.domain.notify.NotificationRouter;
+import com.okbug.platform.domain.notify.NotifyDictionary;
+import com.okbug.platform.entity.system.message.Message;
+import com.okbug.platform.mapper.system.message.MessageMapper;
+import com.okbug.platform.service.system.message.counter.InboxUnreadCounter;
+import com.okbug.platform.service.system.message.dispatcher.MessageDispatcher;
+import com.okbug.platform.service.system.message.dispatcher.MessageStatusBuffer;
+import com.okbug.platform.support.MapperTestDatabase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 批量扇出测试：分片多行写入、整片解析渠道、按渠道投递并批量回写状态
+ */
+class MessageFanoutServiceImplTests {
+
+    private static final int RECIPIENTS = 1_203;
+
+    private final MapperTestDatabase db = MapperTestDatabase.inMemory("fanout", MessageMapper.class);
+    private final MessageMapper messageMapper = db.mapper(MessageMapper.class);
+    private final MessageDispatcher messageDispatcher = mock(MessageDispatcher.class);
+    private final NotificationRouter notificationRouter = mock(NotificationRouter.class);
+    private final InboxUnreadCounter inboxUnreadCounter = mock(InboxUnreadCounter.class);
+    private final MessageStatusBuffer messageStatusBuffer = new MessageStatusBuffer(messageMapper);
+    private MessageFanoutServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        NotifyDictionary notifyDictionary = mock(NotifyDictionary.class);
+        when(notifyDictionary.channelCodesCsv()).thenReturn("inbox,email");
+        // 用户ID为5的倍数关闭全部渠道；7的倍数仅邮件且投递失败；其余站内 + 邮件
+        when(notificationRouter.resolveEffectiveChannels(anyCollection(), anyString(), anyString()))
+                .thenAnswer(inv -> channelsOf(inv.getArgument(0)));
+        when(messageDispatcher.deliver(any(Message.class), eq(MessageChannel.INBOX))).thenReturn(true);
+        when(messageDispatcher.deliver(any(Message.class), eq(MessageChannel.EMAIL))).thenReturn(false);
+        service = new MessageFanoutServiceImpl(messageMapper, messageDispatcher, messageStatusBuffer,
+                notificationRouter, notifyDictionary, inboxUnreadCounter);
+        service.init();
+        db.resetQueryCount();
+    }
+
+    @Test
+    void recipientsAreStagedInChunksAndCompletedInBulk() {
+        List<Long> userIds = new ArrayList<>();
+        for (long id = 1; id <= RECIPIENTS; id++) {
+            userIds.add(id);
+        }
+        userIds.addAll(Arrays.asList(1L, null, 2L));
+
+        int staged = service.fanout(userIds, MessageType.SYSTEM, "维护通知", "今晚维护", 9L);
+        service.shutdown();
+
+        assertEquals(RECIPIENTS, staged);
+        long inserts = db.statements().stream().filter(sql -> sql.trim().startsWith("INSERT")).count();
+        assertEquals(3, inserts, "每片一次多行写入");
+        verify(notificationRouter, times(3)).resolveEffectiveChannels(anyCollection(), eq("inbox,email"), eq("system"));
+        verify(inboxUnreadCounter, times(3)).incrementAll(anyCollection());
+
+        db.resetQueryCount();
+        messageStatusBuffer.flush();
+        assertTrue(db.queryCount() <= 4, () -> "状态应按批回写: " + db.queryCount());
+
+        long emailOnly = 0;
+        for (long id = 1; id <= RECIPIENTS; id++) {
+            emailOnly += id % 5 != 0 && id % 7 == 0 ? 1 : 0;
+        }
+        assertEquals(RECIPIENTS - emailOnly, countByStatus(2));
+        assertEquals(emailOnly, countByStatus(4));
+        assertEquals(0, countByStatus(1), "不得遗留已入队的消息");
+    }
+
+    @Test
+    void emptyRecipientsStageNothing() {
+        assertEquals(0, service.fanout(List.of(), MessageType.SYSTEM, "t", "c", null));
+        assertEquals(0, service.fanout(Arrays.asList(null, null), MessageType.SYSTEM, "t", "c", null));
+        assertEquals(0, db.queryCount());
+        service.shutdown();
+    }
+
+    private long countByStatus(int status) {
+        return messageMapper.selectCount(new LambdaQueryWrapper<Message>().eq(Message::getStatus, status));
+    }
+
+    private static Map<Long, Set<String>> channelsOf(Collection<Long> userIds) {
+        Map<Long, Set<String>> channels = new HashMap<>();
+        for (Long id : userIds) {
+            if (id % 5 == 0) {
+                continue;
+            }
+            channels.put(id, id % 7 == 0 ? Set.of("email") : Set.of("inbox", "email"));
+        }
+        return channels;
+    }
+}
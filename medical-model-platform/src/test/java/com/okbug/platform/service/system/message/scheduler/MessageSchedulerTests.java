@@ -0,0 +1,132 @@
+package com.okbug.platform.service.system.message.scheduler;
+
+import com.okbug.platform.entity.system.message.Message;
+import com.okbug.platform.mapper.system.message.MessageMapper;
+import com.okbug.platform.service.system.message.dispatcher.MessageDispatcher;
+import com.okbug.platform.service.system.message.dispatcher.MessageStatusBuffer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 定时消息调度测试：租约领取、分发前续租与租约丢失时放弃发送
+ */
+class MessageSchedulerTests {
+
+    private final MessageMapper messageMapper = mock(MessageMapper.class);
+    private final MessageDispatcher dispatcher = mock(MessageDispatcher.class);
+    private final StringRedisTemplate redis = mock(StringRedisTemplate.class);
+    private final MessageStatusBuffer statusBuffer = mock(MessageStatusBuffer.class);
+    private final AtomicReference<String> claimedOwner = new AtomicReference<>();
+    private final List<Message> due = new ArrayList<>();
+
+    private MessageScheduler scheduler;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        when(redis.opsForZSet()).thenReturn(mock(ZSetOperations.class));
+        when(messageMapper.claimDue(anyString(), any(), any(), any(), anyInt(), anyInt(), anyInt()))
+                .thenAnswer(inv -> {
+                    if (due.isEmpty() || claimedOwner.get() != null) {
+                        return 0;
+                    }
+                    claimedOwner.set(inv.getArgument(0));
+                    due.forEach(m -> m.setLeaseOwner(claimedOwner.get()));
+                    return due.size();
+                });
+        when(messageMapper.selectList(any())).thenAnswer(inv -> new ArrayList<>(due));
+        when(dispatcher.dispatch(any())).thenReturn(true);
+        scheduler = new MessageScheduler(messageMapper, dispatcher, redis, statusBuffer);
+        scheduler.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void claimedMessagesAreCompletedUnderTheirLeaseOwner() {
+        Message m = message(1L, LocalDateTime.now().plusMinutes(5));
+        due.add(m);
+
+        scheduler.scanAndDispatch();
+
+        verify(dispatcher, timeout(2_000)).dispatch(m);
+        verify(statusBuffer, timeout(2_000)).complete(1L, claimedOwner.get(), true);
+        verify(messageMapper, never()).renewLease(any(), anyString(), any(), any());
+    }
+
+    @Test
+    void nearExpiryLeaseIsRenewedBeforeDispatch() {
+        Message m = message(2L, LocalDateTime.now().plusSeconds(10));
+        due.add(m);
+        when(messageMapper.renewLease(eq(2L), anyString(), any(), any())).thenReturn(1);
+
+        scheduler.scanAndDispatch();
+
+        verify(dispatcher, timeout(2_000)).dispatch(m);
+        verify(messageMapper).renewLease(eq(2L), eq(claimedOwner.get()), any(), any());
+        verify(statusBuffer, timeout(2_000)).complete(2L, claimedOwner.get(), true);
+        assertEquals(1L, stat("leaseRenewed"));
+    }
+
+    @Test
+    void lostLeaseIsNotDispatchedOrCompleted() throws Exception {
+        Message m = message(3L, LocalDateTime.now().minusSeconds(1));
+        due.add(m);
+        when(messageMapper.renewLease(eq(3L), anyString(), any(), any())).thenReturn(0);
+
+        scheduler.scanAndDispatch();
+
+        verify(messageMapper, timeout(2_000)).renewLease(eq(3L), anyString(), any(), any());
+        awaitInFlightDrained();
+        verify(dispatcher, never()).dispatch(any());
+        verify(statusBuffer, never()).complete(any(), any(), eq(true));
+        verify(statusBuffer, never()).complete(any(), any(), eq(false));
+        assertEquals(1L, stat("leaseLost"));
+    }
+
+    private static Message message(Long id, LocalDateTime leaseUntil) {
+        Message m = new Message();
+        m.setId(id);
+        m.setUserId(100L);
+        m.setStatus(1);
+        m.setScheduleTime(LocalDateTime.now().minusSeconds(1));
+        m.setLeaseUntil(leaseUntil);
+        return m;
+    }
+
+    private long stat(String name) {
+        Map<String, Object> stats = scheduler.getSchedulerStats();
+        return ((Number) stats.get(name)).longValue();
+    }
+
+    private void awaitInFlightDrained() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2_000L;
+        while (((Number) scheduler.getSchedulerStats().get("inFlight")).intValue() > 0
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5L);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.okbug.platform.support;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 基准线程数扫描：同一组基准依次以各线程数运行（JMH 的 @Threads 不支持参数化），最后汇总各线程数下的得分
+ *
+ * 用法：mvn -B test-compile exec:exec -Pbenchmark -Dbenchmark.main=com.okbug.platform.support.BenchmarkThreadSweep
+ * -Dbenchmark.includes=CreditDebit [-Dbenchmark.threads=1,8,32,64]
+ */
+public final class BenchmarkThreadSweep {
+
+    private static final String DEFAULT_THREADS = "1,8,32,64";
+
+    private BenchmarkThreadSweep() {
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        String includes = args.length > 0 ? args[0] : ".*Benchmark.*";
+        List<String> summary = new ArrayList<>();
+        for (String value : System.getProperty("benchmark.threads", DEFAULT_THREADS).split(",")) {
+            int threads = Integer.parseInt(value.trim());
+            Options options = new OptionsBuilder()
+                    .include(includes)
+                    .threads(threads)
+                    .shouldFailOnError(true)
+                    .build();
+            for (RunResult result : new Runner(options).run()) {
+                BenchmarkParams params = result.getParams();
+                StringBuilder keys = new StringBuilder();
+                for (String key : params.getParamsKeys()) {
+                    keys.append(key).append('=').append(params.getParam(key)).append(' ');
+                }
+                summary.add(String.format("%-70s %-30s threads=%-3d %12.3f %s", params.getBenchmark(), keys,
+                        threads, result.getPrimaryResult().getScore(), result.getPrimaryResult().getScoreUnit()));
+            }
+        }
+        System.out.println();
+        System.out.println("# Thread sweep summary");
+        summary.forEach(System.out::println);
+    }
+}
@@ -0,0 +1,63 @@
+package com.okbug.platform.support;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.function.LongPredicate;
+
+/**
+ * 积分交易造数：按固定规则写入交易并给出逐行累加的期望值，供统计SQL测试与统计基准共用
+ */
+public final class CreditLedgerFixture {
+
+    public static final LocalDateTime SEED_START = LocalDateTime.of(2026, 10, 1, 0, 0);
+
+    private CreditLedgerFixture() {
+    }
+
+    /**
+     * 写入 rows 条交易：第 x 条属于用户 x%10，x%3==0 为支出 -(x%7+1)，否则为收入 x%5+1，每条间隔50毫秒，均落在 SEED_START 当天
+     */
+    public static void seedLedger(MapperTestDatabase db, int rows) {
+        int chunk = 100_000;
+        for (int from = 1; from <= rows; from += chunk) {
+            int to = Math.min(rows, from + chunk - 1);
+            db.execute("INSERT INTO credit_transactions "
+                    + "(id, user_id, credit_type_code, transaction_type, amount, balance_before, balance_after, create_time) "
+                    + "SELECT x, MOD(x, 10), CASE WHEN MOD(x, 2) = 0 THEN 'NORMAL' ELSE 'BONUS' END, "
+                    + "CASE WHEN MOD(x, 3) = 0 THEN 'SPEND' ELSE 'EARN' END, "
+                    + "CASE WHEN MOD(x, 3) = 0 THEN -(MOD(x, 7) + 1) ELSE MOD(x, 5) + 1 END, 0, 0, "
+                    + "DATEADD(MILLISECOND, x * 50, TIMESTAMP '2026-10-01 00:00:00') "
+                    + "FROM " + MapperTestDatabase.range(from, to));
+        }
+    }
+
+    public static BigDecimal decimal(Map<String, Object> row, String column) {
+        Object value = row == null ? null : row.get(column);
+        return value == null ? BigDecimal.ZERO : new BigDecimal(value.toString());
+    }
+
+    /**
+     * 按种子规则逐行累加的期望值
+     */
+    public record Expected(BigDecimal income, BigDecimal expense, long incomeCount) {
+
+        public static Expected of(long from, long to, LongPredicate filter) {
+            long income = 0;
+            long expense = 0;
+            long incomeCount = 0;
+            for (long x = from; x <= to; x++) {
+                if (!filter.test(x)) {
+                    continue;
+                }
+                if (x % 3 == 0) {
+                    expense += x % 7 + 1;
+                } else {
+                    income += x % 5 + 1;
+                    incomeCount++;
+                }
+            }
+            return new Expected(BigDecimal.valueOf(income), BigDecimal.valueOf(expense), incomeCount);
+        }
+    }
+}
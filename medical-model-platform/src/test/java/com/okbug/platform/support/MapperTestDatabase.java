@@ -0,0 +1,198 @@
+package com.okbug.platform.support;
+
+import com.baomidou.mybatisplus.annotation.DbType;
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.MybatisSqlSessionFactoryBuilder;
+import com.baomidou.mybatisplus.extension.plugins.MybatisPlusInterceptor;
+import com.baomidou.mybatisplus.extension.plugins.inner.PaginationInnerInterceptor;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.SqlSessionManager;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.h2.jdbcx.JdbcDataSource;
+import org.h2.tools.Server;
+import org.mybatis.spring.transaction.SpringManagedTransactionFactory;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.Reader;
+import java.net.ServerSocket;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 映射器测试库：H2（MySQL兼容模式）+ MyBatis-Plus，记录每条实际执行的SQL，用于查询次数测试与基准
+ *
+ * 映射器按 Spring 托管事务取连接：{@link #transactionTemplate()} 事务内的调用共用同一连接，事务外逐条自动提交
+ */
+public final class MapperTestDatabase {
+
+    private static final String SCHEMA = "db/h2-schema.sql";
+    private static final String MYSQL_MODE = "MODE=MySQL;DATABASE_TO_LOWER=TRUE";
+
+    private final DataSource dataSource;
+    private final SqlSessionManager sessions;
+    private final List<String> statements = Collections.synchronizedList(new ArrayList<>());
+    private final Server server;
+
+    private MapperTestDatabase(String url, Class<?>... mappers) {
+        this(url, null, mappers);
+    }
+
+    private MapperTestDatabase(String url, Server server, Class<?>... mappers) {
+        this.server = server;
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL(url);
+        h2.setUser("sa");
+        // TCP 库与生产一样复用连接，避免每次调用新建连接的握手与缓冲区分配
+        this.dataSource = server == null ? h2 : JdbcConnectionPool.create(h2);
+        runSchema();
+
+        MybatisConfiguration configuration = new MybatisConfiguration();
+        configuration.setEnvironment(new Environment("test", new SpringManagedTransactionFactory(), dataSource));
+        configuration.setMapUnderscoreToCamelCase(true);
+        MybatisPlusInterceptor plus = new MybatisPlusInterceptor();
+        plus.addInnerInterceptor(new PaginationInnerInterceptor(DbType.MYSQL));
+        configuration.addInterceptor(plus);
+        configuration.addInterceptor(new StatementRecorder(statements));
+        for (Class<?> mapper : mappers) {
+            configuration.addMapper(mapper);
+        }
+        sessions = SqlSessionManager.newInstance(new MybatisSqlSessionFactoryBuilder().build(configuration));
+    }
+
+    /**
+     * 内存库：创建时重建表结构，数据保留至 JVM 退出
+     */
+    public static MapperTestDatabase inMemory(String name, Class<?>... mappers) {
+        return new MapperTestDatabase("jdbc:h2:mem:" + name + ";" + MYSQL_MODE + ";DB_CLOSE_DELAY=-1", mappers);
+    }
+
+    /**
+     * 文件库：数据落盘、页缓存受限，大数据量基准不占用堆；库在 {@link #shutdown} 前保持打开
+     *
+     * @param dir 数据目录
+     * @param cacheKb 页缓存上限（KB）
+     */
+    public static MapperTestDatabase onDisk(Path dir, int cacheKb, Class<?>... mappers) {
+        return new MapperTestDatabase("jdbc:h2:file:" + dir.resolve("db").toAbsolutePath() + ";" + MYSQL_MODE
+                + ";CACHE_SIZE=" + cacheKb + ";DB_CLOSE_DELAY=-1", mappers);
+    }
+
+    /**
+     * TCP 文件库：库由同进程内的 H2 TCP 服务执行（与 MySQL 一样在服务端线程扫描），
+     * 调用线程只承担驱动解码、MyBatis 映射与业务代码的开销，用于按线程统计分配量；{@link #shutdown} 时停止服务
+     *
+     * @param dir 数据目录
+     * @param cacheKb 页缓存上限（KB）
+     */
+    public static MapperTestDatabase overTcp(Path dir, int cacheKb, Class<?>... mappers) {
+        Server server;
+        try (ServerSocket probe = new ServerSocket(0)) {
+            int port = probe.getLocalPort();
+            probe.close();
+            server = Server.createTcpServer("-tcpPort", String.valueOf(port), "-ifNotExists",
+                    "-baseDir", dir.toAbsolutePath().toString()).start();
+        } catch (IOException | SQLException e) {
+            throw new IllegalStateException("启动 H2 TCP 服务失败", e);
+        }
+        return new MapperTestDatabase("jdbc:h2:tcp://localhost:" + server.getPort() + "/./db;" + MYSQL_MODE
+                + ";CACHE_SIZE=" + cacheKb + ";DB_CLOSE_DELAY=-1", server, mappers);
+    }
+
+    /**
+     * 获取映射器（每次调用独立会话并自动提交）
+     */
+    public <T> T mapper(Class<T> type) {
+        return sessions.getMapper(type);
+    }
+
+    /**
+     * 测试库上的事务模板：与生产一致地绑定连接并触发事务同步回调
+     */
+    public TransactionTemplate transactionTemplate() {
+        return new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    /**
+     * 直接执行SQL（建数、清理），不计入查询次数
+     */
+    public void execute(String... sql) {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            for (String s : sql) {
+                statement.execute(s);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 造数用序列表：单列 x 取 [from, to]（H2 内置序列列名为大写 X，小写库名模式下需转出）
+     */
+    public static String range(long from, long to) {
+        return "(SELECT \"X\" AS x FROM SYSTEM_RANGE(" + from + ", " + to + ")) r";
+    }
+
+    /**
+     * 自上次清零以来经映射器执行的SQL
+     */
+    public List<String> statements() {
+        synchronized (statements) {
+            return new ArrayList<>(statements);
+        }
+    }
+
+    /**
+     * 关闭文件库（每个会话独立取连接，文件库需保持打开，否则最后一个连接关闭时即关库）
+     */
+    public void shutdown() {
+        execute("SHUTDOWN");
+        if (server != null) {
+            ((JdbcConnectionPool) dataSource).dispose();
+            server.stop();
+        }
+    }
+
+    public int queryCount() {
+        return statements.size();
+    }
+
+    public void resetQueryCount() {
+        statements.clear();
+    }
+
+    private void runSchema() {
+        try (Connection connection = dataSource.getConnection(); Reader reader = Resources.getResourceAsReader(SCHEMA)) {
+            ScriptRunner runner = new ScriptRunner(connection);
+            runner.setLogWriter(null);
+            runner.setStopOnError(true);
+            runner.runScript(reader);
+        } catch (Exception e) {
+            throw new IllegalStateException("初始化测试库失败", e);
+        }
+    }
+
+    @Intercepts(@Signature(type = StatementHandler.class, method = "prepare", args = {Connection.class, Integer.class}))
+    private record StatementRecorder(List<String> statements) implements Interceptor {
+
+        @Override
+        public Object intercept(Invocation invocation) throws Throwable {
+            statements.add(((StatementHandler) invocation.getTarget()).getBoundSql().getSql());
+            return invocation.proceed();
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.okbug.platform.ws;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 会话发送队列测试：单发送者顺序、溢出策略与慢客户端关闭
+ */
+class WebSocketSessionSenderTests {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final WebSocketSessionSender.Metrics metrics = new WebSocketSessionSender.Metrics();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentOffersAreSentInOrderBySingleSender() throws Exception {
+        WebSocketSession session = mockSession();
+        List<String> sent = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger concurrent = new AtomicInteger();
+        AtomicInteger maxConcurrent = new AtomicInteger();
+        doAnswer(inv -> {
+            maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+            sent.add(((TextMessage) inv.getArgument(0)).getPayload());
+            concurrent.decrementAndGet();
+            return null;
+        }).when(session).sendMessage(any());
+        WebSocketSessionSender sender = new WebSocketSessionSender(session, 10_000, 5_000L,
+                WebSocketSessionSender.OverflowStrategy.DROP_OLDEST, executor, metrics);
+
+        int producers = 8;
+        int perProducer = 500;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            threads.add(Thread.ofVirtual().start(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    sender.offer(new TextMessage(producer + ":" + i));
+                }
+            }));
+        }
+        start.countDown();
+        for (Thread t : threads) {
+            t.join();
+        }
+        awaitSent(producers * perProducer);
+
+        assertEquals(producers * perProducer, sent.size());
+        assertEquals(1, maxConcurrent.get(), "同一会话不得被并发写");
+        // 每个生产者的消息保持入队顺序
+        int[] last = new int[producers];
+        Arrays.fill(last, -1);
+        for (String payload : sent) {
+            String[] parts = payload.split(":");
+            int producer = Integer.parseInt(parts[0]);
+            int seq = Integer.parseInt(parts[1]);
+            assertTrue(seq > last[producer], "乱序: " + payload);
+            last[producer] = seq;
+        }
+    }
+
+    @Test
+    void dropOldestKeepsNewestMessagesWhenBufferIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        WebSocketSession session = blockingSession(release);
+        WebSocketSessionSender sender = new WebSocketSessionSender(session, 3, 60_000L,
+                WebSocketSessionSender.OverflowStrategy.DROP_OLDEST, executor, metrics);
+
+        sender.offer(new TextMessage("0"));
+        verify(session, timeout(2_000)).sendMessage(any());
+        for (int i = 1; i <= 5; i++) {
+            sender.offer(new TextMessage(String.valueOf(i)));
+        }
+        assertEquals(3, sender.getBufferSize());
+        assertEquals(2L, metrics.dropped.sum());
+        release.countDown();
+        awaitSent(4);
+    }
+
+    @Test
+    void dropNewestRejectsIncomingMessagesWhenBufferIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        WebSocketSession session = blockingSession(release);
+        WebSocketSessionSender sender = new WebSocketSessionSender(session, 2, 60_000L,
+                WebSocketSessionSender.OverflowStrategy.DROP_NEWEST, executor, metrics);
+
+        sender.offer(new TextMessage("0"));
+        verify(session, timeout(2_000)).sendMessage(any());
+        for (int i = 1; i <= 4; i++) {
+            sender.offer(new TextMessage(String.valueOf(i)));
+        }
+        assertEquals(2, sender.getBufferSize());
+        assertEquals(2L, metrics.dropped.sum());
+        release.countDown();
+        awaitSent(3);
+    }
+
+    @Test
+    void terminateStrategyClosesSessionWhenBufferIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        WebSocketSession session = blockingSession(release);
+        WebSocketSessionSender sender = new WebSocketSessionSender(session, 1, 60_000L,
+                WebSocketSessionSender.OverflowStrategy.TERMINATE, executor, metrics);
+
+        sender.offer(new TextMessage("0"));
+        verify(session, timeout(2_000)).sendMessage(any());
+        sender.offer(new TextMessage("1"));
+        sender.offer(new TextMessage("2"));
+
+        verify(session, timeout(2_000)).close(CloseStatus.SESSION_NOT_RELIABLE);
+        assertEquals(1L, metrics.terminated.sum());
+        assertEquals(0, sender.getBufferSize());
+        release.countDown();
+    }
+
+    @Test
+    void slowClientIsClosedOnceSendTimeLimitIsExceeded() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        WebSocketSession session = blockingSession(release);
+        WebSocketSessionSender sender = new WebSocketSessionSender(session, 100, 50L,
+                WebSocketSessionSender.OverflowStrategy.DROP_OLDEST, executor, metrics);
+
+        sender.offer(new TextMessage("0"));
+        verify(session, timeout(2_000)).sendMessage(any());
+        Thread.sleep(100L);
+        sender.offer(new TextMessage("1"));
+
+        verify(session, timeout(2_000)).close(CloseStatus.SESSION_NOT_RELIABLE);
+        assertEquals(1L, metrics.terminated.sum());
+        release.countDown();
+    }
+
+    @Test
+    void parseFallsBackToDropOldest() {
+        assertEquals(WebSocketSessionSender.OverflowStrategy.TERMINATE, WebSocketSessionSender.OverflowStrategy.parse(" terminate "));
+        assertEquals(WebSocketSessionSender.OverflowStrategy.DROP_OLDEST, WebSocketSessionSender.OverflowStrategy.parse("unknown"));
+        assertEquals(WebSocketSessionSender.OverflowStrategy.DROP_OLDEST, WebSocketSessionSender.OverflowStrategy.parse(null));
+    }
+
+    private static WebSocketSession mockSession() {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn("s-1");
+        return session;
+    }
+
+    /**
+     * 首次发送阻塞到 release 打开，模拟不读取数据的客户端
+     */
+    private static WebSocketSession blockingSession(CountDownLatch release) throws Exception {
+        WebSocketSession session = mockSession();
+        doAnswer(inv -> {
+            release.await(10, TimeUnit.SECONDS);
+            return null;
+        }).when(session).sendMessage(any());
+        return session;
+    }
+
+    private void awaitSent(long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000L;
+        while (metrics.sent.sum() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5L);
+        }
+        assertEquals(expected, metrics.sent.sum());
+    }
+}
@@ -0,0 +1,111 @@
+-- 映射器测试与基准用表结构（H2 MySQL兼容模式），列与 .sql/init.sql 保持一致，省略生成列与索引选项
+
+DROP TABLE IF EXISTS users;
+CREATE TABLE users (
+  id bigint NOT NULL,
+  username varchar(50) NOT NULL,
+  email varchar(100) DEFAULT NULL,
+  phone varchar(20) DEFAULT NULL,
+  password varchar(255) NOT NULL,
+  nickname varchar(50) DEFAULT NULL,
+  avatar varchar(500) DEFAULT NULL,
+  status tinyint NOT NULL DEFAULT 1,
+  role varchar(20) NOT NULL DEFAULT 'USER',
+  parent_user_id bigint DEFAULT NULL,
+  referral_code varchar(20) DEFAULT NULL,
+  referrer_user_id bigint DEFAULT NULL,
+  last_login_time datetime DEFAULT NULL,
+  last_login_ip varchar(50) DEFAULT NULL,
+  login_fail_count int NOT NULL DEFAULT 0,
+  login_lock_time datetime DEFAULT NULL,
+  is_deleted tinyint NOT NULL DEFAULT 0,
+  create_time datetime NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  update_time datetime NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  create_by bigint DEFAULT NULL,
+  update_by bigint DEFAULT NULL,
+  PRIMARY KEY (id)
+);
+CREATE INDEX idx_users_parent_user_id ON users (parent_user_id);
+
+DROP TABLE IF EXISTS user_hierarchy_closure;
+CREATE TABLE user_hierarchy_closure (
+  ancestor_id bigint NOT NULL,
+  descendant_id bigint NOT NULL,
+  depth int NOT NULL,
+  PRIMARY KEY (ancestor_id, descendant_id)
+);
+CREATE INDEX idx_uhc_descendant ON user_hierarchy_closure (descendant_id);
+
+DROP TABLE IF EXISTS user_credits;
+CREATE TABLE user_credits (
+  id bigint NOT NULL,
+  user_id bigint NOT NULL,
+  credit_type_code varchar(50) NOT NULL,
+  balance decimal(10,2) NOT NULL DEFAULT 0.00,
+  total_earned decimal(10,2) NOT NULL DEFAULT 0.00,
+  total_consumed decimal(10,2) NOT NULL DEFAULT 0.00,
+  version int NOT NULL DEFAULT 0,
+  is_deleted tinyint NOT NULL DEFAULT 0,
+  create_time datetime NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  update_time datetime NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (id)
+);
+CREATE INDEX idx_user_credits_user_id ON user_credits (user_id);
+
+DROP TABLE IF EXISTS credit_transactions;
+CREATE TABLE credit_transactions (
+  id bigint NOT NULL,
+  user_id bigint NOT NULL,
+  credit_type_code varchar(50) NOT NULL,
+  transaction_type varchar(30) NOT NULL,
+  amount decimal(10,2) NOT NULL,
+  balance_before decimal(10,2) NOT NULL,
+  balance_after decimal(10,2) NOT NULL,
+  related_user_id bigint DEFAULT NULL,
+  related_order_id varchar(50) DEFAULT NULL,
+  related_transaction_id bigint DEFAULT NULL,
+  scenario_code varchar(50) DEFAULT NULL,
+  description varchar(200) DEFAULT NULL,
+  is_deleted tinyint NOT NULL DEFAULT 0,
+  create_time datetime NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  update_time datetime NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (id)
+);
+CREATE INDEX idx_credit_transactions_user_id ON credit_transactions (user_id);
+CREATE INDEX idx_credit_transactions_create_time ON credit_transactions (create_time);
+
+DROP TABLE IF EXISTS notify_messages;
+CREATE TABLE notify_messages (
+  id bigint NOT NULL,
+  user_id bigint NOT NULL,
+  message_type varchar(50) DEFAULT NULL,
+  title varchar(200) DEFAULT NULL,
+  content longtext NOT NULL,
+  schedule_time datetime DEFAULT NULL,
+  status tinyint NOT NULL DEFAULT 0,
+  lease_owner varchar(64) DEFAULT NULL,
+  lease_until datetime DEFAULT NULL,
+  is_deleted tinyint NOT NULL DEFAULT 0,
+  create_time datetime NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  update_time datetime NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  create_by bigint DEFAULT NULL,
+  update_by bigint DEFAULT NULL,
+  PRIMARY KEY (id)
+);
+CREATE INDEX idx_notify_messages_user ON notify_messages (user_id);
+CREATE INDEX idx_notify_messages_due ON notify_messages (status, schedule_time);
+CREATE INDEX idx_notify_messages_lease ON notify_messages (lease_owner);
+
+DROP TABLE IF EXISTS notify_message_reads;
+CREATE TABLE notify_message_reads (
+  id bigint NOT NULL,
+  message_id bigint NOT NULL,
+  user_id bigint NOT NULL,
+  read_at datetime NOT NULL,
+  is_deleted tinyint NOT NULL DEFAULT 0,
+  create_time datetime NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  update_time datetime NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (id),
+  CONSTRAINT uk_notify_message_read_user UNIQUE (message_id, user_id)
+);
+CREATE INDEX idx_notify_message_read_user_time ON notify_message_reads (user_id, read_at);